@@ -118,6 +118,18 @@ public class DatawaveSecurityProperties {
     public static class Jwt {
         private boolean enabled = true;
         private int ttl;
+        // the minimum remaining lifetime, in seconds, for an inbound token to be forwarded on outbound calls made for the same user rather than creating a
+        // new token (a negative value always creates a new token)
+        private int forwardMinRemainingTtl = 60;
+        // the maximum number of users to cache created tokens for (0 creates a new token for every outbound call)
+        private int tokenCacheSize = 1000;
+        // the minimum remaining lifetime, in seconds, of a cached token handed out for an outbound call
+        private int tokenCacheSafetyMargin = 60;
+        // how long, in seconds, before a cached token reaches the safety margin to create its replacement in the background (0 never refreshes early)
+        private int tokenCacheRefreshAhead = 60;
+        // the hosts (or, for load-balanced calls, service IDs) that WebClients built by Spring add a JWT for the current user to requests for (empty, the
+        // default, adds it to no requests)
+        private List<String> webClientPropagationHosts = new ArrayList<>();
         
         public boolean isEnabled() {
             return enabled;
@@ -138,5 +150,57 @@ public class DatawaveSecurityProperties {
         public void setTtl(int ttl) {
             this.ttl = ttl;
         }
+        
+        public int getForwardMinRemainingTtl() {
+            return forwardMinRemainingTtl;
+        }
+        
+        public long getForwardMinRemainingTtl(TimeUnit timeUnit) {
+            return timeUnit.convert(forwardMinRemainingTtl, TimeUnit.SECONDS);
+        }
+        
+        public void setForwardMinRemainingTtl(int forwardMinRemainingTtl) {
+            this.forwardMinRemainingTtl = forwardMinRemainingTtl;
+        }
+        
+        public int getTokenCacheSize() {
+            return tokenCacheSize;
+        }
+        
+        public void setTokenCacheSize(int tokenCacheSize) {
+            this.tokenCacheSize = tokenCacheSize;
+        }
+        
+        public int getTokenCacheSafetyMargin() {
+            return tokenCacheSafetyMargin;
+        }
+        
+        public long getTokenCacheSafetyMargin(TimeUnit timeUnit) {
+            return timeUnit.convert(tokenCacheSafetyMargin, TimeUnit.SECONDS);
+        }
+        
+        public void setTokenCacheSafetyMargin(int tokenCacheSafetyMargin) {
+            this.tokenCacheSafetyMargin = tokenCacheSafetyMargin;
+        }
+        
+        public int getTokenCacheRefreshAhead() {
+            return tokenCacheRefreshAhead;
+        }
+        
+        public long getTokenCacheRefreshAhead(TimeUnit timeUnit) {
+            return timeUnit.convert(tokenCacheRefreshAhead, TimeUnit.SECONDS);
+        }
+        
+        public void setTokenCacheRefreshAhead(int tokenCacheRefreshAhead) {
+            this.tokenCacheRefreshAhead = tokenCacheRefreshAhead;
+        }
+        
+        public List<String> getWebClientPropagationHosts() {
+            return webClientPropagationHosts;
+        }
+        
+        public void setWebClientPropagationHosts(List<String> webClientPropagationHosts) {
+            this.webClientPropagationHosts = webClientPropagationHosts;
+        }
     }
 }
@@ -0,0 +1,123 @@
+package datawave.microservice.authorization.federation;
+
+import java.util.function.LongSupplier;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.CircuitBreakerProperties;
+
+/**
+ * A count-based circuit breaker for calls to a single remote service.
+ * <p>
+ * While {@link State#CLOSED}, the outcome of the most recent calls is tracked in a ring buffer. Once the failure rate across that window exceeds the configured
+ * threshold, the circuit {@link State#OPEN opens} and calls are rejected without contacting the remote service. After the open duration elapses, a limited
+ * number of trial calls are permitted ({@link State#HALF_OPEN}). If all of them succeed the circuit closes, and if any of them fails it opens again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final CircuitBreakerProperties properties;
+    private final LongSupplier clock;
+    
+    private final boolean[] outcomes;
+    private int outcomeIndex;
+    private int numCalls;
+    private int numFailures;
+    
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    
+    public CircuitBreaker(CircuitBreakerProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+    
+    CircuitBreaker(CircuitBreakerProperties properties, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.outcomes = new boolean[properties.getSlidingWindowSize()];
+    }
+    
+    /**
+     * Determines whether a call to the remote service should be attempted. When half-open, each permitted call consumes one of the trial permits.
+     *
+     * @return true if the call may proceed, false if it should fail fast
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAtMillis < properties.getOpenDurationMillis()) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits <= 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+    
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= properties.getPermittedCallsInHalfOpenState()) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+    
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (numCalls >= properties.getMinimumNumberOfCalls() && ((double) numFailures / numCalls) >= properties.getFailureRateThreshold()) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    private void record(boolean failure) {
+        if (numCalls == outcomes.length) {
+            if (outcomes[outcomeIndex]) {
+                numFailures--;
+            }
+        } else {
+            numCalls++;
+        }
+        outcomes[outcomeIndex] = failure;
+        if (failure) {
+            numFailures++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+    }
+    
+    private void transitionTo(State newState) {
+        state = newState;
+        switch (newState) {
+            case OPEN:
+                openedAtMillis = clock.getAsLong();
+                break;
+            case HALF_OPEN:
+                halfOpenPermits = properties.getPermittedCallsInHalfOpenState();
+                halfOpenSuccesses = 0;
+                break;
+            case CLOSED:
+                outcomeIndex = 0;
+                numCalls = 0;
+                numFailures = 0;
+                break;
+        }
+    }
+}
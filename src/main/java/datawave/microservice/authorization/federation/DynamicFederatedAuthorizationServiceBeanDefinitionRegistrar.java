@@ -1,6 +1,7 @@
 package datawave.microservice.authorization.federation;
 
 import static org.springframework.beans.factory.config.ConfigurableBeanFactory.SCOPE_PROTOTYPE;
+import static org.springframework.beans.factory.config.ConfigurableBeanFactory.SCOPE_SINGLETON;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -44,7 +45,7 @@ public class DynamicFederatedAuthorizationServiceBeanDefinitionRegistrar impleme
             constructorArgValues.addGenericArgumentValue(props);
             beanDefinition.setConstructorArgumentValues(constructorArgValues);
 
-            beanDefinition.setScope(SCOPE_PROTOTYPE);
+            beanDefinition.setScope(props.isSingleton() ? SCOPE_SINGLETON : SCOPE_PROTOTYPE);
             beanDefinitionRegistry.registerBeanDefinition(name, beanDefinition);
         });
     }
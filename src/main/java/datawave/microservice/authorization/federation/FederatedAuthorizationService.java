@@ -4,29 +4,59 @@ import static datawave.microservice.authorization.preauth.ProxiedEntityX509Filte
 import static datawave.microservice.authorization.preauth.ProxiedEntityX509Filter.ISSUERS_HEADER;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.http.HttpHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.codahale.metrics.Timer;
 
 import datawave.microservice.authorization.config.AuthorizationsListSupplier;
 import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties;
+import datawave.microservice.authorization.federation.ValidatedResponseCache.ValidatedResponse;
 import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.RetryTimeoutProperties;
+import datawave.microservice.authorization.jwt.JWTExchangeFilterFunction;
+import datawave.microservice.http.converter.protostuff.ProtostuffDecoder;
+import datawave.microservice.http.converter.protostuff.ProtostuffHttpMessageConverter;
 import datawave.security.authorization.AuthorizationException;
 import datawave.security.authorization.DatawaveUser;
 import datawave.security.authorization.ProxiedUserDetails;
 import datawave.security.authorization.UserOperations;
 import datawave.user.AuthorizationsListBase;
 import datawave.webservice.result.GenericResponse;
+import io.protostuff.Message;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
 public class FederatedAuthorizationService implements UserOperations {
     private static final Logger log = LoggerFactory.getLogger(FederatedAuthorizationService.class);
@@ -36,17 +66,33 @@ public class FederatedAuthorizationService implements UserOperations {
     private FederatedAuthorizationServiceProperties federatedAuthorizationProperties;
     private final WebClient webClient;
     private AuthorizationsListSupplier authorizationsListSupplier;
+    private final FederatedRemoteState remoteState;
+    private final CacheManager remoteOperationsCacheManager;
     
     public FederatedAuthorizationService(FederatedAuthorizationServiceProperties federatedAuthorizationProperties, WebClient.Builder webClientBuilder,
-                    AuthorizationsListSupplier authorizationsListSupplier) {
+                    AuthorizationsListSupplier authorizationsListSupplier, FederatedRemoteStateRegistry remoteStateRegistry,
+                    @Qualifier("remoteOperationsCacheManager") CacheManager remoteOperationsCacheManager,
+                    FederatedConnectionPoolRegistry connectionPoolRegistry) {
         this.federatedAuthorizationProperties = federatedAuthorizationProperties;
+        this.remoteOperationsCacheManager = remoteOperationsCacheManager;
+        this.remoteState = remoteStateRegistry.getRemoteState(federatedAuthorizationProperties);
+        // the remote authorization service is in another deployment, which must never be sent a token signed by this one
+        webClientBuilder.filters(filters -> filters.removeIf(JWTExchangeFilterFunction.class::isInstance));
+        if (federatedAuthorizationProperties.getConnectionPool().isEnabled()) {
+            webClientBuilder.clientConnector(connectionPoolRegistry.getClientHttpConnector(federatedAuthorizationProperties));
+        }
         // @formatter:off
         this.webClient = webClientBuilder
                 .baseUrl(federatedAuthorizationProperties.getFederatedAuthorizationUri())
                 .exchangeStrategies(ExchangeStrategies.builder()
-                        .codecs(clientCodecConfigurer -> clientCodecConfigurer
-                                .defaultCodecs()
-                                .maxInMemorySize(federatedAuthorizationProperties.getMaxBytesToBuffer()))
+                        .codecs(clientCodecConfigurer -> {
+                            clientCodecConfigurer
+                                    .defaultCodecs()
+                                    .maxInMemorySize(federatedAuthorizationProperties.getMaxBytesToBuffer());
+                            clientCodecConfigurer
+                                    .customCodecs()
+                                    .registerWithDefaultConfig(new ProtostuffDecoder());
+                        })
                         .build())
                 .build();
         // @formatter:on
@@ -82,7 +128,11 @@ public class FederatedAuthorizationService implements UserOperations {
     }
     
     public AuthorizationsListBase listEffectiveAuthorizations(ProxiedUserDetails currentUser, boolean federate) throws AuthorizationException {
-        log.info("FederatedAuthorizationService listEffectiveAuthorizations (federate: {}) for {}", federate, currentUser.getPrimaryUser());
+        log.debug("FederatedAuthorizationService listEffectiveAuthorizations (federate: {}) for {}", federate, currentUser.getPrimaryUser());
+        
+        ValidatedResponseCache validatedResponses = remoteState.getValidatedResponses();
+        String requestKey = (validatedResponses != null) ? federate + getProxiedEntities(currentUser) + getProxiedIssuers(currentUser) : null;
+        ValidatedResponse validatedResponse = (validatedResponses != null) ? validatedResponses.get(requestKey) : null;
         
         try {
             // @formatter:off
@@ -92,7 +142,8 @@ public class FederatedAuthorizationService implements UserOperations {
                     federate,
                     federatedAuthorizationProperties.getListEffectiveAuthorizationsRetry(),
                     "listEffectiveAuthorizations",
-                    authorizationsListSupplier.get().getClass());
+                    authorizationsListSupplier.get().getClass(),
+                    validatedResponse);
             // @formatter:on
             
             AuthorizationException authorizationException;
@@ -100,7 +151,14 @@ public class FederatedAuthorizationService implements UserOperations {
                 AuthorizationsListBase authorizationsListBase = authorizationsListBaseResponseEntity.getBody();
                 
                 if (authorizationsListBaseResponseEntity.getStatusCode() == HttpStatus.OK) {
+                    if (validatedResponses != null) {
+                        validatedResponses.put(requestKey, authorizationsListBaseResponseEntity);
+                    }
                     return authorizationsListBase;
+                } else if (authorizationsListBaseResponseEntity.getStatusCode() == HttpStatus.NOT_MODIFIED && validatedResponse != null) {
+                    remoteState.getEndpointMetrics("listEffectiveAuthorizations").getNotModified().inc();
+                    validatedResponses.revalidated(requestKey, validatedResponse);
+                    return (AuthorizationsListBase) validatedResponse.getBody();
                 } else {
                     authorizationException = new AuthorizationException("Unknown error occurred while calling listEffectiveAuthorizations for "
                                     + currentUser.getPrimaryUser() + ", Status Code: " + authorizationsListBaseResponseEntity.getStatusCodeValue());
@@ -111,18 +169,154 @@ public class FederatedAuthorizationService implements UserOperations {
             }
             throw authorizationException;
         } catch (ServiceException e) {
-            log.error("Timed out waiting for federated listEffectiveAuthorizations response");
-            throw new AuthorizationException("Timed out waiting for federated listEffectiveAuthorizations response", e);
+            log.error("Failed waiting for federated listEffectiveAuthorizations response: {}", e.getMessage());
+            throw new AuthorizationException("Failed waiting for federated listEffectiveAuthorizations response: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Lists the effective authorizations for many users, using as few round trips to the remote service as possible. Users whose authorizations are already
+     * cached by {@link #listEffectiveAuthorizations(ProxiedUserDetails)} are not requested again, and the authorizations that are retrieved are added to that
+     * cache.
+     *
+     * @param currentUsers
+     *            the users to list effective authorizations for
+     * @param <T>
+     *            the type of user details
+     * @return the effective authorizations for each user, in the iteration order of {@code currentUsers}
+     * @throws AuthorizationException
+     *             if the authorizations could not be retrieved for every user
+     */
+    public <T extends ProxiedUserDetails> Map<T,AuthorizationsListBase> listEffectiveAuthorizations(Collection<T> currentUsers) throws AuthorizationException {
+        return listEffectiveAuthorizations(currentUsers, true, remoteOperationsCacheManager.getCache("listEffectiveAuthorizations"));
+    }
+    
+    public <T extends ProxiedUserDetails> Map<T,AuthorizationsListBase> listEffectiveAuthorizations(Collection<T> currentUsers, boolean federate)
+                    throws AuthorizationException {
+        return listEffectiveAuthorizations(currentUsers, federate, null);
+    }
+    
+    private <T extends ProxiedUserDetails> Map<T,AuthorizationsListBase> listEffectiveAuthorizations(Collection<T> currentUsers, boolean federate, Cache cache)
+                    throws AuthorizationException {
+        Map<T,AuthorizationsListBase> authorizations = new LinkedHashMap<>();
+        List<T> uncachedUsers = new ArrayList<>();
+        for (T currentUser : currentUsers) {
+            if (!authorizations.containsKey(currentUser)) {
+                AuthorizationsListBase cached = (cache != null) ? cache.get(getCacheKey(currentUser), AuthorizationsListBase.class) : null;
+                authorizations.put(currentUser, cached);
+                if (cached == null) {
+                    uncachedUsers.add(currentUser);
+                }
+            }
+        }
+        
+        log.debug("FederatedAuthorizationService listEffectiveAuthorizations (federate: {}) for {} users, {} not cached", federate, authorizations.size(),
+                        uncachedUsers.size());
+        
+        for (int i = 0; i < uncachedUsers.size(); i += federatedAuthorizationProperties.getMaxBatchSize()) {
+            List<T> batch = uncachedUsers.subList(i, Math.min(uncachedUsers.size(), i + federatedAuthorizationProperties.getMaxBatchSize()));
+            List<AuthorizationsListBase> results = listEffectiveAuthorizationsBatch(batch, federate);
+            for (int j = 0; j < batch.size(); j++) {
+                authorizations.put(batch.get(j), results.get(j));
+                if (cache != null) {
+                    cache.put(getCacheKey(batch.get(j)), results.get(j));
+                }
+            }
+        }
+        return authorizations;
+    }
+    
+    /**
+     * Retrieves the effective authorizations for the users with a single call to the remote batch endpoint. The request body is a JSON array with an object for
+     * each user, holding the proxied entities and issuers headers that would be sent for that user on a single request, and the response is expected to be a
+     * JSON array of authorization lists in the same order. If the remote service doesn't have the batch endpoint, the users are requested with concurrent
+     * single calls instead.
+     */
+    private List<AuthorizationsListBase> listEffectiveAuthorizationsBatch(List<? extends ProxiedUserDetails> currentUsers, boolean federate)
+                    throws AuthorizationException {
+        if (currentUsers.size() > 1 && remoteState.isBatchSupported()) {
+            try {
+                return requestEffectiveAuthorizationsBatch(currentUsers, federate);
+            } catch (WebClientResponseException.NotFound | WebClientResponseException.MethodNotAllowed e) {
+                log.info("{} does not support batch listEffectiveAuthorizations requests, falling back to single requests", remoteState.getRemoteUri());
+                remoteState.setBatchUnsupported();
+            }
+        }
+        
+        try {
+            // @formatter:off
+            return Flux.fromIterable(currentUsers)
+                    .flatMapSequential(currentUser -> Mono.fromCallable(() -> listEffectiveAuthorizations(currentUser, federate))
+                            .subscribeOn(Schedulers.boundedElastic()),
+                            federatedAuthorizationProperties.getBatchFallbackConcurrency())
+                    .collectList()
+                    .block();
+            // @formatter:on
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof AuthorizationException) {
+                throw (AuthorizationException) cause;
+            }
+            throw e;
+        }
+    }
+    
+    private List<AuthorizationsListBase> requestEffectiveAuthorizationsBatch(List<? extends ProxiedUserDetails> currentUsers, boolean federate)
+                    throws AuthorizationException {
+        String batchPath = federatedAuthorizationProperties.getListEffectiveAuthorizationsBatchPath();
+        
+        List<Map<String,String>> batchRequest = new ArrayList<>(currentUsers.size());
+        for (ProxiedUserDetails currentUser : currentUsers) {
+            Map<String,String> proxiedHeaders = new LinkedHashMap<>();
+            proxiedHeaders.put(ENTITIES_HEADER, getProxiedEntities(currentUser));
+            proxiedHeaders.put(ISSUERS_HEADER, getProxiedIssuers(currentUser));
+            batchRequest.add(proxiedHeaders);
+        }
+        
+        try {
+            // @formatter:off
+            ResponseEntity<List<AuthorizationsListBase>> batchResponseEntity = getResponseEntity(
+                    federatedAuthorizationProperties.getListEffectiveAuthorizationsRetry(),
+                    batchPath,
+                    ParameterizedTypeReference.forType(ResolvableType.forClassWithGenerics(List.class, authorizationsListSupplier.get().getClass()).getType()),
+                    () -> webClient.post()
+                            .uri(uriBuilder -> uriBuilder
+                                    .path(batchPath)
+                                    .queryParam(INCLUDE_REMOTE_SERVICES, federate)
+                                    .build())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(batchRequest));
+            // @formatter:on
+            
+            if (batchResponseEntity == null || batchResponseEntity.getStatusCode() != HttpStatus.OK) {
+                throw new AuthorizationException("Unknown error occurred while calling " + batchPath + " for " + currentUsers.size() + " users"
+                                + (batchResponseEntity != null ? ", Status Code: " + batchResponseEntity.getStatusCodeValue() : ""));
+            }
+            
+            List<AuthorizationsListBase> authorizations = batchResponseEntity.getBody();
+            if (authorizations == null || authorizations.size() != currentUsers.size() || authorizations.contains(null)) {
+                throw new AuthorizationException("Invalid response from " + batchPath + ": expected authorizations for " + currentUsers.size()
+                                + " users but received " + (authorizations != null ? authorizations.size() : 0));
+            }
+            return authorizations;
+        } catch (ServiceException e) {
+            log.error("Failed waiting for federated {} response: {}", batchPath, e.getMessage());
+            throw new AuthorizationException("Failed waiting for federated " + batchPath + " response: " + e.getMessage(), e);
         }
     }
     
+    private static Object getCacheKey(ProxiedUserDetails currentUser) {
+        // matches the "{#currentUser}" key used by the @Cacheable methods
+        return Collections.singletonList(currentUser);
+    }
+    
     @Override
     public GenericResponse<String> flushCachedCredentials(ProxiedUserDetails currentUser) throws AuthorizationException {
         return flushCachedCredentials(currentUser, true);
     }
     
     public GenericResponse<String> flushCachedCredentials(ProxiedUserDetails currentUser, boolean federate) throws AuthorizationException {
-        log.info("FederatedAuthorizationService flushCachedCredentials (federate: {}) for {}", federate, currentUser.getPrimaryUser());
+        log.debug("FederatedAuthorizationService flushCachedCredentials (federate: {}) for {}", federate, currentUser.getPrimaryUser());
         
         try {
             // @formatter:off
@@ -151,38 +345,190 @@ public class FederatedAuthorizationService implements UserOperations {
             }
             throw authorizationException;
         } catch (ServiceException e) {
-            log.error("Timed out waiting for federated flushCachedCredentials response");
-            throw new AuthorizationException("Timed out waiting for federated flushCachedCredentials response", e);
+            log.error("Failed waiting for federated flushCachedCredentials response: {}", e.getMessage());
+            throw new AuthorizationException("Failed waiting for federated flushCachedCredentials response: " + e.getMessage(), e);
         }
     }
     
     protected ResponseEntity<?> getResponseEntity(ProxiedUserDetails currentUser, boolean federate, RetryTimeoutProperties retry, String endpoint,
                     Class entityClass) {
+        return getResponseEntity(currentUser, federate, retry, endpoint, entityClass, null);
+    }
+    
+    /**
+     * Calls the endpoint for the user. If a previous response is given, the request is made conditional on that response having changed, in which case a
+     * {@code 304 Not Modified} response with no body may be returned.
+     */
+    protected ResponseEntity<?> getResponseEntity(ProxiedUserDetails currentUser, boolean federate, RetryTimeoutProperties retry, String endpoint,
+                    Class entityClass, ValidatedResponse validatedResponse) {
         // @formatter:off
-        return (ResponseEntity<?>) webClient.get()
+        return getResponseEntity(retry, endpoint, ParameterizedTypeReference.forType(entityClass), () -> webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path(endpoint)
-                        .queryParam("includeRemoteServices", federate)
+                        .queryParam(INCLUDE_REMOTE_SERVICES, federate)
                         .build())
                 .header(ENTITIES_HEADER, getProxiedEntities(currentUser))
                 .header(ISSUERS_HEADER, getProxiedIssuers(currentUser))
-                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
-                .retrieve()
-                // don't retry on 4xx errors
-                .onStatus(HttpStatus::is5xxServerError,
-                        clientResponse -> Mono.error(new ServiceException("Service Error", clientResponse.rawStatusCode())))
-                .toEntity(entityClass)
-                .retryWhen(Retry
-                        .fixedDelay(retry.getRetries(), Duration.ofMillis(retry.getRetryDelayMillis()))
-                        .filter(throwable -> throwable instanceof ServiceException)
-                        .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
-                            throw new ServiceException("External Service failed to process after max retries",
-                                    HttpStatus.SERVICE_UNAVAILABLE.value());
-                        })))
-                .block(Duration.ofMillis(retry.getTimeoutMillis()));
+                .headers(headers -> {
+                    if (validatedResponse != null) {
+                        validatedResponse.addConditionalHeaders(headers);
+                    }
+                }));
         // @formatter:on
     }
     
+    private <T> ResponseEntity<T> getResponseEntity(RetryTimeoutProperties retry, String endpoint, ParameterizedTypeReference<T> entityType,
+                    Supplier<WebClient.RequestHeadersSpec<?>> request) {
+        FederatedEndpointMetrics metrics = remoteState.getEndpointMetrics(endpoint);
+        CircuitBreaker circuitBreaker = remoteState.getCircuitBreaker();
+        if (!circuitBreaker.tryAcquirePermission()) {
+            metrics.getRejected().inc();
+            throw new ServiceException("Circuit breaker is open for " + remoteState.getRemoteUri(), HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+        
+        RetryBudget retryBudget = remoteState.getRetryBudget(endpoint, retry);
+        retryBudget.deposit();
+        
+        LatencyTracker latencyTracker = remoteState.getLatencyTracker(endpoint);
+        String acceptHeader = getAcceptHeader(ResolvableType.forType(entityType).toClass());
+        
+        // @formatter:off
+        Mono<ResponseEntity<T>> attempt = Mono.defer(() -> {
+            // computed for each attempt, so that a retry uses a timeout that has risen with the attempts that timed out before it
+            long attemptTimeoutMillis = remoteState.getAttemptTimeoutMillis(endpoint, retry);
+            long startNanos = System.nanoTime();
+            WebClient.ResponseSpec responseSpec = request.get()
+                    .header(HttpHeaders.ACCEPT, acceptHeader)
+                    .retrieve()
+                    // don't retry on 4xx errors
+                    .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                        metrics.getServerErrors().inc();
+                        return Mono.error(new ServiceException("Service Error", clientResponse.rawStatusCode()));
+                    });
+            return (federatedAuthorizationProperties.isStreamingDecode() ? toEntityStreaming(responseSpec, entityType) : responseSpec.toEntity(entityType))
+                    .timeout(Duration.ofMillis(attemptTimeoutMillis))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        metrics.getTimeouts().inc();
+                        // the call took at least this long, and recording it lets the adaptive timeout rise when the remote service slows down
+                        latencyTracker.record(TimeUnit.MILLISECONDS.toNanos(attemptTimeoutMillis));
+                        return new ServiceException("Timed out after " + attemptTimeoutMillis + "ms", HttpStatus.GATEWAY_TIMEOUT.value());
+                    })
+                    // no response was received (e.g. connection refused or reset), so retry as for a 5xx error
+                    .onErrorMap(WebClientRequestException.class, e -> {
+                        metrics.getRequestErrors().inc();
+                        return new ServiceException("Request failed: " + e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(), e);
+                    })
+                    .doOnError(WebClientResponseException.class, e -> {
+                        if (e.getStatusCode().is4xxClientError()) {
+                            metrics.getClientErrors().inc();
+                        }
+                    })
+                    .doOnSuccess(entity -> latencyTracker.record(System.nanoTime() - startNanos));
+        });
+        
+        Timer.Context timer = metrics.getLatency().time();
+        try {
+            ResponseEntity<T> responseEntity = hedge(attempt, endpoint, retry)
+                    .retryWhen(getRetrySpec(retry)
+                            .filter(throwable -> throwable instanceof ServiceException && retryBudget.tryWithdraw())
+                            .doBeforeRetry(retrySignal -> metrics.getRetries().inc())
+                            .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
+                                metrics.getRetriesExhausted().inc();
+                                throw new ServiceException("External Service failed to process after max retries",
+                                        HttpStatus.SERVICE_UNAVAILABLE.value());
+                            })))
+                    .timeout(Duration.ofMillis(retry.getTimeoutMillis()))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        metrics.getTimeouts().inc();
+                        return new ServiceException("Timed out after " + retry.getTimeoutMillis() + "ms", HttpStatus.GATEWAY_TIMEOUT.value());
+                    })
+                    .block();
+            // @formatter:on
+            circuitBreaker.onSuccess();
+            return responseEntity;
+        } catch (WebClientResponseException e) {
+            // a 4xx response means that the remote service is responding
+            if (e.getStatusCode().is4xxClientError()) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+    
+    private String getAcceptHeader(Class<?> entityClass) {
+        if (federatedAuthorizationProperties.isPreferProtostuff() && Message.class.isAssignableFrom(entityClass)) {
+            // prefer the compact protostuff encoding, but let the remote service fall back to JSON if it can't produce it
+            return ProtostuffHttpMessageConverter.PROTOSTUFF_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+        }
+        return MediaType.APPLICATION_JSON_VALUE;
+    }
+    
+    /**
+     * Decodes the response body through the decoder's streaming path. Rather than joining every data buffer of the body into a single buffer before decoding,
+     * each buffer is fed to a non-blocking JSON parser and released as soon as it has been tokenized. The body is expected to be a single JSON object.
+     */
+    private <T> Mono<ResponseEntity<T>> toEntityStreaming(WebClient.ResponseSpec responseSpec, ParameterizedTypeReference<T> entityType) {
+        // @formatter:off
+        return responseSpec.toEntityFlux(entityType)
+                .flatMap(entity -> entity.getBody()
+                        .singleOrEmpty()
+                        .map(body -> ResponseEntity.status(entity.getStatusCodeValue()).headers(entity.getHeaders()).body(body))
+                        .defaultIfEmpty(ResponseEntity.status(entity.getStatusCodeValue()).headers(entity.getHeaders()).build()));
+        // @formatter:on
+    }
+    
+    /**
+     * Wraps the attempt so that, if hedging is enabled and the attempt hasn't completed within the hedge delay, an identical request is sent. Whichever request
+     * returns a value first wins and the other is cancelled. Hedges are only sent while the hedge budget allows, and never once the first attempt has failed
+     * (that is left to the retry logic).
+     */
+    private <T> Mono<ResponseEntity<T>> hedge(Mono<ResponseEntity<T>> attempt, String endpoint, RetryTimeoutProperties retry) {
+        long hedgeDelayMillis = remoteState.getHedgeDelayMillis(endpoint, retry);
+        if (hedgeDelayMillis < 0) {
+            return attempt;
+        }
+        
+        RetryBudget hedgeBudget = remoteState.getHedgeBudget(endpoint, retry);
+        hedgeBudget.deposit();
+        
+        return Mono.defer(() -> {
+            AtomicReference<Throwable> firstAttemptError = new AtomicReference<>();
+            Sinks.Empty<Void> firstAttemptFailed = Sinks.empty();
+            // @formatter:off
+            Mono<ResponseEntity<T>> firstAttempt = attempt.doOnError(e -> {
+                firstAttemptError.set(e);
+                firstAttemptFailed.tryEmitEmpty();
+            });
+            Mono<ResponseEntity<T>> hedgedAttempt = Mono.delay(Duration.ofMillis(hedgeDelayMillis))
+                    // don't hedge once the first attempt has failed
+                    .takeUntilOther(firstAttemptFailed.asMono())
+                    .flatMap(tick -> hedgeBudget.tryWithdraw() ? attempt : Mono.empty());
+            return Mono.firstWithValue(firstAttempt, hedgedAttempt)
+                    // if neither attempt produced a value, surface the first attempt's error so that it is handled normally
+                    .onErrorMap(NoSuchElementException.class, e -> firstAttemptError.get() != null ? firstAttemptError.get() : e);
+            // @formatter:on
+        });
+    }
+    
+    private RetryBackoffSpec getRetrySpec(RetryTimeoutProperties retry) {
+        if (retry.isExponentialBackoff()) {
+            // @formatter:off
+            return Retry.backoff(retry.getRetries(), Duration.ofMillis(retry.getRetryDelayMillis()))
+                    .maxBackoff(Duration.ofMillis(retry.getMaxRetryDelayMillis()))
+                    .jitter(retry.getRetryJitter());
+            // @formatter:on
+        } else {
+            return Retry.fixedDelay(retry.getRetries(), Duration.ofMillis(retry.getRetryDelayMillis()));
+        }
+    }
+    
     public class ServiceException extends RuntimeException {
         int statusCode;
         
@@ -190,5 +536,10 @@ public class FederatedAuthorizationService implements UserOperations {
             super(message);
             this.statusCode = statusCode;
         }
+        
+        public ServiceException(String message, int statusCode, Throwable cause) {
+            super(message, cause);
+            this.statusCode = statusCode;
+        }
     }
 }
@@ -0,0 +1,136 @@
+package datawave.microservice.authorization.federation;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties;
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.ConnectionPoolProperties;
+import datawave.microservice.config.web.ReactorHttpClientFactory;
+import datawave.microservice.config.web.WebClientProperties.TimeoutProperties;
+import io.netty.handler.ssl.SslContext;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Keeps one dedicated Reactor Netty {@link ConnectionProvider} per remote authorization service URI for the {@link FederatedAuthorizationService} beans that
+ * have their connection pool enabled. When pool metrics are enabled, the connection counts of each pool are published as gauges in the metric registry, under
+ * the pool name and the remote address that the connections go to (a pool keeps a separate set of connections for each address it resolves).
+ */
+public class FederatedConnectionPoolRegistry implements DisposableBean {
+    public static final String METRIC_PREFIX = "federatedAuthorization.connectionPool";
+    
+    // the name of the client whose timeouts are applied to the dedicated connection pools (see WebClientProperties)
+    public static final String CLIENT_NAME = "federatedAuthorization";
+    
+    private final SslContext sslContext;
+    private final boolean wiretap;
+    private final MetricRegistry metricRegistry;
+    private final TimeoutProperties timeouts;
+    private final Map<String,ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+    private final Map<String,ClientHttpConnector> clientHttpConnectors = new ConcurrentHashMap<>();
+    
+    /**
+     * @param sslContext
+     *            the outbound SSL context, or null if outbound SSL is disabled
+     * @param wiretap
+     *            whether to enable wiretap logging on the HTTP client
+     * @param metricRegistry
+     *            the registry to publish pool metrics to, or null if pool metrics should not be published
+     * @param timeouts
+     *            the timeouts to apply to the HTTP clients, or null to use the Reactor Netty defaults
+     */
+    public FederatedConnectionPoolRegistry(SslContext sslContext, boolean wiretap, MetricRegistry metricRegistry, TimeoutProperties timeouts) {
+        this.sslContext = sslContext;
+        this.wiretap = wiretap;
+        this.metricRegistry = metricRegistry;
+        this.timeouts = timeouts;
+    }
+    
+    public ClientHttpConnector getClientHttpConnector(FederatedAuthorizationServiceProperties properties) {
+        return clientHttpConnectors.computeIfAbsent(properties.getFederatedAuthorizationUri(),
+                        k -> new ReactorClientHttpConnector(createHttpClient(properties)));
+    }
+    
+    public Map<String,ConnectionProvider> getConnectionProviders() {
+        return connectionProviders;
+    }
+    
+    private HttpClient createHttpClient(FederatedAuthorizationServiceProperties properties) {
+        ConnectionPoolProperties pool = properties.getConnectionPool();
+        
+        // @formatter:off
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(FederatedRemoteState.getRemoteName(properties.getFederatedAuthorizationUri()))
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMillis()));
+        // @formatter:on
+        if (pool.getMaxIdleTimeMillis() > 0) {
+            builder.maxIdleTime(Duration.ofMillis(pool.getMaxIdleTimeMillis()));
+        }
+        if (pool.getEvictionIntervalMillis() > 0) {
+            builder.evictInBackground(Duration.ofMillis(pool.getEvictionIntervalMillis()));
+        }
+        if (pool.isMetricsEnabled() && metricRegistry != null) {
+            builder.metrics(true, DropwizardMeterRegistrar::new);
+        }
+        
+        ConnectionProvider connectionProvider = builder.build();
+        connectionProviders.put(properties.getFederatedAuthorizationUri(), connectionProvider);
+        
+        HttpClient httpClient = HttpClient.create(connectionProvider).wiretap(wiretap);
+        if (sslContext != null) {
+            httpClient = httpClient.secure(sslContextSpec -> sslContextSpec.sslContext(sslContext));
+        }
+        if (timeouts != null) {
+            httpClient = ReactorHttpClientFactory.applyTimeouts(httpClient, timeouts);
+        }
+        return httpClient;
+    }
+    
+    @Override
+    public void destroy() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+    
+    class DropwizardMeterRegistrar implements ConnectionProvider.MeterRegistrar {
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            String prefix = getPrefix(poolName, remoteAddress);
+            metricRegistry.removeMatching(MetricFilter.startsWith(prefix + "."));
+            metricRegistry.register(MetricRegistry.name(prefix, "acquired"), (Gauge<Integer>) metrics::acquiredSize);
+            metricRegistry.register(MetricRegistry.name(prefix, "allocated"), (Gauge<Integer>) metrics::allocatedSize);
+            metricRegistry.register(MetricRegistry.name(prefix, "idle"), (Gauge<Integer>) metrics::idleSize);
+            metricRegistry.register(MetricRegistry.name(prefix, "pendingAcquire"), (Gauge<Integer>) metrics::pendingAcquireSize);
+            metricRegistry.register(MetricRegistry.name(prefix, "maxAllocated"), (Gauge<Integer>) metrics::maxAllocatedSize);
+            metricRegistry.register(MetricRegistry.name(prefix, "maxPendingAcquire"), (Gauge<Integer>) metrics::maxPendingAcquireSize);
+        }
+        
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            metricRegistry.removeMatching(MetricFilter.startsWith(getPrefix(poolName, remoteAddress) + "."));
+        }
+        
+        private String getPrefix(String poolName, SocketAddress remoteAddress) {
+            String address;
+            if (remoteAddress instanceof InetSocketAddress) {
+                InetSocketAddress inetAddress = (InetSocketAddress) remoteAddress;
+                address = inetAddress.getHostString() + ":" + inetAddress.getPort();
+            } else {
+                address = String.valueOf(remoteAddress);
+            }
+            return MetricRegistry.name(METRIC_PREFIX, poolName, address);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package datawave.microservice.authorization.federation;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * The metrics recorded for calls to a single endpoint of a remote authorization service.
+ */
+public class FederatedEndpointMetrics {
+    private final Timer latency;
+    private final Counter retries;
+    private final Counter retriesExhausted;
+    private final Counter timeouts;
+    private final Counter clientErrors;
+    private final Counter serverErrors;
+    private final Counter requestErrors;
+    private final Counter rejected;
+    private final Counter notModified;
+    
+    public FederatedEndpointMetrics(MetricRegistry metricRegistry, String prefix) {
+        this.latency = metricRegistry.timer(MetricRegistry.name(prefix, "latency"));
+        this.retries = metricRegistry.counter(MetricRegistry.name(prefix, "retries"));
+        this.retriesExhausted = metricRegistry.counter(MetricRegistry.name(prefix, "retriesExhausted"));
+        this.timeouts = metricRegistry.counter(MetricRegistry.name(prefix, "timeouts"));
+        this.clientErrors = metricRegistry.counter(MetricRegistry.name(prefix, "clientErrors"));
+        this.serverErrors = metricRegistry.counter(MetricRegistry.name(prefix, "serverErrors"));
+        this.requestErrors = metricRegistry.counter(MetricRegistry.name(prefix, "requestErrors"));
+        this.rejected = metricRegistry.counter(MetricRegistry.name(prefix, "rejected"));
+        this.notModified = metricRegistry.counter(MetricRegistry.name(prefix, "notModified"));
+    }
+    
+    // the time taken by each call, including any retries
+    public Timer getLatency() {
+        return latency;
+    }
+    
+    public Counter getRetries() {
+        return retries;
+    }
+    
+    // calls that failed because they ran out of retries
+    public Counter getRetriesExhausted() {
+        return retriesExhausted;
+    }
+    
+    // attempts or calls that timed out
+    public Counter getTimeouts() {
+        return timeouts;
+    }
+    
+    // attempts that received a 4xx response
+    public Counter getClientErrors() {
+        return clientErrors;
+    }
+    
+    // attempts that received a 5xx response
+    public Counter getServerErrors() {
+        return serverErrors;
+    }
+    
+    // attempts that received no response (e.g. the connection was refused or reset)
+    public Counter getRequestErrors() {
+        return requestErrors;
+    }
+    
+    // calls that were rejected by the circuit breaker without contacting the remote service
+    public Counter getRejected() {
+        return rejected;
+    }
+    
+    // calls that revalidated a previous response rather than receiving a new one
+    public Counter getNotModified() {
+        return notModified;
+    }
+}
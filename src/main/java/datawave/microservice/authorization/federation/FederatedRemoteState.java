@@ -0,0 +1,154 @@
+package datawave.microservice.authorization.federation;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.util.StringUtils;
+
+import com.codahale.metrics.MetricRegistry;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties;
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.RetryTimeoutProperties;
+
+/**
+ * Holds the state that is shared by every {@link FederatedAuthorizationService} that talks to the same remote service: a {@link CircuitBreaker} for the remote,
+ * whether it supports batch requests, the responses kept for revalidation, and retry and hedge budgets, a {@link LatencyTracker} and metrics for each of its
+ * endpoints.
+ */
+public class FederatedRemoteState {
+    public static final String METRIC_PREFIX = "federatedAuthorization.remote";
+    
+    // the window over which latency is observed for the purpose of computing adaptive timeouts
+    private static final long LATENCY_WINDOW_MINUTES = 5;
+    
+    // how long to wait before checking again whether a remote service that lacked the batch endpoint now supports it
+    private static final long BATCH_REPROBE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    
+    private final String remoteUri;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<String,RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+    private final Map<String,RetryBudget> hedgeBudgets = new ConcurrentHashMap<>();
+    private final Map<String,LatencyTracker> latencyTrackers = new ConcurrentHashMap<>();
+    private final Map<String,FederatedEndpointMetrics> endpointMetrics = new ConcurrentHashMap<>();
+    private final MetricRegistry metricRegistry;
+    private final ValidatedResponseCache validatedResponses;
+    private final LongSupplier clock;
+    private volatile long batchUnsupportedAtMillis = -1;
+    
+    public FederatedRemoteState(FederatedAuthorizationServiceProperties properties, MetricRegistry metricRegistry) {
+        this(properties, metricRegistry, System::currentTimeMillis);
+    }
+    
+    FederatedRemoteState(FederatedAuthorizationServiceProperties properties, MetricRegistry metricRegistry, LongSupplier clock) {
+        this.clock = clock;
+        this.remoteUri = properties.getFederatedAuthorizationUri();
+        this.circuitBreaker = new CircuitBreaker(properties.getCircuitBreaker());
+        this.metricRegistry = metricRegistry;
+        this.validatedResponses = properties.getConditionalRequests().isEnabled() ? new ValidatedResponseCache(properties.getConditionalRequests()) : null;
+    }
+    
+    /**
+     * Gets a name for the remote service that is suitable for use in metric names.
+     *
+     * @param remoteUri
+     *            the URI of the remote service
+     * @return the authority and path of the URI
+     */
+    public static String getRemoteName(String remoteUri) {
+        URI uri = URI.create(remoteUri);
+        return StringUtils.trimTrailingCharacter(uri.getAuthority() + uri.getPath(), '/');
+    }
+    
+    public String getRemoteUri() {
+        return remoteUri;
+    }
+    
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    /**
+     * Determines whether batch requests should be sent to the remote service. Once the remote service has been found to lack the batch endpoint, batch requests
+     * are not attempted again for a while.
+     *
+     * @return true if batch requests should be attempted
+     */
+    public boolean isBatchSupported() {
+        long unsupportedAtMillis = batchUnsupportedAtMillis;
+        return unsupportedAtMillis < 0 || clock.getAsLong() - unsupportedAtMillis >= BATCH_REPROBE_MILLIS;
+    }
+    
+    public void setBatchUnsupported() {
+        batchUnsupportedAtMillis = clock.getAsLong();
+    }
+    
+    /**
+     * Gets the responses that are kept for revalidation with conditional requests.
+     *
+     * @return the validated responses, or null if conditional requests are disabled
+     */
+    public ValidatedResponseCache getValidatedResponses() {
+        return validatedResponses;
+    }
+    
+    public RetryBudget getRetryBudget(String endpoint, RetryTimeoutProperties retry) {
+        return retryBudgets.computeIfAbsent(endpoint, k -> new RetryBudget(retry.getRetryBudgetRatio(), retry.getRetryBudgetMaxBalance()));
+    }
+    
+    public RetryBudget getHedgeBudget(String endpoint, RetryTimeoutProperties retry) {
+        // a hedge budget never banks more than a single hedge, so hedging stops as soon as requests stop completing normally
+        return hedgeBudgets.computeIfAbsent(endpoint, k -> new RetryBudget(retry.getHedgeBudgetRatio(), 1));
+    }
+    
+    public FederatedEndpointMetrics getEndpointMetrics(String endpoint) {
+        return endpointMetrics.computeIfAbsent(endpoint,
+                        k -> new FederatedEndpointMetrics(metricRegistry, MetricRegistry.name(METRIC_PREFIX, getRemoteName(remoteUri), endpoint)));
+    }
+    
+    public LatencyTracker getLatencyTracker(String endpoint) {
+        return latencyTrackers.computeIfAbsent(endpoint, k -> new LatencyTracker(LATENCY_WINDOW_MINUTES, TimeUnit.MINUTES));
+    }
+    
+    /**
+     * Computes the timeout to use for a single attempt against the endpoint. If adaptive timeouts are enabled and enough latency has been observed, this is the
+     * configured percentile of recent latency scaled by the configured multiplier, bounded by the minimum and configured timeouts. Attempts that time out are
+     * recorded at their timeout, so the timeout keeps rising while the remote service is slower than it allows.
+     *
+     * @param endpoint
+     *            the endpoint being called
+     * @param retry
+     *            the retry/timeout configuration for the endpoint
+     * @return the attempt timeout, in milliseconds
+     */
+    public long getAttemptTimeoutMillis(String endpoint, RetryTimeoutProperties retry) {
+        long timeoutMillis = retry.getTimeoutMillis();
+        if (retry.isAdaptiveTimeoutEnabled()) {
+            long percentileMillis = getLatencyTracker(endpoint).getPercentileMillis(retry.getAdaptiveTimeoutPercentile());
+            if (percentileMillis >= 0) {
+                long adaptiveMillis = (long) (percentileMillis * retry.getAdaptiveTimeoutMultiplier());
+                timeoutMillis = Math.min(timeoutMillis, Math.max(retry.getMinTimeoutMillis(), adaptiveMillis));
+            }
+        }
+        return timeoutMillis;
+    }
+    
+    /**
+     * Computes how long to wait on the first attempt against the endpoint before sending a hedged request.
+     *
+     * @param endpoint
+     *            the endpoint being called
+     * @param retry
+     *            the retry/timeout configuration for the endpoint
+     * @return the hedge delay, in milliseconds, or -1 if hedging is disabled or not enough latency has been observed yet
+     */
+    public long getHedgeDelayMillis(String endpoint, RetryTimeoutProperties retry) {
+        if (!retry.isHedgeEnabled()) {
+            return -1;
+        }
+        long percentileMillis = getLatencyTracker(endpoint).getPercentileMillis(retry.getHedgePercentile());
+        return (percentileMillis < 0) ? -1 : Math.max(retry.getHedgeMinDelayMillis(), percentileMillis);
+    }
+}
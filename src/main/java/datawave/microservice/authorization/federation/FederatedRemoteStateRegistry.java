@@ -0,0 +1,29 @@
+package datawave.microservice.authorization.federation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.codahale.metrics.MetricRegistry;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties;
+
+/**
+ * Keeps one {@link FederatedRemoteState} per remote authorization service URI. {@link FederatedAuthorizationService} beans may be prototype scoped, so this
+ * registry is what allows every instance that targets the same remote to share a circuit breaker, retry budget, and latency history.
+ */
+public class FederatedRemoteStateRegistry {
+    private final Map<String,FederatedRemoteState> remoteStates = new ConcurrentHashMap<>();
+    private final MetricRegistry metricRegistry;
+    
+    public FederatedRemoteStateRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+    
+    public FederatedRemoteState getRemoteState(FederatedAuthorizationServiceProperties properties) {
+        return remoteStates.computeIfAbsent(properties.getFederatedAuthorizationUri(), k -> new FederatedRemoteState(properties, metricRegistry));
+    }
+    
+    public Map<String,FederatedRemoteState> getRemoteStates() {
+        return remoteStates;
+    }
+}
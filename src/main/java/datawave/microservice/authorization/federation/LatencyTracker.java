@@ -0,0 +1,40 @@
+package datawave.microservice.authorization.federation;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Tracks the recently observed latency of calls to a remote service so that timeouts can be derived from it rather than configured statically.
+ */
+public class LatencyTracker {
+    // don't trust the percentiles until we've seen enough samples
+    private static final int MIN_SAMPLES = 20;
+    
+    private final Histogram histogram;
+    
+    public LatencyTracker(long window, TimeUnit windowUnit) {
+        this.histogram = new Histogram(new SlidingTimeWindowArrayReservoir(window, windowUnit));
+    }
+    
+    public void record(long elapsedNanos) {
+        histogram.update(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+    
+    /**
+     * Gets the latency at the requested percentile.
+     *
+     * @param percentile
+     *            the percentile, between 0.0 and 1.0
+     * @return the latency in milliseconds at the requested percentile, or -1 if too few samples have been recorded
+     */
+    public long getPercentileMillis(double percentile) {
+        Snapshot snapshot = histogram.getSnapshot();
+        if (snapshot.size() < MIN_SAMPLES) {
+            return -1;
+        }
+        return (long) Math.ceil(snapshot.getValue(percentile));
+    }
+}
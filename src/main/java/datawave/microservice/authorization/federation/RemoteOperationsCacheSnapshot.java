@@ -0,0 +1,406 @@
+package datawave.microservice.authorization.federation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+
+import datawave.microservice.authorization.federation.config.PersistentCacheProperties;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.Message;
+import io.protostuff.ProtostuffIOUtil;
+
+/**
+ * Persists the entries of the remote operations caches to a local memory-mapped file, so that a restarted service starts with a warm cache rather than sending
+ * every request to the remote authorization services.
+ * <p>
+ * A snapshot is written periodically and on shutdown. Each entry is stored with the time at which it expires, so when the snapshot is loaded, entries that
+ * have since expired are skipped and the rest are only cached for the remainder of their original lifetime. The snapshot is loaded in the background after
+ * startup, and never replaces an entry that was cached in the meantime. Protostuff messages (such as {@link datawave.user.AuthorizationsListBase}) are stored
+ * in their protostuff encoding, and everything else (such as the cached users) as JSON.
+ * <p>
+ * Since the snapshot holds users and their authorizations, only the types it is constructed with are ever written or read, and on POSIX file systems the
+ * snapshot (and its directory, if that is created here) is only accessible to its owner. A snapshot that is owned by another user, or that other users can
+ * access, is not loaded.
+ * <p>
+ * Restoring an entry with its remaining lifetime requires variable expiration, so the caches must be created with {@link #newCache(long, long)}.
+ */
+public class RemoteOperationsCacheSnapshot implements InitializingBean, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(RemoteOperationsCacheSnapshot.class);
+    
+    private static final int MAGIC = 0x44574331;
+    private static final int VERSION = 1;
+    private static final byte PROTOSTUFF_ENCODING = 0;
+    private static final byte JSON_ENCODING = 1;
+    
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    
+    private final CaffeineCacheManager cacheManager;
+    private final PersistentCacheProperties properties;
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String,Class<?>> allowedTypes = new HashMap<>();
+    private final ScheduledExecutorService executor;
+    
+    /**
+     * @param cacheManager
+     *            the manager of the caches to persist
+     * @param properties
+     *            the persistent cache configuration, which must name the snapshot file
+     * @param objectMapper
+     *            the mapper used for values that aren't protostuff messages
+     * @param allowedTypes
+     *            the types of the cache keys' elements and of the cache values, which are the only types that are written to or read from the snapshot
+     */
+    public RemoteOperationsCacheSnapshot(CaffeineCacheManager cacheManager, PersistentCacheProperties properties, ObjectMapper objectMapper,
+                    Collection<Class<?>> allowedTypes) {
+        if (!StringUtils.hasText(properties.getFile())) {
+            throw new IllegalStateException("datawave.authorization.federation.persistent-cache.file must be set when the persistent cache is enabled");
+        }
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+        this.file = Paths.get(properties.getFile());
+        this.objectMapper = objectMapper;
+        for (Class<?> allowedType : allowedTypes) {
+            this.allowedTypes.put(allowedType.getName(), allowedType);
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "remote-operations-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Creates a cache whose entries expire a fixed time after they are written, but which also allows an entry to be written with a shorter lifetime.
+     *
+     * @param maximumSize
+     *            the maximum number of entries in the cache
+     * @param expireAfterWriteMillis
+     *            how long entries live after they are written
+     * @return the cache
+     */
+    public static Cache<Object,Object> newCache(long maximumSize, long expireAfterWriteMillis) {
+        long expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+        // @formatter:off
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Object,Object>() {
+                    @Override
+                    public long expireAfterCreate(Object key, Object value, long currentTime) {
+                        return expireAfterWriteNanos;
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterWriteNanos;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        // @formatter:on
+    }
+    
+    @Override
+    public void afterPropertiesSet() {
+        // the executor is single threaded, so the snapshot is always loaded before it is first overwritten
+        executor.execute(this::load);
+        executor.scheduleWithFixedDelay(this::save, properties.getSnapshotIntervalMillis(), properties.getSnapshotIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdownNow();
+        if (executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            save();
+        }
+    }
+    
+    /**
+     * Loads the snapshot file into the caches.
+     */
+    public synchronized void load() {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            if (!isOwnerOnly(file)) {
+                return;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to check the owner and permissions of cache snapshot {}: {}", file, e.getMessage());
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        int skipped = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Ignoring {} since it is not a recognized cache snapshot", file);
+                return;
+            }
+            
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    log.warn("Cache snapshot {} is truncated", file);
+                    break;
+                }
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                buffer.position(buffer.position() + length);
+                
+                try {
+                    String cacheName = readString(record);
+                    long remainingMillis = record.getLong() - now;
+                    VarExpiration<Object,Object> expiration = getVarExpiration(cacheName);
+                    // expired entries are skipped without decoding the key or value
+                    if (remainingMillis <= 0 || expiration == null) {
+                        skipped++;
+                    } else if (expiration.putIfAbsent(readKey(record), readObject(record), remainingMillis, TimeUnit.MILLISECONDS)) {
+                        loaded++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Unable to read cache snapshot entry: {}", e.getMessage());
+                    skipped++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to load cache snapshot {}: {}", file, e.getMessage());
+        }
+        log.info("Loaded {} entries from cache snapshot {} ({} expired or unreadable)", loaded, file, skipped);
+    }
+    
+    /**
+     * Writes the current contents of the caches to the snapshot file.
+     */
+    public synchronized void save() {
+        long now = System.currentTimeMillis();
+        int saved = 0;
+        try {
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(snapshot);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            
+            for (String cacheName : cacheManager.getCacheNames()) {
+                VarExpiration<Object,Object> expiration = getVarExpiration(cacheName);
+                if (expiration == null) {
+                    continue;
+                }
+                for (Map.Entry<Object,Object> entry : getNativeCache(cacheName).asMap().entrySet()) {
+                    OptionalLong remainingMillis = expiration.getExpiresAfter(entry.getKey(), TimeUnit.MILLISECONDS);
+                    if (remainingMillis.isPresent()) {
+                        try {
+                            byte[] record = writeRecord(cacheName, now + remainingMillis.getAsLong(), entry.getKey(), entry.getValue());
+                            out.writeInt(record.length);
+                            out.write(record);
+                            saved++;
+                        } catch (IOException | RuntimeException e) {
+                            log.debug("Unable to write {} entry to cache snapshot: {}", cacheName, e.getMessage());
+                        }
+                    }
+                }
+            }
+            out.flush();
+            
+            write(snapshot.toByteArray());
+            log.debug("Saved {} entries to cache snapshot {}", saved, file);
+        } catch (IOException e) {
+            log.warn("Unable to save cache snapshot {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private boolean isOwnerOnly(Path path) throws IOException {
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal currentUser = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(currentUser)) {
+            log.warn("Ignoring cache snapshot {} since it is owned by {} rather than {}", path, owner.getName(), currentUser.getName());
+            return false;
+        }
+        if (isPosix()) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+            if (!OWNER_ONLY_FILE_PERMISSIONS.containsAll(permissions)) {
+                log.warn("Ignoring cache snapshot {} since its permissions ({}) allow access by other users", path, PosixFilePermissions.toString(permissions));
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean isPosix() {
+        return file.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+    
+    private void write(byte[] snapshot) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null && !Files.isDirectory(directory)) {
+            if (isPosix()) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY_PERMISSIONS));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        
+        // write to a temporary file first, so that a partially written snapshot never replaces a complete one
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        // the temporary file is always created here, so that it only ever has the permissions given to it below
+        Files.deleteIfExists(tmpFile);
+        FileAttribute<?>[] attributes = isPosix() ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE_PERMISSIONS)}
+                        : new FileAttribute<?>[0];
+        try (FileChannel channel = FileChannel.open(tmpFile,
+                        EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE), attributes)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, snapshot.length);
+            buffer.put(snapshot);
+            buffer.force();
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private Cache<Object,Object> getNativeCache(String cacheName) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
+        return (cache instanceof CaffeineCache) ? ((CaffeineCache) cache).getNativeCache() : null;
+    }
+    
+    private VarExpiration<Object,Object> getVarExpiration(String cacheName) {
+        Cache<Object,Object> cache = getNativeCache(cacheName);
+        return (cache != null) ? cache.policy().expireVariably().orElse(null) : null;
+    }
+    
+    private byte[] writeRecord(String cacheName, long expiresAtMillis, Object key, Object value) throws IOException {
+        // the caches are keyed by lists of arguments (e.g. "{#currentUser}")
+        if (!(key instanceof List)) {
+            throw new IllegalArgumentException("Unsupported key type " + key.getClass().getName());
+        }
+        
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(record);
+        writeString(out, cacheName);
+        out.writeLong(expiresAtMillis);
+        out.writeInt(((List<?>) key).size());
+        for (Object keyElement : (List<?>) key) {
+            writeObject(out, keyElement);
+        }
+        writeObject(out, value);
+        out.flush();
+        return record.toByteArray();
+    }
+    
+    private void writeObject(DataOutputStream out, Object object) throws IOException {
+        if (allowedTypes.get(object.getClass().getName()) != object.getClass()) {
+            throw new IllegalArgumentException("Unsupported type " + object.getClass().getName());
+        }
+        
+        byte[] bytes;
+        if (object instanceof Message) {
+            out.writeByte(PROTOSTUFF_ENCODING);
+            // noinspection unchecked
+            bytes = ProtostuffIOUtil.toByteArray(object, ((Message<Object>) object).cachedSchema(), LinkedBuffer.allocate());
+        } else {
+            out.writeByte(JSON_ENCODING);
+            bytes = objectMapper.writeValueAsBytes(object);
+        }
+        writeString(out, object.getClass().getName());
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    private Object readKey(ByteBuffer record) throws IOException {
+        int size = record.getInt();
+        List<Object> key = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            key.add(readObject(record));
+        }
+        return Collections.unmodifiableList(key);
+    }
+    
+    private Object readObject(ByteBuffer record) throws IOException {
+        byte encoding = record.get();
+        String className = readString(record);
+        // only the known types are ever instantiated, whatever the snapshot names
+        Class<?> clazz = allowedTypes.get(className);
+        if (clazz == null) {
+            throw new IOException("Unsupported type " + className);
+        }
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        
+        if (encoding == PROTOSTUFF_ENCODING && Message.class.isAssignableFrom(clazz)) {
+            // noinspection unchecked
+            Message<Object> message = (Message<Object>) newInstance(clazz);
+            ProtostuffIOUtil.mergeFrom(bytes, message, message.cachedSchema());
+            return message;
+        } else if (encoding == JSON_ENCODING) {
+            return objectMapper.readValue(bytes, clazz);
+        } else {
+            throw new IOException("Unknown encoding " + encoding + " for " + clazz.getName());
+        }
+    }
+    
+    private static Object newInstance(Class<?> clazz) throws IOException {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unable to create " + clazz.getName(), e);
+        }
+    }
+    
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package datawave.microservice.authorization.federation;
+
+/**
+ * Limits retries to a fraction of recent traffic. Every request deposits {@code ratio} tokens into the budget (up to {@code maxBalance}), and every retry
+ * withdraws a whole token. When the remote service is failing, this keeps retries from multiplying the load on it.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double maxBalance;
+    private double balance;
+    
+    public RetryBudget(double ratio, int maxBalance) {
+        this.ratio = ratio;
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+    }
+    
+    public synchronized void deposit() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+    
+    public synchronized boolean tryWithdraw() {
+        if (balance >= 1.0) {
+            balance -= 1.0;
+            return true;
+        }
+        return false;
+    }
+    
+    public synchronized double getBalance() {
+        return balance;
+    }
+}
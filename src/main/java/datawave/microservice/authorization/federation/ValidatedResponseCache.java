@@ -0,0 +1,101 @@
+package datawave.microservice.authorization.federation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.ConditionalRequestProperties;
+
+/**
+ * Keeps the most recent response received for each request along with its {@code ETag} and {@code Last-Modified} validators. These outlive the cache entries
+ * of the remote operations cache, so that once an entry expires the request can be sent conditionally, and a {@code 304 Not Modified} response can be answered
+ * with the kept body rather than downloading and decoding it again.
+ */
+public class ValidatedResponseCache {
+    private final Cache<String,ValidatedResponse> responses;
+    
+    public ValidatedResponseCache(ConditionalRequestProperties properties) {
+        // @formatter:off
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getRetentionMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        // @formatter:on
+    }
+    
+    public ValidatedResponse get(String requestKey) {
+        return responses.getIfPresent(requestKey);
+    }
+    
+    /**
+     * Keeps the response if it carries a validator, or forgets any previous response for the request if it doesn't.
+     *
+     * @param requestKey
+     *            identifies the request
+     * @param responseEntity
+     *            the response that was received
+     */
+    public void put(String requestKey, ResponseEntity<?> responseEntity) {
+        String eTag = responseEntity.getHeaders().getETag();
+        String lastModified = responseEntity.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if ((eTag != null || lastModified != null) && responseEntity.getBody() != null) {
+            responses.put(requestKey, new ValidatedResponse(eTag, lastModified, responseEntity.getBody()));
+        } else {
+            responses.invalidate(requestKey);
+        }
+    }
+    
+    /**
+     * Records that the response was revalidated, which restarts its retention period.
+     *
+     * @param requestKey
+     *            identifies the request
+     * @param validatedResponse
+     *            the response that was revalidated
+     */
+    public void revalidated(String requestKey, ValidatedResponse validatedResponse) {
+        responses.put(requestKey, validatedResponse);
+    }
+    
+    public static class ValidatedResponse {
+        private final String eTag;
+        private final String lastModified;
+        private final Object body;
+        
+        public ValidatedResponse(String eTag, String lastModified, Object body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+        
+        /**
+         * Adds the conditional request headers for this response.
+         *
+         * @param headers
+         *            the request headers
+         */
+        public void addConditionalHeaders(HttpHeaders headers) {
+            if (eTag != null) {
+                headers.setIfNoneMatch(eTag);
+            } else if (lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+        
+        public String getETag() {
+            return eTag;
+        }
+        
+        public String getLastModified() {
+            return lastModified;
+        }
+        
+        public Object getBody() {
+            return body;
+        }
+    }
+}
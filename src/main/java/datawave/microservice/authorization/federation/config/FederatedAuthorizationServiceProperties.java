@@ -3,21 +3,53 @@ package datawave.microservice.authorization.federation.config;
 import java.util.concurrent.TimeUnit;
 
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
 public class FederatedAuthorizationServiceProperties {
     private String federatedAuthorizationUri = "https://authorization:8443/authorization/v2";
     
+    // when true, a single shared instance is registered for this remote rather than a new instance for every injection point
+    private boolean singleton = false;
+    
     // max bytes to buffer for each rest call (-1 is unlimited)
     private int maxBytesToBuffer = -1;
     
+    // when true, response bodies are tokenized as each data buffer arrives (releasing it immediately) rather than being joined into one buffer first
+    private boolean streamingDecode = false;
+    
+    // when true, protostuff is requested in preference to JSON for response types that support it
+    private boolean preferProtostuff = false;
+    
+    // the path of the remote endpoint that lists effective authorizations for many users in one request
+    private String listEffectiveAuthorizationsBatchPath = "listEffectiveAuthorizations/batch";
+    
+    // the maximum number of users sent in a single batch request
+    @Positive
+    private int maxBatchSize = 100;
+    
+    // the number of concurrent single requests made when the remote service does not support batch requests
+    @Positive
+    private int batchFallbackConcurrency = 8;
+    
     @Valid
     private RetryTimeoutProperties listEffectiveAuthorizationsRetry = new RetryTimeoutProperties();
     
     @Valid
     private RetryTimeoutProperties flushCachedCredentialsRetry = new RetryTimeoutProperties();
     
+    @Valid
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    
+    @Valid
+    private ConnectionPoolProperties connectionPool = new ConnectionPoolProperties();
+    
+    @Valid
+    private ConditionalRequestProperties conditionalRequests = new ConditionalRequestProperties();
+    
     public String getFederatedAuthorizationUri() {
         return federatedAuthorizationUri;
     }
@@ -26,6 +58,14 @@ public class FederatedAuthorizationServiceProperties {
         this.federatedAuthorizationUri = federatedAuthorizationUri;
     }
     
+    public boolean isSingleton() {
+        return singleton;
+    }
+    
+    public void setSingleton(boolean singleton) {
+        this.singleton = singleton;
+    }
+    
     public int getMaxBytesToBuffer() {
         return maxBytesToBuffer;
     }
@@ -34,6 +74,46 @@ public class FederatedAuthorizationServiceProperties {
         this.maxBytesToBuffer = maxBytesToBuffer;
     }
     
+    public boolean isStreamingDecode() {
+        return streamingDecode;
+    }
+    
+    public void setStreamingDecode(boolean streamingDecode) {
+        this.streamingDecode = streamingDecode;
+    }
+    
+    public boolean isPreferProtostuff() {
+        return preferProtostuff;
+    }
+    
+    public void setPreferProtostuff(boolean preferProtostuff) {
+        this.preferProtostuff = preferProtostuff;
+    }
+    
+    public String getListEffectiveAuthorizationsBatchPath() {
+        return listEffectiveAuthorizationsBatchPath;
+    }
+    
+    public void setListEffectiveAuthorizationsBatchPath(String listEffectiveAuthorizationsBatchPath) {
+        this.listEffectiveAuthorizationsBatchPath = listEffectiveAuthorizationsBatchPath;
+    }
+    
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+    
+    public int getBatchFallbackConcurrency() {
+        return batchFallbackConcurrency;
+    }
+    
+    public void setBatchFallbackConcurrency(int batchFallbackConcurrency) {
+        this.batchFallbackConcurrency = batchFallbackConcurrency;
+    }
+    
     public RetryTimeoutProperties getListEffectiveAuthorizationsRetry() {
         return listEffectiveAuthorizationsRetry;
     }
@@ -50,6 +130,30 @@ public class FederatedAuthorizationServiceProperties {
         this.flushCachedCredentialsRetry = flushCachedCredentialsRetry;
     }
     
+    public CircuitBreakerProperties getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    public void setCircuitBreaker(CircuitBreakerProperties circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+    
+    public ConnectionPoolProperties getConnectionPool() {
+        return connectionPool;
+    }
+    
+    public void setConnectionPool(ConnectionPoolProperties connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+    
+    public ConditionalRequestProperties getConditionalRequests() {
+        return conditionalRequests;
+    }
+    
+    public void setConditionalRequests(ConditionalRequestProperties conditionalRequests) {
+        this.conditionalRequests = conditionalRequests;
+    }
+    
     public class RetryTimeoutProperties {
         @PositiveOrZero
         private long timeout = TimeUnit.SECONDS.toMillis(30);
@@ -66,6 +170,55 @@ public class FederatedAuthorizationServiceProperties {
         @NotNull
         private TimeUnit retryDelayUnit = TimeUnit.MILLISECONDS;
         
+        // when true, the retry delay grows exponentially (up to maxRetryDelay) rather than staying fixed
+        private boolean exponentialBackoff = true;
+        
+        @PositiveOrZero
+        private long maxRetryDelay = TimeUnit.SECONDS.toMillis(10);
+        
+        // the fraction of the computed backoff delay that is randomized
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double retryJitter = 0.5;
+        
+        // the number of retries earned per request, which caps retries at a fraction of recent traffic
+        @DecimalMin("0.0")
+        private double retryBudgetRatio = 0.2;
+        
+        // the maximum number of retries that can be banked in the retry budget
+        @Positive
+        private int retryBudgetMaxBalance = 10;
+        
+        // when true, each attempt's timeout is derived from the observed latency of the remote service
+        private boolean adaptiveTimeoutEnabled = false;
+        
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double adaptiveTimeoutPercentile = 0.99;
+        
+        @DecimalMin("1.0")
+        private double adaptiveTimeoutMultiplier = 3.0;
+        
+        // the adaptive timeout will never be lower than this (in timeoutUnit)
+        @PositiveOrZero
+        private long minTimeout = TimeUnit.SECONDS.toMillis(1);
+        
+        // when true, a second identical request is sent if the first hasn't completed by the hedge percentile of recent latency
+        private boolean hedgeEnabled = false;
+        
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double hedgePercentile = 0.95;
+        
+        // the hedge will never be sent sooner than this (in timeoutUnit)
+        @PositiveOrZero
+        private long hedgeMinDelay = 0;
+        
+        // the number of hedges earned per request, which keeps hedging from multiplying load during an outage
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double hedgeBudgetRatio = 0.1;
+        
         public long getTimeout() {
             return timeout;
         }
@@ -113,5 +266,386 @@ public class FederatedAuthorizationServiceProperties {
         public void setRetryDelayUnit(TimeUnit retryDelayUnit) {
             this.retryDelayUnit = retryDelayUnit;
         }
+        
+        public boolean isExponentialBackoff() {
+            return exponentialBackoff;
+        }
+        
+        public void setExponentialBackoff(boolean exponentialBackoff) {
+            this.exponentialBackoff = exponentialBackoff;
+        }
+        
+        public long getMaxRetryDelay() {
+            return maxRetryDelay;
+        }
+        
+        public long getMaxRetryDelayMillis() {
+            return retryDelayUnit.toMillis(maxRetryDelay);
+        }
+        
+        public void setMaxRetryDelay(long maxRetryDelay) {
+            this.maxRetryDelay = maxRetryDelay;
+        }
+        
+        public double getRetryJitter() {
+            return retryJitter;
+        }
+        
+        public void setRetryJitter(double retryJitter) {
+            this.retryJitter = retryJitter;
+        }
+        
+        public double getRetryBudgetRatio() {
+            return retryBudgetRatio;
+        }
+        
+        public void setRetryBudgetRatio(double retryBudgetRatio) {
+            this.retryBudgetRatio = retryBudgetRatio;
+        }
+        
+        public int getRetryBudgetMaxBalance() {
+            return retryBudgetMaxBalance;
+        }
+        
+        public void setRetryBudgetMaxBalance(int retryBudgetMaxBalance) {
+            this.retryBudgetMaxBalance = retryBudgetMaxBalance;
+        }
+        
+        public boolean isAdaptiveTimeoutEnabled() {
+            return adaptiveTimeoutEnabled;
+        }
+        
+        public void setAdaptiveTimeoutEnabled(boolean adaptiveTimeoutEnabled) {
+            this.adaptiveTimeoutEnabled = adaptiveTimeoutEnabled;
+        }
+        
+        public double getAdaptiveTimeoutPercentile() {
+            return adaptiveTimeoutPercentile;
+        }
+        
+        public void setAdaptiveTimeoutPercentile(double adaptiveTimeoutPercentile) {
+            this.adaptiveTimeoutPercentile = adaptiveTimeoutPercentile;
+        }
+        
+        public double getAdaptiveTimeoutMultiplier() {
+            return adaptiveTimeoutMultiplier;
+        }
+        
+        public void setAdaptiveTimeoutMultiplier(double adaptiveTimeoutMultiplier) {
+            this.adaptiveTimeoutMultiplier = adaptiveTimeoutMultiplier;
+        }
+        
+        public long getMinTimeout() {
+            return minTimeout;
+        }
+        
+        public long getMinTimeoutMillis() {
+            return timeoutUnit.toMillis(minTimeout);
+        }
+        
+        public void setMinTimeout(long minTimeout) {
+            this.minTimeout = minTimeout;
+        }
+        
+        public boolean isHedgeEnabled() {
+            return hedgeEnabled;
+        }
+        
+        public void setHedgeEnabled(boolean hedgeEnabled) {
+            this.hedgeEnabled = hedgeEnabled;
+        }
+        
+        public double getHedgePercentile() {
+            return hedgePercentile;
+        }
+        
+        public void setHedgePercentile(double hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+        }
+        
+        public long getHedgeMinDelay() {
+            return hedgeMinDelay;
+        }
+        
+        public long getHedgeMinDelayMillis() {
+            return timeoutUnit.toMillis(hedgeMinDelay);
+        }
+        
+        public void setHedgeMinDelay(long hedgeMinDelay) {
+            this.hedgeMinDelay = hedgeMinDelay;
+        }
+        
+        public double getHedgeBudgetRatio() {
+            return hedgeBudgetRatio;
+        }
+        
+        public void setHedgeBudgetRatio(double hedgeBudgetRatio) {
+            this.hedgeBudgetRatio = hedgeBudgetRatio;
+        }
+    }
+    
+    public static class CircuitBreakerProperties {
+        private boolean enabled = true;
+        
+        // the number of most recent calls used to compute the failure rate
+        @Positive
+        private int slidingWindowSize = 20;
+        
+        // the minimum number of calls in the window before the failure rate is evaluated
+        @Positive
+        private int minimumNumberOfCalls = 10;
+        
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double failureRateThreshold = 0.5;
+        
+        // how long the circuit stays open before trial calls are let through
+        @PositiveOrZero
+        private long openDuration = TimeUnit.SECONDS.toMillis(30);
+        
+        @NotNull
+        private TimeUnit openDurationUnit = TimeUnit.MILLISECONDS;
+        
+        // the number of trial calls permitted while half-open
+        @Positive
+        private int permittedCallsInHalfOpenState = 3;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+        
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+        
+        public int getMinimumNumberOfCalls() {
+            return minimumNumberOfCalls;
+        }
+        
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+        }
+        
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+        
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+        
+        public long getOpenDuration() {
+            return openDuration;
+        }
+        
+        public long getOpenDurationMillis() {
+            return openDurationUnit.toMillis(openDuration);
+        }
+        
+        public void setOpenDuration(long openDuration) {
+            this.openDuration = openDuration;
+        }
+        
+        public TimeUnit getOpenDurationUnit() {
+            return openDurationUnit;
+        }
+        
+        public void setOpenDurationUnit(TimeUnit openDurationUnit) {
+            this.openDurationUnit = openDurationUnit;
+        }
+        
+        public int getPermittedCallsInHalfOpenState() {
+            return permittedCallsInHalfOpenState;
+        }
+        
+        public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        }
+    }
+    
+    public static class ConnectionPoolProperties {
+        // when true, calls to this remote use a dedicated connection pool rather than the pool shared by every WebClient
+        private boolean enabled = false;
+        
+        @Positive
+        private int maxConnections = 50;
+        
+        // the maximum number of requests that may wait for a connection (-1 is unlimited)
+        private int pendingAcquireMaxCount = 100;
+        
+        @PositiveOrZero
+        private long pendingAcquireTimeout = TimeUnit.SECONDS.toMillis(45);
+        
+        @NotNull
+        private TimeUnit pendingAcquireTimeoutUnit = TimeUnit.MILLISECONDS;
+        
+        // connections that are idle for longer than this are closed (0 disables idle eviction)
+        @PositiveOrZero
+        private long maxIdleTime = TimeUnit.SECONDS.toMillis(30);
+        
+        @NotNull
+        private TimeUnit maxIdleTimeUnit = TimeUnit.MILLISECONDS;
+        
+        // how often idle connections are evicted in the background (0 only evicts connections as they are acquired)
+        @PositiveOrZero
+        private long evictionInterval = TimeUnit.SECONDS.toMillis(60);
+        
+        @NotNull
+        private TimeUnit evictionIntervalUnit = TimeUnit.MILLISECONDS;
+        
+        // when true, the connection counts of the pool are published to the metric registry
+        private boolean metricsEnabled = true;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+        
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+        
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+        
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+        
+        public long getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+        
+        public long getPendingAcquireTimeoutMillis() {
+            return pendingAcquireTimeoutUnit.toMillis(pendingAcquireTimeout);
+        }
+        
+        public void setPendingAcquireTimeout(long pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+        
+        public TimeUnit getPendingAcquireTimeoutUnit() {
+            return pendingAcquireTimeoutUnit;
+        }
+        
+        public void setPendingAcquireTimeoutUnit(TimeUnit pendingAcquireTimeoutUnit) {
+            this.pendingAcquireTimeoutUnit = pendingAcquireTimeoutUnit;
+        }
+        
+        public long getMaxIdleTime() {
+            return maxIdleTime;
+        }
+        
+        public long getMaxIdleTimeMillis() {
+            return maxIdleTimeUnit.toMillis(maxIdleTime);
+        }
+        
+        public void setMaxIdleTime(long maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+        
+        public TimeUnit getMaxIdleTimeUnit() {
+            return maxIdleTimeUnit;
+        }
+        
+        public void setMaxIdleTimeUnit(TimeUnit maxIdleTimeUnit) {
+            this.maxIdleTimeUnit = maxIdleTimeUnit;
+        }
+        
+        public long getEvictionInterval() {
+            return evictionInterval;
+        }
+        
+        public long getEvictionIntervalMillis() {
+            return evictionIntervalUnit.toMillis(evictionInterval);
+        }
+        
+        public void setEvictionInterval(long evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+        
+        public TimeUnit getEvictionIntervalUnit() {
+            return evictionIntervalUnit;
+        }
+        
+        public void setEvictionIntervalUnit(TimeUnit evictionIntervalUnit) {
+            this.evictionIntervalUnit = evictionIntervalUnit;
+        }
+        
+        public boolean isMetricsEnabled() {
+            return metricsEnabled;
+        }
+        
+        public void setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+        }
+    }
+    
+    public static class ConditionalRequestProperties {
+        // when true, the ETag and Last-Modified validators of listEffectiveAuthorizations responses are kept, and used to revalidate expired cache entries
+        private boolean enabled = false;
+        
+        // the maximum number of responses kept for revalidation
+        @Positive
+        private long maximumSize = 10000;
+        
+        // how long a response is kept for revalidation after it was last received or revalidated
+        @Positive
+        private long retention = TimeUnit.HOURS.toMillis(1);
+        
+        @NotNull
+        private TimeUnit retentionUnit = TimeUnit.MILLISECONDS;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+        
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+        
+        public long getRetention() {
+            return retention;
+        }
+        
+        public long getRetentionMillis() {
+            return retentionUnit.toMillis(retention);
+        }
+        
+        public void setRetention(long retention) {
+            this.retention = retention;
+        }
+        
+        public TimeUnit getRetentionUnit() {
+            return retentionUnit;
+        }
+        
+        public void setRetentionUnit(TimeUnit retentionUnit) {
+            this.retentionUnit = retentionUnit;
+        }
     }
 }
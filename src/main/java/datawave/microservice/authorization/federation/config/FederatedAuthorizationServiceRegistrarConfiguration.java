@@ -1,28 +1,120 @@
 package datawave.microservice.authorization.federation.config;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
+import datawave.microservice.authorization.config.AuthorizationsListSupplier;
 import datawave.microservice.authorization.federation.DynamicFederatedAuthorizationServiceBeanDefinitionRegistrar;
+import datawave.microservice.authorization.federation.FederatedConnectionPoolRegistry;
+import datawave.microservice.authorization.federation.FederatedRemoteStateRegistry;
+import datawave.microservice.authorization.federation.RemoteOperationsCacheSnapshot;
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.microservice.config.cache.TwoTierCacheManager;
+import datawave.microservice.config.web.WebClientProperties;
+import io.netty.handler.ssl.SslContext;
 
 @EnableCaching
 @Configuration
+@EnableConfigurationProperties(PersistentCacheProperties.class)
 public class FederatedAuthorizationServiceRegistrarConfiguration {
+    public static final String CACHE_METRIC_PREFIX = "federatedAuthorization.cache";
+    
+    private static final String[] REMOTE_OPERATIONS_CACHES = {"getRemoteUser", "listEffectiveAuthorizations"};
+    
+    // these match the cache spec used when the persistent cache is disabled
+    private static final long REMOTE_OPERATIONS_CACHE_MAXIMUM_SIZE = 1000;
+    private static final long REMOTE_OPERATIONS_CACHE_EXPIRE_AFTER_WRITE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    
     @Bean
     public static DynamicFederatedAuthorizationServiceBeanDefinitionRegistrar federatedAuthorizationServiceBeanDefinitionRegistrar(Environment environment) {
         return new DynamicFederatedAuthorizationServiceBeanDefinitionRegistrar(environment);
     }
     
     @Bean
-    public CacheManager remoteOperationsCacheManager() {
-        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager("getRemoteUser", "listEffectiveAuthorizations");
-        caffeineCacheManager.setCaffeineSpec(CaffeineSpec.parse("maximumSize=1000, expireAfterAccess=5m, expireAfterWrite=5m"));
+    public FederatedRemoteStateRegistry federatedRemoteStateRegistry(ObjectProvider<MetricRegistry> metricRegistry) {
+        return new FederatedRemoteStateRegistry(metricRegistry.getIfAvailable(MetricRegistry::new));
+    }
+    
+    @Bean
+    public FederatedConnectionPoolRegistry federatedConnectionPoolRegistry(@Qualifier("outboundNettySslContext") ObjectProvider<SslContext> sslContext,
+                    @Value("${reactor.netty.http.client.wiretap:false}") boolean wiretap, ObjectProvider<MetricRegistry> metricRegistry,
+                    ObjectProvider<WebClientProperties> webClientProperties) {
+        return new FederatedConnectionPoolRegistry(sslContext.getIfAvailable(), wiretap, metricRegistry.getIfAvailable(),
+                        webClientProperties.getIfAvailable(WebClientProperties::new).getTimeouts(FederatedConnectionPoolRegistry.CLIENT_NAME));
+    }
+    
+    @Bean
+    public CacheManager remoteOperationsCacheManager(PersistentCacheProperties persistentCacheProperties, ObjectProvider<MetricRegistry> metricRegistry) {
+        CaffeineCacheManager caffeineCacheManager;
+        if (persistentCacheProperties.isEnabled()) {
+            // persisted entries are restored with the remainder of their original lifetime, which requires caches with variable expiration
+            caffeineCacheManager = new CaffeineCacheManager();
+            caffeineCacheManager.setCacheNames(Collections.emptyList());
+            for (String cacheName : REMOTE_OPERATIONS_CACHES) {
+                caffeineCacheManager.registerCustomCache(cacheName, RemoteOperationsCacheSnapshot.newCache(REMOTE_OPERATIONS_CACHE_MAXIMUM_SIZE,
+                                REMOTE_OPERATIONS_CACHE_EXPIRE_AFTER_WRITE_MILLIS));
+            }
+        } else {
+            caffeineCacheManager = new CaffeineCacheManager(REMOTE_OPERATIONS_CACHES);
+            caffeineCacheManager.setCaffeineSpec(CaffeineSpec.parse("maximumSize=1000, expireAfterAccess=5m, expireAfterWrite=5m, recordStats"));
+        }
+        metricRegistry.ifAvailable(registry -> registerCacheMetrics(registry, caffeineCacheManager));
         return caffeineCacheManager;
     }
+    
+    @Bean
+    @ConditionalOnProperty(name = "datawave.authorization.federation.persistent-cache.enabled", havingValue = "true")
+    public RemoteOperationsCacheSnapshot remoteOperationsCacheSnapshot(@Qualifier("remoteOperationsCacheManager") CacheManager remoteOperationsCacheManager,
+                    PersistentCacheProperties persistentCacheProperties, ObjectProvider<ObjectMapper> objectMapper,
+                    ObjectProvider<AuthorizationsListSupplier> authorizationsListSupplier) {
+        // the snapshot only covers the local caches
+        if (remoteOperationsCacheManager instanceof TwoTierCacheManager) {
+            remoteOperationsCacheManager = ((TwoTierCacheManager) remoteOperationsCacheManager).getLocalCacheManager();
+        }
+        // the caches are keyed by the current user, and hold remote users and authorization lists
+        List<Class<?>> cachedTypes = Arrays.asList(DatawaveUserDetails.class,
+                        authorizationsListSupplier.getIfAvailable(AuthorizationsListSupplier::new).get().getClass());
+        return new RemoteOperationsCacheSnapshot((CaffeineCacheManager) remoteOperationsCacheManager, persistentCacheProperties,
+                        objectMapper.getIfAvailable(ObjectMapper::new), cachedTypes);
+    }
+    
+    private static void registerCacheMetrics(MetricRegistry metricRegistry, CaffeineCacheManager caffeineCacheManager) {
+        for (String cacheName : caffeineCacheManager.getCacheNames()) {
+            String prefix = MetricRegistry.name(CACHE_METRIC_PREFIX, cacheName);
+            metricRegistry.register(MetricRegistry.name(prefix, "hits"), (Gauge<Long>) () -> getCacheStats(caffeineCacheManager, cacheName).hitCount());
+            metricRegistry.register(MetricRegistry.name(prefix, "misses"), (Gauge<Long>) () -> getCacheStats(caffeineCacheManager, cacheName).missCount());
+            metricRegistry.register(MetricRegistry.name(prefix, "evictions"),
+                            (Gauge<Long>) () -> getCacheStats(caffeineCacheManager, cacheName).evictionCount());
+        }
+    }
+    
+    private static CacheStats getCacheStats(CaffeineCacheManager caffeineCacheManager, String cacheName) {
+        Cache cache = caffeineCacheManager.getCache(cacheName);
+        if (cache instanceof CaffeineCache) {
+            return ((CaffeineCache) cache).getNativeCache().stats();
+        }
+        return CacheStats.empty();
+    }
 }
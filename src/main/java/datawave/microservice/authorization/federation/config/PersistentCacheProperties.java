@@ -0,0 +1,65 @@
+package datawave.microservice.authorization.federation.config;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration for the optional persistent tier of the remote operations cache, which snapshots cached remote users and authorizations to a local file so
+ * that they survive a restart.
+ */
+@Validated
+@ConfigurationProperties(prefix = "datawave.authorization.federation.persistent-cache")
+public class PersistentCacheProperties {
+    private boolean enabled = false;
+    
+    // the file that cache snapshots are written to and loaded from, which must be set when the persistent cache is enabled (it is created readable only by
+    // its owner, and is not loaded if it is owned by another user or is accessible to other users)
+    private String file;
+    
+    @Positive
+    private long snapshotInterval = TimeUnit.MINUTES.toMillis(1);
+    
+    @NotNull
+    private TimeUnit snapshotIntervalUnit = TimeUnit.MILLISECONDS;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public String getFile() {
+        return file;
+    }
+    
+    public void setFile(String file) {
+        this.file = file;
+    }
+    
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+    
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalUnit.toMillis(snapshotInterval);
+    }
+    
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+    
+    public TimeUnit getSnapshotIntervalUnit() {
+        return snapshotIntervalUnit;
+    }
+    
+    public void setSnapshotIntervalUnit(TimeUnit snapshotIntervalUnit) {
+        this.snapshotIntervalUnit = snapshotIntervalUnit;
+    }
+}
@@ -0,0 +1,84 @@
+package datawave.microservice.authorization.jwt;
+
+import java.security.Key;
+import java.security.cert.Certificate;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.JWTTokenHandler;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * A {@link JWTTokenHandler} that also reports when the tokens it parses expire. The users and the expiration come from the same validated claims, so callers
+ * never decode a token a second time.
+ */
+public class ExpiringJWTTokenHandler extends JWTTokenHandler {
+    private static final String PRINCIPALS_CLAIM = "principals";
+    
+    private final Key verificationKey;
+    private final ObjectMapper objectMapper;
+    
+    public ExpiringJWTTokenHandler(Certificate cert, Key signingKey, long jwtTTL, TimeUnit jwtTTLUnit, ObjectMapper objectMapper) {
+        super(cert, signingKey, jwtTTL, jwtTTLUnit, objectMapper);
+        this.verificationKey = cert.getPublicKey();
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public Collection<DatawaveUser> createUsersFromToken(String token) {
+        return parseToken(token).getUsers();
+    }
+    
+    /**
+     * Validates a token and reads its users and expiration.
+     *
+     * @param token
+     *            the encoded token
+     * @return the token's users and expiration
+     * @throws io.jsonwebtoken.JwtException
+     *             if the token is malformed, expired, or not signed by our key
+     * @throws IllegalArgumentException
+     *             if the token has no users
+     */
+    public ParsedToken parseToken(String token) {
+        Claims claims = Jwts.parser().setSigningKey(verificationKey).parseClaimsJws(token).getBody();
+        List<?> principals = claims.get(PRINCIPALS_CLAIM, List.class);
+        if (principals == null || principals.isEmpty()) {
+            throw new IllegalArgumentException("JWT for " + claims.getSubject() + " does not contain any proxied principals.");
+        }
+        List<DatawaveUser> users = principals.stream().map(principal -> objectMapper.convertValue(principal, DatawaveUser.class)).collect(Collectors.toList());
+        Date expiration = claims.getExpiration();
+        return new ParsedToken(users, expiration != null ? expiration.getTime() : 0L);
+    }
+    
+    /**
+     * The users and expiration read from a validated token.
+     */
+    public static class ParsedToken {
+        private final Collection<DatawaveUser> users;
+        private final long expirationTime;
+        
+        ParsedToken(Collection<DatawaveUser> users, long expirationTime) {
+            this.users = users;
+            this.expirationTime = expirationTime;
+        }
+        
+        public Collection<DatawaveUser> getUsers() {
+            return users;
+        }
+        
+        /**
+         * @return when the token expires, in milliseconds since the epoch (0 if the token has no expiration)
+         */
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+    }
+}
@@ -17,15 +17,53 @@ public class JWTAuthentication implements Authentication {
     private static final long serialVersionUID = 1L;
     
     private final DatawaveUserDetails userDetails;
+    private final String token;
+    private final long expirationTime;
     private final List<GrantedAuthority> authorities;
     private boolean authenticated;
     
     public JWTAuthentication(DatawaveUserDetails userDetails) {
+        this(userDetails, null, 0L);
+    }
+    
+    /**
+     * @param userDetails
+     *            the user details read from the token
+     * @param token
+     *            the encoded token, which may be forwarded on outbound calls made for the same user
+     * @param expirationTime
+     *            when the token expires, in milliseconds since the epoch (0 if unknown)
+     */
+    public JWTAuthentication(DatawaveUserDetails userDetails, String token, long expirationTime) {
         this.userDetails = userDetails;
+        this.token = token;
+        this.expirationTime = expirationTime;
         authorities = userDetails.getPrimaryUser().getRoles().stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList());
         authenticated = true;
     }
     
+    public String getToken() {
+        return token;
+    }
+    
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+    
+    /**
+     * Determines whether the token can be forwarded on an outbound call made for a user, rather than creating a new token. The token must carry exactly the
+     * same user chain, and must not expire within the given time.
+     *
+     * @param currentUser
+     *            the user the outbound call is made for
+     * @param minRemainingMillis
+     *            the minimum remaining lifetime of the token
+     * @return true if the token can be forwarded
+     */
+    public boolean isForwardableFor(DatawaveUserDetails currentUser, long minRemainingMillis) {
+        return token != null && expirationTime > 0 && expirationTime - System.currentTimeMillis() >= minRemainingMillis && userDetails.equals(currentUser);
+    }
+    
     @Override
     public String getName() {
         return userDetails.getUsername();
@@ -15,7 +15,6 @@ import datawave.microservice.authorization.jwt.exception.TokenExpiredException;
 import datawave.microservice.authorization.user.DatawaveUserDetails;
 import datawave.microservice.authorization.user.DatawaveUserDetailsFactory;
 import datawave.security.authorization.DatawaveUser;
-import datawave.security.authorization.JWTTokenHandler;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
@@ -28,11 +27,11 @@ import io.jsonwebtoken.UnsupportedJwtException;
 @Component
 @ConditionalOnWebApplication
 public class JWTAuthenticationProvider implements AuthenticationProvider {
-    private final JWTTokenHandler tokenHandler;
+    private final ExpiringJWTTokenHandler tokenHandler;
     private final DatawaveUserDetailsFactory userDetailsFactory;
     
     @Autowired
-    public JWTAuthenticationProvider(JWTTokenHandler tokenHandler, DatawaveUserDetailsFactory userDetailsFactory) {
+    public JWTAuthenticationProvider(ExpiringJWTTokenHandler tokenHandler, DatawaveUserDetailsFactory userDetailsFactory) {
         this.tokenHandler = tokenHandler;
         this.userDetailsFactory = userDetailsFactory;
     }
@@ -42,10 +41,11 @@ public class JWTAuthenticationProvider implements AuthenticationProvider {
         if (authentication instanceof JWTPreauthToken) {
             JWTPreauthToken jwtPreauthToken = (JWTPreauthToken) authentication;
             try {
-                Collection<? extends DatawaveUser> users = tokenHandler.createUsersFromToken(jwtPreauthToken.getCredentials());
+                ExpiringJWTTokenHandler.ParsedToken token = tokenHandler.parseToken(jwtPreauthToken.getCredentials());
+                Collection<? extends DatawaveUser> users = token.getUsers();
                 long minCreateTime = users.stream().map(DatawaveUser::getCreationTime).min(Long::compareTo).orElse(System.currentTimeMillis());
                 DatawaveUserDetails datawaveUserDetails = userDetailsFactory.create(users, minCreateTime);
-                return new JWTAuthentication(datawaveUserDetails);
+                return new JWTAuthentication(datawaveUserDetails, jwtPreauthToken.getCredentials(), token.getExpirationTime());
             } catch (UnsupportedJwtException | MalformedJwtException | IllegalArgumentException e) {
                 throw new InvalidTokenException("JWT is not valid.", e);
             } catch (SignatureException e) {
@@ -5,18 +5,21 @@ import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.web.server.Ssl;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.util.ResourceUtils;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 
 import datawave.microservice.authorization.config.DatawaveSecurityProperties;
+import datawave.microservice.config.web.KeyStoreCache;
 import datawave.security.authorization.JWTTokenHandler;
 
 /**
@@ -27,24 +30,80 @@ import datawave.security.authorization.JWTTokenHandler;
 @ConditionalOnWebApplication
 public class JWTConfiguration {
     
+    /**
+     * Registers a listener that recreates the {@link JWTTokenHandler} whenever the {@link KeyStoreCache} reloads a keystore, so that tokens are signed with the
+     * current key.
+     *
+     * @param keyStoreCache
+     *            the keystore cache
+     * @param refreshScope
+     *            the refresh scope that holds the token handler, if refresh is enabled
+     */
+    public JWTConfiguration(KeyStoreCache keyStoreCache, ObjectProvider<org.springframework.cloud.context.scope.refresh.RefreshScope> refreshScope) {
+        keyStoreCache.addReloadListener(location -> refreshScope.ifAvailable(scope -> scope.refresh("jwtTokenHandler")));
+    }
+    
     @Bean
     public GuavaModule guavaModule() {
         return new GuavaModule();
     }
     
+    /**
+     * Creates the cache of tokens created for outbound calls. The cached tokens are discarded whenever the {@link KeyStoreCache} reloads a keystore, since
+     * they were signed with the previous key.
+     *
+     * @param jwtTokenHandler
+     *            the token handler
+     * @param securityProperties
+     *            the security properties, which give the token lifetime and cache settings
+     * @param keyStoreCache
+     *            the keystore cache
+     * @param metricRegistry
+     *            the registry for the cache metrics, if metrics are enabled
+     * @return a new {@link JWTTokenCache}
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public JWTTokenCache jwtTokenCache(JWTTokenHandler jwtTokenHandler, DatawaveSecurityProperties securityProperties, KeyStoreCache keyStoreCache,
+                    ObjectProvider<MetricRegistry> metricRegistry) {
+        DatawaveSecurityProperties.Jwt jwt = securityProperties.getJwt();
+        // @formatter:off
+        JWTTokenCache tokenCache = new JWTTokenCache(jwtTokenHandler,
+                jwt.getTokenCacheSize(),
+                jwt.getTtl(TimeUnit.MILLISECONDS),
+                jwt.getTokenCacheSafetyMargin(TimeUnit.MILLISECONDS),
+                jwt.getTokenCacheRefreshAhead(TimeUnit.MILLISECONDS),
+                metricRegistry.getIfAvailable());
+        // @formatter:on
+        keyStoreCache.addReloadListener(location -> tokenCache.invalidateAll());
+        return tokenCache;
+    }
+    
+    /**
+     * Creates the token handler. It is an {@link ExpiringJWTTokenHandler}, so that a single parse of an inbound token gives both its users and its expiration.
+     *
+     * @param serverProperties
+     *            the server properties, which locate the keystore holding the signing key
+     * @param securityProperties
+     *            the security properties, which give the token lifetime
+     * @param objectMapper
+     *            the mapper used to convert the users in a token
+     * @param keyStoreCache
+     *            the keystore cache
+     * @return a new {@link ExpiringJWTTokenHandler}
+     */
     @Bean
     @RefreshScope
-    public JWTTokenHandler jwtTokenHandler(ServerProperties serverProperties, DatawaveSecurityProperties securityProperties, ObjectMapper objectMapper) {
+    public ExpiringJWTTokenHandler jwtTokenHandler(ServerProperties serverProperties, DatawaveSecurityProperties securityProperties, ObjectMapper objectMapper,
+                    KeyStoreCache keyStoreCache) {
         try {
             Ssl ssl = serverProperties.getSsl();
-            String keyStoreType = ssl.getKeyStoreType();
-            KeyStore keyStore = KeyStore.getInstance(keyStoreType == null ? "JKS" : keyStoreType);
             char[] keyPassword = ssl.getKeyPassword() != null ? ssl.getKeyPassword().toCharArray() : ssl.getKeyStorePassword().toCharArray();
-            keyStore.load(ResourceUtils.getURL(ssl.getKeyStore()).openStream(), ssl.getKeyStorePassword().toCharArray());
+            KeyStore keyStore = keyStoreCache.getKeyStore(ssl.getKeyStore(), ssl.getKeyStoreType(), ssl.getKeyStorePassword());
             String alias = keyStore.aliases().nextElement();
             Key signingKey = keyStore.getKey(alias, keyPassword);
             Certificate cert = keyStore.getCertificate(alias);
-            return new JWTTokenHandler(cert, signingKey, securityProperties.getJwt().getTtl(TimeUnit.SECONDS), TimeUnit.SECONDS, objectMapper);
+            return new ExpiringJWTTokenHandler(cert, signingKey, securityProperties.getJwt().getTtl(TimeUnit.SECONDS), TimeUnit.SECONDS, objectMapper);
         } catch (Exception e) {
             throw new IllegalStateException("Invalid SSL configuration.", e);
         }
@@ -0,0 +1,162 @@
+package datawave.microservice.authorization.jwt;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.JWTTokenHandler;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * An {@link ExchangeFilterFunction} that adds a bearer JWT for the current user to {@link org.springframework.web.reactive.function.client.WebClient}
+ * requests, the way {@link JWTRestTemplate} does for blocking calls.
+ * <p>
+ * The user is taken from the first of these that is present:
+ * <ol>
+ * <li>the request's {@link #USER_ATTRIBUTE} attribute (see {@link #user(DatawaveUserDetails)})</li>
+ * <li>the Reactor context (see {@link #withUser(DatawaveUserDetails)})</li>
+ * <li>the principal of the reactive security context, or else of the security context of the thread that subscribed to the request</li>
+ * </ol>
+ * Requests that already have an Authorization header, that are for a host the filter wasn't created for, or for which there is no user, are sent
+ * unchanged. As with {@link JWTRestTemplate}, the current request's token is forwarded when it was issued for the same user and won't expire soon, and
+ * otherwise a token is taken from the {@link JWTTokenCache}. Creating a token is CPU-bound, so when one has to be created, that is done on the bounded elastic
+ * scheduler rather than on the calling (event loop) thread.
+ */
+public class JWTExchangeFilterFunction implements ExchangeFilterFunction {
+    public static final String USER_ATTRIBUTE = JWTExchangeFilterFunction.class.getName() + ".user";
+    
+    private final JWTTokenHandler jwtTokenHandler;
+    private final JWTTokenCache jwtTokenCache;
+    private final long forwardMinRemainingMillis;
+    private final Set<String> hosts;
+    
+    /**
+     * Creates a filter that adds a JWT to every request, for a client that only calls services that should receive the user's token.
+     *
+     * @param jwtTokenHandler
+     *            the handler that creates tokens
+     * @param jwtTokenCache
+     *            the cache of created tokens, or null to create a token for every request that doesn't forward the current token
+     * @param forwardMinRemainingMillis
+     *            the minimum remaining lifetime for the current token to be forwarded, or a negative value to never forward it
+     */
+    public JWTExchangeFilterFunction(JWTTokenHandler jwtTokenHandler, JWTTokenCache jwtTokenCache, long forwardMinRemainingMillis) {
+        this(jwtTokenHandler, jwtTokenCache, forwardMinRemainingMillis, null);
+    }
+    
+    /**
+     * Creates a filter that only adds a JWT to requests for the given hosts.
+     *
+     * @param jwtTokenHandler
+     *            the handler that creates tokens
+     * @param jwtTokenCache
+     *            the cache of created tokens, or null to create a token for every request that doesn't forward the current token
+     * @param forwardMinRemainingMillis
+     *            the minimum remaining lifetime for the current token to be forwarded, or a negative value to never forward it
+     * @param hosts
+     *            the hosts (or, for load-balanced calls, service IDs) whose requests get a JWT, matched ignoring case, or null for every host
+     */
+    public JWTExchangeFilterFunction(JWTTokenHandler jwtTokenHandler, JWTTokenCache jwtTokenCache, long forwardMinRemainingMillis, Collection<String> hosts) {
+        this.jwtTokenHandler = jwtTokenHandler;
+        this.jwtTokenCache = jwtTokenCache;
+        this.forwardMinRemainingMillis = forwardMinRemainingMillis;
+        this.hosts = (hosts != null) ? hosts.stream().map(host -> host.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()) : null;
+    }
+    
+    /**
+     * Sets the user for a single request, e.g. {@code webClient.get().uri(uri).attributes(JWTExchangeFilterFunction.user(currentUser))}.
+     *
+     * @param currentUser
+     *            the user the request is made for
+     * @return a consumer that adds the user to the request attributes
+     */
+    public static Consumer<Map<String,Object>> user(DatawaveUserDetails currentUser) {
+        return attributes -> attributes.put(USER_ATTRIBUTE, currentUser);
+    }
+    
+    /**
+     * Sets the user for every request in a reactive pipeline, e.g. {@code mono.contextWrite(JWTExchangeFilterFunction.withUser(currentUser))}.
+     *
+     * @param currentUser
+     *            the user the requests are made for
+     * @return a function that adds the user to the Reactor context
+     */
+    public static Function<Context,Context> withUser(DatawaveUserDetails currentUser) {
+        return context -> context.put(DatawaveUserDetails.class, currentUser);
+    }
+    
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.headers().containsKey(HttpHeaders.AUTHORIZATION) || !isAllowedHost(request)) {
+            return next.exchange(request);
+        }
+        // read here, since the exchange may continue on another thread
+        Authentication threadAuthentication = SecurityContextHolder.getContext().getAuthentication();
+        // @formatter:off
+        return Mono.deferContextual(context -> ReactiveSecurityContextHolder.getContext()
+                .flatMap(securityContext -> Mono.justOrEmpty(securityContext.getAuthentication()))
+                .switchIfEmpty(Mono.justOrEmpty(threadAuthentication))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(authentication -> {
+                    DatawaveUserDetails currentUser = getUser(request, context, authentication.orElse(null));
+                    if (currentUser == null) {
+                        return next.exchange(request);
+                    }
+                    return getToken(currentUser, authentication.orElse(null))
+                            .flatMap(token -> next.exchange(ClientRequest.from(request).headers(headers -> headers.setBearerAuth(token)).build()));
+                }));
+        // @formatter:on
+    }
+    
+    private boolean isAllowedHost(ClientRequest request) {
+        String host = request.url().getHost();
+        return hosts == null || (host != null && hosts.contains(host.toLowerCase(Locale.ROOT)));
+    }
+    
+    private DatawaveUserDetails getUser(ClientRequest request, ContextView context, Authentication authentication) {
+        Object user = request.attribute(USER_ATTRIBUTE).orElse(null);
+        if (user == null) {
+            user = context.getOrDefault(DatawaveUserDetails.class, null);
+        }
+        if (user == null && authentication != null) {
+            user = authentication.getPrincipal();
+        }
+        return (user instanceof DatawaveUserDetails) ? (DatawaveUserDetails) user : null;
+    }
+    
+    private Mono<String> getToken(DatawaveUserDetails currentUser, Authentication authentication) {
+        if (forwardMinRemainingMillis >= 0 && authentication instanceof JWTAuthentication
+                        && ((JWTAuthentication) authentication).isForwardableFor(currentUser, forwardMinRemainingMillis)) {
+            return Mono.just(((JWTAuthentication) authentication).getToken());
+        }
+        String cachedToken = (jwtTokenCache != null) ? jwtTokenCache.getCachedToken(currentUser) : null;
+        if (cachedToken != null) {
+            return Mono.just(cachedToken);
+        }
+        // @formatter:off
+        return Mono.fromCallable(() -> (jwtTokenCache != null)
+                        ? jwtTokenCache.getToken(currentUser)
+                        : jwtTokenHandler.createTokenFromUsers(currentUser.getUsername(), currentUser.getProxiedUsers()))
+                .subscribeOn(Schedulers.boundedElastic());
+        // @formatter:on
+    }
+}
@@ -1,42 +1,96 @@
 package datawave.microservice.authorization.jwt;
 
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_HEADER;
+
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponents;
 
 import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.microservice.config.web.RequestDeadlines;
 import datawave.security.authorization.JWTTokenHandler;
 
 /**
- * An extended version of {@link RestTemplate} that provides convenience methods to ensure the JWT is passed with a request.
+ * An extended version of {@link RestTemplate} that provides convenience methods to ensure the JWT is passed with a request. When the current request has a
+ * deadline, the time remaining until it is passed along too.
  */
 public class JWTRestTemplate extends RestTemplate {
     private JWTTokenHandler jwtTokenHandler;
+    private JWTTokenCache jwtTokenCache;
+    private long forwardMinRemainingMillis = -1L;
     
     public void setJwtTokenHandler(JWTTokenHandler jwtTokenHandler) {
         this.jwtTokenHandler = jwtTokenHandler;
     }
     
+    /**
+     * Sets the cache of created tokens. Without a cache, a new token is created for every call that doesn't forward the current request's token.
+     *
+     * @param jwtTokenCache
+     *            the token cache, or null
+     */
+    public void setJwtTokenCache(JWTTokenCache jwtTokenCache) {
+        this.jwtTokenCache = jwtTokenCache;
+    }
+    
+    /**
+     * Sets the minimum remaining lifetime for the current request's token to be forwarded rather than creating a new token.
+     *
+     * @param forwardMinRemainingMillis
+     *            the minimum remaining lifetime, or a negative value to always create a new token
+     */
+    public void setForwardMinRemainingMillis(long forwardMinRemainingMillis) {
+        this.forwardMinRemainingMillis = forwardMinRemainingMillis;
+    }
+    
     public <T> RequestEntity<T> createRequestEntity(DatawaveUserDetails currentUser, HttpMethod method, UriComponents uri) {
         return createRequestEntity(currentUser, null, null, method, uri);
     }
     
     public <T> RequestEntity<T> createRequestEntity(DatawaveUserDetails currentUser, T body, MultiValueMap<String,String> additionalHeaders, HttpMethod method,
                     UriComponents uri) {
-        String token = jwtTokenHandler.createTokenFromUsers(currentUser.getUsername(), currentUser.getProxiedUsers());
+        String token = getToken(currentUser);
         HttpHeaders headers = new HttpHeaders();
         headers.add(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        Long deadlineNanos = RequestDeadlines.getCurrentDeadlineNanos();
+        if (deadlineNanos != null) {
+            headers.set(REQUEST_DEADLINE_HEADER, Long.toString(RequestDeadlines.getRemainingMillis(deadlineNanos)));
+        }
         if (additionalHeaders != null) {
             additionalHeaders.forEach(headers::put);
         }
         return new RequestEntity<>(body, headers, method, uri.toUri());
     }
     
+    /**
+     * Gets the token to send for a user. If the current request was authenticated with a token for exactly the same user chain, and that token won't expire
+     * soon, it is forwarded as-is. Otherwise, a cached token is used if a {@link JWTTokenCache} is set. Either way saves signing a new token for every
+     * outbound call.
+     *
+     * @param currentUser
+     *            the user the outbound call is made for
+     * @return the encoded token
+     */
+    protected String getToken(DatawaveUserDetails currentUser) {
+        if (forwardMinRemainingMillis >= 0) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication instanceof JWTAuthentication && ((JWTAuthentication) authentication).isForwardableFor(currentUser, forwardMinRemainingMillis)) {
+                return ((JWTAuthentication) authentication).getToken();
+            }
+        }
+        if (jwtTokenCache != null) {
+            return jwtTokenCache.getToken(currentUser);
+        }
+        return jwtTokenHandler.createTokenFromUsers(currentUser.getUsername(), currentUser.getProxiedUsers());
+    }
+    
     public <T> ResponseEntity<T> exchange(DatawaveUserDetails currentUser, HttpMethod method, UriComponents uri, Class<T> responseType)
                     throws RestClientException {
         RequestEntity<T> requestEntity = createRequestEntity(currentUser, method, uri);
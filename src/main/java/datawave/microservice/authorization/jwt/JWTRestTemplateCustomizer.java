@@ -1,25 +1,37 @@
 package datawave.microservice.authorization.jwt;
 
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.web.client.RestTemplateCustomizer;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import datawave.microservice.authorization.config.DatawaveSecurityProperties;
 import datawave.security.authorization.JWTTokenHandler;
 
 @Component
 @ConditionalOnWebApplication
 public class JWTRestTemplateCustomizer implements RestTemplateCustomizer {
     private final JWTTokenHandler jwtTokenHandler;
+    private final JWTTokenCache jwtTokenCache;
+    private final DatawaveSecurityProperties securityProperties;
     
-    public JWTRestTemplateCustomizer(JWTTokenHandler jwtTokenHandler) {
+    public JWTRestTemplateCustomizer(JWTTokenHandler jwtTokenHandler, ObjectProvider<JWTTokenCache> jwtTokenCache,
+                    DatawaveSecurityProperties securityProperties) {
         this.jwtTokenHandler = jwtTokenHandler;
+        this.jwtTokenCache = jwtTokenCache.getIfAvailable();
+        this.securityProperties = securityProperties;
     }
     
     @Override
     public void customize(RestTemplate restTemplate) {
         if (restTemplate instanceof JWTRestTemplate) {
-            ((JWTRestTemplate) restTemplate).setJwtTokenHandler(jwtTokenHandler);
+            JWTRestTemplate jwtRestTemplate = (JWTRestTemplate) restTemplate;
+            jwtRestTemplate.setJwtTokenHandler(jwtTokenHandler);
+            jwtRestTemplate.setJwtTokenCache(jwtTokenCache);
+            jwtRestTemplate.setForwardMinRemainingMillis(securityProperties.getJwt().getForwardMinRemainingTtl(TimeUnit.MILLISECONDS));
         }
     }
 }
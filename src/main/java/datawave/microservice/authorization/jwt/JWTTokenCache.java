@@ -0,0 +1,159 @@
+package datawave.microservice.authorization.jwt;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.JWTTokenHandler;
+
+/**
+ * Caches the tokens created for outbound calls, so that a service making many calls for the same user signs one token per user rather than one per call.
+ * <p>
+ * Tokens are keyed by the {@link DatawaveUserDetails} they were created for (i.e., its username and proxied user chain). A token is never handed out once
+ * less than the safety margin remains before it expires, and a token that is within the refresh-ahead time of that point is replaced in the background while
+ * the current one is still handed out, so callers don't wait for signing. The number of tokens created and the rate at which requests are served from the
+ * cache are published as metrics.
+ */
+public class JWTTokenCache {
+    public static final String METRIC_PREFIX = "jwt.tokenCache";
+    
+    private final JWTTokenHandler tokenHandler;
+    private final LoadingCache<DatawaveUserDetails,String> tokens;
+    private final MetricRegistry metricRegistry;
+    private final Meter requests = new Meter();
+    private final Meter misses = new Meter();
+    private final Meter created = new Meter();
+    
+    /**
+     * @param tokenHandler
+     *            the handler that creates tokens
+     * @param maximumSize
+     *            the maximum number of users to cache tokens for (0 disables caching)
+     * @param tokenTtlMillis
+     *            the lifetime of the tokens created by the token handler
+     * @param safetyMarginMillis
+     *            the minimum remaining lifetime of a token handed out by the cache
+     * @param refreshAheadMillis
+     *            how long before a token reaches the safety margin to create its replacement in the background (0 disables refreshing)
+     * @param metricRegistry
+     *            the registry to publish metrics to, or null
+     */
+    public JWTTokenCache(JWTTokenHandler tokenHandler, long maximumSize, long tokenTtlMillis, long safetyMarginMillis, long refreshAheadMillis,
+                    MetricRegistry metricRegistry) {
+        this(tokenHandler, maximumSize, tokenTtlMillis, safetyMarginMillis, refreshAheadMillis, metricRegistry, Ticker.systemTicker(),
+                        ForkJoinPool.commonPool());
+    }
+    
+    JWTTokenCache(JWTTokenHandler tokenHandler, long maximumSize, long tokenTtlMillis, long safetyMarginMillis, long refreshAheadMillis,
+                    MetricRegistry metricRegistry, Ticker ticker, Executor executor) {
+        this.tokenHandler = tokenHandler;
+        long usableMillis = tokenTtlMillis - safetyMarginMillis;
+        if (maximumSize > 0 && usableMillis > 0) {
+            // @formatter:off
+            Caffeine<Object,Object> builder = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .ticker(ticker)
+                    .executor(executor)
+                    .expireAfterWrite(usableMillis, TimeUnit.MILLISECONDS);
+            // @formatter:on
+            if (refreshAheadMillis > 0 && usableMillis > refreshAheadMillis) {
+                builder.refreshAfterWrite(usableMillis - refreshAheadMillis, TimeUnit.MILLISECONDS);
+            }
+            this.tokens = builder.build(new TokenLoader());
+        } else {
+            this.tokens = null;
+        }
+        this.metricRegistry = metricRegistry;
+        if (metricRegistry != null) {
+            registerMetrics();
+        }
+    }
+    
+    /**
+     * Gets a token for a user, creating one if there is no cached token that can still be used.
+     *
+     * @param currentUser
+     *            the user to get a token for
+     * @return the encoded token
+     */
+    public String getToken(DatawaveUserDetails currentUser) {
+        requests.mark();
+        if (tokens == null) {
+            misses.mark();
+            return createToken(currentUser);
+        }
+        return tokens.get(currentUser);
+    }
+    
+    /**
+     * Gets a cached token for a user without creating one, e.g. so that a caller on an event loop thread can create a missing token elsewhere.
+     *
+     * @param currentUser
+     *            the user to get a token for
+     * @return the cached token, or null if there is none
+     */
+    public String getCachedToken(DatawaveUserDetails currentUser) {
+        String token = (tokens != null) ? tokens.getIfPresent(currentUser) : null;
+        // a miss is counted by the getToken call that follows
+        if (token != null) {
+            requests.mark();
+        }
+        return token;
+    }
+    
+    /**
+     * Discards the cached tokens, e.g. because the signing key has changed.
+     */
+    public void invalidateAll() {
+        if (tokens != null) {
+            tokens.invalidateAll();
+        }
+    }
+    
+    private String createToken(DatawaveUserDetails currentUser) {
+        created.mark();
+        return tokenHandler.createTokenFromUsers(currentUser.getUsername(), currentUser.getProxiedUsers());
+    }
+    
+    private void registerMetrics() {
+        metricRegistry.removeMatching(MetricFilter.startsWith(METRIC_PREFIX));
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "requests"), requests);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "created"), created);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "hitRate"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(requests.getFiveMinuteRate() - misses.getFiveMinuteRate(), requests.getFiveMinuteRate());
+            }
+        });
+        if (tokens != null) {
+            metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "size"), (Gauge<Long>) tokens::estimatedSize);
+        }
+    }
+    
+    /**
+     * Creates tokens for the cache. A background refresh creates a token without the caller having missed the cache, so only initial loads count as misses.
+     */
+    private class TokenLoader implements CacheLoader<DatawaveUserDetails,String> {
+        @Override
+        public String load(DatawaveUserDetails currentUser) {
+            misses.mark();
+            return createToken(currentUser);
+        }
+        
+        @Override
+        public String reload(DatawaveUserDetails currentUser, String oldToken) {
+            return createToken(currentUser);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package datawave.microservice.authorization.jwt;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import datawave.microservice.authorization.config.DatawaveSecurityProperties;
+import datawave.security.authorization.JWTTokenHandler;
+
+/**
+ * Customizes the Spring-provided {@link WebClient.Builder} to add a {@link JWTExchangeFilterFunction}, so that requests carry a JWT for the current user.
+ * Only requests for the hosts (or service IDs) listed in {@code spring.security.datawave.jwt.web-client-propagation-hosts} get a JWT, and the filter isn't
+ * added at all when that list is empty, which is the default. A client that needs a JWT for other hosts can add its own {@link JWTExchangeFilterFunction}.
+ */
+@Component
+@Order(200) // execute this before the load balancer's customizer, so that the filter sees the service id rather than the chosen instance
+@ConditionalOnWebApplication
+@ConditionalOnClass(WebClient.class)
+public class JWTWebClientCustomizer implements WebClientCustomizer {
+    private final JWTTokenHandler jwtTokenHandler;
+    private final JWTTokenCache jwtTokenCache;
+    private final DatawaveSecurityProperties securityProperties;
+    
+    public JWTWebClientCustomizer(JWTTokenHandler jwtTokenHandler, ObjectProvider<JWTTokenCache> jwtTokenCache, DatawaveSecurityProperties securityProperties) {
+        this.jwtTokenHandler = jwtTokenHandler;
+        this.jwtTokenCache = jwtTokenCache.getIfAvailable();
+        this.securityProperties = securityProperties;
+    }
+    
+    @Override
+    public void customize(WebClient.Builder webClientBuilder) {
+        List<String> hosts = securityProperties.getJwt().getWebClientPropagationHosts();
+        if (hosts != null && !hosts.isEmpty()) {
+            long forwardMinRemainingMillis = securityProperties.getJwt().getForwardMinRemainingTtl(TimeUnit.MILLISECONDS);
+            webClientBuilder.filter(new JWTExchangeFilterFunction(jwtTokenHandler, jwtTokenCache, forwardMinRemainingMillis, hosts));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
@@ -23,6 +24,7 @@ import datawave.microservice.authorization.preauth.ProxiedEntityPreauthPrincipal
 import datawave.microservice.authorization.preauth.ProxiedEntityX509Filter;
 import datawave.microservice.authorization.user.DatawaveUserDetails;
 import datawave.microservice.authorization.user.DatawaveUserDetailsFactory;
+import datawave.microservice.config.web.ReactorHttpClientFactory;
 import datawave.security.authorization.DatawaveUser;
 import datawave.security.authorization.JWTTokenHandler;
 import datawave.security.authorization.SubjectIssuerDNPair;
@@ -48,8 +50,10 @@ public class RemoteAuthorizationServiceUserDetailsService implements Authenticat
     
     @Autowired
     public RemoteAuthorizationServiceUserDetailsService(WebClient.Builder webClientBuilder, JWTTokenHandler jwtTokenHandler,
-                    DatawaveUserDetailsFactory userDetailsFactory,
+                    DatawaveUserDetailsFactory userDetailsFactory, ObjectProvider<ReactorHttpClientFactory> httpClientFactory,
                     @Value("${datawave.authorization.uri:https://authorization:8443/authorization/v1/authorize}") String authorizationUri) {
+        httpClientFactory.ifAvailable(
+                        factory -> webClientBuilder.clientConnector(factory.createClientHttpConnector(ReactorHttpClientFactory.AUTHORIZATION_CLIENT)));
         this.webClient = webClientBuilder.baseUrl(authorizationUri).build();
         this.jwtTokenHandler = jwtTokenHandler;
         this.userDetailsFactory = userDetailsFactory;
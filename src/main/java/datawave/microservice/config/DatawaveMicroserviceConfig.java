@@ -6,6 +6,7 @@ import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -16,19 +17,18 @@ import org.springframework.cloud.bus.ServiceMatcher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.codahale.metrics.MetricRegistry;
+
 import datawave.microservice.authorization.user.DatawaveUserDetails;
 import datawave.microservice.config.metrics.MetricsConfigurationProperties;
+import datawave.microservice.config.web.ReactorHttpClientFactory;
 import datawave.microservice.config.web.RestClientProperties;
+import datawave.microservice.config.web.WebClientProperties;
 import datawave.security.authorization.JWTTokenHandler;
-import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.timeout.ReadTimeoutHandler;
-import reactor.netty.http.client.HttpClient;
-import reactor.netty.tcp.TcpClient;
 
 /**
  * Configures default beans needed by DATAWAVE microservices.
@@ -43,6 +43,22 @@ public class DatawaveMicroserviceConfig {
         return new RestClientProperties();
     }
     
+    @Bean
+    @ConditionalOnMissingBean(search = SearchStrategy.CURRENT)
+    public WebClientProperties webClientProperties() {
+        return new WebClientProperties();
+    }
+    
+    @Bean
+    @ConditionalOnWebApplication
+    public ReactorHttpClientFactory reactorHttpClientFactory(WebClientProperties webClientProperties,
+                    @Qualifier("outboundNettySslContext") ObjectProvider<SslContext> nettySslContext,
+                    @Qualifier("outboundNettyHttp2SslContext") ObjectProvider<SslContext> nettyHttp2SslContext,
+                    @Value("${reactor.netty.http.client.wiretap:false}") boolean wiretap, ObjectProvider<MetricRegistry> metricRegistry) {
+        return new ReactorHttpClientFactory(webClientProperties, nettySslContext.getIfAvailable(), nettyHttp2SslContext.getIfAvailable(), wiretap,
+                        metricRegistry.getIfAvailable());
+    }
+    
     @Bean
     public MetricsConfigurationProperties metricsConfigurationProperties() {
         return new MetricsConfigurationProperties();
@@ -60,15 +76,13 @@ public class DatawaveMicroserviceConfig {
     @Bean
     @Qualifier("serverUserDetailsSupplier")
     @ConditionalOnWebApplication
-    public Supplier<DatawaveUserDetails> serverUserDetailsSupplier(JWTTokenHandler jwtTokenHandler,
-                    @Qualifier("outboundNettySslContext") SslContext nettySslContext, WebClient.Builder webClientBuilder,
+    public Supplier<DatawaveUserDetails> serverUserDetailsSupplier(JWTTokenHandler jwtTokenHandler, ReactorHttpClientFactory httpClientFactory,
+                    WebClient.Builder webClientBuilder,
                     @Value("${datawave.authorization.uri:https://authorization:8443/authorization/v1/authorize}") String authorizationUri) {
         // @formatter:off
-        TcpClient timeoutClient = TcpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2000)
-                .doOnConnected(con -> con.addHandlerLast(new ReadTimeoutHandler(6)))
-                .secure(sslContextSpec -> sslContextSpec.sslContext(nettySslContext));
-        WebClient webClient = webClientBuilder.clone().clientConnector(new ReactorClientHttpConnector(HttpClient.from(timeoutClient))).build();
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(httpClientFactory.createClientHttpConnector(ReactorHttpClientFactory.SERVER_USER_DETAILS_CLIENT))
+                .build();
         // @formatter:on
         
         return new Supplier<>() {
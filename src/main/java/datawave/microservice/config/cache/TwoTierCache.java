@@ -0,0 +1,213 @@
+package datawave.microservice.config.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+
+/**
+ * A {@link Cache} that is backed by a local (L1) cache and a shared (L2) cache. Reads are served from the local cache where possible, and otherwise from the
+ * shared cache, which then populates the local cache. Writes go to both caches. Evictions go to both caches, and other services are notified so that they evict
+ * their local copy of the entry too.
+ * <p>
+ * Entries are stored in the shared cache along with the time they were written, and an entry older than the maximum age is treated as missing, so that values
+ * never outlive the local cache's lifetime just because the shared cache keeps them longer. When an entry from the shared cache is copied into a local cache
+ * that supports variable expiration, it only lives for the remainder of the maximum age.
+ * <p>
+ * Filling the cache (a put after a miss) does not notify other services, since every service that caches the key loads it from the same source, and a copy
+ * cached by another service still expires with its local lifetime.
+ */
+public class TwoTierCache implements Cache {
+    private final TwoTierCacheManager cacheManager;
+    private final Cache localCache;
+    private final Cache sharedCache;
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+    
+    /**
+     * @param cacheManager
+     *            the cache manager, which notifies other services of evictions
+     * @param localCache
+     *            the local cache
+     * @param sharedCache
+     *            the shared cache
+     * @param maxAgeMillis
+     *            the maximum age of an entry in the shared cache that is used
+     */
+    public TwoTierCache(TwoTierCacheManager cacheManager, Cache localCache, Cache sharedCache, long maxAgeMillis) {
+        this(cacheManager, localCache, sharedCache, maxAgeMillis, System::currentTimeMillis);
+    }
+    
+    TwoTierCache(TwoTierCacheManager cacheManager, Cache localCache, Cache sharedCache, long maxAgeMillis, LongSupplier clock) {
+        this.cacheManager = cacheManager;
+        this.localCache = localCache;
+        this.sharedCache = sharedCache;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+    }
+    
+    public Cache getLocalCache() {
+        return localCache;
+    }
+    
+    public Cache getSharedCache() {
+        return sharedCache;
+    }
+    
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+    
+    @Override
+    public String getName() {
+        return localCache.getName();
+    }
+    
+    @Override
+    public Object getNativeCache() {
+        return localCache.getNativeCache();
+    }
+    
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = localCache.get(key);
+        if (value == null) {
+            SharedValue shared = getShared(sharedCache.get(key));
+            if (shared != null) {
+                putLocal(key, shared);
+                value = new SimpleValueWrapper(shared.value);
+            }
+        }
+        return value;
+    }
+    
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        Object object = (value != null) ? value.get() : null;
+        if (object != null && type != null && !type.isInstance(object)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + object);
+        }
+        // noinspection unchecked
+        return (T) object;
+    }
+    
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper value = get(key);
+        if (value != null) {
+            // noinspection unchecked
+            return (T) value.get();
+        }
+        
+        T loaded;
+        try {
+            loaded = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, loaded);
+        return loaded;
+    }
+    
+    @Override
+    public void put(Object key, Object value) {
+        sharedCache.put(key, new SharedValue(value, clock.getAsLong()));
+        localCache.put(key, value);
+    }
+    
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        SharedValue shared = new SharedValue(value, clock.getAsLong());
+        SharedValue existing = getShared(sharedCache.putIfAbsent(key, shared));
+        if (existing == null) {
+            // the existing entry may only have been too old to use
+            sharedCache.put(key, shared);
+            localCache.put(key, value);
+            return null;
+        }
+        putLocal(key, existing);
+        return new SimpleValueWrapper(existing.value);
+    }
+    
+    @Override
+    public void evict(Object key) {
+        sharedCache.evict(key);
+        localCache.evict(key);
+        cacheManager.publishInvalidation(getName(), key);
+    }
+    
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = sharedCache.evictIfPresent(key);
+        localCache.evict(key);
+        if (evicted) {
+            cacheManager.publishInvalidation(getName(), key);
+        }
+        return evicted;
+    }
+    
+    @Override
+    public void clear() {
+        sharedCache.clear();
+        localCache.clear();
+        cacheManager.publishInvalidation(getName(), null);
+    }
+    
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = sharedCache.invalidate();
+        localCache.invalidate();
+        cacheManager.publishInvalidation(getName(), null);
+        return invalidated;
+    }
+    
+    private SharedValue getShared(ValueWrapper value) {
+        // anything else in the shared cache was not written by a two-tier cache, and its age is unknown
+        if (value != null && value.get() instanceof SharedValue) {
+            SharedValue shared = (SharedValue) value.get();
+            if (clock.getAsLong() - shared.writtenAtMillis < maxAgeMillis) {
+                return shared;
+            }
+        }
+        return null;
+    }
+    
+    private void putLocal(Object key, SharedValue shared) {
+        VarExpiration<Object,Object> expiration = TwoTierCacheManager.getVarExpiration(localCache);
+        if (expiration != null) {
+            long remainingMillis = shared.writtenAtMillis + maxAgeMillis - clock.getAsLong();
+            expiration.put(key, shared.value, Math.max(1, remainingMillis), TimeUnit.MILLISECONDS);
+        } else {
+            localCache.put(key, shared.value);
+        }
+    }
+    
+    /**
+     * A value in the shared cache, along with the time it was written.
+     */
+    static class SharedValue implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final Object value;
+        private final long writtenAtMillis;
+        
+        SharedValue(Object value, long writtenAtMillis) {
+            this.value = value;
+            this.writtenAtMillis = writtenAtMillis;
+        }
+        
+        Object getValue() {
+            return value;
+        }
+        
+        long getWrittenAtMillis() {
+            return writtenAtMillis;
+        }
+    }
+}
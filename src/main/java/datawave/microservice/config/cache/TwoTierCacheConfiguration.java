@@ -0,0 +1,61 @@
+package datawave.microservice.config.cache;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Backs the configured local cache managers with a shared cache manager (such as the one provided by the datawave cache starter) by wrapping them in a
+ * {@link TwoTierCacheManager}.
+ */
+@Configuration
+@ConditionalOnProperty(name = TwoTierCacheProperties.PREFIX + ".enabled", havingValue = "true")
+public class TwoTierCacheConfiguration {
+    
+    @Bean
+    public static BeanPostProcessor twoTierCacheManagerPostProcessor(Environment environment) {
+        // this is bound directly, since bean post processors are created before @ConfigurationProperties beans can be bound
+        TwoTierCacheProperties properties = Binder.get(environment).bind(TwoTierCacheProperties.PREFIX, TwoTierCacheProperties.class)
+                        .orElseGet(TwoTierCacheProperties::new);
+        return new TwoTierCacheManagerPostProcessor(properties);
+    }
+    
+    @Bean
+    public TwoTierCacheInvalidationListener twoTierCacheInvalidationListener(ApplicationContext applicationContext,
+                    ObjectProvider<ServiceMatcher> serviceMatcher) {
+        return new TwoTierCacheInvalidationListener(applicationContext, serviceMatcher);
+    }
+    
+    private static class TwoTierCacheManagerPostProcessor implements BeanPostProcessor, ApplicationContextAware {
+        private final TwoTierCacheProperties properties;
+        private ApplicationContext applicationContext;
+        
+        TwoTierCacheManagerPostProcessor(TwoTierCacheProperties properties) {
+            this.properties = properties;
+        }
+        
+        @Override
+        public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+            this.applicationContext = applicationContext;
+        }
+        
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (bean instanceof CacheManager && !(bean instanceof TwoTierCacheManager) && properties.getCacheManagers().contains(beanName)
+                            && !beanName.equals(properties.getSharedCacheManager())) {
+                return new TwoTierCacheManager(beanName, (CacheManager) bean, properties.getSharedCacheManager(), applicationContext,
+                                properties.getMaxSharedEntryAgeMillis());
+            }
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package datawave.microservice.config.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.cloud.bus.event.CacheInvalidationEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Evicts entries from the local caches of a {@link TwoTierCacheManager} when another service changes them in the shared cache.
+ */
+public class TwoTierCacheInvalidationListener implements ApplicationListener<CacheInvalidationEvent> {
+    private final ApplicationContext applicationContext;
+    private final ObjectProvider<ServiceMatcher> serviceMatcher;
+    
+    public TwoTierCacheInvalidationListener(ApplicationContext applicationContext, ObjectProvider<ServiceMatcher> serviceMatcher) {
+        this.applicationContext = applicationContext;
+        this.serviceMatcher = serviceMatcher;
+    }
+    
+    @Override
+    public void onApplicationEvent(CacheInvalidationEvent event) {
+        // our own changes have already been applied to our local caches
+        ServiceMatcher matcher = serviceMatcher.getIfAvailable();
+        if (matcher == null || matcher.isFromSelf(event)) {
+            return;
+        }
+        
+        if (event.getCacheManager() != null && applicationContext.containsBean(event.getCacheManager())) {
+            Object cacheManager = applicationContext.getBean(event.getCacheManager());
+            if (cacheManager instanceof TwoTierCacheManager) {
+                ((TwoTierCacheManager) cacheManager).evictLocal(event);
+            }
+        }
+    }
+}
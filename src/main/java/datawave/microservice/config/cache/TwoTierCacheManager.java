@@ -0,0 +1,223 @@
+package datawave.microservice.config.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.cloud.bus.event.CacheInvalidationEvent;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Policy.Expiration;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+
+/**
+ * A {@link CacheManager} that backs each cache of a local cache manager with the cache of the same name from a shared cache manager.
+ * <p>
+ * Whenever an entry of the shared cache is evicted, a {@link CacheInvalidationEvent} carrying the JSON encoding of the key is sent over the bus, and every
+ * other service evicts that key from its local cache (see {@link TwoTierCacheInvalidationListener}). The key from the event is never decoded: the keys of the
+ * local cache are encoded the same way and compared with it, so a bus message can't make a service load classes or build objects. If a key can't be encoded,
+ * or the local cache can't list its keys, the whole cache is invalidated instead. If the shared cache manager is not available, caches are local only.
+ * <p>
+ * Entries of the shared cache are only used until they are as old as the local cache's expire-after-write time, or the configured maximum age if that is
+ * shorter (see {@link TwoTierCache}).
+ */
+public class TwoTierCacheManager implements CacheManager {
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCacheManager.class);
+    
+    private final String name;
+    private final CacheManager localCacheManager;
+    private final String sharedCacheManagerName;
+    private final ApplicationContext applicationContext;
+    private final long maxSharedEntryAgeMillis;
+    private final LongSupplier clock;
+    private final Map<String,Cache> caches = new ConcurrentHashMap<>();
+    
+    private volatile CacheManager sharedCacheManager;
+    private volatile ObjectMapper objectMapper;
+    
+    public TwoTierCacheManager(String name, CacheManager localCacheManager, String sharedCacheManagerName, ApplicationContext applicationContext,
+                    long maxSharedEntryAgeMillis) {
+        this(name, localCacheManager, sharedCacheManagerName, applicationContext, maxSharedEntryAgeMillis, System::currentTimeMillis);
+    }
+    
+    TwoTierCacheManager(String name, CacheManager localCacheManager, String sharedCacheManagerName, ApplicationContext applicationContext,
+                    long maxSharedEntryAgeMillis, LongSupplier clock) {
+        this.name = name;
+        this.localCacheManager = localCacheManager;
+        this.sharedCacheManagerName = sharedCacheManagerName;
+        this.applicationContext = applicationContext;
+        this.maxSharedEntryAgeMillis = maxSharedEntryAgeMillis;
+        this.clock = clock;
+    }
+    
+    public CacheManager getLocalCacheManager() {
+        return localCacheManager;
+    }
+    
+    @Override
+    public Cache getCache(String cacheName) {
+        Cache cache = caches.get(cacheName);
+        if (cache == null) {
+            Cache localCache = localCacheManager.getCache(cacheName);
+            if (localCache == null) {
+                return null;
+            }
+            CacheManager shared = getSharedCacheManager();
+            Cache sharedCache = (shared != null) ? shared.getCache(cacheName) : null;
+            cache = caches.computeIfAbsent(cacheName,
+                            k -> (sharedCache != null) ? new TwoTierCache(this, localCache, sharedCache, getMaxAgeMillis(localCache), clock) : localCache);
+        }
+        return cache;
+    }
+    
+    private long getMaxAgeMillis(Cache localCache) {
+        long maxAgeMillis = maxSharedEntryAgeMillis;
+        Object nativeCache = localCache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            Expiration<?,?> expiration = ((com.github.benmanes.caffeine.cache.Cache<?,?>) nativeCache).policy().expireAfterWrite().orElse(null);
+            if (expiration != null) {
+                maxAgeMillis = Math.min(maxAgeMillis, expiration.getExpiresAfter(TimeUnit.MILLISECONDS));
+            }
+        }
+        return maxAgeMillis;
+    }
+    
+    /**
+     * Gets the variable expiration policy of a local cache, so that an entry can be given a shorter lifetime than the cache's default.
+     *
+     * @param localCache
+     *            the local cache
+     * @return the variable expiration policy, or null if the cache isn't a Caffeine cache with one
+     */
+    @SuppressWarnings("unchecked")
+    static VarExpiration<Object,Object> getVarExpiration(Cache localCache) {
+        Object nativeCache = localCache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            return ((com.github.benmanes.caffeine.cache.Cache<Object,Object>) nativeCache).policy().expireVariably().orElse(null);
+        }
+        return null;
+    }
+    
+    @Override
+    public Collection<String> getCacheNames() {
+        return localCacheManager.getCacheNames();
+    }
+    
+    private CacheManager getSharedCacheManager() {
+        if (sharedCacheManager == null) {
+            synchronized (this) {
+                if (sharedCacheManager == null) {
+                    if (applicationContext.containsBean(sharedCacheManagerName)) {
+                        sharedCacheManager = applicationContext.getBean(sharedCacheManagerName, CacheManager.class);
+                    } else {
+                        log.warn("Shared cache manager {} is not available, so {} will only use local caches", sharedCacheManagerName, name);
+                        return null;
+                    }
+                }
+            }
+        }
+        return sharedCacheManager;
+    }
+    
+    private ObjectMapper getObjectMapper() {
+        if (objectMapper == null) {
+            objectMapper = applicationContext.getBeanProvider(ObjectMapper.class).getIfAvailable(ObjectMapper::new);
+        }
+        return objectMapper;
+    }
+    
+    /**
+     * Tells other services that an entry of the shared cache has changed.
+     *
+     * @param cacheName
+     *            the name of the cache
+     * @param key
+     *            the key of the entry that changed, or null if every entry changed
+     */
+    void publishInvalidation(String cacheName, Object key) {
+        ServiceMatcher serviceMatcher = applicationContext.getBeanProvider(ServiceMatcher.class).getIfAvailable();
+        if (serviceMatcher == null) {
+            return;
+        }
+        
+        boolean listKey = key instanceof List;
+        List<String> keyClasses = null;
+        List<String> keyValues = null;
+        if (key != null) {
+            try {
+                keyClasses = encodeKeyClasses(key);
+                keyValues = encodeKeyValues(key);
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.debug("Unable to encode key for {}, so the whole cache will be invalidated: {}", cacheName, e.getMessage());
+                keyClasses = null;
+                keyValues = null;
+            }
+        }
+        applicationContext.publishEvent(new CacheInvalidationEvent(this, serviceMatcher.getBusId(), name, cacheName, listKey, keyClasses, keyValues));
+    }
+    
+    /**
+     * Evicts the entry described by an invalidation event from the local cache.
+     *
+     * @param event
+     *            the invalidation event
+     */
+    void evictLocal(CacheInvalidationEvent event) {
+        Cache localCache = localCacheManager.getCache(event.getCacheName());
+        if (localCache == null) {
+            return;
+        }
+        
+        Object nativeCache = localCache.getNativeCache();
+        if (event.getKeyClasses() == null || event.getKeyValues() == null || !(nativeCache instanceof com.github.benmanes.caffeine.cache.Cache)) {
+            localCache.clear();
+            return;
+        }
+        
+        // the local caches are small, so encoding each key is cheaper than clearing the cache and far safer than decoding the event's key
+        try {
+            for (Object key : ((com.github.benmanes.caffeine.cache.Cache<?,?>) nativeCache).asMap().keySet()) {
+                if (event.isListKey() == (key instanceof List) && Objects.equals(event.getKeyClasses(), encodeKeyClasses(key))
+                                && Objects.equals(event.getKeyValues(), encodeKeyValues(key))) {
+                    localCache.evict(key);
+                }
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.debug("Unable to encode keys of {}, so the whole local cache will be cleared: {}", event.getCacheName(), e.getMessage());
+            localCache.clear();
+        }
+    }
+    
+    private static List<String> encodeKeyClasses(Object key) {
+        List<String> keyClasses = new ArrayList<>();
+        for (Object element : getKeyElements(key)) {
+            keyClasses.add(element.getClass().getName());
+        }
+        return keyClasses;
+    }
+    
+    private List<String> encodeKeyValues(Object key) throws JsonProcessingException {
+        List<String> keyValues = new ArrayList<>();
+        for (Object element : getKeyElements(key)) {
+            keyValues.add(getObjectMapper().writeValueAsString(element));
+        }
+        return keyValues;
+    }
+    
+    private static List<?> getKeyElements(Object key) {
+        return (key instanceof List) ? (List<?>) key : Collections.singletonList(key);
+    }
+}
@@ -0,0 +1,73 @@
+package datawave.microservice.config.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration for backing local cache managers with a shared cache manager. These properties are bound under {@link #PREFIX}.
+ */
+public class TwoTierCacheProperties {
+    public static final String PREFIX = "datawave.cache.two-tier";
+    
+    private boolean enabled = false;
+    
+    // the bean name of the shared (L2) cache manager, such as the one provided by the datawave cache starter
+    @NotEmpty
+    private String sharedCacheManager = "cacheManager";
+    
+    // the bean names of the local (L1) cache managers that are backed by the shared cache manager
+    @NotNull
+    private List<String> cacheManagers = Arrays.asList("remoteOperationsCacheManager", "markings-cache-manager");
+    
+    // the maximum age of a shared cache entry that is used, which is lowered to the local cache's expire-after-write time if that is shorter
+    private long maxSharedEntryAge = TimeUnit.MINUTES.toMillis(5);
+    private TimeUnit maxSharedEntryAgeUnit = TimeUnit.MILLISECONDS;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public String getSharedCacheManager() {
+        return sharedCacheManager;
+    }
+    
+    public void setSharedCacheManager(String sharedCacheManager) {
+        this.sharedCacheManager = sharedCacheManager;
+    }
+    
+    public List<String> getCacheManagers() {
+        return cacheManagers;
+    }
+    
+    public void setCacheManagers(List<String> cacheManagers) {
+        this.cacheManagers = cacheManagers;
+    }
+    
+    public long getMaxSharedEntryAge() {
+        return maxSharedEntryAge;
+    }
+    
+    public long getMaxSharedEntryAgeMillis() {
+        return maxSharedEntryAgeUnit.toMillis(maxSharedEntryAge);
+    }
+    
+    public void setMaxSharedEntryAge(long maxSharedEntryAge) {
+        this.maxSharedEntryAge = maxSharedEntryAge;
+    }
+    
+    public TimeUnit getMaxSharedEntryAgeUnit() {
+        return maxSharedEntryAgeUnit;
+    }
+    
+    public void setMaxSharedEntryAgeUnit(TimeUnit maxSharedEntryAgeUnit) {
+        this.maxSharedEntryAgeUnit = maxSharedEntryAgeUnit;
+    }
+}
@@ -0,0 +1,300 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Chooses which instance of a discovered service to send each call to, so that calls favor the instances that are currently responding fastest.
+ * <p>
+ * Each call picks two instances at random and goes to the one with the lower score, where an instance's score is its latency average multiplied by the number
+ * of calls it has in flight (plus one). The latency average decays exponentially over time rather than per call, so that it reflects recent calls regardless of
+ * the call rate, and it jumps straight to a slower latency when one is seen, so that an instance that slows down is avoided quickly. While an instance isn't
+ * called its average decays toward zero, so that an instance that was slow is tried again later. A call that hasn't completed counts as taking at least as
+ * long as it has been in flight, so that an instance that hangs is avoided even though its calls never complete. An instance that hasn't answered a call yet
+ * is given the average latency of the service's other instances. A failed call is recorded with at least the
+ * {@link LoadBalancerProperties#getFailurePenalty() failure penalty} as its latency, so that an instance that fails quickly isn't favored, and an instance
+ * whose calls fail {@link LoadBalancerProperties#getFailureThreshold() repeatedly} is ejected for a while. If every instance of a service has been ejected,
+ * calls are spread across all of them anyway.
+ * <p>
+ * The instances of each service are looked up from the {@link DiscoveryClient} and refreshed in the background.
+ */
+public class LatencyAwareLoadBalancer {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    private final List<String> serviceIds;
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final LoadingCache<String,List<ServiceInstance>> instances;
+    private final Cache<String,InstanceStats> stats;
+    private final Ticker ticker;
+    
+    public LatencyAwareLoadBalancer(DiscoveryClient discoveryClient, LoadBalancerProperties properties) {
+        this(discoveryClient, properties, Ticker.systemTicker());
+    }
+    
+    LatencyAwareLoadBalancer(DiscoveryClient discoveryClient, LoadBalancerProperties properties, Ticker ticker) {
+        this.serviceIds = properties.getServiceIds();
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getDecayTimeMillis());
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFailurePenaltyMillis());
+        this.failureThreshold = properties.getFailureThreshold();
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(properties.getEjectionTimeMillis());
+        this.ticker = ticker;
+        long refreshMillis = properties.getInstanceRefreshIntervalMillis();
+        // @formatter:off
+        this.instances = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .refreshAfterWrite(refreshMillis, TimeUnit.MILLISECONDS)
+                // a service that isn't called for a while is looked up again before its next call
+                .expireAfterAccess(Math.max(refreshMillis * 10, TimeUnit.MINUTES.toMillis(5)), TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build(serviceId -> new ArrayList<>(discoveryClient.getInstances(serviceId)));
+        // the stats of instances that have gone away are dropped once they are no longer chosen
+        this.stats = Caffeine.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+        // @formatter:on
+    }
+    
+    /**
+     * Determines whether calls to a host should be balanced, without looking up its instances.
+     *
+     * @param host
+     *            the host name being called
+     * @return false if the host isn't one of the configured service ids
+     */
+    public boolean isCandidate(String host) {
+        return host != null && serviceIds.contains(host);
+    }
+    
+    /**
+     * Gets the instances of a service that have already been looked up, e.g. so that a caller on an event loop thread can look up missing instances elsewhere.
+     *
+     * @param serviceId
+     *            the service id
+     * @return the instances of the service, or null if they haven't been looked up
+     */
+    public List<ServiceInstance> getCachedInstances(String serviceId) {
+        return instances.getIfPresent(serviceId);
+    }
+    
+    /**
+     * Gets the instances of a service, looking them up if necessary.
+     *
+     * @param serviceId
+     *            the service id
+     * @return the instances of the service, which is empty if the service isn't known to discovery
+     */
+    public List<ServiceInstance> getInstances(String serviceId) {
+        return instances.get(serviceId);
+    }
+    
+    /**
+     * Chooses the instance of a service to send a call to, and counts the call as in flight to that instance.
+     *
+     * @param serviceId
+     *            the service id
+     * @param serviceInstances
+     *            the instances of the service
+     * @return the call, which must be {@link Call#complete(boolean) completed} or {@link Call#cancel() cancelled}, or null if the service has no instances
+     */
+    public Call start(String serviceId, List<ServiceInstance> serviceInstances) {
+        if (serviceInstances == null || serviceInstances.isEmpty()) {
+            return null;
+        }
+        long now = ticker.read();
+        List<InstanceStats> candidates = new ArrayList<>(serviceInstances.size());
+        for (ServiceInstance instance : serviceInstances) {
+            InstanceStats instanceStats = getStats(serviceId, instance);
+            if (!instanceStats.isEjected(now)) {
+                candidates.add(instanceStats);
+            }
+        }
+        if (candidates.isEmpty()) {
+            log.debug("Every instance of {} has been ejected, so calls are spread across all of them", serviceId);
+            for (ServiceInstance instance : serviceInstances) {
+                candidates.add(getStats(serviceId, instance));
+            }
+        }
+        
+        InstanceStats chosen = candidates.get(0);
+        if (candidates.size() > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            double unsampledLatencyNanos = getAverageLatency(candidates, now);
+            InstanceStats a = candidates.get(first);
+            InstanceStats b = candidates.get(second);
+            chosen = (b.getScore(now, unsampledLatencyNanos) < a.getScore(now, unsampledLatencyNanos)) ? b : a;
+        }
+        return new Call(serviceId, chosen);
+    }
+    
+    private static double getAverageLatency(List<InstanceStats> candidates, long now) {
+        double totalNanos = 0;
+        int sampled = 0;
+        for (InstanceStats instanceStats : candidates) {
+            double latencyNanos = instanceStats.getLatency(now);
+            if (!Double.isNaN(latencyNanos)) {
+                totalNanos += latencyNanos;
+                sampled++;
+            }
+        }
+        return (sampled > 0) ? totalNanos / sampled : 0;
+    }
+    
+    private InstanceStats getStats(String serviceId, ServiceInstance instance) {
+        return stats.get(serviceId + "/" + instance.getHost() + ":" + instance.getPort(), k -> new InstanceStats(instance));
+    }
+    
+    /**
+     * Replaces the host and port of a URI with those of a service instance.
+     *
+     * @param instance
+     *            the service instance
+     * @param uri
+     *            the URI whose host is the service id
+     * @return the URI for the instance
+     */
+    public static URI reconstructURI(ServiceInstance instance, URI uri) {
+        return UriComponentsBuilder.fromUri(uri).host(instance.getHost()).port(instance.getPort()).build(true).toUri();
+    }
+    
+    /**
+     * A call in flight to a chosen instance.
+     */
+    public class Call {
+        private final String serviceId;
+        private final InstanceStats instanceStats;
+        private final long startNanos = ticker.read();
+        
+        private Call(String serviceId, InstanceStats instanceStats) {
+            this.serviceId = serviceId;
+            this.instanceStats = instanceStats;
+            instanceStats.addCall(this);
+        }
+        
+        public ServiceInstance getInstance() {
+            return instanceStats.instance;
+        }
+        
+        public URI reconstructURI(URI uri) {
+            return LatencyAwareLoadBalancer.reconstructURI(instanceStats.instance, uri);
+        }
+        
+        /**
+         * Records the outcome of the call.
+         *
+         * @param success
+         *            false if no response was received, or the response was a server error
+         */
+        public void complete(boolean success) {
+            if (instanceStats.removeCall(this)) {
+                instanceStats.record(serviceId, ticker.read() - startNanos, success);
+            }
+        }
+        
+        /**
+         * Stops counting the call as in flight without recording an outcome, e.g. because the caller gave up on it.
+         */
+        public void cancel() {
+            instanceStats.removeCall(this);
+        }
+    }
+    
+    private class InstanceStats {
+        private final ServiceInstance instance;
+        
+        // guarded by this
+        // the calls in flight, in the order they started
+        private final Set<Call> inFlight = new LinkedHashSet<>();
+        private double latencyNanos;
+        private long lastUpdateNanos;
+        private boolean sampled;
+        private int consecutiveFailures;
+        private boolean ejected;
+        private long ejectedUntilNanos;
+        
+        InstanceStats(ServiceInstance instance) {
+            this.instance = instance;
+        }
+        
+        synchronized void addCall(Call call) {
+            inFlight.add(call);
+        }
+        
+        synchronized boolean removeCall(Call call) {
+            return inFlight.remove(call);
+        }
+        
+        // NaN until a call to the instance completes
+        synchronized double getLatency(long now) {
+            // the average also decays while the instance isn't called, so that an instance that was slow is eventually tried again
+            return sampled ? latencyNanos * Math.exp(-(now - lastUpdateNanos) / decayNanos) : Double.NaN;
+        }
+        
+        synchronized double getScore(long now, double unsampledLatencyNanos) {
+            double latency = sampled ? getLatency(now) : unsampledLatencyNanos;
+            if (!inFlight.isEmpty()) {
+                // the oldest call in flight has already taken this long, and will never complete if the instance has hung
+                latency = Math.max(latency, now - inFlight.iterator().next().startNanos);
+            }
+            return latency * (inFlight.size() + 1);
+        }
+        
+        synchronized boolean isEjected(long now) {
+            return ejected && now - ejectedUntilNanos < 0;
+        }
+        
+        synchronized void record(String serviceId, long callNanos, boolean success) {
+            long now = ticker.read();
+            double decay = Math.exp(-(now - lastUpdateNanos) / decayNanos);
+            // a call that failed quickly (e.g., because the instance is refusing connections) mustn't make the instance look fast
+            double sampleNanos = success ? callNanos : Math.max(callNanos, failurePenaltyNanos);
+            if (!sampled || sampleNanos > latencyNanos * decay) {
+                // the first call, or a slower one, takes effect right away
+                latencyNanos = sampleNanos;
+            } else {
+                latencyNanos = latencyNanos * decay + sampleNanos * (1 - decay);
+            }
+            sampled = true;
+            lastUpdateNanos = now;
+            
+            if (success) {
+                consecutiveFailures = 0;
+                if (ejected) {
+                    ejected = false;
+                    log.info("Instance {}:{} of {} is responding again", instance.getHost(), instance.getPort(), serviceId);
+                }
+            } else if (++consecutiveFailures >= failureThreshold && !isEjected(now)) {
+                ejected = true;
+                ejectedUntilNanos = now + ejectionNanos;
+                // once the ejection ends, a single failure ejects the instance again
+                consecutiveFailures = failureThreshold - 1;
+                log.warn("Ejecting instance {}:{} of {} for {}ms after repeated failures", instance.getHost(), instance.getPort(), serviceId,
+                                TimeUnit.NANOSECONDS.toMillis(ejectionNanos));
+            }
+        }
+    }
+}
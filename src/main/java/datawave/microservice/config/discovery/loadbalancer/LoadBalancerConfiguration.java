@@ -0,0 +1,55 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+
+/**
+ * Balances the calls made by RestTemplates and WebClients to discovered services across the instances of each service. A call is balanced when its host name
+ * is one of the configured {@link LoadBalancerProperties#getServiceIds() service ids} and that service is known to discovery (e.g.,
+ * https://authorization:8443/authorization/v1/authorize when the authorization service is registered as "authorization"). No other host is looked up in
+ * discovery.
+ * <p>
+ * The load balancer replaces the service id in the URI with the chosen instance, so its customizers run after all the others, and its interceptor and filter
+ * are added last so that the others (e.g. the {@link datawave.microservice.authorization.jwt.JWTExchangeFilterFunction}, which checks the host) see the
+ * service id.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datawave.load-balancer.enabled")
+@ConditionalOnClass(DiscoveryClient.class)
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+public class LoadBalancerConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    public LatencyAwareLoadBalancer latencyAwareLoadBalancer(DiscoveryClient discoveryClient, LoadBalancerProperties loadBalancerProperties) {
+        return new LatencyAwareLoadBalancer(discoveryClient, loadBalancerProperties);
+    }
+    
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public RestTemplateCustomizer loadBalancingRestTemplateCustomizer(LatencyAwareLoadBalancer loadBalancer) {
+        return restTemplate -> {
+            List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+            interceptors.add(new LoadBalancingClientHttpRequestInterceptor(loadBalancer));
+            restTemplate.setInterceptors(interceptors);
+        };
+    }
+    
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public WebClientCustomizer loadBalancingWebClientCustomizer(LatencyAwareLoadBalancer loadBalancer) {
+        return webClientBuilder -> webClientBuilder.filter(new LoadBalancingExchangeFilterFunction(loadBalancer));
+    }
+}
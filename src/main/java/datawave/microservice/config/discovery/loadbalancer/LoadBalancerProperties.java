@@ -0,0 +1,162 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration properties for balancing outbound calls across the instances of discovered services.
+ */
+@Validated
+@ConfigurationProperties(prefix = "datawave.load-balancer", ignoreInvalidFields = true)
+public class LoadBalancerProperties {
+    private boolean enabled = false;
+    
+    // the service ids that calls are balanced for, where a call's host name is its service id (calls to any other host are sent unchanged, so none are balanced
+    // until this is set)
+    private List<String> serviceIds = new ArrayList<>();
+    
+    // how quickly an instance's latency average forgets older calls (an average is mostly made up of the calls from the last decay time)
+    @Positive
+    private long decayTime = TimeUnit.SECONDS.toMillis(10);
+    
+    @NotNull
+    private TimeUnit decayTimeUnit = TimeUnit.MILLISECONDS;
+    
+    // the latency recorded for a failed call (no response, or a 5xx response) if it failed faster than this, so that an instance that fails quickly isn't
+    // favored
+    @PositiveOrZero
+    private long failurePenalty = TimeUnit.SECONDS.toMillis(5);
+    
+    @NotNull
+    private TimeUnit failurePenaltyUnit = TimeUnit.MILLISECONDS;
+    
+    // the number of consecutive failed calls (no response, or a 5xx response) after which an instance is ejected
+    @Positive
+    private int failureThreshold = 5;
+    
+    // how long an ejected instance receives no calls, after which a single failure ejects it again
+    @PositiveOrZero
+    private long ejectionTime = TimeUnit.SECONDS.toMillis(30);
+    
+    @NotNull
+    private TimeUnit ejectionTimeUnit = TimeUnit.MILLISECONDS;
+    
+    // how often the instances of a service are looked up again
+    @Positive
+    private long instanceRefreshInterval = TimeUnit.SECONDS.toMillis(30);
+    
+    @NotNull
+    private TimeUnit instanceRefreshIntervalUnit = TimeUnit.MILLISECONDS;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public List<String> getServiceIds() {
+        return serviceIds;
+    }
+    
+    public void setServiceIds(List<String> serviceIds) {
+        this.serviceIds = serviceIds;
+    }
+    
+    public long getDecayTime() {
+        return decayTime;
+    }
+    
+    public long getDecayTimeMillis() {
+        return decayTimeUnit.toMillis(decayTime);
+    }
+    
+    public void setDecayTime(long decayTime) {
+        this.decayTime = decayTime;
+    }
+    
+    public TimeUnit getDecayTimeUnit() {
+        return decayTimeUnit;
+    }
+    
+    public void setDecayTimeUnit(TimeUnit decayTimeUnit) {
+        this.decayTimeUnit = decayTimeUnit;
+    }
+    
+    public long getFailurePenalty() {
+        return failurePenalty;
+    }
+    
+    public long getFailurePenaltyMillis() {
+        return failurePenaltyUnit.toMillis(failurePenalty);
+    }
+    
+    public void setFailurePenalty(long failurePenalty) {
+        this.failurePenalty = failurePenalty;
+    }
+    
+    public TimeUnit getFailurePenaltyUnit() {
+        return failurePenaltyUnit;
+    }
+    
+    public void setFailurePenaltyUnit(TimeUnit failurePenaltyUnit) {
+        this.failurePenaltyUnit = failurePenaltyUnit;
+    }
+    
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+    
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+    
+    public long getEjectionTime() {
+        return ejectionTime;
+    }
+    
+    public long getEjectionTimeMillis() {
+        return ejectionTimeUnit.toMillis(ejectionTime);
+    }
+    
+    public void setEjectionTime(long ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+    
+    public TimeUnit getEjectionTimeUnit() {
+        return ejectionTimeUnit;
+    }
+    
+    public void setEjectionTimeUnit(TimeUnit ejectionTimeUnit) {
+        this.ejectionTimeUnit = ejectionTimeUnit;
+    }
+    
+    public long getInstanceRefreshInterval() {
+        return instanceRefreshInterval;
+    }
+    
+    public long getInstanceRefreshIntervalMillis() {
+        return instanceRefreshIntervalUnit.toMillis(instanceRefreshInterval);
+    }
+    
+    public void setInstanceRefreshInterval(long instanceRefreshInterval) {
+        this.instanceRefreshInterval = instanceRefreshInterval;
+    }
+    
+    public TimeUnit getInstanceRefreshIntervalUnit() {
+        return instanceRefreshIntervalUnit;
+    }
+    
+    public void setInstanceRefreshIntervalUnit(TimeUnit instanceRefreshIntervalUnit) {
+        this.instanceRefreshIntervalUnit = instanceRefreshIntervalUnit;
+    }
+}
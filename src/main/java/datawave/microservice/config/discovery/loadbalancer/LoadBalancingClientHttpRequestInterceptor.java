@@ -0,0 +1,64 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends each call made by a {@link RestTemplate} to a host that is a discovered service id to the instance of the service chosen by a
+ * {@link LatencyAwareLoadBalancer}. Calls to any other host are sent unchanged.
+ */
+public class LoadBalancingClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    private final LatencyAwareLoadBalancer loadBalancer;
+    
+    public LoadBalancingClientHttpRequestInterceptor(LatencyAwareLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+    
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String serviceId = request.getURI().getHost();
+        if (!loadBalancer.isCandidate(serviceId)) {
+            return execution.execute(request, body);
+        }
+        
+        List<ServiceInstance> instances;
+        try {
+            instances = loadBalancer.getInstances(serviceId);
+        } catch (RuntimeException e) {
+            log.debug("Unable to look up the instances of {}, so the call will be made to {} unchanged: {}", serviceId, serviceId, e.getMessage());
+            return execution.execute(request, body);
+        }
+        LatencyAwareLoadBalancer.Call call = loadBalancer.start(serviceId, instances);
+        if (call == null) {
+            return execution.execute(request, body);
+        }
+        
+        URI uri = call.reconstructURI(request.getURI());
+        boolean success = false;
+        try {
+            ClientHttpResponse response = execution.execute(new HttpRequestWrapper(request) {
+                @Override
+                public URI getURI() {
+                    return uri;
+                }
+            }, body);
+            success = response.getRawStatusCode() < 500;
+            return response;
+        } finally {
+            call.complete(success);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Sends each call made by a {@link WebClient} to a host that is a discovered service id to the instance of the service chosen by a
+ * {@link LatencyAwareLoadBalancer}. Calls to any other host are sent unchanged. Looking up the instances of a service may block, so instances that haven't
+ * been looked up yet are looked up on the bounded elastic scheduler rather than the calling thread.
+ */
+public class LoadBalancingExchangeFilterFunction implements ExchangeFilterFunction {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    private final LatencyAwareLoadBalancer loadBalancer;
+    
+    public LoadBalancingExchangeFilterFunction(LatencyAwareLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+    
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String serviceId = request.url().getHost();
+        if (!loadBalancer.isCandidate(serviceId)) {
+            return next.exchange(request);
+        }
+        
+        List<ServiceInstance> instances = loadBalancer.getCachedInstances(serviceId);
+        if (instances != null) {
+            return Mono.defer(() -> exchange(serviceId, instances, request, next));
+        }
+        // @formatter:off
+        return Mono.fromCallable(() -> loadBalancer.getInstances(serviceId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.debug("Unable to look up the instances of {}, so the call will be made to {} unchanged: {}", serviceId, serviceId, e.getMessage());
+                    return Mono.just(Collections.emptyList());
+                })
+                .flatMap(serviceInstances -> exchange(serviceId, serviceInstances, request, next));
+        // @formatter:on
+    }
+    
+    private Mono<ClientResponse> exchange(String serviceId, List<ServiceInstance> instances, ClientRequest request, ExchangeFunction next) {
+        LatencyAwareLoadBalancer.Call call = loadBalancer.start(serviceId, instances);
+        if (call == null) {
+            return next.exchange(request);
+        }
+        ClientRequest balancedRequest = ClientRequest.from(request).url(call.reconstructURI(request.url())).build();
+        // @formatter:off
+        return next.exchange(balancedRequest)
+                .doOnSuccess(response -> call.complete(response != null && response.rawStatusCode() < 500))
+                .doOnError(e -> call.complete(false))
+                .doOnCancel(call::cancel);
+        // @formatter:on
+    }
+}
@@ -5,26 +5,53 @@ import static datawave.microservice.config.web.Constants.REQUEST_START_TIME_NS_A
 
 import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.lang.NonNull;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import datawave.webservice.result.BaseResponse;
 
 /**
  * A {@link ControllerAdvice} that implements {@link ResponseBodyAdvice} in order to allow access to {@link BaseResponse} objects before they are written out to
  * the response body. This is primarily used to write the operation time into the {@link BaseResponse#setOperationTimeMS(long)} property.
+ * <p>
+ * When the property "datawave.web.etag.enabled" is "true", a weak {@code ETag} is also computed for responses to GET and HEAD requests from the content of the
+ * {@link BaseResponse} (ignoring the operation time, which differs on every request). If the request's {@code If-None-Match} header matches it, a
+ * {@code 304 Not Modified} response is sent with no body.
  */
 @ControllerAdvice
 @ConditionalOnClass(BaseResponse.class)
 public class BaseResponseAdvice implements ResponseBodyAdvice<BaseResponse> {
+    private static final Logger log = LoggerFactory.getLogger(BaseResponseAdvice.class);
+    
+    private final boolean eTagEnabled;
+    private final ObjectProvider<ObjectMapper> objectMapperProvider;
+    private volatile ObjectMapper eTagObjectMapper;
+    
+    public BaseResponseAdvice(@Value("${datawave.web.etag.enabled:false}") boolean eTagEnabled, ObjectProvider<ObjectMapper> objectMapperProvider) {
+        this.eTagEnabled = eTagEnabled;
+        this.objectMapperProvider = objectMapperProvider;
+    }
+    
     @Override
     public boolean supports(@NonNull MethodParameter returnType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
         return BaseResponse.class.isAssignableFrom(returnType.getParameterType());
@@ -42,7 +69,45 @@ public class BaseResponseAdvice implements ResponseBodyAdvice<BaseResponse> {
                 baseResponse.setOperationTimeMS(operationTimeMillis);
                 serverHttpResponse.getHeaders().set(OPERATION_TIME_MS_HEADER, Long.toString(operationTimeMillis));
             }
+            
+            if (eTagEnabled && serverHttpResponse instanceof ServletServerHttpResponse
+                            && (serverHttpRequest.getMethod() == HttpMethod.GET || serverHttpRequest.getMethod() == HttpMethod.HEAD)) {
+                String eTag = getETag(baseResponse);
+                ServletWebRequest webRequest = new ServletWebRequest(sr.getServletRequest(),
+                                ((ServletServerHttpResponse) serverHttpResponse).getServletResponse());
+                if (eTag != null && webRequest.checkNotModified(eTag)) {
+                    // the status and ETag header have been set, so there's no need to write the body
+                    return null;
+                }
+            }
         }
         return baseResponse;
     }
+    
+    private String getETag(BaseResponse baseResponse) {
+        try {
+            // the ETag is weak, since it identifies the content regardless of the format it is written in
+            StringBuilder eTag = new StringBuilder("W/\"");
+            DigestUtils.appendMd5DigestAsHex(getETagObjectMapper().writeValueAsBytes(baseResponse), eTag);
+            return eTag.append('"').toString();
+        } catch (JsonProcessingException e) {
+            log.debug("Unable to compute ETag for {}: {}", baseResponse.getClass().getName(), e.getMessage());
+            return null;
+        }
+    }
+    
+    private ObjectMapper getETagObjectMapper() {
+        if (eTagObjectMapper == null) {
+            eTagObjectMapper = objectMapperProvider.getIfAvailable(ObjectMapper::new).copy().addMixIn(BaseResponse.class, OperationTimeMixIn.class);
+        }
+        return eTagObjectMapper;
+    }
+    
+    private abstract static class OperationTimeMixIn {
+        @JsonIgnore
+        private long operationTimeMS;
+        
+        @JsonIgnore
+        public abstract long getOperationTimeMS();
+    }
 }
@@ -1,44 +1,136 @@
 package datawave.microservice.config.web;
 
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
 
+import org.apache.http.HttpClientConnection;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.client.RootUriTemplateHandler;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriTemplateHandler;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
 
 /**
  * Customizes Spring {@link RestTemplate} instances by using our configured SSL certificate to present a client certificate whenever asked by remote services.
+ * <p>
+ * Every customized {@link RestTemplate} that uses the same SSL identity shares a single pooled connection manager, so connections (and their TLS sessions) are
+ * reused across templates. The pool's connection limits therefore apply to all of those templates together, not to each one. Idle connections are evicted in
+ * the background, and the lease counts of each pool are published to the metric registry.
+ * <p>
+ * Each call made by a customized {@link RestTemplate} is also recorded (see {@link HttpClientMetrics}) under {@link #REQUEST_METRIC_PREFIX}: it is timed
+ * (until its response headers are received) by target host and URI template, its response is counted by status class, and the time it waited for a pooled
+ * connection is timed by target host.
  */
 @Component
 @Order(100) // execute this after standard customizers so we're sure to overwrite the client request factory
 @ConditionalOnWebApplication
 @ConditionalOnProperty(name = "server.outbound-ssl.enabled", matchIfMissing = true)
-public class ClientCertRestTemplateCustomizer implements RestTemplateCustomizer {
+public class ClientCertRestTemplateCustomizer implements RestTemplateCustomizer, DisposableBean {
+    public static final String METRIC_PREFIX = "restClient.connectionPool";
+    public static final String REQUEST_METRIC_PREFIX = "restClient";
+    
+    // the URI template most recently expanded by the current thread, with the URI it was expanded to, for the call that is about to be made
+    private static final ThreadLocal<Map.Entry<URI,String>> expandedUriTemplate = new ThreadLocal<>();
+    // the URI template of the call that the current thread is making
+    private static final ThreadLocal<String> callUriTemplate = new ThreadLocal<>();
+    
     private final SSLContext sslContext;
     private final int maxConnectionsTotal;
     private final int maxConnectionsPerRoute;
+    private final RestClientProperties restClientProperties;
+    private final MetricRegistry metricRegistry;
+    private final ConnectionKeepAliveStrategy keepAliveStrategy;
+    private final TlsSessionMetrics tlsSessionMetrics;
+    private final HttpClientMetrics httpClientMetrics;
+    
+    // keyed by identity, since each SSL context is a distinct client identity
+    private final Map<SSLContext,PoolingHttpClientConnectionManager> connectionManagers = new IdentityHashMap<>();
+    private final List<IdleConnectionEvictor> idleConnectionEvictors = new ArrayList<>();
+    
+    public ClientCertRestTemplateCustomizer(SSLContext sslContext, RestClientProperties restClientProperties) {
+        this(sslContext, restClientProperties, null);
+    }
     
     @Autowired
-    public ClientCertRestTemplateCustomizer(@Qualifier("outboundJDKSslContext") SSLContext sslContext, RestClientProperties restClientProperties) {
+    public ClientCertRestTemplateCustomizer(@Qualifier("outboundJDKSslContext") SSLContext sslContext, RestClientProperties restClientProperties,
+                    ObjectProvider<MetricRegistry> metricRegistry) {
         this.sslContext = sslContext;
         this.maxConnectionsTotal = restClientProperties.getMaxConnectionsTotal();
         this.maxConnectionsPerRoute = restClientProperties.getMaxConnectionsPerRoute();
+        this.restClientProperties = restClientProperties;
+        this.metricRegistry = (metricRegistry != null && restClientProperties.isMetricsEnabled()) ? metricRegistry.getIfAvailable() : null;
+        this.tlsSessionMetrics = (this.metricRegistry != null) ? new TlsSessionMetrics(this.metricRegistry, "jdk") : null;
+        this.httpClientMetrics = (this.metricRegistry != null)
+                        ? new HttpClientMetrics(this.metricRegistry, REQUEST_METRIC_PREFIX, restClientProperties.getMetricsMaxEndpoints(),
+                                        restClientProperties.getMetricsMaxHosts())
+                        : null;
+        this.keepAliveStrategy = (response, context) -> {
+            long keepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return (keepAliveMillis < 0 && restClientProperties.getKeepAliveMillis() > 0) ? restClientProperties.getKeepAliveMillis() : keepAliveMillis;
+        };
     }
     
     @Override
     public void customize(RestTemplate restTemplate) {
         restTemplate.setRequestFactory(clientHttpRequestFactory());
+        if (httpClientMetrics != null) {
+            restTemplate.setUriTemplateHandler(recordUriTemplates(restTemplate.getUriTemplateHandler()));
+            List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+            // added first, so that the request still has the URI that the template was expanded to
+            interceptors.add(0, new UriTemplateInterceptor());
+            // added last, so that only the call itself is timed
+            interceptors.add(new RequestMetricsInterceptor());
+            restTemplate.setInterceptors(interceptors);
+        }
     }
     
     protected ClientHttpRequestFactory clientHttpRequestFactory() {
@@ -47,13 +139,215 @@ public class ClientCertRestTemplateCustomizer implements RestTemplateCustomizer
     }
     
     protected HttpClientBuilder customizeHttpClient(HttpClientBuilder httpClientBuilder, SSLContext sslContext) {
-        if (sslContext != null) {
-            httpClientBuilder.setSSLContext(sslContext);
-        }
-        httpClientBuilder.setMaxConnTotal(maxConnectionsTotal);
-        httpClientBuilder.setMaxConnPerRoute(maxConnectionsPerRoute);
-        // TODO: We're allowing all hosts, since the cert presented by the service we're calling likely won't match its hostname (e.g., a docker host name)
-        // Instead, we could list the expected cert as a property (or use our server cert), and verify that the presented name matches.
-        return httpClientBuilder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+        // @formatter:off
+        return httpClientBuilder
+                .setConnectionManager(getConnectionManager(sslContext))
+                // the pool is shared with other clients, so closing this client must not shut it down
+                .setConnectionManagerShared(true)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) restClientProperties.getConnectTimeoutMillis())
+                        .setSocketTimeout((int) restClientProperties.getSocketTimeoutMillis())
+                        .setConnectionRequestTimeout((int) restClientProperties.getConnectionRequestTimeoutMillis())
+                        .build());
+        // @formatter:on
+    }
+    
+    /**
+     * Gets the pooled connection manager for an SSL identity, creating it the first time the identity is used.
+     *
+     * @param sslContext
+     *            the SSL context that provides the client certificate, or null to use the default SSL context
+     * @return the connection manager shared by every client that uses the SSL identity
+     */
+    protected synchronized PoolingHttpClientConnectionManager getConnectionManager(SSLContext sslContext) {
+        PoolingHttpClientConnectionManager connectionManager = connectionManagers.get(sslContext);
+        if (connectionManager == null) {
+            // TODO: We're allowing all hosts, since the cert presented by the service we're calling likely won't match its hostname (e.g., a docker host name)
+            // Instead, we could list the expected cert as a property (or use our server cert), and verify that the presented name matches.
+            SSLConnectionSocketFactory sslSocketFactory = new SessionRecordingSSLConnectionSocketFactory(
+                            sslContext != null ? sslContext : SSLContexts.createDefault(), NoopHostnameVerifier.INSTANCE);
+            // @formatter:off
+            Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", sslSocketFactory)
+                    .build();
+            // @formatter:on
+            
+            connectionManager = (httpClientMetrics != null) ? new TimedConnectionManager(socketFactoryRegistry)
+                            : new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            connectionManager.setMaxTotal(maxConnectionsTotal);
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            connectionManager.setValidateAfterInactivity((int) restClientProperties.getValidateAfterInactivityMillis());
+            connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout((int) restClientProperties.getSocketTimeoutMillis()).build());
+            
+            if (restClientProperties.getMaxIdleTimeMillis() > 0) {
+                IdleConnectionEvictor idleConnectionEvictor = new IdleConnectionEvictor(connectionManager, restClientProperties.getMaxIdleTimeMillis(),
+                                TimeUnit.MILLISECONDS);
+                idleConnectionEvictor.start();
+                idleConnectionEvictors.add(idleConnectionEvictor);
+            }
+            
+            if (metricRegistry != null) {
+                registerMetrics(getPoolName(sslContext), connectionManager);
+            }
+            
+            connectionManagers.put(sslContext, connectionManager);
+        }
+        return connectionManager;
+    }
+    
+    /**
+     * Records whether each TLS handshake resumed a cached session.
+     */
+    private class SessionRecordingSSLConnectionSocketFactory extends SSLConnectionSocketFactory {
+        SessionRecordingSSLConnectionSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+            super(sslContext, hostnameVerifier);
+        }
+        
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+            if (tlsSessionMetrics != null && sslSocket instanceof SSLSocket) {
+                tlsSessionMetrics.recordHandshake(((SSLSocket) sslSocket).getSession());
+            }
+            return sslSocket;
+        }
+    }
+    
+    /**
+     * Times how long each call waits to lease a connection from the pool.
+     */
+    private class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+        TimedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry) {
+            super(socketFactoryRegistry);
+        }
+        
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest connectionRequest = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                                throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long startNanos = System.nanoTime();
+                    try {
+                        return connectionRequest.get(timeout, timeUnit);
+                    } finally {
+                        httpClientMetrics.recordConnectionAcquire(route.getTargetHost().toHostString(), System.nanoTime() - startNanos);
+                    }
+                }
+                
+                @Override
+                public boolean cancel() {
+                    return connectionRequest.cancel();
+                }
+            };
+        }
+    }
+    
+    /**
+     * Wraps a template's URI template handler to remember the URI template that each call is made from. A {@link RootUriTemplateHandler} is kept as one, so
+     * that its root URI can still be found.
+     */
+    private static UriTemplateHandler recordUriTemplates(UriTemplateHandler handler) {
+        if (handler instanceof RootUriTemplateHandler) {
+            return ((RootUriTemplateHandler) handler).withHandlerWrapper(UriTemplateRecordingHandler::new);
+        }
+        return new UriTemplateRecordingHandler(handler);
+    }
+    
+    /**
+     * Remembers the URI template that each call is made from, since the request itself only has the expanded URI. Only the most recent template is kept, so a
+     * template whose call never reaches the {@link RequestMetricsInterceptor} (e.g., because writing the request body failed) is replaced by the next one.
+     */
+    private static class UriTemplateRecordingHandler implements UriTemplateHandler {
+        private final UriTemplateHandler delegate;
+        
+        UriTemplateRecordingHandler(UriTemplateHandler delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public URI expand(String template, Map<String,?> uriVariables) {
+            URI uri = delegate.expand(template, uriVariables);
+            expandedUriTemplate.set(new SimpleImmutableEntry<>(uri, template));
+            return uri;
+        }
+        
+        @Override
+        public URI expand(String template, Object... uriVariables) {
+            URI uri = delegate.expand(template, uriVariables);
+            expandedUriTemplate.set(new SimpleImmutableEntry<>(uri, template));
+            return uri;
+        }
+    }
+    
+    /**
+     * Pairs each call with the URI template it was made from, for the duration of the call. The template handler's URI is passed to the request as is, so
+     * the template is only used by the request with that very URI; a call made with a {@link URI} rather than a template never picks up a template that was
+     * expanded for an earlier call that failed before it was sent.
+     */
+    private static class UriTemplateInterceptor implements ClientHttpRequestInterceptor {
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            Map.Entry<URI,String> expanded = expandedUriTemplate.get();
+            expandedUriTemplate.remove();
+            String previous = callUriTemplate.get();
+            callUriTemplate.set((expanded != null && expanded.getKey() == request.getURI()) ? expanded.getValue() : null);
+            try {
+                return execution.execute(request, body);
+            } finally {
+                if (previous != null) {
+                    callUriTemplate.set(previous);
+                } else {
+                    callUriTemplate.remove();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Records each call, under the URI template found by the {@link UriTemplateInterceptor}.
+     */
+    private class RequestMetricsInterceptor implements ClientHttpRequestInterceptor {
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            String template = callUriTemplate.get();
+            long startNanos = System.nanoTime();
+            int status = -1;
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                status = response.getRawStatusCode();
+                return response;
+            } finally {
+                httpClientMetrics.recordRequest(request.getURI(), request.getMethodValue(), template, status, System.nanoTime() - startNanos);
+            }
+        }
+    }
+    
+    private String getPoolName(SSLContext sslContext) {
+        return (sslContext == this.sslContext) ? "default" : "sslContext" + connectionManagers.size();
+    }
+    
+    private void registerMetrics(String poolName, PoolingHttpClientConnectionManager connectionManager) {
+        String prefix = MetricRegistry.name(METRIC_PREFIX, poolName);
+        metricRegistry.removeMatching(MetricFilter.startsWith(prefix));
+        metricRegistry.register(MetricRegistry.name(prefix, "leased"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getLeased());
+        metricRegistry.register(MetricRegistry.name(prefix, "pending"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getPending());
+        metricRegistry.register(MetricRegistry.name(prefix, "available"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getAvailable());
+        metricRegistry.register(MetricRegistry.name(prefix, "max"), (Gauge<Integer>) () -> connectionManager.getTotalStats().getMax());
+    }
+    
+    @Override
+    public synchronized void destroy() {
+        idleConnectionEvictors.forEach(IdleConnectionEvictor::shutdown);
+        idleConnectionEvictors.clear();
+        connectionManagers.values().forEach(PoolingHttpClientConnectionManager::shutdown);
+        connectionManagers.clear();
+        if (metricRegistry != null) {
+            metricRegistry.removeMatching(MetricFilter.startsWith(METRIC_PREFIX));
+            httpClientMetrics.removeMetrics();
+        }
     }
 }
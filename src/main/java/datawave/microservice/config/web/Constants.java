@@ -26,4 +26,22 @@ public interface Constants {
      * The name of the response header that contains the error code when there is a datawave-specific exception.
      */
     String ERROR_CODE_HEADER = "X-ErrorCode";
+    
+    /**
+     * The request header that carries the time (in ms) that the caller is still willing to wait for the response. A relative time is used so that the
+     * deadline doesn't depend on clocks being synchronized across hosts.
+     */
+    String REQUEST_DEADLINE_HEADER = "X-Request-Deadline-MS";
+    
+    /**
+     * An attribute key name to be used on an {@link javax.servlet.ServletRequest} (or in the Reactor context of a reactive request) in order to store the
+     * {@link System#nanoTime()} by which the current request must complete, if the caller supplied a deadline.
+     */
+    String REQUEST_DEADLINE_NS_ATTRIBUTE = "RequestDeadlineNS";
+    
+    /**
+     * An attribute key name to be used on an {@link javax.servlet.ServletRequest} in order to mark that the deadline of the current request is enforced
+     * (see {@link DatawaveServerProperties#isCancelExpiredRequests()}), so that handlers checking the deadline may stop once it passes.
+     */
+    String REQUEST_DEADLINE_ENFORCED_ATTRIBUTE = "RequestDeadlineEnforced";
 }
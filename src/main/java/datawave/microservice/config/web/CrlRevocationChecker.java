@@ -0,0 +1,317 @@
+package datawave.microservice.config.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.CRL;
+import java.security.cert.CRLException;
+import java.security.cert.CRLReason;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CertificateRevokedException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks certificates against certificate revocation lists (CRLs) read from local files, without fetching or parsing anything during a handshake.
+ * <p>
+ * The revoked serial numbers from every CRL are held in memory in a hash table per issuer, so checking a certificate is a constant-time lookup. The CRL files
+ * (and the contents of the CRL directory) are checked in the background, and are reloaded when any of them changes. If they can't be reloaded, the
+ * previously loaded revocations remain in effect.
+ * <p>
+ * Each CRL must be signed by a certificate from the truststore whose subject is the CRL's issuer, or the CRLs are not loaded. Certificates from an issuer
+ * without a CRL are not checked. A CRL that is past its next update time is logged, and when configured to fail if stale, certificates from its issuer are
+ * rejected until a newer CRL is loaded.
+ */
+public class CrlRevocationChecker {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    private final List<String> crlFiles;
+    private final String crlDirectory;
+    private final boolean failIfStale;
+    private final Supplier<Collection<X509Certificate>> trustedIssuers;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService refreshExecutor;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    
+    private volatile Map<X500Principal,IssuerRevocations> revocations = Collections.emptyMap();
+    private List<String> loadedFileStates = null;
+    
+    /**
+     * Creates the checker and loads the CRLs.
+     *
+     * @param crlFiles
+     *            the CRL files to read, in PEM or DER format
+     * @param crlDirectory
+     *            a directory whose *.crl and *.pem files are read, or null
+     * @param refreshIntervalMillis
+     *            how often to check the files for changes, or 0 to never reload them
+     * @param failIfStale
+     *            whether to reject certificates whose issuer's CRL is past its next update time
+     * @param trustedIssuers
+     *            supplies the trusted certificates whose keys the CRLs must be signed with (e.g., the truststore's certificates)
+     * @throws IllegalStateException
+     *             if the CRLs can't be loaded
+     */
+    public CrlRevocationChecker(List<String> crlFiles, String crlDirectory, long refreshIntervalMillis, boolean failIfStale,
+                    Supplier<Collection<X509Certificate>> trustedIssuers) {
+        this(crlFiles, crlDirectory, refreshIntervalMillis, failIfStale, trustedIssuers, System::currentTimeMillis);
+    }
+    
+    CrlRevocationChecker(List<String> crlFiles, String crlDirectory, long refreshIntervalMillis, boolean failIfStale,
+                    Supplier<Collection<X509Certificate>> trustedIssuers, LongSupplier clock) {
+        this.crlFiles = (crlFiles != null) ? crlFiles : Collections.emptyList();
+        this.crlDirectory = crlDirectory;
+        this.failIfStale = failIfStale;
+        this.trustedIssuers = trustedIssuers;
+        this.clock = clock;
+        try {
+            refresh();
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to load certificate revocation lists", e);
+        }
+        if (refreshIntervalMillis > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "crl-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refreshExecutor.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            refreshExecutor = null;
+        }
+    }
+    
+    /**
+     * Checks whether any certificate in a chain has been revoked.
+     *
+     * @param chain
+     *            the certificate chain
+     * @throws CertificateRevokedException
+     *             if a certificate in the chain has been revoked
+     * @throws CertificateException
+     *             if failing on stale CRLs, and the CRL for the issuer of a certificate in the chain is past its next update time
+     */
+    public void check(X509Certificate[] chain) throws CertificateException {
+        if (chain == null) {
+            return;
+        }
+        Map<X500Principal,IssuerRevocations> revocations = this.revocations;
+        for (X509Certificate cert : chain) {
+            IssuerRevocations issuerRevocations = revocations.get(cert.getIssuerX500Principal());
+            if (issuerRevocations == null) {
+                continue;
+            }
+            X509CRLEntry entry = issuerRevocations.revokedSerials.get(cert.getSerialNumber());
+            if (entry != null) {
+                CRLReason reason = (entry.getRevocationReason() != null) ? entry.getRevocationReason() : CRLReason.UNSPECIFIED;
+                throw new CertificateRevokedException(entry.getRevocationDate(), reason, cert.getIssuerX500Principal(), Collections.emptyMap());
+            }
+            if (failIfStale && issuerRevocations.isStale(clock.getAsLong())) {
+                throw new CertificateException("The certificate revocation list for " + cert.getIssuerX500Principal() + " was due to be updated at "
+                                + new Date(issuerRevocations.nextUpdate));
+            }
+        }
+    }
+    
+    /**
+     * Adds a listener that is called from the refresh thread after changed CRLs have been reloaded.
+     *
+     * @param listener
+     *            the listener
+     */
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+    
+    public int getRevokedCount() {
+        return revocations.values().stream().mapToInt(r -> r.revokedSerials.size()).sum();
+    }
+    
+    /**
+     * Reloads the CRLs whether or not the files have changed, e.g., because the trusted issuers have changed, and notifies the reload listeners. If they
+     * can't be reloaded, the previously loaded revocations remain in effect.
+     */
+    public void reload() {
+        synchronized (this) {
+            loadedFileStates = null;
+        }
+        refreshQuietly();
+    }
+    
+    private void refreshQuietly() {
+        try {
+            if (refresh()) {
+                reloadListeners.forEach(Runnable::run);
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            log.warn("Unable to reload certificate revocation lists, continuing to use the previously loaded ones: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Reloads the CRLs if any of the files have been added, removed or changed since they were last loaded.
+     *
+     * @return true if the CRLs were reloaded
+     * @throws IOException
+     *             if a CRL file can't be read
+     * @throws GeneralSecurityException
+     *             if a CRL file can't be parsed
+     */
+    public synchronized boolean refresh() throws IOException, GeneralSecurityException {
+        List<File> files = getCrlFiles();
+        List<String> fileStates = new ArrayList<>();
+        for (File file : files) {
+            fileStates.add(file.getPath() + ":" + file.lastModified() + ":" + file.length());
+        }
+        if (fileStates.equals(loadedFileStates)) {
+            return false;
+        }
+        
+        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+        Collection<X509Certificate> issuers = trustedIssuers.get();
+        Map<X500Principal,IssuerRevocations> newRevocations = new HashMap<>();
+        long now = clock.getAsLong();
+        for (File file : files) {
+            try (InputStream is = Files.newInputStream(file.toPath())) {
+                for (CRL crl : certificateFactory.generateCRLs(is)) {
+                    X509CRL x509Crl = (X509CRL) crl;
+                    verifySignature(file, x509Crl, issuers);
+                    long nextUpdate = (x509Crl.getNextUpdate() != null) ? x509Crl.getNextUpdate().getTime() : Long.MAX_VALUE;
+                    if (nextUpdate <= now) {
+                        log.warn("Certificate revocation list {} from {} was due to be updated at {}", file, x509Crl.getIssuerX500Principal(),
+                                        x509Crl.getNextUpdate());
+                    }
+                    newRevocations.computeIfAbsent(x509Crl.getIssuerX500Principal(), k -> new IssuerRevocations()).updatedUntil(nextUpdate);
+                    if (x509Crl.getRevokedCertificates() != null) {
+                        for (X509CRLEntry entry : x509Crl.getRevokedCertificates()) {
+                            // an indirect CRL names the issuer of each revoked certificate that it didn't issue itself
+                            X500Principal issuer = (entry.getCertificateIssuer() != null) ? entry.getCertificateIssuer() : x509Crl.getIssuerX500Principal();
+                            IssuerRevocations issuerRevocations = newRevocations.computeIfAbsent(issuer, k -> new IssuerRevocations());
+                            issuerRevocations.updatedUntil(nextUpdate);
+                            issuerRevocations.revokedSerials.put(entry.getSerialNumber(), entry);
+                        }
+                    }
+                }
+            }
+        }
+        revocations = newRevocations;
+        loadedFileStates = fileStates;
+        log.info("Loaded {} revoked certificates from {} certificate revocation list files", getRevokedCount(), files.size());
+        return true;
+    }
+    
+    /**
+     * Verifies that a CRL was signed by a trusted certificate for its issuer. More than one certificate may have the issuer's name while its key is being
+     * rolled over, so each of them is tried.
+     */
+    private static void verifySignature(File file, X509CRL crl, Collection<X509Certificate> issuers) throws CRLException {
+        for (X509Certificate issuer : issuers) {
+            if (issuer.getSubjectX500Principal().equals(crl.getIssuerX500Principal())) {
+                try {
+                    crl.verify(issuer.getPublicKey());
+                    return;
+                } catch (GeneralSecurityException e) {
+                    // signed with a different key, so try the next certificate
+                }
+            }
+        }
+        throw new CRLException("Certificate revocation list " + file + " from " + crl.getIssuerX500Principal()
+                        + " is not signed by a trusted certificate for its issuer");
+    }
+    
+    /**
+     * Collects the certificates in a keystore, for use as the trusted issuers of the CRLs.
+     *
+     * @param keyStore
+     *            the keystore (typically a truststore), or null
+     * @return the X.509 certificates in the keystore
+     * @throws IllegalStateException
+     *             if the keystore can't be read
+     */
+    public static Collection<X509Certificate> getCertificates(KeyStore keyStore) {
+        List<X509Certificate> certificates = new ArrayList<>();
+        if (keyStore != null) {
+            try {
+                for (String alias : Collections.list(keyStore.aliases())) {
+                    Certificate certificate = keyStore.getCertificate(alias);
+                    if (certificate instanceof X509Certificate) {
+                        certificates.add((X509Certificate) certificate);
+                    }
+                }
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException("Unable to read the certificates in the truststore", e);
+            }
+        }
+        return certificates;
+    }
+    
+    private List<File> getCrlFiles() throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String crlFile : crlFiles) {
+            File file = new File(crlFile);
+            if (!file.isFile()) {
+                throw new IOException("Certificate revocation list " + crlFile + " does not exist");
+            }
+            files.add(file);
+        }
+        if (crlDirectory != null) {
+            File[] dirFiles = new File(crlDirectory).listFiles((dir, name) -> name.endsWith(".crl") || name.endsWith(".pem"));
+            if (dirFiles == null) {
+                throw new IOException("Certificate revocation list directory " + crlDirectory + " can't be read");
+            }
+            // sorted so that an unchanged directory always produces the same file states
+            Arrays.sort(dirFiles);
+            Collections.addAll(files, dirFiles);
+        }
+        return files;
+    }
+    
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * The serial numbers revoked by an issuer, and the latest next update time of the CRLs that cover it.
+     */
+    private static class IssuerRevocations {
+        private final Map<BigInteger,X509CRLEntry> revokedSerials = new HashMap<>();
+        private long nextUpdate = Long.MIN_VALUE;
+        
+        private void updatedUntil(long crlNextUpdate) {
+            nextUpdate = Math.max(nextUpdate, crlNextUpdate);
+        }
+        
+        private boolean isStale(long now) {
+            return nextUpdate <= now;
+        }
+    }
+}
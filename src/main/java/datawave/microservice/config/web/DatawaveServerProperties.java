@@ -11,6 +11,7 @@ import java.util.concurrent.TimeUnit;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
@@ -41,6 +42,44 @@ public class DatawaveServerProperties {
     @NestedConfigurationProperty
     private OutboundSsl outboundSsl = new OutboundSsl();
     
+    // how often to check the keystore and truststore files for changes (0 disables reloading)
+    @PositiveOrZero
+    private long sslReloadInterval = 1;
+    
+    @NotNull
+    private TimeUnit sslReloadIntervalUnit = TimeUnit.MINUTES;
+    
+    // whether to reject a request whose caller-supplied deadline has already passed, and to stop waiting for a request once its deadline passes (asynchronous
+    // servlet requests time out and reactive requests are cancelled)
+    private boolean cancelExpiredRequests = false;
+    
+    // the maximum number of inbound client certificates remembered as already validated (0, the default, validates every handshake)
+    @PositiveOrZero
+    private long inboundVerifiedChainCacheSize = 0;
+    
+    // how long a validated client certificate is remembered (it is never remembered past its expiration)
+    @Positive
+    private long inboundVerifiedChainCacheTtl = 10;
+    
+    @NotNull
+    private TimeUnit inboundVerifiedChainCacheTtlUnit = TimeUnit.MINUTES;
+    
+    // CRL files (PEM or DER) whose revoked certificates are rejected when presented by inbound clients
+    private List<String> inboundCrlFiles = Lists.newArrayList();
+    
+    // a directory whose *.crl and *.pem files are also loaded as CRLs for inbound clients
+    private String inboundCrlDirectory = null;
+    
+    // how often the inbound CRL files are checked for changes (0 never reloads them)
+    @PositiveOrZero
+    private long inboundCrlRefreshInterval = 5;
+    
+    @NotNull
+    private TimeUnit inboundCrlRefreshIntervalUnit = TimeUnit.MINUTES;
+    
+    // whether inbound client certificates are rejected once the CRL from their issuer is past its next update time (otherwise it is only logged)
+    private boolean inboundCrlFailIfStale = false;
+    
     public Integer getNonSecurePort() {
         return nonSecurePort;
     }
@@ -61,6 +100,110 @@ public class DatawaveServerProperties {
         return cors;
     }
     
+    public long getSslReloadInterval() {
+        return sslReloadInterval;
+    }
+    
+    public long getSslReloadIntervalMillis() {
+        return sslReloadIntervalUnit.toMillis(sslReloadInterval);
+    }
+    
+    public void setSslReloadInterval(long sslReloadInterval) {
+        this.sslReloadInterval = sslReloadInterval;
+    }
+    
+    public TimeUnit getSslReloadIntervalUnit() {
+        return sslReloadIntervalUnit;
+    }
+    
+    public void setSslReloadIntervalUnit(TimeUnit sslReloadIntervalUnit) {
+        this.sslReloadIntervalUnit = sslReloadIntervalUnit;
+    }
+    
+    public boolean isCancelExpiredRequests() {
+        return cancelExpiredRequests;
+    }
+    
+    public void setCancelExpiredRequests(boolean cancelExpiredRequests) {
+        this.cancelExpiredRequests = cancelExpiredRequests;
+    }
+    
+    public long getInboundVerifiedChainCacheSize() {
+        return inboundVerifiedChainCacheSize;
+    }
+    
+    public void setInboundVerifiedChainCacheSize(long inboundVerifiedChainCacheSize) {
+        this.inboundVerifiedChainCacheSize = inboundVerifiedChainCacheSize;
+    }
+    
+    public long getInboundVerifiedChainCacheTtl() {
+        return inboundVerifiedChainCacheTtl;
+    }
+    
+    public long getInboundVerifiedChainCacheTtlMillis() {
+        return inboundVerifiedChainCacheTtlUnit.toMillis(inboundVerifiedChainCacheTtl);
+    }
+    
+    public void setInboundVerifiedChainCacheTtl(long inboundVerifiedChainCacheTtl) {
+        this.inboundVerifiedChainCacheTtl = inboundVerifiedChainCacheTtl;
+    }
+    
+    public TimeUnit getInboundVerifiedChainCacheTtlUnit() {
+        return inboundVerifiedChainCacheTtlUnit;
+    }
+    
+    public void setInboundVerifiedChainCacheTtlUnit(TimeUnit inboundVerifiedChainCacheTtlUnit) {
+        this.inboundVerifiedChainCacheTtlUnit = inboundVerifiedChainCacheTtlUnit;
+    }
+    
+    public List<String> getInboundCrlFiles() {
+        return inboundCrlFiles;
+    }
+    
+    public void setInboundCrlFiles(List<String> inboundCrlFiles) {
+        this.inboundCrlFiles = inboundCrlFiles;
+    }
+    
+    public String getInboundCrlDirectory() {
+        return inboundCrlDirectory;
+    }
+    
+    public void setInboundCrlDirectory(String inboundCrlDirectory) {
+        this.inboundCrlDirectory = inboundCrlDirectory;
+    }
+    
+    public boolean isInboundCrlCheckingEnabled() {
+        return (inboundCrlFiles != null && !inboundCrlFiles.isEmpty()) || inboundCrlDirectory != null;
+    }
+    
+    public long getInboundCrlRefreshInterval() {
+        return inboundCrlRefreshInterval;
+    }
+    
+    public long getInboundCrlRefreshIntervalMillis() {
+        return inboundCrlRefreshIntervalUnit.toMillis(inboundCrlRefreshInterval);
+    }
+    
+    public void setInboundCrlRefreshInterval(long inboundCrlRefreshInterval) {
+        this.inboundCrlRefreshInterval = inboundCrlRefreshInterval;
+    }
+    
+    public TimeUnit getInboundCrlRefreshIntervalUnit() {
+        return inboundCrlRefreshIntervalUnit;
+    }
+    
+    public void setInboundCrlRefreshIntervalUnit(TimeUnit inboundCrlRefreshIntervalUnit) {
+        this.inboundCrlRefreshIntervalUnit = inboundCrlRefreshIntervalUnit;
+    }
+    
+    public boolean isInboundCrlFailIfStale() {
+        return inboundCrlFailIfStale;
+    }
+    
+    public void setInboundCrlFailIfStale(boolean inboundCrlFailIfStale) {
+        this.inboundCrlFailIfStale = inboundCrlFailIfStale;
+    }
+    
     /**
      * Gets the {@link Ssl} configuration for outbound connections that may require two-way SSL. Note that this can be disabled by setting the property
      * "server.outbound-ssl.enabled" to "false".
@@ -142,5 +285,160 @@ public class DatawaveServerProperties {
             @NotBlankIfFieldEquals(fieldName = "enabled", fieldValue = "true", notBlankFieldName = "trustStorePassword"),
             @NotBlankIfFieldEquals(fieldName = "enabled", fieldValue = "true", notBlankFieldName = "trustStoreType"),
             @NotBlankIfFieldEquals(fieldName = "enabled", fieldValue = "true", notBlankFieldName = "protocol")})
-    public static class OutboundSsl extends Ssl {}
+    public static class OutboundSsl extends Ssl {
+        // the maximum number of client sessions cached for resumption (0 uses the SSL provider's default)
+        @PositiveOrZero
+        private int sessionCacheSize = 0;
+        
+        // how long a cached client session may be resumed (0 uses the SSL provider's default)
+        @PositiveOrZero
+        private long sessionTimeout = 0;
+        
+        @NotNull
+        private TimeUnit sessionTimeoutUnit = TimeUnit.SECONDS;
+        
+        // whether sessions may be resumed with session tickets (unset leaves the JVM's default alone). Setting this changes the
+        // "jdk.tls.client.enableSessionTicketExtension" system property, which affects every TLS client in the JVM, unless it was given on the command line.
+        private Boolean sessionTicketsEnabled = null;
+        
+        // the maximum number of peer certificate chains remembered as already verified (0, the default, verifies every handshake). Only chains containing
+        // the service's own certificate are remembered, and they are forgotten whenever the keystore or truststore is reloaded.
+        @PositiveOrZero
+        private long verifiedChainCacheSize = 0;
+        
+        // how long a verified certificate chain is remembered (it is never remembered past its expiration)
+        @Positive
+        private long verifiedChainCacheTtl = 10;
+        
+        @NotNull
+        private TimeUnit verifiedChainCacheTtlUnit = TimeUnit.MINUTES;
+        
+        // CRL files (PEM or DER) whose revoked certificates are rejected by the trust manager
+        private List<String> crlFiles = Lists.newArrayList();
+        
+        // a directory whose *.crl and *.pem files are also loaded as CRLs
+        private String crlDirectory = null;
+        
+        // how often the CRL files are checked for changes (0 never reloads them)
+        @PositiveOrZero
+        private long crlRefreshInterval = 5;
+        
+        @NotNull
+        private TimeUnit crlRefreshIntervalUnit = TimeUnit.MINUTES;
+        
+        // whether certificates are rejected once the CRL from their issuer is past its next update time (otherwise it is only logged)
+        private boolean crlFailIfStale = false;
+        
+        public int getSessionCacheSize() {
+            return sessionCacheSize;
+        }
+        
+        public void setSessionCacheSize(int sessionCacheSize) {
+            this.sessionCacheSize = sessionCacheSize;
+        }
+        
+        public long getSessionTimeout() {
+            return sessionTimeout;
+        }
+        
+        public long getSessionTimeoutSeconds() {
+            return sessionTimeoutUnit.toSeconds(sessionTimeout);
+        }
+        
+        public void setSessionTimeout(long sessionTimeout) {
+            this.sessionTimeout = sessionTimeout;
+        }
+        
+        public TimeUnit getSessionTimeoutUnit() {
+            return sessionTimeoutUnit;
+        }
+        
+        public void setSessionTimeoutUnit(TimeUnit sessionTimeoutUnit) {
+            this.sessionTimeoutUnit = sessionTimeoutUnit;
+        }
+        
+        public Boolean getSessionTicketsEnabled() {
+            return sessionTicketsEnabled;
+        }
+        
+        public void setSessionTicketsEnabled(Boolean sessionTicketsEnabled) {
+            this.sessionTicketsEnabled = sessionTicketsEnabled;
+        }
+        
+        public long getVerifiedChainCacheSize() {
+            return verifiedChainCacheSize;
+        }
+        
+        public void setVerifiedChainCacheSize(long verifiedChainCacheSize) {
+            this.verifiedChainCacheSize = verifiedChainCacheSize;
+        }
+        
+        public long getVerifiedChainCacheTtl() {
+            return verifiedChainCacheTtl;
+        }
+        
+        public long getVerifiedChainCacheTtlMillis() {
+            return verifiedChainCacheTtlUnit.toMillis(verifiedChainCacheTtl);
+        }
+        
+        public void setVerifiedChainCacheTtl(long verifiedChainCacheTtl) {
+            this.verifiedChainCacheTtl = verifiedChainCacheTtl;
+        }
+        
+        public TimeUnit getVerifiedChainCacheTtlUnit() {
+            return verifiedChainCacheTtlUnit;
+        }
+        
+        public void setVerifiedChainCacheTtlUnit(TimeUnit verifiedChainCacheTtlUnit) {
+            this.verifiedChainCacheTtlUnit = verifiedChainCacheTtlUnit;
+        }
+        
+        public List<String> getCrlFiles() {
+            return crlFiles;
+        }
+        
+        public void setCrlFiles(List<String> crlFiles) {
+            this.crlFiles = crlFiles;
+        }
+        
+        public String getCrlDirectory() {
+            return crlDirectory;
+        }
+        
+        public void setCrlDirectory(String crlDirectory) {
+            this.crlDirectory = crlDirectory;
+        }
+        
+        public boolean isCrlCheckingEnabled() {
+            return (crlFiles != null && !crlFiles.isEmpty()) || crlDirectory != null;
+        }
+        
+        public long getCrlRefreshInterval() {
+            return crlRefreshInterval;
+        }
+        
+        public long getCrlRefreshIntervalMillis() {
+            return crlRefreshIntervalUnit.toMillis(crlRefreshInterval);
+        }
+        
+        public void setCrlRefreshInterval(long crlRefreshInterval) {
+            this.crlRefreshInterval = crlRefreshInterval;
+        }
+        
+        public TimeUnit getCrlRefreshIntervalUnit() {
+            return crlRefreshIntervalUnit;
+        }
+        
+        public void setCrlRefreshIntervalUnit(TimeUnit crlRefreshIntervalUnit) {
+            this.crlRefreshIntervalUnit = crlRefreshIntervalUnit;
+        }
+        
+        public boolean isCrlFailIfStale() {
+            return crlFailIfStale;
+        }
+        
+        public void setCrlFailIfStale(boolean crlFailIfStale) {
+            this.crlFailIfStale = crlFailIfStale;
+        }
+    }
 }
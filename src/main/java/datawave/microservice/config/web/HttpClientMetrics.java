@@ -0,0 +1,153 @@
+package datawave.microservice.config.web;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Records the outbound calls made by an HTTP client, so that time spent waiting on downstream services can be told apart from time spent in this service.
+ * <p>
+ * Each call is timed by target host, method and URI template (e.g., "/authorization/v1/whoami" or "/query/v1/{id}/next"), and its response is counted by
+ * status class ("2xx" through "5xx", or "error" if no response was received). The time each call waited for a connection is timed by target host. When a call
+ * wasn't made from a URI template, its path is used instead, so the number of distinct endpoints that are timed is capped; calls beyond the cap are timed as
+ * {@link #OTHER_ENDPOINT}. The number of distinct target hosts is capped too, since every host gets its own meters and timers; calls to hosts beyond that cap
+ * are recorded under {@link #OTHER_HOST}.
+ */
+public class HttpClientMetrics {
+    public static final String OTHER_ENDPOINT = "other";
+    public static final String OTHER_HOST = "other";
+    public static final String ERROR_STATUS_CLASS = "error";
+    
+    private final MetricRegistry metricRegistry;
+    private final String prefix;
+    private final int maxEndpoints;
+    private final int maxHosts;
+    private final Map<String,Timer> endpointTimers = new ConcurrentHashMap<>();
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * @param metricRegistry
+     *            the registry to publish the metrics to
+     * @param prefix
+     *            the prefix for the metric names (e.g. "restClient")
+     * @param maxEndpoints
+     *            the maximum number of distinct host, method and URI template combinations to time
+     * @param maxHosts
+     *            the maximum number of distinct target hosts to record
+     */
+    public HttpClientMetrics(MetricRegistry metricRegistry, String prefix, int maxEndpoints, int maxHosts) {
+        this.metricRegistry = metricRegistry;
+        this.prefix = prefix;
+        this.maxEndpoints = maxEndpoints;
+        this.maxHosts = maxHosts;
+        removeMetrics();
+    }
+    
+    /**
+     * Records a completed call.
+     *
+     * @param uri
+     *            the URI that was called
+     * @param method
+     *            the HTTP method of the call
+     * @param uriTemplate
+     *            the URI template the URI was expanded from, or null if it wasn't expanded from a template
+     * @param status
+     *            the status code of the response, or -1 if no response was received
+     * @param durationNanos
+     *            how long the call took
+     */
+    public void recordRequest(URI uri, String method, String uriTemplate, int status, long durationNanos) {
+        String host = getRecordedHost(getHost(uri));
+        String endpoint = (uriTemplate != null) ? getTemplatePath(uriTemplate) : getPath(uri);
+        getEndpointTimer(host, method, endpoint).update(durationNanos, TimeUnit.NANOSECONDS);
+        metricRegistry.meter(MetricRegistry.name(prefix, "responses", host, getStatusClass(status))).mark();
+    }
+    
+    /**
+     * Records how long a call waited for a connection to its target host.
+     *
+     * @param host
+     *            the target host, as returned by {@link #getHost(URI)}
+     * @param durationNanos
+     *            how long the call waited
+     */
+    public void recordConnectionAcquire(String host, long durationNanos) {
+        metricRegistry.timer(MetricRegistry.name(prefix, "connectionAcquire", getRecordedHost(host))).update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void removeMetrics() {
+        endpointTimers.clear();
+        hosts.clear();
+        metricRegistry.removeMatching(MetricFilter.startsWith(MetricRegistry.name(prefix, "requests")));
+        metricRegistry.removeMatching(MetricFilter.startsWith(MetricRegistry.name(prefix, "responses")));
+        metricRegistry.removeMatching(MetricFilter.startsWith(MetricRegistry.name(prefix, "connectionAcquire")));
+    }
+    
+    private String getRecordedHost(String host) {
+        if (hosts.contains(host)) {
+            return host;
+        }
+        // as with the endpoints, the cap may be exceeded slightly by concurrent calls
+        if (hosts.size() >= maxHosts) {
+            return OTHER_HOST;
+        }
+        hosts.add(host);
+        return host;
+    }
+    
+    private Timer getEndpointTimer(String host, String method, String endpoint) {
+        String name = MetricRegistry.name(prefix, "requests", host, method, endpoint);
+        Timer timer = endpointTimers.get(name);
+        if (timer == null) {
+            // the cap is checked without locking, so it may be exceeded slightly by concurrent calls
+            if (endpointTimers.size() >= maxEndpoints) {
+                name = MetricRegistry.name(prefix, "requests", host, method, OTHER_ENDPOINT);
+            }
+            timer = endpointTimers.computeIfAbsent(name, metricRegistry::timer);
+        }
+        return timer;
+    }
+    
+    /**
+     * Gets the name of the host (and port, if there is one) that a URI targets.
+     *
+     * @param uri
+     *            the URI
+     * @return the host name, or "unknown" if the URI has no host
+     */
+    public static String getHost(URI uri) {
+        if (uri == null || uri.getHost() == null) {
+            return "unknown";
+        }
+        return (uri.getPort() != -1) ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+    }
+    
+    public static String getStatusClass(int status) {
+        return (status >= 100 && status < 600) ? (status / 100) + "xx" : ERROR_STATUS_CLASS;
+    }
+    
+    private static String getPath(URI uri) {
+        return (uri.getRawPath() != null && !uri.getRawPath().isEmpty()) ? uri.getRawPath() : "/";
+    }
+    
+    /**
+     * Reduces a URI template to its path, since the host is recorded separately and query parameters aren't always part of the template.
+     */
+    private static String getTemplatePath(String uriTemplate) {
+        String path = uriTemplate;
+        int schemeEnd = path.indexOf("://");
+        if (schemeEnd >= 0) {
+            int pathStart = path.indexOf('/', schemeEnd + 3);
+            path = (pathStart >= 0) ? path.substring(pathStart) : "/";
+        }
+        int queryStart = path.indexOf('?');
+        return (queryStart >= 0) ? path.substring(0, queryStart) : path;
+    }
+}
@@ -0,0 +1,173 @@
+package datawave.microservice.config.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Loads each configured keystore and truststore once, so that the SSL contexts and the JWT token handler that are built from the same file share a single
+ * parsed {@link KeyStore}.
+ * <p>
+ * When a reload interval is configured, the files behind the cached stores are checked periodically, and a store whose file changed is reloaded and the reload
+ * listeners are notified so they can swap in the new key material. Polling the modification time is used rather than a file watcher, since certificates are
+ * often rotated by swapping a symbolic link (e.g., a mounted Kubernetes secret), which directory watches don't reliably report. A file that can't be loaded
+ * (e.g., because it is only partially written) is logged and the previously loaded store stays in use.
+ */
+public class KeyStoreCache implements DisposableBean {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    private final long reloadIntervalMillis;
+    private final Map<String,CachedKeyStore> keyStores = new HashMap<>();
+    private final List<Consumer<String>> reloadListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService reloadExecutor;
+    
+    /**
+     * @param reloadIntervalMillis
+     *            how often to check the cached stores for changes, or 0 to never reload them
+     */
+    public KeyStoreCache(long reloadIntervalMillis) {
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+    
+    /**
+     * Gets a keystore, loading it the first time it is requested.
+     *
+     * @param location
+     *            the location of the keystore, as a URL or classpath resource
+     * @param type
+     *            the keystore type, or null for JKS
+     * @param password
+     *            the keystore password
+     * @return the keystore
+     * @throws IOException
+     *             if the keystore can't be read
+     * @throws GeneralSecurityException
+     *             if the keystore can't be loaded
+     */
+    public synchronized KeyStore getKeyStore(String location, String type, String password) throws IOException, GeneralSecurityException {
+        String storeType = (type != null) ? type : "JKS";
+        String key = storeType + ":" + location;
+        CachedKeyStore cached = keyStores.get(key);
+        if (cached == null) {
+            cached = new CachedKeyStore(location, storeType, password);
+            cached.load();
+            keyStores.put(key, cached);
+            if (cached.file != null) {
+                startReloading();
+            }
+        }
+        return cached.keyStore;
+    }
+    
+    /**
+     * Adds a listener that is called with the location of each store that is reloaded. Listeners are called from the reload thread, after the new store is
+     * available from {@link #getKeyStore(String, String, String)}.
+     *
+     * @param listener
+     *            the listener
+     */
+    public void addReloadListener(Consumer<String> listener) {
+        reloadListeners.add(listener);
+    }
+    
+    private void startReloading() {
+        if (reloadExecutor == null && reloadIntervalMillis > 0) {
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "keystore-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadExecutor.scheduleWithFixedDelay(this::reloadChanged, reloadIntervalMillis, reloadIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Reloads every cached store whose file has changed since it was last loaded, and notifies the reload listeners.
+     */
+    public void reloadChanged() {
+        List<String> reloaded = new ArrayList<>();
+        synchronized (this) {
+            for (CachedKeyStore cached : keyStores.values()) {
+                if (cached.isModified()) {
+                    try {
+                        cached.load();
+                        reloaded.add(cached.location);
+                        log.info("Reloaded keystore {}", cached.location);
+                    } catch (IOException | GeneralSecurityException e) {
+                        log.warn("Unable to reload keystore {}, continuing to use the previously loaded one: {}", cached.location, e.getMessage());
+                    }
+                }
+            }
+        }
+        for (String location : reloaded) {
+            for (Consumer<String> listener : reloadListeners) {
+                try {
+                    listener.accept(location);
+                } catch (RuntimeException e) {
+                    log.warn("Keystore reload listener failed for {}", location, e);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void destroy() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+            reloadExecutor = null;
+        }
+    }
+    
+    private static class CachedKeyStore {
+        private final String location;
+        private final String type;
+        private final String password;
+        private final File file;
+        private KeyStore keyStore;
+        private long lastModified;
+        private long length;
+        
+        private CachedKeyStore(String location, String type, String password) throws IOException {
+            this.location = location;
+            this.type = type;
+            this.password = password;
+            URL url = ResourceUtils.getURL(location);
+            // only stores on the file system can change, so there's nothing to watch for classpath or remote stores
+            this.file = ResourceUtils.isFileURL(url) ? ResourceUtils.getFile(url) : null;
+        }
+        
+        private boolean isModified() {
+            return file != null && (file.lastModified() != lastModified || file.length() != length);
+        }
+        
+        private void load() throws IOException, GeneralSecurityException {
+            // record the file's state first, so that a file which fails to load is only retried once it changes again
+            if (file != null) {
+                lastModified = file.lastModified();
+                length = file.length();
+            }
+            KeyStore keyStore = KeyStore.getInstance(type);
+            try (InputStream is = ResourceUtils.getURL(location).openStream()) {
+                keyStore.load(is, password != null ? password.toCharArray() : null);
+            }
+            this.keyStore = keyStore;
+        }
+    }
+}
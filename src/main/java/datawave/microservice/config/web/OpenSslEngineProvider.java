@@ -0,0 +1,176 @@
+package datawave.microservice.config.web;
+
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509KeyManager;
+import javax.net.ssl.X509TrustManager;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+
+/**
+ * A JCA {@link Provider} whose {@link SSLContext} creates OpenSSL {@link SSLEngine}s (via netty-tcnative) instead of JDK ones, for use by a server.
+ * <p>
+ * Spring Boot creates Undertow's SSL context with {@link SSLContext#getInstance(String)} using the configured protocol, and Undertow only uses the context to
+ * create engines. Using {@link #PROTOCOL} (or {@link #HTTP2_PROTOCOL}) as that protocol therefore puts OpenSSL behind Undertow's HTTPS listener, while Spring
+ * still loads the keystore, truststore and key alias and Undertow still applies the client auth, protocol and cipher settings to each engine. OpenSSL engines
+ * don't take their ALPN protocols from {@link SSLParameters}, so {@link #HTTP2_PROTOCOL} advertises h2 itself.
+ */
+public class OpenSslEngineProvider extends Provider {
+    private static final long serialVersionUID = 2787305837611207347L;
+    
+    public static final String NAME = "DatawaveOpenSsl";
+    public static final String PROTOCOL = "OpenSSL";
+    public static final String HTTP2_PROTOCOL = "OpenSSL-h2";
+    
+    private OpenSslEngineProvider() {
+        super(NAME, 1.0, "SSLContext backed by OpenSSL engines");
+        putService(new OpenSslContextService(this, PROTOCOL, false));
+        putService(new OpenSslContextService(this, HTTP2_PROTOCOL, true));
+    }
+    
+    /**
+     * Registers the provider (as the least preferred provider, so it is only used when one of its protocols is requested), if it isn't registered already.
+     *
+     * @return true if OpenSSL is available and the provider is registered, false if the native library can't be loaded
+     */
+    public static synchronized boolean install() {
+        if (!OpenSsl.isAvailable()) {
+            return false;
+        }
+        if (Security.getProvider(NAME) == null) {
+            Security.addProvider(new OpenSslEngineProvider());
+        }
+        return true;
+    }
+    
+    private static class OpenSslContextService extends Service {
+        private final boolean http2;
+        
+        OpenSslContextService(Provider provider, String protocol, boolean http2) {
+            super(provider, "SSLContext", protocol, OpenSslServerContextSpi.class.getName(), null, null);
+            this.http2 = http2;
+        }
+        
+        @Override
+        public Object newInstance(Object constructorParameter) throws NoSuchAlgorithmException {
+            return new OpenSslServerContextSpi(http2);
+        }
+    }
+    
+    private static class OpenSslServerContextSpi extends SSLContextSpi {
+        private final boolean http2;
+        private SslContext sslContext;
+        
+        OpenSslServerContextSpi(boolean http2) {
+            this.http2 = http2;
+        }
+        
+        @Override
+        protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom secureRandom) throws KeyManagementException {
+            X509KeyManager keyManager = null;
+            for (KeyManager km : (keyManagers != null ? keyManagers : new KeyManager[0])) {
+                if (km instanceof X509KeyManager) {
+                    keyManager = (X509KeyManager) km;
+                    break;
+                }
+            }
+            if (keyManager == null) {
+                throw new KeyManagementException("An X509KeyManager is required for an OpenSSL server context");
+            }
+            
+            SslContextBuilder builder = SslContextBuilder.forServer(keyManager).sslProvider(SslProvider.OPENSSL);
+            for (TrustManager tm : (trustManagers != null ? trustManagers : new TrustManager[0])) {
+                if (tm instanceof X509TrustManager) {
+                    builder.trustManager(tm);
+                    break;
+                }
+            }
+            if (http2) {
+                // @formatter:off
+                builder.applicationProtocolConfig(new ApplicationProtocolConfig(
+                        ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                        ApplicationProtocolNames.HTTP_2,
+                        ApplicationProtocolNames.HTTP_1_1));
+                // @formatter:on
+            }
+            try {
+                sslContext = builder.build();
+            } catch (SSLException e) {
+                throw new KeyManagementException(e);
+            }
+        }
+        
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return getSslContext().newEngine(ByteBufAllocator.DEFAULT);
+        }
+        
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return getSslContext().newEngine(ByteBufAllocator.DEFAULT, host, port);
+        }
+        
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return getSslContext().sessionContext();
+        }
+        
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            throw new UnsupportedOperationException("OpenSSL contexts from " + NAME + " are only for servers");
+        }
+        
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            throw new UnsupportedOperationException("OpenSSL contexts from " + NAME + " only provide SSL engines");
+        }
+        
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            throw new UnsupportedOperationException("OpenSSL contexts from " + NAME + " only provide SSL engines");
+        }
+        
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return engineCreateSSLEngine().getSSLParameters();
+        }
+        
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            SSLEngine engine = engineCreateSSLEngine();
+            SSLParameters parameters = engine.getSSLParameters();
+            parameters.setCipherSuites(engine.getSupportedCipherSuites());
+            parameters.setProtocols(engine.getSupportedProtocols());
+            return parameters;
+        }
+        
+        private SslContext getSslContext() {
+            if (sslContext == null) {
+                throw new IllegalStateException("The SSL context has not been initialized");
+            }
+            return sslContext;
+        }
+    }
+}
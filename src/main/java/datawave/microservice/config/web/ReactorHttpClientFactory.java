@@ -0,0 +1,313 @@
+package datawave.microservice.config.web;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.codahale.metrics.MetricRegistry;
+
+import datawave.microservice.config.web.WebClientProperties.LeasingStrategy;
+import datawave.microservice.config.web.WebClientProperties.TimeoutProperties;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import reactor.core.publisher.Mono;
+import reactor.netty.NettyPipeline;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Creates the Reactor Netty {@link HttpClient} instances used by the WebClients that this starter builds. Every client shares a single named
+ * {@link ConnectionProvider}, configured by {@link WebClientProperties}, and is given the timeouts configured for its name. When HTTP/2 is enabled, clients
+ * negotiate h2 via ALPN so that their requests to a host are multiplexed over a few connections.
+ * <p>
+ * When metrics are enabled, each call made through a connector from this factory is recorded (see {@link HttpClientMetrics}) under
+ * {@link #REQUEST_METRIC_PREFIX}: it is timed (until its response headers are received) by target host and URI template, its response is counted by status
+ * class, and the time until a connection was ready to send it (i.e., waiting for a pooled connection, or connecting to the host) is timed by target host. The
+ * URI template is only known to a WebClient that has the {@link #createMetricsFilter() metrics filter}; other calls are timed by their path.
+ */
+public class ReactorHttpClientFactory implements DisposableBean {
+    public static final String SERVER_USER_DETAILS_CLIENT = "serverUserDetails";
+    public static final String AUTHORIZATION_CLIENT = "authorization";
+    
+    public static final String REQUEST_METRIC_PREFIX = "webClient";
+    
+    private static final String TLS_SESSION_RECORDER = "datawave.tlsSessionRecorder";
+    // the request attribute that WebClient stores the URI template in
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+    private static final String URI_TEMPLATE_CONTEXT_KEY = ReactorHttpClientFactory.class.getName() + ".uriTemplate";
+    private static final String CONNECTION_ACQUIRE_CONTEXT_KEY = ReactorHttpClientFactory.class.getName() + ".connectionAcquire";
+    
+    private final WebClientProperties webClientProperties;
+    private final SslContext sslContext;
+    private final SslContext http2SslContext;
+    private final boolean wiretap;
+    private final TlsSessionMetrics tlsSessionMetrics;
+    private final HttpClientMetrics httpClientMetrics;
+    private volatile ConnectionProvider connectionProvider;
+    
+    /**
+     * @param webClientProperties
+     *            the connection pool and timeout configuration
+     * @param sslContext
+     *            the outbound SSL context, or null if outbound SSL is disabled
+     * @param wiretap
+     *            whether to enable wiretap logging on the HTTP clients
+     */
+    public ReactorHttpClientFactory(WebClientProperties webClientProperties, SslContext sslContext, boolean wiretap) {
+        this(webClientProperties, sslContext, null, wiretap);
+    }
+    
+    /**
+     * @param webClientProperties
+     *            the connection pool and timeout configuration
+     * @param sslContext
+     *            the outbound SSL context, or null if outbound SSL is disabled
+     * @param http2SslContext
+     *            the outbound SSL context that offers HTTP/2 via ALPN, or null if HTTP/2 is disabled
+     * @param wiretap
+     *            whether to enable wiretap logging on the HTTP clients
+     */
+    public ReactorHttpClientFactory(WebClientProperties webClientProperties, SslContext sslContext, SslContext http2SslContext, boolean wiretap) {
+        this(webClientProperties, sslContext, http2SslContext, wiretap, null);
+    }
+    
+    /**
+     * @param webClientProperties
+     *            the connection pool and timeout configuration
+     * @param sslContext
+     *            the outbound SSL context, or null if outbound SSL is disabled
+     * @param http2SslContext
+     *            the outbound SSL context that offers HTTP/2 via ALPN, or null if HTTP/2 is disabled
+     * @param wiretap
+     *            whether to enable wiretap logging on the HTTP clients
+     * @param metricRegistry
+     *            the registry to publish TLS session resumption and request metrics to, or null to skip them
+     */
+    public ReactorHttpClientFactory(WebClientProperties webClientProperties, SslContext sslContext, SslContext http2SslContext, boolean wiretap,
+                    MetricRegistry metricRegistry) {
+        this.webClientProperties = webClientProperties;
+        this.sslContext = sslContext;
+        this.http2SslContext = http2SslContext;
+        this.wiretap = wiretap;
+        this.tlsSessionMetrics = (metricRegistry != null) ? new TlsSessionMetrics(metricRegistry, "netty") : null;
+        this.httpClientMetrics = (metricRegistry != null && webClientProperties.isMetricsEnabled())
+                        ? new HttpClientMetrics(metricRegistry, REQUEST_METRIC_PREFIX, webClientProperties.getMetricsMaxEndpoints(),
+                                        webClientProperties.getMetricsMaxHosts())
+                        : null;
+    }
+    
+    public ClientHttpConnector createClientHttpConnector(String clientName) {
+        ClientHttpConnector connector = new ReactorClientHttpConnector(createHttpClient(clientName));
+        return (httpClientMetrics != null) ? new TimedClientHttpConnector(connector) : connector;
+    }
+    
+    /**
+     * Creates a filter that passes the URI template of each request made by a WebClient to the client connector, so that the request is timed by its template
+     * rather than its path.
+     *
+     * @return the filter, or null if metrics are disabled
+     */
+    public ExchangeFilterFunction createMetricsFilter() {
+        if (httpClientMetrics == null) {
+            return null;
+        }
+        return (request, next) -> {
+            Object uriTemplate = request.attribute(URI_TEMPLATE_ATTRIBUTE).orElse(null);
+            if (uriTemplate == null) {
+                return next.exchange(request);
+            }
+            // the template is paired with the URI it was expanded to, so that it isn't applied to other calls made in the same context (only the path is
+            // compared, since the host may be changed by a filter that runs later)
+            return next.exchange(request).contextWrite(context -> context.put(URI_TEMPLATE_CONTEXT_KEY,
+                            new SimpleImmutableEntry<>(request.url(), uriTemplate.toString())));
+        };
+    }
+    
+    /**
+     * Creates an HTTP client that uses the shared connection provider.
+     *
+     * @param clientName
+     *            the name of the client whose timeouts should be used, or null for the default timeouts
+     * @return the HTTP client
+     */
+    public HttpClient createHttpClient(String clientName) {
+        HttpClient httpClient = HttpClient.create(getConnectionProvider()).wiretap(wiretap);
+        if (webClientProperties.isHttp2Enabled() && http2SslContext != null) {
+            // h2 is only negotiated over TLS, so plain http requests still use HTTP/1.1
+            // @formatter:off
+            httpClient = httpClient
+                    .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure(sslContextSpec -> sslContextSpec.sslContext(http2SslContext));
+            // @formatter:on
+        } else if (sslContext != null) {
+            httpClient = httpClient.secure(sslContextSpec -> sslContextSpec.sslContext(sslContext));
+        }
+        if (tlsSessionMetrics != null) {
+            // the recorder must sit beside the SSL handler, since the handlers at the end of the pipeline don't pass the handshake event along
+            httpClient = httpClient.doOnChannelInit((observer, channel, remoteAddress) -> {
+                if (channel.pipeline().get(NettyPipeline.SslHandler) != null) {
+                    channel.pipeline().addAfter(NettyPipeline.SslHandler, TLS_SESSION_RECORDER, new TlsSessionRecorder());
+                }
+            });
+        }
+        if (httpClientMetrics != null) {
+            // the request is about to be sent, so a connection has been acquired
+            httpClient = httpClient.doOnRequest((request, connection) -> {
+                ConnectionAcquireTiming timing = request.currentContextView().getOrDefault(CONNECTION_ACQUIRE_CONTEXT_KEY, null);
+                // a redirected request is sent again, but only the wait for its first connection is timed
+                if (timing != null && timing.recorded.compareAndSet(false, true)) {
+                    httpClientMetrics.recordConnectionAcquire(timing.host, System.nanoTime() - timing.startNanos);
+                }
+            });
+        }
+        return applyTimeouts(httpClient, webClientProperties.getTimeouts(clientName));
+    }
+    
+    private static class ConnectionAcquireTiming {
+        private final String host;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        
+        ConnectionAcquireTiming(String host) {
+            this.host = host;
+        }
+    }
+    
+    /**
+     * Records each call made through a connector. Calls that are cancelled before their response arrives are not recorded.
+     */
+    private class TimedClientHttpConnector implements ClientHttpConnector {
+        private final ClientHttpConnector delegate;
+        
+        TimedClientHttpConnector(ClientHttpConnector delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri, Function<? super ClientHttpRequest,Mono<Void>> requestCallback) {
+            return Mono.deferContextual(context -> {
+                Map.Entry<URI,String> expanded = context.getOrDefault(URI_TEMPLATE_CONTEXT_KEY, null);
+                String uriTemplate = (expanded != null && Objects.equals(expanded.getKey().getRawPath(), uri.getRawPath())) ? expanded.getValue() : null;
+                ConnectionAcquireTiming timing = new ConnectionAcquireTiming(HttpClientMetrics.getHost(uri));
+                // @formatter:off
+                return delegate.connect(method, uri, requestCallback)
+                        .doOnSuccess(response -> httpClientMetrics.recordRequest(uri, method.name(), uriTemplate,
+                                (response != null) ? response.getRawStatusCode() : -1, System.nanoTime() - timing.startNanos))
+                        .doOnError(e -> httpClientMetrics.recordRequest(uri, method.name(), uriTemplate, -1, System.nanoTime() - timing.startNanos))
+                        .contextWrite(ctx -> ctx.put(CONNECTION_ACQUIRE_CONTEXT_KEY, timing));
+                // @formatter:on
+            });
+        }
+    }
+    
+    /**
+     * Records whether the TLS handshake on a new connection resumed a cached session.
+     */
+    private class TlsSessionRecorder extends ChannelInboundHandlerAdapter {
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof SslHandshakeCompletionEvent && ((SslHandshakeCompletionEvent) evt).isSuccess()) {
+                SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+                if (sslHandler != null) {
+                    tlsSessionMetrics.recordHandshake(sslHandler.engine().getSession());
+                }
+                ctx.pipeline().remove(this);
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+    
+    public ConnectionProvider getConnectionProvider() {
+        if (connectionProvider == null) {
+            synchronized (this) {
+                if (connectionProvider == null) {
+                    connectionProvider = createConnectionProvider(webClientProperties);
+                }
+            }
+        }
+        return connectionProvider;
+    }
+    
+    private static ConnectionProvider createConnectionProvider(WebClientProperties properties) {
+        // @formatter:off
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(properties.getPoolName())
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(properties.getPendingAcquireTimeoutMillis()));
+        // @formatter:on
+        if (properties.getMaxIdleTimeMillis() > 0) {
+            builder.maxIdleTime(Duration.ofMillis(properties.getMaxIdleTimeMillis()));
+        }
+        if (properties.getMaxLifeTimeMillis() > 0) {
+            builder.maxLifeTime(Duration.ofMillis(properties.getMaxLifeTimeMillis()));
+        }
+        if (properties.getEvictionIntervalMillis() > 0) {
+            builder.evictInBackground(Duration.ofMillis(properties.getEvictionIntervalMillis()));
+        }
+        if (properties.getLeasingStrategy() == LeasingStrategy.LIFO) {
+            builder.lifo();
+        } else {
+            builder.fifo();
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Applies timeouts to an HTTP client. A timeout of 0 leaves the client's default in place.
+     *
+     * @param httpClient
+     *            the HTTP client
+     * @param timeouts
+     *            the timeouts to apply
+     * @return the HTTP client with the timeouts applied
+     */
+    public static HttpClient applyTimeouts(HttpClient httpClient, TimeoutProperties timeouts) {
+        if (timeouts.getConnectTimeoutMillis() > 0) {
+            httpClient = httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeouts.getConnectTimeoutMillis());
+        }
+        if (timeouts.getResponseTimeoutMillis() > 0) {
+            httpClient = httpClient.responseTimeout(Duration.ofMillis(timeouts.getResponseTimeoutMillis()));
+        }
+        long readTimeoutMillis = timeouts.getReadTimeoutMillis();
+        long writeTimeoutMillis = timeouts.getWriteTimeoutMillis();
+        if (readTimeoutMillis > 0 || writeTimeoutMillis > 0) {
+            httpClient = httpClient.doOnConnected(connection -> {
+                if (readTimeoutMillis > 0) {
+                    connection.addHandlerLast(new ReadTimeoutHandler(readTimeoutMillis, TimeUnit.MILLISECONDS));
+                }
+                if (writeTimeoutMillis > 0) {
+                    connection.addHandlerLast(new WriteTimeoutHandler(writeTimeoutMillis, TimeUnit.MILLISECONDS));
+                }
+            });
+        }
+        return httpClient;
+    }
+    
+    @Override
+    public void destroy() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package datawave.microservice.config.web;
+
+/**
+ * Thrown by {@link RequestDeadlines#checkDeadline()} when the deadline supplied by the caller of the current request has passed. The inbound filters turn it
+ * into a 504 (Gateway Timeout) response.
+ */
+public class RequestDeadlineExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public RequestDeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,47 @@
+package datawave.microservice.config.web;
+
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_NS_ATTRIBUTE;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Customizes the Spring-provided {@link WebClient.Builder} so that requests made while handling a request with a deadline forward the remaining time in the
+ * {@link Constants#REQUEST_DEADLINE_HEADER} header. The deadline is taken from the Reactor context of a reactive request, or else from the servlet request
+ * being handled by the thread that subscribed to the call. Requests that already have the header are sent unchanged.
+ */
+@Component
+@ConditionalOnWebApplication
+@ConditionalOnClass(WebClient.class)
+public class RequestDeadlineWebClientCustomizer implements WebClientCustomizer {
+    
+    @Override
+    public void customize(WebClient.Builder webClientBuilder) {
+        webClientBuilder.filter(RequestDeadlineWebClientCustomizer::forwardDeadline);
+    }
+    
+    private static Mono<ClientResponse> forwardDeadline(ClientRequest request, ExchangeFunction next) {
+        if (request.headers().containsKey(REQUEST_DEADLINE_HEADER)) {
+            return next.exchange(request);
+        }
+        // read here, since the exchange may continue on another thread
+        Long threadDeadlineNanos = RequestDeadlines.getCurrentDeadlineNanos();
+        return Mono.deferContextual(context -> {
+            Long deadlineNanos = context.getOrDefault(REQUEST_DEADLINE_NS_ATTRIBUTE, threadDeadlineNanos);
+            if (deadlineNanos == null) {
+                return next.exchange(request);
+            }
+            String remainingMillis = Long.toString(RequestDeadlines.getRemainingMillis(deadlineNanos));
+            return next.exchange(ClientRequest.from(request).header(REQUEST_DEADLINE_HEADER, remainingMillis).build());
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package datawave.microservice.config.web;
+
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_ENFORCED_ATTRIBUTE;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_NS_ATTRIBUTE;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Helpers for working with the deadline a caller supplies in the {@link Constants#REQUEST_DEADLINE_HEADER} header. The inbound filters convert the header into
+ * a {@link System#nanoTime()} deadline stored as the {@link Constants#REQUEST_DEADLINE_NS_ATTRIBUTE} attribute, and outbound calls send the time remaining
+ * until that deadline.
+ * <p>
+ * Long-running handlers can call {@link #checkDeadline()} between units of work, so that they stop at a point of their choosing once the deadline passes. The
+ * check only applies when the inbound filter enforces deadlines (see {@link DatawaveServerProperties#isCancelExpiredRequests()}); otherwise the deadline is
+ * just forwarded.
+ */
+public final class RequestDeadlines {
+    private RequestDeadlines() {}
+    
+    /**
+     * Parses the value of a {@link Constants#REQUEST_DEADLINE_HEADER} header.
+     *
+     * @param headerValue
+     *            the header value
+     * @return the remaining time in milliseconds (never negative), or null if the header is missing or malformed
+     */
+    public static Long parseRemainingMillis(String headerValue) {
+        if (headerValue == null) {
+            return null;
+        }
+        try {
+            return Math.max(0L, Long.parseLong(headerValue.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    public static long getDeadlineNanos(long startTimeNanos, long remainingMillis) {
+        return startTimeNanos + TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+    }
+    
+    public static long getRemainingMillis(long deadlineNanos) {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+    
+    /**
+     * Gets the deadline of the servlet request being handled by the current thread.
+     *
+     * @return the deadline as a {@link System#nanoTime()} value, or null if there is no current request or it has no deadline
+     */
+    public static Long getCurrentDeadlineNanos() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object deadline = (attributes != null) ? attributes.getAttribute(REQUEST_DEADLINE_NS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
+        return (deadline instanceof Long) ? (Long) deadline : null;
+    }
+    
+    /**
+     * Checks whether the deadline of the servlet request being handled by the current thread has passed.
+     *
+     * @return true if the request has an enforced deadline and it has passed
+     */
+    public static boolean isCurrentDeadlinePassed() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(attributes.getAttribute(REQUEST_DEADLINE_ENFORCED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+            return false;
+        }
+        Long deadlineNanos = getCurrentDeadlineNanos();
+        return deadlineNanos != null && deadlineNanos - System.nanoTime() <= 0;
+    }
+    
+    /**
+     * Stops the handling of the current servlet request if its deadline has passed. The resulting exception is turned into a 504 (Gateway Timeout) response.
+     *
+     * @throws RequestDeadlineExceededException
+     *             if the request has an enforced deadline and it has passed
+     */
+    public static void checkDeadline() {
+        if (isCurrentDeadlinePassed()) {
+            throw new RequestDeadlineExceededException("The request deadline has passed.");
+        }
+    }
+}
@@ -1,13 +1,50 @@
 package datawave.microservice.config.web;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @EnableConfigurationProperties(RestClientProperties.class)
 @ConfigurationProperties(prefix = "restclient", ignoreInvalidFields = true)
 public class RestClientProperties {
-    private int maxConnectionsTotal = 20;
-    private int maxConnectionsPerRoute = 20;
+    // the connection limits of the pool for each outbound SSL identity, which is shared by every customized RestTemplate in the JVM (rather than limiting a
+    // single template, as they did when each template had its own pool), so they are sized for all of the templates together
+    private int maxConnectionsTotal = 200;
+    private int maxConnectionsPerRoute = 100;
+    
+    // how long to wait for a connection to be established (0 is no timeout)
+    private long connectTimeout = TimeUnit.SECONDS.toMillis(10);
+    private TimeUnit connectTimeoutUnit = TimeUnit.MILLISECONDS;
+    
+    // how long to wait for data on an established connection (0 is no timeout)
+    private long socketTimeout = 0;
+    private TimeUnit socketTimeoutUnit = TimeUnit.MILLISECONDS;
+    
+    // how long to wait for a connection to be leased from the shared pool (0 is no timeout)
+    private long connectionRequestTimeout = 0;
+    private TimeUnit connectionRequestTimeoutUnit = TimeUnit.MILLISECONDS;
+    
+    // connections that are idle for longer than this are closed in the background (0 disables idle eviction)
+    private long maxIdleTime = TimeUnit.SECONDS.toMillis(30);
+    private TimeUnit maxIdleTimeUnit = TimeUnit.MILLISECONDS;
+    
+    // how long a connection may be kept alive when the server doesn't say (0 keeps it alive indefinitely)
+    private long keepAlive = TimeUnit.SECONDS.toMillis(30);
+    private TimeUnit keepAliveUnit = TimeUnit.MILLISECONDS;
+    
+    // pooled connections that have been idle for longer than this are checked before they are reused (0 disables the check)
+    private long validateAfterInactivity = TimeUnit.SECONDS.toMillis(2);
+    private TimeUnit validateAfterInactivityUnit = TimeUnit.MILLISECONDS;
+    
+    // when true, the lease counts of the connection pools and the timings of the calls made are published to the metric registry
+    private boolean metricsEnabled = true;
+    
+    // the maximum number of distinct endpoints (host, method and URI template) that calls are timed for
+    private int metricsMaxEndpoints = 200;
+    
+    // the maximum number of distinct target hosts that responses and connection waits are recorded for
+    private int metricsMaxHosts = 50;
     
     public int getMaxConnectionsTotal() {
         return maxConnectionsTotal;
@@ -24,4 +61,148 @@ public class RestClientProperties {
     public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
         this.maxConnectionsPerRoute = maxConnectionsPerRoute;
     }
+    
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+    
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutUnit.toMillis(connectTimeout);
+    }
+    
+    public void setConnectTimeout(long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    
+    public TimeUnit getConnectTimeoutUnit() {
+        return connectTimeoutUnit;
+    }
+    
+    public void setConnectTimeoutUnit(TimeUnit connectTimeoutUnit) {
+        this.connectTimeoutUnit = connectTimeoutUnit;
+    }
+    
+    public long getSocketTimeout() {
+        return socketTimeout;
+    }
+    
+    public long getSocketTimeoutMillis() {
+        return socketTimeoutUnit.toMillis(socketTimeout);
+    }
+    
+    public void setSocketTimeout(long socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+    
+    public TimeUnit getSocketTimeoutUnit() {
+        return socketTimeoutUnit;
+    }
+    
+    public void setSocketTimeoutUnit(TimeUnit socketTimeoutUnit) {
+        this.socketTimeoutUnit = socketTimeoutUnit;
+    }
+    
+    public long getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+    
+    public long getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutUnit.toMillis(connectionRequestTimeout);
+    }
+    
+    public void setConnectionRequestTimeout(long connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+    
+    public TimeUnit getConnectionRequestTimeoutUnit() {
+        return connectionRequestTimeoutUnit;
+    }
+    
+    public void setConnectionRequestTimeoutUnit(TimeUnit connectionRequestTimeoutUnit) {
+        this.connectionRequestTimeoutUnit = connectionRequestTimeoutUnit;
+    }
+    
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+    
+    public long getMaxIdleTimeMillis() {
+        return maxIdleTimeUnit.toMillis(maxIdleTime);
+    }
+    
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+    
+    public TimeUnit getMaxIdleTimeUnit() {
+        return maxIdleTimeUnit;
+    }
+    
+    public void setMaxIdleTimeUnit(TimeUnit maxIdleTimeUnit) {
+        this.maxIdleTimeUnit = maxIdleTimeUnit;
+    }
+    
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+    
+    public long getKeepAliveMillis() {
+        return keepAliveUnit.toMillis(keepAlive);
+    }
+    
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+    
+    public TimeUnit getKeepAliveUnit() {
+        return keepAliveUnit;
+    }
+    
+    public void setKeepAliveUnit(TimeUnit keepAliveUnit) {
+        this.keepAliveUnit = keepAliveUnit;
+    }
+    
+    public long getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+    
+    public long getValidateAfterInactivityMillis() {
+        return validateAfterInactivityUnit.toMillis(validateAfterInactivity);
+    }
+    
+    public void setValidateAfterInactivity(long validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+    
+    public TimeUnit getValidateAfterInactivityUnit() {
+        return validateAfterInactivityUnit;
+    }
+    
+    public void setValidateAfterInactivityUnit(TimeUnit validateAfterInactivityUnit) {
+        this.validateAfterInactivityUnit = validateAfterInactivityUnit;
+    }
+    
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+    
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+    
+    public int getMetricsMaxEndpoints() {
+        return metricsMaxEndpoints;
+    }
+    
+    public void setMetricsMaxEndpoints(int metricsMaxEndpoints) {
+        this.metricsMaxEndpoints = metricsMaxEndpoints;
+    }
+    
+    public int getMetricsMaxHosts() {
+        return metricsMaxHosts;
+    }
+    
+    public void setMetricsMaxHosts(int metricsMaxHosts) {
+        this.metricsMaxHosts = metricsMaxHosts;
+    }
 }
@@ -2,7 +2,7 @@ package datawave.microservice.config.web;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.net.URL;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
@@ -16,7 +16,11 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
@@ -26,6 +30,8 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
@@ -33,17 +39,22 @@ import javax.net.ssl.TrustManagerFactorySpi;
 import javax.net.ssl.X509ExtendedKeyManager;
 import javax.net.ssl.X509ExtendedTrustManager;
 import javax.net.ssl.X509TrustManager;
+import javax.security.auth.x500.X500Principal;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.util.ResourceUtils;
 
 import com.google.common.base.Preconditions;
 
 import datawave.microservice.config.web.DatawaveServerProperties.OutboundSsl;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslProvider;
@@ -51,45 +62,195 @@ import io.netty.util.concurrent.FastThreadLocal;
 
 /**
  * Provides an {@link SSLContext} (JDK) or an {@link SslContext} (Netty) for use in the application.
+ * <p>
+ * Every SSL context shares a single key manager and trust manager, which are built from the keystores held by the {@link KeyStoreCache}. When the cache
+ * reloads a keystore or truststore, new managers are built and swapped in, so new connections use the new key material without restarting the application.
  */
 @Configuration
 @ConditionalOnWebApplication
 @ConditionalOnProperty(name = "server.outbound-ssl.enabled", matchIfMissing = true)
-public class SslContextConfig {
+public class SslContextConfig implements DisposableBean {
+    private static final String CLIENT_SESSION_TICKETS_PROPERTY = "jdk.tls.client.enableSessionTicketExtension";
+    
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    private final OutboundSsl ssl;
+    private final KeyStoreCache keyStoreCache;
+    private final CrlRevocationChecker revocationChecker;
+    private ReloadingKeyManager keyManager;
+    private ReloadingTrustManager trustManager;
+    private final List<SSLSessionContext> sessionContexts = new CopyOnWriteArrayList<>();
+    
+    public SslContextConfig(DatawaveServerProperties serverProperties, KeyStoreCache keyStoreCache) {
+        this.ssl = serverProperties.getOutboundSsl();
+        this.keyStoreCache = keyStoreCache;
+        // the CRLs must be signed by certificates from the outbound truststore
+        this.revocationChecker = ssl.isCrlCheckingEnabled()
+                        ? new CrlRevocationChecker(ssl.getCrlFiles(), ssl.getCrlDirectory(), ssl.getCrlRefreshIntervalMillis(), ssl.isCrlFailIfStale(),
+                                        this::getTrustedIssuers)
+                        : null;
+        if (revocationChecker != null) {
+            // sessions established with a certificate that has since been revoked must not be resumed
+            revocationChecker.addReloadListener(() -> sessionContexts.forEach(SslContextConfig::invalidateSessions));
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        if (revocationChecker != null) {
+            revocationChecker.shutdown();
+        }
+    }
     
     @Bean
     @Qualifier("outboundJDKSslContext")
-    public SSLContext sslContext(DatawaveServerProperties serverProperties) throws NoSuchAlgorithmException, KeyManagementException {
-        final OutboundSsl ssl = serverProperties.getOutboundSsl();
+    public SSLContext sslContext() throws NoSuchAlgorithmException, KeyManagementException {
+        configureSessionTickets();
         SSLContext sslContext = SSLContext.getInstance(ssl.getProtocol());
-        sslContext.init(getKeyManagers(ssl), getTrustManagers(ssl), null);
+        sslContext.init(new KeyManager[] {getKeyManager()}, new TrustManager[] {getTrustManager()}, null);
+        if (ssl.getSessionCacheSize() > 0)
+            sslContext.getClientSessionContext().setSessionCacheSize(ssl.getSessionCacheSize());
+        if (ssl.getSessionTimeoutSeconds() > 0)
+            sslContext.getClientSessionContext().setSessionTimeout((int) ssl.getSessionTimeoutSeconds());
+        sessionContexts.add(sslContext.getClientSessionContext());
         return sslContext;
     }
     
     @Bean
     @Qualifier("outboundNettySslContext")
-    public SslContext nettySslContext(DatawaveServerProperties serverProperties) throws SSLException {
-        final OutboundSsl ssl = serverProperties.getOutboundSsl();
+    public SslContext nettySslContext() throws SSLException {
+        return withSessionContext(nettySslContextBuilder().build());
+    }
+    
+    /**
+     * Provides a Netty {@link SslContext} that offers HTTP/2 (falling back to HTTP/1.1) via ALPN. This is kept separate from the
+     * {@link #nettySslContext() outboundNettySslContext}, since a client that only speaks HTTP/1.1 must not advertise h2.
+     *
+     * @return the HTTP/2 capable SSL context
+     * @throws SSLException
+     *             if the SSL context can't be built
+     */
+    @Bean
+    @Qualifier("outboundNettyHttp2SslContext")
+    @ConditionalOnProperty(name = "webclient.http2-enabled", havingValue = "true")
+    public SslContext nettyHttp2SslContext() throws SSLException {
+        // @formatter:off
+        return withSessionContext(nettySslContextBuilder()
+            .applicationProtocolConfig(new ApplicationProtocolConfig(
+                    ApplicationProtocolConfig.Protocol.ALPN,
+                    ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                    ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2,
+                    ApplicationProtocolNames.HTTP_1_1))
+            .build());
+        // @formatter:on
+    }
+    
+    private SslContext withSessionContext(SslContext sslContext) {
+        sessionContexts.add(sslContext.sessionContext());
+        return sslContext;
+    }
+    
+    private SslContextBuilder nettySslContextBuilder() {
+        configureSessionTickets();
         // @formatter:off
         SslContextBuilder builder = SslContextBuilder.forClient()
             .sslProvider(SslProvider.OPENSSL)
-            .trustManager(getTrustManagerFactory(ssl))
-            .keyManager(getKeyManagerFactory(ssl));
+            .trustManager(getTrustManager())
+            .keyManager(getKeyManager());
         // @formatter:on
         if (ssl.getCiphers() != null)
             builder.ciphers(Arrays.asList(ssl.getCiphers()));
         if (ssl.getEnabledProtocols() != null)
             builder.protocols(ssl.getEnabledProtocols());
-        return builder.build();
+        if (ssl.getSessionCacheSize() > 0)
+            builder.sessionCacheSize(ssl.getSessionCacheSize());
+        if (ssl.getSessionTimeoutSeconds() > 0)
+            builder.sessionTimeout(ssl.getSessionTimeoutSeconds());
+        return builder;
+    }
+    
+    /**
+     * Both the JDK and Netty's OpenSSL provider decide whether clients use session tickets from the "jdk.tls.client.enableSessionTicketExtension" system
+     * property, which they read once. That property applies to every TLS client in the JVM, so it is left alone unless session tickets are explicitly
+     * configured, and a value given on the command line always wins.
+     */
+    private void configureSessionTickets() {
+        if (ssl.getSessionTicketsEnabled() == null) {
+            return;
+        }
+        String current = System.getProperty(CLIENT_SESSION_TICKETS_PROPERTY);
+        if (current == null) {
+            log.info("Setting {}={} for every TLS client in the JVM", CLIENT_SESSION_TICKETS_PROPERTY, ssl.getSessionTicketsEnabled());
+            System.setProperty(CLIENT_SESSION_TICKETS_PROPERTY, ssl.getSessionTicketsEnabled().toString());
+        } else if (!current.equalsIgnoreCase(ssl.getSessionTicketsEnabled().toString())) {
+            log.warn("Ignoring server.outbound-ssl.session-tickets-enabled={}, since {}={} was already set", ssl.getSessionTicketsEnabled(),
+                            CLIENT_SESSION_TICKETS_PROPERTY, current);
+        }
+    }
+    
+    private synchronized ReloadingKeyManager getKeyManager() {
+        if (keyManager == null) {
+            keyManager = new ReloadingKeyManager(createKeyManager());
+            trustManager = new ReloadingTrustManager(createTrustManager());
+            keyStoreCache.addReloadListener(location -> reloadManagers());
+        }
+        return keyManager;
+    }
+    
+    synchronized X509ExtendedTrustManager getTrustManager() {
+        getKeyManager();
+        return trustManager;
+    }
+    
+    private void reloadManagers() {
+        try {
+            X509ExtendedKeyManager newKeyManager = createKeyManager();
+            X509ExtendedTrustManager newTrustManager = createTrustManager();
+            keyManager.setDelegate(newKeyManager);
+            trustManager.setDelegate(newTrustManager);
+            if (revocationChecker != null) {
+                // the CRL signatures are checked again against the reloaded truststore
+                revocationChecker.reload();
+            }
+            // cached sessions would otherwise be resumed with the identity and trust decisions made before the reload
+            sessionContexts.forEach(SslContextConfig::invalidateSessions);
+            log.info("Reloaded outbound SSL key and trust managers");
+        } catch (RuntimeException e) {
+            log.warn("Unable to reload outbound SSL key and trust managers, continuing to use the previous ones.", e);
+        }
+    }
+    
+    private static void invalidateSessions(SSLSessionContext sessionContext) {
+        for (byte[] id : Collections.list(sessionContext.getIds())) {
+            SSLSession session = sessionContext.getSession(id);
+            if (session != null) {
+                session.invalidate();
+            }
+        }
     }
     
-    private KeyManager[] getKeyManagers(OutboundSsl ssl) {
-        return getKeyManagerFactory(ssl).getKeyManagers();
+    private X509ExtendedKeyManager createKeyManager() {
+        for (KeyManager km : getKeyManagerFactory().getKeyManagers()) {
+            if (km instanceof X509ExtendedKeyManager) {
+                return (X509ExtendedKeyManager) km;
+            }
+        }
+        throw new IllegalStateException("No X509ExtendedKeyManager available for keystore " + ssl.getKeyStore());
+    }
+    
+    private X509ExtendedTrustManager createTrustManager() {
+        for (TrustManager tm : getTrustManagerFactory().getTrustManagers()) {
+            if (tm instanceof X509ExtendedTrustManager) {
+                return (X509ExtendedTrustManager) tm;
+            }
+        }
+        throw new IllegalStateException("No X509ExtendedTrustManager available for truststore " + ssl.getTrustStore());
     }
     
-    private KeyManagerFactory getKeyManagerFactory(OutboundSsl ssl) {
+    private KeyManagerFactory getKeyManagerFactory() {
         try {
-            KeyStore keyStore = getKeyStore(ssl);
+            KeyStore keyStore = getKeyStore();
             
             // Get key manager to provide client credentials.
             KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
@@ -104,30 +265,23 @@ public class SslContextConfig {
         }
     }
     
-    private KeyStore getKeyStore(OutboundSsl ssl) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
-        String keyStoreType = ssl.getKeyStoreType();
-        if (keyStoreType == null) {
-            keyStoreType = "JKS";
-        }
-        KeyStore keyStore = KeyStore.getInstance(keyStoreType);
-        URL url = ResourceUtils.getURL(ssl.getKeyStore());
-        keyStore.load(url.openStream(), ssl.getKeyStorePassword().toCharArray());
-        return keyStore;
-    }
-    
-    private TrustManager[] getTrustManagers(OutboundSsl ssl) {
-        TrustManagerFactory tmf = getTrustManagerFactory(ssl);
-        return tmf == null ? null : tmf.getTrustManagers();
+    private KeyStore getKeyStore() throws IOException, GeneralSecurityException {
+        return keyStoreCache.getKeyStore(ssl.getKeyStore(), ssl.getKeyStoreType(), ssl.getKeyStorePassword());
     }
     
-    private TrustManagerFactory getTrustManagerFactory(OutboundSsl ssl) {
+    private TrustManagerFactory getTrustManagerFactory() {
         try {
-            KeyStore trustStore = getTrustStore(ssl);
-            KeyStore keyStore = getKeyStore(ssl);
+            KeyStore trustStore = getTrustStore();
+            KeyStore keyStore = getKeyStore();
             
             X509Certificate trustedCertificate = getTrustedCertificate(ssl.getKeyAlias(), keyStore);
             
-            TrustManagerFactory trustManagerFactory = new DatawaveTrustMangerFactory(TrustManagerFactory.getDefaultAlgorithm(), trustedCertificate);
+            // a new cache is created whenever the trust material is (re)loaded, so chains verified against old material are never reused
+            VerifiedChainCache verifiedChains = (ssl.getVerifiedChainCacheSize() > 0)
+                            ? new VerifiedChainCache(ssl.getVerifiedChainCacheSize(), ssl.getVerifiedChainCacheTtlMillis())
+                            : null;
+            TrustManagerFactory trustManagerFactory = new DatawaveTrustMangerFactory(TrustManagerFactory.getDefaultAlgorithm(), trustedCertificate,
+                            verifiedChains, revocationChecker);
             trustManagerFactory.init(trustStore);
             return trustManagerFactory;
         } catch (Exception e) {
@@ -135,19 +289,20 @@ public class SslContextConfig {
         }
     }
     
-    private KeyStore getTrustStore(OutboundSsl ssl) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
-        String trustStoreType = ssl.getTrustStoreType();
-        if (trustStoreType == null) {
-            trustStoreType = "JKS";
-        }
+    private KeyStore getTrustStore() throws IOException, GeneralSecurityException {
         String trustStoreURL = ssl.getTrustStore();
         if (trustStoreURL == null) {
             return null;
         }
-        KeyStore trustStore = KeyStore.getInstance(trustStoreType);
-        URL url = ResourceUtils.getURL(trustStoreURL);
-        trustStore.load(url.openStream(), ssl.getTrustStorePassword().toCharArray());
-        return trustStore;
+        return keyStoreCache.getKeyStore(trustStoreURL, ssl.getTrustStoreType(), ssl.getTrustStorePassword());
+    }
+    
+    private Collection<X509Certificate> getTrustedIssuers() {
+        try {
+            return CrlRevocationChecker.getCertificates(getTrustStore());
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to load truststore " + ssl.getTrustStore(), e);
+        }
     }
     
     private X509Certificate getTrustedCertificate(String alias, KeyStore keyStore) throws KeyStoreException {
@@ -181,9 +336,10 @@ public class SslContextConfig {
             }
         };
         
-        public DatawaveTrustMangerFactory(String algorithm, X509Certificate trustedCertificate) throws NoSuchAlgorithmException {
+        public DatawaveTrustMangerFactory(String algorithm, X509Certificate trustedCertificate, VerifiedChainCache verifiedChains,
+                        CrlRevocationChecker revocationChecker) throws NoSuchAlgorithmException {
             super(CURRENT_SPI.get(), PROVIDER, algorithm);
-            CURRENT_SPI.get().init(TrustManagerFactory.getInstance(algorithm), trustedCertificate);
+            CURRENT_SPI.get().init(TrustManagerFactory.getInstance(algorithm), trustedCertificate, verifiedChains, revocationChecker);
             CURRENT_SPI.remove();
             
             Preconditions.checkNotNull(algorithm);
@@ -197,11 +353,16 @@ public class SslContextConfig {
     private static class DatawaveTrustManagerSpi extends TrustManagerFactorySpi {
         private TrustManagerFactory delegate;
         private X509Certificate trustedCertificate;
+        private VerifiedChainCache verifiedChains;
+        private CrlRevocationChecker revocationChecker;
         private volatile TrustManager[] trustManagers;
         
-        public void init(TrustManagerFactory delegate, X509Certificate trustedCertificate) {
+        public void init(TrustManagerFactory delegate, X509Certificate trustedCertificate, VerifiedChainCache verifiedChains,
+                        CrlRevocationChecker revocationChecker) {
             this.delegate = delegate;
             this.trustedCertificate = trustedCertificate;
+            this.verifiedChains = verifiedChains;
+            this.revocationChecker = revocationChecker;
         }
         
         @Override
@@ -222,7 +383,7 @@ public class SslContextConfig {
                 for (int i = 0; i < trustManagers.length; i++) {
                     final TrustManager tm = trustManagers[i];
                     if (tm instanceof X509TrustManager) {
-                        trustManagers[i] = new DatawaveTrustManager((X509TrustManager) tm, trustedCertificate);
+                        trustManagers[i] = new DatawaveTrustManager((X509TrustManager) tm, trustedCertificate, verifiedChains, revocationChecker);
                     } else {
                         trustManagers[i] = tm;
                     }
@@ -238,14 +399,29 @@ public class SslContextConfig {
      * run on a cluster where DNS might be used for service discovery. However, the server certificate used by the microservices will not have the DNS names as
      * Subject Alternative Name values, so normal trust for the certificate would fail. This trust manager trusts the remote server regardless of the host name
      * used to access it, so long as the presented certificate is the one we expect. Otherwise, it falls back to the normal trust behavior.
+     * <p>
+     * Since the host name is ignored for the expected certificate, a chain containing it that has passed validation once doesn't need to be validated again.
+     * Such chains are remembered in a {@link VerifiedChainCache}, and later handshakes that present them skip both the validation and the changes to the
+     * socket or engine parameters.
+     * <p>
+     * When CRLs are configured, every chain is also checked against the {@link CrlRevocationChecker}, including chains that were already verified.
      */
     private static class DatawaveTrustManager extends X509ExtendedTrustManager {
-        private X509Certificate trustedCertificate;
+        private final X509Certificate trustedCertificate;
+        private final X500Principal trustedSubject;
+        private final X500Principal trustedIssuer;
+        private final VerifiedChainCache verifiedChains;
+        private final CrlRevocationChecker revocationChecker;
         private X509TrustManager delegate;
         private X509ExtendedTrustManager extendedDelegate;
         
-        public DatawaveTrustManager(X509TrustManager delegate, X509Certificate trustedCertificate) {
+        public DatawaveTrustManager(X509TrustManager delegate, X509Certificate trustedCertificate, VerifiedChainCache verifiedChains,
+                        CrlRevocationChecker revocationChecker) {
             this.trustedCertificate = trustedCertificate;
+            this.trustedSubject = (trustedCertificate != null) ? trustedCertificate.getSubjectX500Principal() : null;
+            this.trustedIssuer = (trustedCertificate != null) ? trustedCertificate.getIssuerX500Principal() : null;
+            this.verifiedChains = verifiedChains;
+            this.revocationChecker = revocationChecker;
             this.delegate = delegate;
             if (delegate instanceof X509ExtendedTrustManager) {
                 extendedDelegate = (X509ExtendedTrustManager) delegate;
@@ -259,18 +435,25 @@ public class SslContextConfig {
         
         @Override
         public void checkClientTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+            checkRevocation(x509Certificates);
             delegate.checkClientTrusted(x509Certificates, s);
         }
         
         @Override
         public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+            checkRevocation(x509Certificates);
             delegate.checkServerTrusted(x509Certificates, s);
         }
         
         @Override
         public void checkClientTrusted(X509Certificate[] x509Certificates, String s, Socket socket) throws CertificateException {
             Preconditions.checkNotNull(extendedDelegate, "Not wrapping an X509ExtendedTrustManager");
+            checkRevocation(x509Certificates);
             boolean certChainTrusted = certChainTrusted(x509Certificates);
+            String chainKey = getVerifiedChainKey(certChainTrusted, x509Certificates, "client:" + s);
+            if (chainKey != null && verifiedChains.isVerified(chainKey)) {
+                return;
+            }
             if ((socket instanceof SSLSocket) && socket.isConnected() && certChainTrusted) {
                 SSLSocket sslSocket = (SSLSocket) socket;
                 SSLParameters origParameters = sslSocket.getSSLParameters();
@@ -289,12 +472,18 @@ public class SslContextConfig {
             } else {
                 extendedDelegate.checkClientTrusted(x509Certificates, s, socket);
             }
+            verified(chainKey, x509Certificates);
         }
         
         @Override
         public void checkServerTrusted(X509Certificate[] x509Certificates, String s, Socket socket) throws CertificateException {
             Preconditions.checkNotNull(extendedDelegate, "Not wrapping an X509ExtendedTrustManager");
+            checkRevocation(x509Certificates);
             boolean certChainTrusted = certChainTrusted(x509Certificates);
+            String chainKey = getVerifiedChainKey(certChainTrusted, x509Certificates, "server:" + s);
+            if (chainKey != null && verifiedChains.isVerified(chainKey)) {
+                return;
+            }
             if ((socket instanceof SSLSocket) && socket.isConnected() && certChainTrusted) {
                 SSLSocket sslSocket = (SSLSocket) socket;
                 SSLParameters origParameters = sslSocket.getSSLParameters();
@@ -312,12 +501,18 @@ public class SslContextConfig {
             } else {
                 extendedDelegate.checkServerTrusted(x509Certificates, s, socket);
             }
+            verified(chainKey, x509Certificates);
         }
         
         @Override
         public void checkClientTrusted(X509Certificate[] x509Certificates, String s, SSLEngine sslEngine) throws CertificateException {
             Preconditions.checkNotNull(extendedDelegate, "Not wrapping an X509ExtendedTrustManager");
+            checkRevocation(x509Certificates);
             boolean certChainTrusted = certChainTrusted(x509Certificates);
+            String chainKey = getVerifiedChainKey(certChainTrusted, x509Certificates, "client:" + s);
+            if (chainKey != null && verifiedChains.isVerified(chainKey)) {
+                return;
+            }
             SSLParameters origParameters = sslEngine.getSSLParameters();
             String curIdentityAlgorithm = origParameters.getEndpointIdentificationAlgorithm();
             try {
@@ -333,12 +528,18 @@ public class SslContextConfig {
                 origParameters.setEndpointIdentificationAlgorithm(curIdentityAlgorithm);
                 sslEngine.setSSLParameters(origParameters);
             }
+            verified(chainKey, x509Certificates);
         }
         
         @Override
         public void checkServerTrusted(X509Certificate[] x509Certificates, String s, SSLEngine sslEngine) throws CertificateException {
             Preconditions.checkNotNull(extendedDelegate, "Not wrapping an X509ExtendedTrustManager");
+            checkRevocation(x509Certificates);
             boolean certChainTrusted = certChainTrusted(x509Certificates);
+            String chainKey = getVerifiedChainKey(certChainTrusted, x509Certificates, "server:" + s);
+            if (chainKey != null && verifiedChains.isVerified(chainKey)) {
+                return;
+            }
             SSLParameters origParameters = sslEngine.getSSLParameters();
             String curIdentityAlgorithm = origParameters.getEndpointIdentificationAlgorithm();
             try {
@@ -353,6 +554,13 @@ public class SslContextConfig {
                 origParameters.setEndpointIdentificationAlgorithm(curIdentityAlgorithm);
                 sslEngine.setSSLParameters(origParameters);
             }
+            verified(chainKey, x509Certificates);
+        }
+        
+        private void checkRevocation(X509Certificate[] x509Certificates) throws CertificateException {
+            if (revocationChecker != null) {
+                revocationChecker.check(x509Certificates);
+            }
         }
         
         private boolean certChainTrusted(X509Certificate[] x509Certificates) {
@@ -361,7 +569,7 @@ public class SslContextConfig {
             boolean peerCertIsTrusted = false;
             if (x509Certificates != null && trustedCertificate != null) {
                 for (X509Certificate cert : x509Certificates) {
-                    if (cert.getSubjectDN().equals(trustedCertificate.getSubjectDN()) && cert.getIssuerDN().equals(trustedCertificate.getIssuerDN())) {
+                    if (cert.getSubjectX500Principal().equals(trustedSubject) && cert.getIssuerX500Principal().equals(trustedIssuer)) {
                         peerCertIsTrusted = true;
                         break;
                     }
@@ -369,6 +577,126 @@ public class SslContextConfig {
             }
             return peerCertIsTrusted;
         }
+        
+        /**
+         * Only chains containing the trusted certificate are cached, since validation of any other chain depends on the host name being connected to.
+         */
+        private String getVerifiedChainKey(boolean certChainTrusted, X509Certificate[] x509Certificates, String authType) {
+            return (certChainTrusted && verifiedChains != null) ? verifiedChains.getKey(x509Certificates, authType) : null;
+        }
+        
+        private void verified(String chainKey, X509Certificate[] x509Certificates) {
+            if (chainKey != null) {
+                verifiedChains.verified(chainKey, x509Certificates);
+            }
+        }
+    }
+    
+    /**
+     * A key manager that delegates to the key manager built from the current keystore, so that the key material can be replaced without rebuilding the SSL
+     * contexts that use it.
+     */
+    private static class ReloadingKeyManager extends X509ExtendedKeyManager {
+        private volatile X509ExtendedKeyManager delegate;
+        
+        public ReloadingKeyManager(X509ExtendedKeyManager delegate) {
+            this.delegate = delegate;
+        }
+        
+        public void setDelegate(X509ExtendedKeyManager delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public String chooseEngineClientAlias(String[] strings, Principal[] principals, SSLEngine sslEngine) {
+            return delegate.chooseEngineClientAlias(strings, principals, sslEngine);
+        }
+        
+        @Override
+        public String chooseEngineServerAlias(String s, Principal[] principals, SSLEngine sslEngine) {
+            return delegate.chooseEngineServerAlias(s, principals, sslEngine);
+        }
+        
+        @Override
+        public String[] getClientAliases(String s, Principal[] principals) {
+            return delegate.getClientAliases(s, principals);
+        }
+        
+        @Override
+        public String chooseClientAlias(String[] strings, Principal[] principals, Socket socket) {
+            return delegate.chooseClientAlias(strings, principals, socket);
+        }
+        
+        @Override
+        public String[] getServerAliases(String s, Principal[] principals) {
+            return delegate.getServerAliases(s, principals);
+        }
+        
+        @Override
+        public String chooseServerAlias(String s, Principal[] principals, Socket socket) {
+            return delegate.chooseServerAlias(s, principals, socket);
+        }
+        
+        @Override
+        public X509Certificate[] getCertificateChain(String s) {
+            return delegate.getCertificateChain(s);
+        }
+        
+        @Override
+        public PrivateKey getPrivateKey(String s) {
+            return delegate.getPrivateKey(s);
+        }
+    }
+    
+    /**
+     * A trust manager that delegates to the trust manager built from the current truststore, so that the trusted certificates can be replaced without
+     * rebuilding the SSL contexts that use it.
+     */
+    private static class ReloadingTrustManager extends X509ExtendedTrustManager {
+        private volatile X509ExtendedTrustManager delegate;
+        
+        public ReloadingTrustManager(X509ExtendedTrustManager delegate) {
+            this.delegate = delegate;
+        }
+        
+        public void setDelegate(X509ExtendedTrustManager delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+            delegate.checkClientTrusted(x509Certificates, s);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+            delegate.checkServerTrusted(x509Certificates, s);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] x509Certificates, String s, Socket socket) throws CertificateException {
+            delegate.checkClientTrusted(x509Certificates, s, socket);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] x509Certificates, String s, Socket socket) throws CertificateException {
+            delegate.checkServerTrusted(x509Certificates, s, socket);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] x509Certificates, String s, SSLEngine sslEngine) throws CertificateException {
+            delegate.checkClientTrusted(x509Certificates, s, sslEngine);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] x509Certificates, String s, SSLEngine sslEngine) throws CertificateException {
+            delegate.checkServerTrusted(x509Certificates, s, sslEngine);
+        }
     }
     
     private static class KeyAliasKeyManagerFactory extends KeyManagerFactory {
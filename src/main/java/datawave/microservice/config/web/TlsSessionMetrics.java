@@ -0,0 +1,95 @@
+package datawave.microservice.config.web;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSession;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Records how many outbound TLS handshakes resumed a cached session rather than performing a full handshake. The resumption rate is published as a gauge over
+ * the last five minutes of handshakes.
+ * <p>
+ * The session APIs don't say whether a session was resumed, so each handshake's session is compared with the sessions negotiated by earlier handshakes. A
+ * TLS 1.2 session keeps its session ID when it is resumed. A TLS 1.3 session gets a new session ID (or none) each time it is resumed, but keeps the creation
+ * time of the session it was resumed from, so it is matched by its peer and creation time instead. That is only done for providers that record the creation
+ * time to the millisecond, since two full handshakes with the same peer easily fall within the same second. Resumed TLS 1.3 sessions of other providers (such
+ * as OpenSSL) are therefore not counted, and the published rate is a lower bound.
+ */
+public class TlsSessionMetrics {
+    public static final String METRIC_PREFIX = "tls.client";
+    
+    private final Meter handshakes;
+    private final Meter resumedHandshakes;
+    // the sessions negotiated by earlier handshakes, which outlive any session that can still be resumed
+    private final Cache<String,Boolean> knownSessions = Caffeine.newBuilder().maximumSize(10000).expireAfterWrite(1, TimeUnit.DAYS).build();
+    
+    /**
+     * @param metricRegistry
+     *            the registry to publish the metrics to
+     * @param clientName
+     *            the name of the TLS client (e.g. "jdk" or "netty")
+     */
+    public TlsSessionMetrics(MetricRegistry metricRegistry, String clientName) {
+        String prefix = MetricRegistry.name(METRIC_PREFIX, clientName);
+        this.handshakes = metricRegistry.meter(MetricRegistry.name(prefix, "handshakes"));
+        this.resumedHandshakes = metricRegistry.meter(MetricRegistry.name(prefix, "resumedHandshakes"));
+        metricRegistry.remove(MetricRegistry.name(prefix, "resumptionRate"));
+        metricRegistry.register(MetricRegistry.name(prefix, "resumptionRate"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(resumedHandshakes.getFiveMinuteRate(), handshakes.getFiveMinuteRate());
+            }
+        });
+    }
+    
+    /**
+     * Records a completed handshake.
+     *
+     * @param session
+     *            the session negotiated by the handshake
+     */
+    public void recordHandshake(SSLSession session) {
+        handshakes.mark();
+        if (isResumed(session)) {
+            resumedHandshakes.mark();
+        }
+    }
+    
+    /**
+     * Determines whether the session negotiated by a handshake was resumed from the session of an earlier handshake, and remembers the session so that later
+     * handshakes that resume it are recognized.
+     *
+     * @param session
+     *            the session negotiated by the handshake
+     * @return true if the session was resumed
+     */
+    boolean isResumed(SSLSession session) {
+        if (session == null) {
+            return false;
+        }
+        boolean resumed = false;
+        byte[] id = session.getId();
+        if (id != null && id.length > 0) {
+            resumed = knownSessions.asMap().putIfAbsent("id:" + toHex(id), Boolean.TRUE) != null;
+        }
+        long creationTime = session.getCreationTime();
+        if (creationTime > 0 && creationTime % 1000 != 0) {
+            String key = "created:" + session.getPeerHost() + ":" + session.getPeerPort() + "@" + creationTime;
+            resumed |= knownSessions.asMap().putIfAbsent(key, Boolean.TRUE) != null;
+        }
+        return resumed;
+    }
+    
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
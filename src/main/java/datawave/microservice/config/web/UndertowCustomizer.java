@@ -1,6 +1,21 @@
 package datawave.microservice.config.web;
 
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
@@ -8,6 +23,7 @@ import org.springframework.boot.web.embedded.undertow.ConfigurableUndertowWebSer
 import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
 import org.springframework.boot.web.server.AbstractConfigurableWebServerFactory;
 import org.springframework.boot.web.server.Http2;
+import org.springframework.boot.web.server.Ssl;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -15,6 +31,7 @@ import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.xnio.Options;
 
+import io.netty.handler.ssl.OpenSsl;
 import io.undertow.Undertow;
 import io.undertow.UndertowOptions;
 
@@ -25,27 +42,47 @@ import io.undertow.UndertowOptions;
  * <li>Configures Undertow to listen on both the secure and non-secure port.</li>
  * <li>Configures HTTP/2 support (if enabled via the property {@code undertow.enable.http2}</li>
  * <li>Tells Undertow workers to be daemon threads (enabled via the property {@code undertow.thread.daemon}, default is {@code false}</li>
+ * <li>Uses OpenSSL rather than the JDK for the secure listener's TLS (enabled via the property {@code undertow.ssl.openssl}, default is {@code false}). If
+ * the native library can't be loaded, the JDK is used.</li>
+ * <li>Remembers validated client certificates so that repeat handshakes skip PKIX path building (sized by the property
+ * {@code server.inbound-verified-chain-cache-size}, which defaults to 0 to disable it). When either this or CRL checking is enabled, client certificates are
+ * validated against the truststore that the {@link KeyStoreCache} reloads, and the remembered validations are dropped when it changes.</li>
+ * <li>Rejects client certificates revoked by the CRLs given by the properties {@code server.inbound-crl-files} and {@code server.inbound-crl-directory}.
+ * The CRLs must be signed by certificates from the server's truststore, and are checked again when it changes.</li>
  * </ul>
  */
 @Component
 @ConditionalOnClass({Undertow.class, ConfigurableUndertowWebServerFactory.class})
-public class UndertowCustomizer implements WebServerFactoryCustomizer<UndertowServletWebServerFactory>, ApplicationContextAware {
+public class UndertowCustomizer implements WebServerFactoryCustomizer<UndertowServletWebServerFactory>, ApplicationContextAware, DisposableBean {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
     @Value("${undertow.enable.http2:true}")
     private boolean enableHttp2;
     
     @Value("${undertow.thread.daemon:false}")
     private boolean useDaemonThreads;
     
+    @Value("${undertow.ssl.openssl:false}")
+    private boolean useOpenSsl;
+    
     private ApplicationContext applicationContext;
     
     private ServerProperties serverProperties;
     private DatawaveServerProperties datawaveServerProperties;
+    private CrlRevocationChecker revocationChecker;
     
     @Override
     public void setApplicationContext(@NonNull ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
     }
     
+    @Override
+    public void destroy() {
+        if (revocationChecker != null) {
+            revocationChecker.shutdown();
+        }
+    }
+    
     @Override
     public void customize(UndertowServletWebServerFactory factory) {
         serverProperties = applicationContext.getBean(ServerProperties.class);
@@ -55,12 +92,19 @@ public class UndertowCustomizer implements WebServerFactoryCustomizer<UndertowSe
         http2.setEnabled(enableHttp2);
         factory.setHttp2(http2);
         
+        boolean openSslEnabled = useOpenSsl && configureOpenSsl(factory);
+        configureClientCertificateChecks(factory);
+        
         // @formatter:off
         factory.addBuilderCustomizers(c -> {
             // Ensure that the request start time is set on the request by Undertow
             c.setServerOption(UndertowOptions.RECORD_REQUEST_START_TIME, true);
             // Tell XNIO to use Daemon threads if enabled.
             c.setWorkerOption(Options.THREAD_DAEMON, useDaemonThreads);
+            // OpenSSL engines always allow session creation and reject an attempt to enable it, which Undertow otherwise makes for each connection
+            if (openSslEnabled) {
+                c.setSocketOption(Options.SSL_ENABLE_SESSION_CREATION, false);
+            }
 
             if (factory instanceof AbstractConfigurableWebServerFactory) {
                 AbstractConfigurableWebServerFactory undertowFactory = (AbstractConfigurableWebServerFactory) factory;
@@ -74,4 +118,131 @@ public class UndertowCustomizer implements WebServerFactoryCustomizer<UndertowSe
         });
         // @formatter:on
     }
+    
+    /**
+     * Switches the secure listener to OpenSSL, if SSL is enabled and the native library is available.
+     *
+     * @return true if the listener will use OpenSSL
+     */
+    private boolean configureOpenSsl(UndertowServletWebServerFactory factory) {
+        if (factory.getSsl() == null || !factory.getSsl().isEnabled()) {
+            return false;
+        }
+        if (!OpenSslEngineProvider.install()) {
+            log.warn("OpenSSL is not available, so inbound TLS will use the JDK.", OpenSsl.unavailabilityCause());
+            return false;
+        }
+        factory.setSsl(withOpenSslProtocol(factory.getSsl()));
+        log.info("Using OpenSSL {} for inbound TLS", OpenSsl.versionString());
+        return true;
+    }
+    
+    /**
+     * Switches the secure listener to an SSL context from the {@link VerifiedChainCachingProvider}, if SSL is enabled and either the verified chain cache or
+     * CRL checking is.
+     */
+    private void configureClientCertificateChecks(UndertowServletWebServerFactory factory) {
+        Ssl ssl = factory.getSsl();
+        boolean cacheEnabled = datawaveServerProperties.getInboundVerifiedChainCacheSize() > 0;
+        boolean crlEnabled = datawaveServerProperties.isInboundCrlCheckingEnabled();
+        if (ssl == null || !ssl.isEnabled() || (!cacheEnabled && !crlEnabled)) {
+            return;
+        }
+        String protocol = (ssl.getProtocol() != null) ? ssl.getProtocol() : "TLS";
+        if (!VerifiedChainCachingProvider.isSupported(protocol)) {
+            // failing is safer than silently accepting revoked certificates
+            if (crlEnabled) {
+                throw new IllegalStateException("Inbound client certificates can't be checked against CRLs for SSL protocol " + protocol);
+            }
+            log.warn("Inbound client certificate validations can't be cached for SSL protocol {}", protocol);
+            return;
+        }
+        
+        String trustStore = ssl.getTrustStore();
+        KeyStoreCache keyStoreCache = applicationContext.getBeanProvider(KeyStoreCache.class).getIfAvailable(() -> new KeyStoreCache(0));
+        if (crlEnabled) {
+            // @formatter:off
+            revocationChecker = new CrlRevocationChecker(
+                    datawaveServerProperties.getInboundCrlFiles(),
+                    datawaveServerProperties.getInboundCrlDirectory(),
+                    datawaveServerProperties.getInboundCrlRefreshIntervalMillis(),
+                    datawaveServerProperties.isInboundCrlFailIfStale(),
+                    () -> getTrustedIssuers(keyStoreCache, ssl));
+            // @formatter:on
+        }
+        VerifiedChainCache verifiedChains = cacheEnabled
+                        ? new VerifiedChainCache(datawaveServerProperties.getInboundVerifiedChainCacheSize(),
+                                        datawaveServerProperties.getInboundVerifiedChainCacheTtlMillis())
+                        : null;
+        VerifiedChainCachingProvider provider = VerifiedChainCachingProvider.install(verifiedChains, revocationChecker);
+        if (trustStore != null) {
+            try {
+                // loading the truststore through the cache makes it watch the file for changes
+                keyStoreCache.getKeyStore(trustStore, ssl.getTrustStoreType(), ssl.getTrustStorePassword());
+                keyStoreCache.addReloadListener(location -> {
+                    if (trustStore.equals(location)) {
+                        reloadTrustManager(provider, keyStoreCache, ssl);
+                    }
+                });
+            } catch (IOException | GeneralSecurityException e) {
+                log.warn("Unable to watch truststore {} for changes: {}", trustStore, e.getMessage());
+            }
+        }
+        
+        Ssl cachingSsl = new Ssl();
+        BeanUtils.copyProperties(ssl, cachingSsl);
+        cachingSsl.setProtocol(VerifiedChainCachingProvider.PROTOCOL_PREFIX + protocol);
+        factory.setSsl(cachingSsl);
+    }
+    
+    /**
+     * Validates client certificates against the reloaded truststore. Undertow's SSL context keeps the trust manager it was created with, so the provider's
+     * wrapper is pointed at a new one.
+     */
+    private void reloadTrustManager(VerifiedChainCachingProvider provider, KeyStoreCache keyStoreCache, Ssl ssl) {
+        try {
+            KeyStore trustStore = keyStoreCache.getKeyStore(ssl.getTrustStore(), ssl.getTrustStoreType(), ssl.getTrustStorePassword());
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(trustStore);
+            for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+                if (trustManager instanceof X509ExtendedTrustManager) {
+                    provider.setTrustManager((X509ExtendedTrustManager) trustManager);
+                    log.info("Reloaded inbound truststore {}", ssl.getTrustStore());
+                    break;
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("Unable to reload inbound truststore {}, continuing to use the previous one: {}", ssl.getTrustStore(), e.getMessage());
+            provider.invalidateAll();
+        }
+        if (revocationChecker != null) {
+            revocationChecker.reload();
+        }
+    }
+    
+    private static Collection<X509Certificate> getTrustedIssuers(KeyStoreCache keyStoreCache, Ssl ssl) {
+        if (ssl.getTrustStore() == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return CrlRevocationChecker.getCertificates(keyStoreCache.getKeyStore(ssl.getTrustStore(), ssl.getTrustStoreType(), ssl.getTrustStorePassword()));
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to load truststore " + ssl.getTrustStore(), e);
+        }
+    }
+    
+    /**
+     * Copies the SSL configuration, selecting the {@link OpenSslEngineProvider} protocol so that Spring creates an OpenSSL-backed SSL context for the
+     * listener. The copy keeps the shared {@link ServerProperties} unchanged.
+     */
+    private Ssl withOpenSslProtocol(Ssl ssl) {
+        Ssl openSsl = new Ssl();
+        BeanUtils.copyProperties(ssl, openSsl);
+        // A versioned protocol (e.g., TLSv1.2) limited the JDK context to that version, so keep that limit unless the enabled protocols are given
+        if (openSsl.getEnabledProtocols() == null && openSsl.getProtocol() != null && !"TLS".equals(openSsl.getProtocol())) {
+            openSsl.setEnabledProtocols(new String[] {openSsl.getProtocol()});
+        }
+        openSsl.setProtocol(enableHttp2 ? OpenSslEngineProvider.HTTP2_PROTOCOL : OpenSslEngineProvider.PROTOCOL);
+        return openSsl;
+    }
 }
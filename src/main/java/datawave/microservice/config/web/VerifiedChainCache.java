@@ -0,0 +1,106 @@
+package datawave.microservice.config.web;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.hash.Hashing;
+
+/**
+ * Remembers certificate chains that have already passed trust validation, so that repeat handshakes with the same peer can skip the validation. Chains are
+ * identified by the SHA-256 fingerprints of their certificates, and a chain is only remembered until the earliest expiration of its certificates or the
+ * configured time to live, whichever comes first.
+ */
+public class VerifiedChainCache {
+    private final Cache<String,Long> verifiedChains;
+    private final LongSupplier clock;
+    
+    /**
+     * @param maximumSize
+     *            the maximum number of chains to remember
+     * @param timeToLiveMillis
+     *            how long to remember a chain after it was validated
+     */
+    public VerifiedChainCache(long maximumSize, long timeToLiveMillis) {
+        this(maximumSize, timeToLiveMillis, System::currentTimeMillis, Ticker.systemTicker());
+    }
+    
+    VerifiedChainCache(long maximumSize, long timeToLiveMillis, LongSupplier clock) {
+        this(maximumSize, timeToLiveMillis, clock, () -> TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()));
+    }
+    
+    private VerifiedChainCache(long maximumSize, long timeToLiveMillis, LongSupplier clock, Ticker ticker) {
+        this.clock = clock;
+        // @formatter:off
+        this.verifiedChains = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        // @formatter:on
+    }
+    
+    /**
+     * Computes the key that identifies a certificate chain.
+     *
+     * @param chain
+     *            the certificate chain
+     * @param authType
+     *            the authentication type the chain was checked for
+     * @return the key for the chain, or null if the chain can't be identified
+     */
+    public String getKey(X509Certificate[] chain, String authType) {
+        if (chain == null || chain.length == 0) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(authType);
+        for (X509Certificate cert : chain) {
+            String fingerprint = fingerprint(cert);
+            if (fingerprint == null) {
+                return null;
+            }
+            key.append(':').append(fingerprint);
+        }
+        return key.toString();
+    }
+    
+    public boolean isVerified(String key) {
+        Long notAfter = verifiedChains.getIfPresent(key);
+        if (notAfter != null && notAfter <= clock.getAsLong()) {
+            verifiedChains.invalidate(key);
+            notAfter = null;
+        }
+        return notAfter != null;
+    }
+    
+    public void verified(String key, X509Certificate[] chain) {
+        long notAfter = Long.MAX_VALUE;
+        for (X509Certificate cert : chain) {
+            notAfter = Math.min(notAfter, cert.getNotAfter().getTime());
+        }
+        verifiedChains.put(key, notAfter);
+    }
+    
+    public void invalidateAll() {
+        verifiedChains.invalidateAll();
+    }
+    
+    /**
+     * Computes the SHA-256 fingerprint of a certificate.
+     *
+     * @param cert
+     *            the certificate
+     * @return the hex-encoded fingerprint, or null if the certificate can't be encoded
+     */
+    public static String fingerprint(X509Certificate cert) {
+        try {
+            return Hashing.sha256().hashBytes(cert.getEncoded()).toString();
+        } catch (CertificateEncodingException e) {
+            return null;
+        }
+    }
+}
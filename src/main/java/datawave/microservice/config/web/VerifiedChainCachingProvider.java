@@ -0,0 +1,300 @@
+package datawave.microservice.config.web;
+
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+/**
+ * A JCA {@link Provider} whose {@link SSLContext}s remember the client certificates that have passed validation, so that repeat handshakes from the same
+ * client skip PKIX path building, and check client certificates against locally loaded CRLs.
+ * <p>
+ * Each protocol is offered as {@link #PROTOCOL_PREFIX} followed by the name of another SSL context protocol (e.g., "ChainCaching-TLS" or
+ * "ChainCaching-OpenSSL-h2"). The SSL context for such a protocol delegates to a context for the named protocol, but wraps the trust managers it is initialized
+ * with. Spring Boot creates Undertow's SSL context from the configured protocol, so prefixing that protocol applies the cache to the HTTPS listener while
+ * Spring still loads the keystore and truststore. Validations are keyed by the fingerprint of the client's certificate and remembered until the earliest
+ * expiration of the chain, the time to live, or the trust manager being replaced with {@link #setTrustManager} (e.g., when the truststore changes). Any
+ * revocation checking done by the underlying trust manager is only repeated once a certificate's validation expires from the cache, but when a
+ * {@link CrlRevocationChecker} is given, every client chain is checked against it, including chains that were already validated. Either the cache or the
+ * revocation checker may be omitted.
+ */
+public class VerifiedChainCachingProvider extends Provider {
+    private static final long serialVersionUID = -3309532018462871542L;
+    
+    public static final String NAME = "DatawaveChainCaching";
+    public static final String PROTOCOL_PREFIX = "ChainCaching-";
+    
+    private static final String[] PROTOCOLS = {"TLS", "TLSv1.2", "TLSv1.3", OpenSslEngineProvider.PROTOCOL, OpenSslEngineProvider.HTTP2_PROTOCOL};
+    
+    private final transient VerifiedChainCache verifiedChains;
+    private final transient CrlRevocationChecker revocationChecker;
+    private final transient List<CachingTrustManager> trustManagers = new CopyOnWriteArrayList<>();
+    private final transient List<SSLSessionContext> sessionContexts = new CopyOnWriteArrayList<>();
+    
+    private VerifiedChainCachingProvider(VerifiedChainCache verifiedChains, CrlRevocationChecker revocationChecker) {
+        super(NAME, 1.0, "SSLContext that caches client certificate validations");
+        this.verifiedChains = verifiedChains;
+        this.revocationChecker = revocationChecker;
+        for (String protocol : PROTOCOLS) {
+            putService(new CachingContextService(this, protocol));
+        }
+    }
+    
+    /**
+     * Registers a provider (as the least preferred provider, so it is only used when one of its protocols is requested) that caches validations in the given
+     * cache and checks client certificates with the given revocation checker, replacing any provider registered earlier.
+     *
+     * @param verifiedChains
+     *            the cache for validated client certificates, or null to validate every handshake
+     * @param revocationChecker
+     *            the checker for revoked client certificates, or null
+     * @return the registered provider
+     */
+    public static synchronized VerifiedChainCachingProvider install(VerifiedChainCache verifiedChains, CrlRevocationChecker revocationChecker) {
+        Security.removeProvider(NAME);
+        VerifiedChainCachingProvider provider = new VerifiedChainCachingProvider(verifiedChains, revocationChecker);
+        Security.addProvider(provider);
+        return provider;
+    }
+    
+    /**
+     * Determines whether a protocol can be wrapped by this provider.
+     *
+     * @param protocol
+     *            the SSL context protocol
+     * @return true if {@link #PROTOCOL_PREFIX} followed by the protocol is provided
+     */
+    public static boolean isSupported(String protocol) {
+        for (String supported : PROTOCOLS) {
+            if (supported.equals(protocol)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public void invalidateAll() {
+        if (verifiedChains != null) {
+            verifiedChains.invalidateAll();
+        }
+    }
+    
+    /**
+     * Replaces the trust manager that validates client certificates in every SSL context from this provider (e.g., after the truststore was reloaded). The
+     * validations made by the previous trust manager are forgotten, and the sessions established with it are invalidated so they can't be resumed.
+     *
+     * @param trustManager
+     *            the new trust manager
+     */
+    public void setTrustManager(X509ExtendedTrustManager trustManager) {
+        trustManagers.forEach(tm -> tm.setDelegate(trustManager));
+        invalidateAll();
+        for (SSLSessionContext sessionContext : sessionContexts) {
+            for (byte[] id : Collections.list(sessionContext.getIds())) {
+                SSLSession session = sessionContext.getSession(id);
+                if (session != null) {
+                    session.invalidate();
+                }
+            }
+        }
+    }
+    
+    private static class CachingContextService extends Service {
+        private final String delegateProtocol;
+        
+        CachingContextService(VerifiedChainCachingProvider provider, String delegateProtocol) {
+            super(provider, "SSLContext", PROTOCOL_PREFIX + delegateProtocol, CachingContextSpi.class.getName(), null, null);
+            this.delegateProtocol = delegateProtocol;
+        }
+        
+        @Override
+        public Object newInstance(Object constructorParameter) throws NoSuchAlgorithmException {
+            return new CachingContextSpi(SSLContext.getInstance(delegateProtocol), (VerifiedChainCachingProvider) getProvider());
+        }
+    }
+    
+    private static class CachingContextSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+        private final VerifiedChainCachingProvider provider;
+        
+        CachingContextSpi(SSLContext delegate, VerifiedChainCachingProvider provider) {
+            this.delegate = delegate;
+            this.provider = provider;
+        }
+        
+        @Override
+        protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom secureRandom) throws KeyManagementException {
+            TrustManager[] wrapped = null;
+            if (trustManagers != null) {
+                wrapped = new TrustManager[trustManagers.length];
+                for (int i = 0; i < trustManagers.length; i++) {
+                    if (trustManagers[i] instanceof X509ExtendedTrustManager) {
+                        CachingTrustManager trustManager = new CachingTrustManager((X509ExtendedTrustManager) trustManagers[i], provider.verifiedChains,
+                                        provider.revocationChecker);
+                        provider.trustManagers.add(trustManager);
+                        wrapped[i] = trustManager;
+                    } else {
+                        wrapped[i] = trustManagers[i];
+                    }
+                }
+            }
+            // validations made with the previous trust managers no longer apply
+            provider.invalidateAll();
+            delegate.init(keyManagers, wrapped, secureRandom);
+            provider.sessionContexts.add(delegate.getServerSessionContext());
+        }
+        
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+        
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+        
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return delegate.createSSLEngine();
+        }
+        
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return delegate.createSSLEngine(host, port);
+        }
+        
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+        
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+        
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+        
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+    
+    /**
+     * Skips validation of a client certificate that has already been validated, after checking that it hasn't been revoked. Server certificates are always
+     * passed to the delegate, since their validation depends on the host name being connected to.
+     */
+    private static class CachingTrustManager extends X509ExtendedTrustManager {
+        private volatile X509ExtendedTrustManager delegate;
+        private final VerifiedChainCache verifiedChains;
+        private final CrlRevocationChecker revocationChecker;
+        
+        CachingTrustManager(X509ExtendedTrustManager delegate, VerifiedChainCache verifiedChains, CrlRevocationChecker revocationChecker) {
+            this.delegate = delegate;
+            this.verifiedChains = verifiedChains;
+            this.revocationChecker = revocationChecker;
+        }
+        
+        void setDelegate(X509ExtendedTrustManager delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            checkRevocation(chain);
+            String key = getKey(chain, authType);
+            if (key == null || !verifiedChains.isVerified(key)) {
+                delegate.checkClientTrusted(chain, authType);
+                verified(key, chain);
+            }
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+            checkRevocation(chain);
+            String key = getKey(chain, authType);
+            if (key == null || !verifiedChains.isVerified(key)) {
+                delegate.checkClientTrusted(chain, authType, socket);
+                verified(key, chain);
+            }
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+            checkRevocation(chain);
+            String key = getKey(chain, authType);
+            if (key == null || !verifiedChains.isVerified(key)) {
+                delegate.checkClientTrusted(chain, authType, engine);
+                verified(key, chain);
+            }
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate.checkServerTrusted(chain, authType);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+            delegate.checkServerTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+            delegate.checkServerTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+        
+        /**
+         * A certificate's signature binds it to its issuer, so once a chain has been built from the client's certificate to a trust anchor, the certificate
+         * alone identifies the validation.
+         */
+        private String getKey(X509Certificate[] chain, String authType) {
+            if (verifiedChains == null || chain == null || chain.length == 0) {
+                return null;
+            }
+            String fingerprint = VerifiedChainCache.fingerprint(chain[0]);
+            return (fingerprint != null) ? authType + ":" + fingerprint : null;
+        }
+        
+        private void checkRevocation(X509Certificate[] chain) throws CertificateException {
+            if (revocationChecker != null) {
+                revocationChecker.check(chain);
+            }
+        }
+        
+        private void verified(String key, X509Certificate[] chain) {
+            if (key != null) {
+                verifiedChains.verified(key, chain);
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package datawave.microservice.config.web;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+/**
+ * Configuration for the Reactor Netty connection pool and timeouts used by the {@link org.springframework.web.reactive.function.client.WebClient} instances
+ * that this starter builds. Timeouts can be overridden for individual clients by name (see {@link #getClients()}).
+ */
+@EnableConfigurationProperties(WebClientProperties.class)
+@ConfigurationProperties(prefix = "webclient", ignoreInvalidFields = true)
+public class WebClientProperties {
+    public enum LeasingStrategy {
+        FIFO, LIFO
+    }
+    
+    // the name of the shared connection provider
+    private String poolName = "datawave";
+    
+    private int maxConnections = 500;
+    
+    // the maximum number of requests that may wait for a connection (-1 is unlimited)
+    private int pendingAcquireMaxCount = 1000;
+    
+    private long pendingAcquireTimeout = TimeUnit.SECONDS.toMillis(45);
+    private TimeUnit pendingAcquireTimeoutUnit = TimeUnit.MILLISECONDS;
+    
+    // connections that are idle for longer than this are closed (0 disables idle eviction)
+    private long maxIdleTime = TimeUnit.SECONDS.toMillis(30);
+    private TimeUnit maxIdleTimeUnit = TimeUnit.MILLISECONDS;
+    
+    // connections that have been open for longer than this are closed once released (0 is no limit)
+    private long maxLifeTime = 0;
+    private TimeUnit maxLifeTimeUnit = TimeUnit.MILLISECONDS;
+    
+    // FIFO spreads requests across idle connections, while LIFO reuses the most recently used connection so that the rest can be evicted
+    private LeasingStrategy leasingStrategy = LeasingStrategy.FIFO;
+    
+    // how often idle and expired connections are evicted in the background (0 only evicts connections as they are acquired)
+    private long evictionInterval = TimeUnit.SECONDS.toMillis(60);
+    private TimeUnit evictionIntervalUnit = TimeUnit.MILLISECONDS;
+    
+    // when true, HTTP/2 is negotiated via ALPN so that concurrent requests to a host are multiplexed over a few connections (HTTP/1.1 is used if the server
+    // doesn't offer HTTP/2)
+    private boolean http2Enabled = false;
+    
+    // when true, the timings of the calls made are published to the metric registry
+    private boolean metricsEnabled = true;
+    
+    // the maximum number of distinct endpoints (host, method and URI template) that calls are timed for
+    private int metricsMaxEndpoints = 200;
+    
+    // the maximum number of distinct target hosts that responses and connection waits are recorded for
+    private int metricsMaxHosts = 50;
+    
+    // the timeouts used by clients that don't have their own
+    @NestedConfigurationProperty
+    private TimeoutProperties timeouts = new TimeoutProperties();
+    
+    // timeouts for individual clients, by client name
+    private Map<String,TimeoutProperties> clients = new HashMap<>();
+    
+    public WebClientProperties() {
+        // the server user details are requested at startup, so they shouldn't wait long on an unresponsive authorization service
+        TimeoutProperties serverUserDetails = new TimeoutProperties();
+        serverUserDetails.setConnectTimeout(TimeUnit.SECONDS.toMillis(2));
+        serverUserDetails.setReadTimeout(TimeUnit.SECONDS.toMillis(6));
+        clients.put(ReactorHttpClientFactory.SERVER_USER_DETAILS_CLIENT, serverUserDetails);
+    }
+    
+    /**
+     * Gets the timeouts for a client.
+     *
+     * @param clientName
+     *            the name of the client, or null for the default timeouts
+     * @return the timeouts configured for the client, or the default timeouts if the client has none
+     */
+    public TimeoutProperties getTimeouts(String clientName) {
+        return (clientName != null) ? clients.getOrDefault(clientName, timeouts) : timeouts;
+    }
+    
+    public String getPoolName() {
+        return poolName;
+    }
+    
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+    
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+    
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+    
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+    
+    public long getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+    
+    public long getPendingAcquireTimeoutMillis() {
+        return pendingAcquireTimeoutUnit.toMillis(pendingAcquireTimeout);
+    }
+    
+    public void setPendingAcquireTimeout(long pendingAcquireTimeout) {
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+    }
+    
+    public TimeUnit getPendingAcquireTimeoutUnit() {
+        return pendingAcquireTimeoutUnit;
+    }
+    
+    public void setPendingAcquireTimeoutUnit(TimeUnit pendingAcquireTimeoutUnit) {
+        this.pendingAcquireTimeoutUnit = pendingAcquireTimeoutUnit;
+    }
+    
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+    
+    public long getMaxIdleTimeMillis() {
+        return maxIdleTimeUnit.toMillis(maxIdleTime);
+    }
+    
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+    
+    public TimeUnit getMaxIdleTimeUnit() {
+        return maxIdleTimeUnit;
+    }
+    
+    public void setMaxIdleTimeUnit(TimeUnit maxIdleTimeUnit) {
+        this.maxIdleTimeUnit = maxIdleTimeUnit;
+    }
+    
+    public long getMaxLifeTime() {
+        return maxLifeTime;
+    }
+    
+    public long getMaxLifeTimeMillis() {
+        return maxLifeTimeUnit.toMillis(maxLifeTime);
+    }
+    
+    public void setMaxLifeTime(long maxLifeTime) {
+        this.maxLifeTime = maxLifeTime;
+    }
+    
+    public TimeUnit getMaxLifeTimeUnit() {
+        return maxLifeTimeUnit;
+    }
+    
+    public void setMaxLifeTimeUnit(TimeUnit maxLifeTimeUnit) {
+        this.maxLifeTimeUnit = maxLifeTimeUnit;
+    }
+    
+    public LeasingStrategy getLeasingStrategy() {
+        return leasingStrategy;
+    }
+    
+    public void setLeasingStrategy(LeasingStrategy leasingStrategy) {
+        this.leasingStrategy = leasingStrategy;
+    }
+    
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+    
+    public long getEvictionIntervalMillis() {
+        return evictionIntervalUnit.toMillis(evictionInterval);
+    }
+    
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+    
+    public TimeUnit getEvictionIntervalUnit() {
+        return evictionIntervalUnit;
+    }
+    
+    public void setEvictionIntervalUnit(TimeUnit evictionIntervalUnit) {
+        this.evictionIntervalUnit = evictionIntervalUnit;
+    }
+    
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+    
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+    
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+    
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+    
+    public int getMetricsMaxEndpoints() {
+        return metricsMaxEndpoints;
+    }
+    
+    public void setMetricsMaxEndpoints(int metricsMaxEndpoints) {
+        this.metricsMaxEndpoints = metricsMaxEndpoints;
+    }
+    
+    public int getMetricsMaxHosts() {
+        return metricsMaxHosts;
+    }
+    
+    public void setMetricsMaxHosts(int metricsMaxHosts) {
+        this.metricsMaxHosts = metricsMaxHosts;
+    }
+    
+    public TimeoutProperties getTimeouts() {
+        return timeouts;
+    }
+    
+    public void setTimeouts(TimeoutProperties timeouts) {
+        this.timeouts = timeouts;
+    }
+    
+    public Map<String,TimeoutProperties> getClients() {
+        return clients;
+    }
+    
+    public void setClients(Map<String,TimeoutProperties> clients) {
+        this.clients = clients;
+    }
+    
+    public static class TimeoutProperties {
+        // how long to wait for a connection to be established (0 is no timeout)
+        private long connectTimeout = TimeUnit.SECONDS.toMillis(10);
+        private TimeUnit connectTimeoutUnit = TimeUnit.MILLISECONDS;
+        
+        // how long to wait for a response once the request has been sent (0 is no timeout)
+        private long responseTimeout = 0;
+        private TimeUnit responseTimeoutUnit = TimeUnit.MILLISECONDS;
+        
+        // how long a connection may go without reading any data (0 is no timeout)
+        private long readTimeout = 0;
+        private TimeUnit readTimeoutUnit = TimeUnit.MILLISECONDS;
+        
+        // how long a write to a connection may take (0 is no timeout)
+        private long writeTimeout = 0;
+        private TimeUnit writeTimeoutUnit = TimeUnit.MILLISECONDS;
+        
+        public long getConnectTimeout() {
+            return connectTimeout;
+        }
+        
+        public long getConnectTimeoutMillis() {
+            return connectTimeoutUnit.toMillis(connectTimeout);
+        }
+        
+        public void setConnectTimeout(long connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+        
+        public TimeUnit getConnectTimeoutUnit() {
+            return connectTimeoutUnit;
+        }
+        
+        public void setConnectTimeoutUnit(TimeUnit connectTimeoutUnit) {
+            this.connectTimeoutUnit = connectTimeoutUnit;
+        }
+        
+        public long getResponseTimeout() {
+            return responseTimeout;
+        }
+        
+        public long getResponseTimeoutMillis() {
+            return responseTimeoutUnit.toMillis(responseTimeout);
+        }
+        
+        public void setResponseTimeout(long responseTimeout) {
+            this.responseTimeout = responseTimeout;
+        }
+        
+        public TimeUnit getResponseTimeoutUnit() {
+            return responseTimeoutUnit;
+        }
+        
+        public void setResponseTimeoutUnit(TimeUnit responseTimeoutUnit) {
+            this.responseTimeoutUnit = responseTimeoutUnit;
+        }
+        
+        public long getReadTimeout() {
+            return readTimeout;
+        }
+        
+        public long getReadTimeoutMillis() {
+            return readTimeoutUnit.toMillis(readTimeout);
+        }
+        
+        public void setReadTimeout(long readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+        
+        public TimeUnit getReadTimeoutUnit() {
+            return readTimeoutUnit;
+        }
+        
+        public void setReadTimeoutUnit(TimeUnit readTimeoutUnit) {
+            this.readTimeoutUnit = readTimeoutUnit;
+        }
+        
+        public long getWriteTimeout() {
+            return writeTimeout;
+        }
+        
+        public long getWriteTimeoutMillis() {
+            return writeTimeoutUnit.toMillis(writeTimeout);
+        }
+        
+        public void setWriteTimeout(long writeTimeout) {
+            this.writeTimeout = writeTimeout;
+        }
+        
+        public TimeUnit getWriteTimeoutUnit() {
+            return writeTimeoutUnit;
+        }
+        
+        public void setWriteTimeoutUnit(TimeUnit writeTimeoutUnit) {
+            this.writeTimeoutUnit = writeTimeoutUnit;
+        }
+    }
+}
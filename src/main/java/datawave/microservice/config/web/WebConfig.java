@@ -7,6 +7,7 @@ import javax.servlet.DispatcherType;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
@@ -42,6 +43,19 @@ import datawave.webservice.result.VoidResponse;
 @Configuration
 @EnableConfigurationProperties(DatawaveServerProperties.class)
 public class WebConfig {
+    /**
+     * Creates the {@link KeyStoreCache} that loads the keystores and truststores shared by the SSL contexts and the JWT token handler.
+     *
+     * @param serverProperties
+     *            the {@link DatawaveServerProperties} from which to retrieve the reload interval
+     * @return a new {@link KeyStoreCache}
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public KeyStoreCache keyStoreCache(DatawaveServerProperties serverProperties) {
+        return new KeyStoreCache(serverProperties.getSslReloadIntervalMillis());
+    }
+    
     /**
      * Creates a {@link JaxbAnnotationModule} bean, which will be added automatically to any {@link ObjectMapper} created by Spring. The
      * {@link JaxbAnnotationModule} causes Jackson to honor JAX-B annotations on object when producing JSON. This default behavior can be disabled by setting
@@ -142,15 +156,19 @@ public class WebConfig {
     }
     
     /**
-     * Creates a {@link FilterRegistrationBean} that registers our custom filter that adds headers to HTTP responses.
+     * Creates a {@link FilterRegistrationBean} that registers our custom filter that adds headers to HTTP responses and enforces request deadlines.
      *
+     * @param serverProperties
+     *            the {@link DatawaveServerProperties} from which to retrieve whether requests are cancelled once their deadline passes
      * @return a {@link FilterRegistrationBean} that registers a {@link ResponseHeaderServletFilter}
      */
     @Bean
     @ConditionalOnClass(DispatcherServlet.class)
     @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
-    public FilterRegistrationBean<ResponseHeaderServletFilter> responseHeaderFilter(@Value("${system.name:UNKNOWN}") String systemName) {
+    public FilterRegistrationBean<ResponseHeaderServletFilter> responseHeaderFilter(@Value("${system.name:UNKNOWN}") String systemName,
+                    DatawaveServerProperties serverProperties) {
         ResponseHeaderServletFilter filter = new ResponseHeaderServletFilter(systemName);
+        filter.setCancelExpiredRequests(serverProperties.isCancelExpiredRequests());
         FilterRegistrationBean<ResponseHeaderServletFilter> registration = new FilterRegistrationBean<>(filter);
         registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
         registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
@@ -158,14 +176,18 @@ public class WebConfig {
     }
     
     /**
-     * Creates a {@link org.springframework.web.server.WebFilter} that adds headers to HTTP responses for reactive applications.
+     * Creates a {@link org.springframework.web.server.WebFilter} that adds headers to HTTP responses and enforces request deadlines for reactive
+     * applications.
      *
+     * @param serverProperties
+     *            the {@link DatawaveServerProperties} from which to retrieve whether requests are cancelled once their deadline passes
      * @return a new {@link ResponseHeaderWebFilter}
      */
     @Bean
     @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
-    public ResponseHeaderWebFilter responseHeaderWebFilter(@Value("${system.name:UNKNOWN}") String systemName) {
+    public ResponseHeaderWebFilter responseHeaderWebFilter(@Value("${system.name:UNKNOWN}") String systemName, DatawaveServerProperties serverProperties) {
         ResponseHeaderWebFilter filter = new ResponseHeaderWebFilter(systemName);
+        filter.setCancelExpiredRequests(serverProperties.isCancelExpiredRequests());
         filter.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
         return filter;
     }
@@ -1,6 +1,9 @@
 package datawave.microservice.config.web.filter;
 
 import static datawave.microservice.config.web.Constants.OPERATION_TIME_MS_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_ENFORCED_ATTRIBUTE;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_NS_ATTRIBUTE;
 import static datawave.microservice.config.web.Constants.REQUEST_START_TIME_NS_ATTRIBUTE;
 import static datawave.microservice.config.web.Constants.RESPONSE_ORIGIN_HEADER;
 
@@ -18,8 +21,23 @@ import org.springframework.lang.NonNull;
 import org.springframework.security.web.util.OnCommittedResponseWrapper;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import datawave.microservice.config.web.RequestDeadlineExceededException;
+import datawave.microservice.config.web.RequestDeadlines;
+
+/**
+ * Adds the response origin and operation time headers to every response.
+ * <p>
+ * If the caller supplied a deadline in the {@link datawave.microservice.config.web.Constants#REQUEST_DEADLINE_HEADER} header, it is stored in the request so
+ * that outbound calls can forward the remaining time. When enabled with {@link #setCancelExpiredRequests(boolean)}, a request whose deadline has already
+ * passed is rejected with a 504 (Gateway Timeout), an asynchronous request is given an async timeout that ends at its deadline, and the request is marked so
+ * that {@link RequestDeadlines#checkDeadline()} applies. The thread handling a request is never interrupted, since the deadline comes from the caller;
+ * handlers stop early by calling {@link RequestDeadlines#checkDeadline()}, and the {@link RequestDeadlineExceededException} it throws is turned into a 504.
+ */
 public class ResponseHeaderServletFilter extends OncePerRequestFilter {
+    private static final String DEADLINE_PASSED_MESSAGE = "The request deadline has passed.";
+    
     private final String origin;
+    private boolean cancelExpiredRequests;
     
     public ResponseHeaderServletFilter(String systemName) {
         String origin;
@@ -31,6 +49,10 @@ public class ResponseHeaderServletFilter extends OncePerRequestFilter {
         this.origin = origin;
     }
     
+    public void setCancelExpiredRequests(boolean cancelExpiredRequests) {
+        this.cancelExpiredRequests = cancelExpiredRequests;
+    }
+    
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
                     throws ServletException, IOException {
@@ -40,14 +62,49 @@ public class ResponseHeaderServletFilter extends OncePerRequestFilter {
             request.setAttribute(REQUEST_START_TIME_NS_ATTRIBUTE, System.nanoTime());
         }
         
+        Long remainingMillis = RequestDeadlines.parseRemainingMillis(request.getHeader(REQUEST_DEADLINE_HEADER));
+        Long deadlineNanos = null;
+        if (remainingMillis != null) {
+            deadlineNanos = RequestDeadlines.getDeadlineNanos((long) request.getAttribute(REQUEST_START_TIME_NS_ATTRIBUTE), remainingMillis);
+            request.setAttribute(REQUEST_DEADLINE_NS_ATTRIBUTE, deadlineNanos);
+        }
+        
+        boolean enforceDeadline = deadlineNanos != null && cancelExpiredRequests;
+        if (enforceDeadline) {
+            request.setAttribute(REQUEST_DEADLINE_ENFORCED_ATTRIBUTE, Boolean.TRUE);
+        }
         HeaderWriterResponse headerWriterResponse = new HeaderWriterResponse(response, request, origin);
         try {
+            if (enforceDeadline && deadlineNanos - System.nanoTime() <= 0) {
+                headerWriterResponse.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, DEADLINE_PASSED_MESSAGE);
+                return;
+            }
             filterChain.doFilter(request, headerWriterResponse);
+            
+            // the handler continues on another thread, so rely on the container's async timeout to stop waiting for it
+            if (enforceDeadline && request.isAsyncStarted()) {
+                request.getAsyncContext().setTimeout(Math.max(1L, RequestDeadlines.getRemainingMillis(deadlineNanos)));
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            // a handler that checked the deadline (see RequestDeadlines#checkDeadline) gave up on the request
+            if (!enforceDeadline || !isDeadlineExceeded(e) || headerWriterResponse.isCommitted()) {
+                throw e;
+            }
+            headerWriterResponse.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, DEADLINE_PASSED_MESSAGE);
         } finally {
             headerWriterResponse.writeHeaders();
         }
     }
     
+    private static boolean isDeadlineExceeded(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RequestDeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     private static class HeaderWriterResponse extends OnCommittedResponseWrapper {
         private final HttpServletRequest request;
         private final String origin;
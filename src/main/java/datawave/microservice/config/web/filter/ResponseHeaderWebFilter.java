@@ -1,24 +1,39 @@
 package datawave.microservice.config.web.filter;
 
 import static datawave.microservice.config.web.Constants.OPERATION_TIME_MS_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_NS_ATTRIBUTE;
 import static datawave.microservice.config.web.Constants.REQUEST_START_TIME_NS_ATTRIBUTE;
 import static datawave.microservice.config.web.Constants.RESPONSE_ORIGIN_HEADER;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
+import datawave.microservice.config.web.RequestDeadlines;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
+/**
+ * Adds the response origin and operation time headers to every response.
+ * <p>
+ * If the caller supplied a deadline in the {@link datawave.microservice.config.web.Constants#REQUEST_DEADLINE_HEADER} header, it is stored in the exchange
+ * attributes and the Reactor context so that outbound calls can forward the remaining time. When enabled with {@link #setCancelExpiredRequests(boolean)}, a
+ * request whose deadline has already passed is rejected with a 504 (Gateway Timeout), and the handling of a request is cancelled (also with a 504) once its
+ * deadline passes.
+ */
 public class ResponseHeaderWebFilter implements WebFilter, Ordered {
     
     private final String origin;
+    private boolean cancelExpiredRequests;
     
     // Make this filter near the highest priority so that we're sure to capture the response time appropriately.
     private int order = Ordered.HIGHEST_PRECEDENCE + 1;
@@ -38,6 +53,7 @@ public class ResponseHeaderWebFilter implements WebFilter, Ordered {
         if (exchange.getAttribute(REQUEST_START_TIME_NS_ATTRIBUTE) == null) {
             exchange.getAttributes().put(REQUEST_START_TIME_NS_ATTRIBUTE, System.nanoTime());
         }
+        Long deadlineNanos = getDeadlineNanos(exchange);
         exchange.getResponse().beforeCommit(() -> {
             HttpHeaders headers = exchange.getResponse().getHeaders();
             headers.set(RESPONSE_ORIGIN_HEADER, origin);
@@ -49,7 +65,36 @@ public class ResponseHeaderWebFilter implements WebFilter, Ordered {
             }
             return Mono.empty();
         });
-        return chain.filter(exchange);
+        if (deadlineNanos == null) {
+            return chain.filter(exchange);
+        }
+        
+        Mono<Void> filtered = chain.filter(exchange).contextWrite(Context.of(REQUEST_DEADLINE_NS_ATTRIBUTE, deadlineNanos));
+        if (!cancelExpiredRequests) {
+            return filtered;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return rejectExpired(exchange);
+        }
+        return filtered.timeout(Duration.ofNanos(remainingNanos), Mono.defer(() -> rejectExpired(exchange)));
+    }
+    
+    private Long getDeadlineNanos(ServerWebExchange exchange) {
+        Long remainingMillis = RequestDeadlines.parseRemainingMillis(exchange.getRequest().getHeaders().getFirst(REQUEST_DEADLINE_HEADER));
+        if (remainingMillis == null) {
+            return null;
+        }
+        @SuppressWarnings("ConstantConditions")
+        long startTimeNanos = exchange.getAttribute(REQUEST_START_TIME_NS_ATTRIBUTE);
+        long deadlineNanos = RequestDeadlines.getDeadlineNanos(startTimeNanos, remainingMillis);
+        exchange.getAttributes().put(REQUEST_DEADLINE_NS_ATTRIBUTE, deadlineNanos);
+        return deadlineNanos;
+    }
+    
+    private Mono<Void> rejectExpired(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return exchange.getResponse().setComplete();
     }
     
     @Override
@@ -60,4 +105,8 @@ public class ResponseHeaderWebFilter implements WebFilter, Ordered {
     public void setOrder(int order) {
         this.order = order;
     }
+    
+    public void setCancelExpiredRequests(boolean cancelExpiredRequests) {
+        this.cancelExpiredRequests = cancelExpiredRequests;
+    }
 }
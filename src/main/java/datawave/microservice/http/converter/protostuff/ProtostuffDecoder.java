@@ -0,0 +1,56 @@
+package datawave.microservice.http.converter.protostuff;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import io.protostuff.Message;
+import io.protostuff.ProtostuffIOUtil;
+import reactor.core.publisher.Flux;
+
+/**
+ * A reactive {@link org.springframework.core.codec.Decoder} that reads messages that implement the Protostuff {@link Message} interface. This is the
+ * {@link org.springframework.web.reactive.function.client.WebClient} counterpart to {@link ProtostuffHttpMessageConverter}.
+ */
+public class ProtostuffDecoder extends AbstractDataBufferDecoder<Message<?>> {
+    
+    public ProtostuffDecoder() {
+        super(ProtostuffHttpMessageConverter.PROTOSTUFF);
+    }
+    
+    @Override
+    public boolean canDecode(@NonNull ResolvableType elementType, @Nullable MimeType mimeType) {
+        return Message.class.isAssignableFrom(elementType.toClass()) && super.canDecode(elementType, mimeType);
+    }
+    
+    @Override
+    public @NonNull Flux<Message<?>> decode(@NonNull Publisher<DataBuffer> input, @NonNull ResolvableType elementType, @Nullable MimeType mimeType,
+                    @Nullable Map<String,Object> hints) {
+        // A protostuff message is not delimited, so the whole body is always a single message.
+        return Flux.from(decodeToMono(input, elementType, mimeType, hints));
+    }
+    
+    @Override
+    public Message<?> decode(@NonNull DataBuffer buffer, @NonNull ResolvableType targetType, @Nullable MimeType mimeType, @Nullable Map<String,Object> hints)
+                    throws DecodingException {
+        try {
+            // noinspection unchecked
+            Message<Object> msg = (Message<Object>) targetType.toClass().getDeclaredConstructor().newInstance();
+            ProtostuffIOUtil.mergeFrom(buffer.asInputStream(), msg, msg.cachedSchema());
+            return msg;
+        } catch (ReflectiveOperationException | IOException e) {
+            throw new DecodingException("Unable to read protostuff message: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 import org.springframework.web.util.WebUtils;
 
 import datawave.microservice.config.web.Constants;
+import datawave.microservice.config.web.RequestDeadlineExceededException;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.result.VoidResponse;
 
@@ -69,6 +70,14 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         throw ex;
     }
     
+    /**
+     * Handle a {@link RequestDeadlineExceededException}, thrown by a handler that gave up because the caller's deadline passed, as a 504 (Gateway Timeout).
+     */
+    @ExceptionHandler({RequestDeadlineExceededException.class})
+    public ResponseEntity<Object> handleRequestDeadlineExceededException(RequestDeadlineExceededException ex, WebRequest request) {
+        return handleExceptionInternal(ex, null, new HttpHeaders(), HttpStatus.GATEWAY_TIMEOUT, request);
+    }
+    
     /**
      * This is a catch-all handler for exceptions that aren't caught anywhere else. We simply turn the exception into a {@link VoidResponse} and return it.
      */
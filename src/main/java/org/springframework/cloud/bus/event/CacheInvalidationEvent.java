@@ -0,0 +1,70 @@
+package org.springframework.cloud.bus.event;
+
+import java.util.List;
+
+/**
+ * A {@link RemoteApplicationEvent} to indicate that an entry (or all entries) of a shared cache has changed, so any local copies of it should be evicted.
+ */
+public class CacheInvalidationEvent extends RemoteApplicationEvent {
+    private final String cacheManager;
+    private final String cacheName;
+    private final boolean listKey;
+    private final List<String> keyClasses;
+    private final List<String> keyValues;
+    
+    @SuppressWarnings("unused")
+    public CacheInvalidationEvent() {
+        // this constructor is only for serialization/deserialization
+        cacheManager = null;
+        cacheName = null;
+        listKey = false;
+        keyClasses = null;
+        keyValues = null;
+    }
+    
+    /**
+     * @param source
+     *            the object on which the event initially occurred
+     * @param originService
+     *            the bus id of the service that changed the cache
+     * @param cacheManager
+     *            the bean name of the cache manager
+     * @param cacheName
+     *            the name of the cache
+     * @param listKey
+     *            whether the key is a list of elements rather than a single element
+     * @param keyClasses
+     *            the class names of the key elements, or null if all entries of the cache changed
+     * @param keyValues
+     *            the JSON encoding of the key elements, or null if all entries of the cache changed
+     */
+    public CacheInvalidationEvent(Object source, String originService, String cacheManager, String cacheName, boolean listKey, List<String> keyClasses,
+                    List<String> keyValues) {
+        super(source, originService, (String) null);
+        this.cacheManager = cacheManager;
+        this.cacheName = cacheName;
+        this.listKey = listKey;
+        this.keyClasses = keyClasses;
+        this.keyValues = keyValues;
+    }
+    
+    public String getCacheManager() {
+        return cacheManager;
+    }
+    
+    public String getCacheName() {
+        return cacheName;
+    }
+    
+    public boolean isListKey() {
+        return listKey;
+    }
+    
+    public List<String> getKeyClasses() {
+        return keyClasses;
+    }
+    
+    public List<String> getKeyValues() {
+        return keyValues;
+    }
+}
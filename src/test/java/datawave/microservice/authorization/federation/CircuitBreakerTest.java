@@ -0,0 +1,90 @@
+package datawave.microservice.authorization.federation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.CircuitBreakerProperties;
+
+public class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+    private CircuitBreakerProperties properties;
+    private CircuitBreaker circuitBreaker;
+    
+    @BeforeEach
+    public void setup() {
+        properties = new CircuitBreakerProperties();
+        properties.setSlidingWindowSize(10);
+        properties.setMinimumNumberOfCalls(4);
+        properties.setFailureRateThreshold(0.5);
+        properties.setOpenDuration(1000L);
+        properties.setPermittedCallsInHalfOpenState(2);
+        circuitBreaker = new CircuitBreaker(properties, now::get);
+    }
+    
+    @Test
+    public void testOpensWhenFailureRateExceeded() {
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+    
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+    
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulTrials() {
+        tripBreaker();
+        
+        now.addAndGet(1000L);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+    
+    @Test
+    public void testHalfOpenReopensOnFailure() {
+        tripBreaker();
+        
+        now.addAndGet(1000L);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+    
+    @Test
+    public void testDisabledAlwaysPermits() {
+        properties.setEnabled(false);
+        tripBreaker();
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+    
+    private void tripBreaker() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -1,6 +1,8 @@
 package datawave.microservice.authorization.federation;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,12 @@ public class FederatedAuthorizationServiceRegistrarTest {
         assertNotNull(federatedAuthorizationService);
     }
     
+    @Test
+    public void federatedAuthorizationServiceScopeTest() {
+        assertNotSame(applicationContext.getBean("FederatedAuthorizationService"), applicationContext.getBean("FederatedAuthorizationService"));
+        assertSame(applicationContext.getBean("SingletonFederatedAuthorizationService"), applicationContext.getBean("SingletonFederatedAuthorizationService"));
+    }
+    
     @SpringBootApplication(scanBasePackages = "datawave.microservice")
     public static class TestConfiguration {}
 }
@@ -0,0 +1,583 @@
+package datawave.microservice.authorization.federation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import datawave.microservice.authorization.config.AuthorizationsListSupplier;
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties;
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties.RetryTimeoutProperties;
+import datawave.microservice.authorization.jwt.JWTExchangeFilterFunction;
+import datawave.microservice.authorization.preauth.ProxiedEntityX509Filter;
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.microservice.http.converter.protostuff.ProtostuffHttpMessageConverter;
+import datawave.security.authorization.AuthorizationException;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.JWTTokenHandler;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.user.AuthorizationsListBase;
+import datawave.user.DefaultAuthorizationsList;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+
+public class FederatedAuthorizationServiceTest {
+    private static final String ENDPOINT = "listEffectiveAuthorizations";
+    
+    private final AtomicReference<HttpHandler> handler = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger cancelledRequests = new AtomicInteger();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private ExecutorService executor;
+    private FederatedAuthorizationServiceProperties properties;
+    private FederatedRemoteStateRegistry remoteStateRegistry;
+    private DatawaveUserDetails user;
+    private DatawaveUserDetails otherUser;
+    
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/authorization/v2/", exchange -> {
+            requests.incrementAndGet();
+            handler.get().handle(exchange);
+        });
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        
+        properties = new FederatedAuthorizationServiceProperties();
+        properties.setFederatedAuthorizationUri("http://localhost:" + server.getAddress().getPort() + "/authorization/v2/");
+        RetryTimeoutProperties retry = properties.getListEffectiveAuthorizationsRetry();
+        retry.setRetries(2);
+        retry.setRetryDelay(1L);
+        retry.setExponentialBackoff(false);
+        retry.setTimeout(10000L);
+        properties.getCircuitBreaker().setSlidingWindowSize(1);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(1);
+        
+        remoteStateRegistry = new FederatedRemoteStateRegistry(new MetricRegistry());
+        
+        SubjectIssuerDNPair dn = SubjectIssuerDNPair.of("cn=user", "cn=issuer");
+        user = new DatawaveUserDetails(Collections.singleton(new DatawaveUser(dn, UserType.USER, null, null, null, System.currentTimeMillis())));
+        SubjectIssuerDNPair otherDn = SubjectIssuerDNPair.of("cn=other", "cn=issuer");
+        otherUser = new DatawaveUserDetails(Collections.singleton(new DatawaveUser(otherDn, UserType.USER, null, null, null, System.currentTimeMillis())));
+    }
+    
+    @AfterEach
+    public void teardown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testClosedPortIsRetriedAndCountedAsFailure() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        properties.setFederatedAuthorizationUri("http://localhost:" + closedPort + "/authorization/v2/");
+        FederatedAuthorizationService service = createService();
+        
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        
+        FederatedRemoteState remoteState = remoteStateRegistry.getRemoteState(properties);
+        FederatedEndpointMetrics metrics = remoteState.getEndpointMetrics(ENDPOINT);
+        assertEquals(3, metrics.getRequestErrors().getCount());
+        assertEquals(2, metrics.getRetries().getCount());
+        assertEquals(1, metrics.getRetriesExhausted().getCount());
+        assertEquals(CircuitBreaker.State.OPEN, remoteState.getCircuitBreaker().getState());
+    }
+    
+    @Test
+    public void testServerErrorIsRetriedAndCountedAsFailure() {
+        handler.set(exchange -> respond(exchange, 500, null));
+        FederatedAuthorizationService service = createService();
+        
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        
+        FederatedRemoteState remoteState = remoteStateRegistry.getRemoteState(properties);
+        FederatedEndpointMetrics metrics = remoteState.getEndpointMetrics(ENDPOINT);
+        assertEquals(3, requests.get());
+        assertEquals(3, metrics.getServerErrors().getCount());
+        assertEquals(2, metrics.getRetries().getCount());
+        assertEquals(CircuitBreaker.State.OPEN, remoteState.getCircuitBreaker().getState());
+    }
+    
+    @Test
+    public void testClientErrorIsNotRetriedAndCountedAsSuccess() {
+        handler.set(exchange -> respond(exchange, 403, null));
+        FederatedAuthorizationService service = createService();
+        
+        assertThrows(WebClientResponseException.Forbidden.class, () -> service.listEffectiveAuthorizations(user, false));
+        
+        FederatedRemoteState remoteState = remoteStateRegistry.getRemoteState(properties);
+        FederatedEndpointMetrics metrics = remoteState.getEndpointMetrics(ENDPOINT);
+        assertEquals(1, requests.get());
+        assertEquals(1, metrics.getClientErrors().getCount());
+        assertEquals(0, metrics.getRetries().getCount());
+        assertEquals(CircuitBreaker.State.CLOSED, remoteState.getCircuitBreaker().getState());
+    }
+    
+    @Test
+    public void testOpenCircuitRejectsCalls() {
+        handler.set(exchange -> respond(exchange, 500, null));
+        FederatedAuthorizationService service = createService();
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        int requestsBeforeRejection = requests.get();
+        
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        
+        FederatedEndpointMetrics metrics = remoteStateRegistry.getRemoteState(properties).getEndpointMetrics(ENDPOINT);
+        assertEquals(requestsBeforeRejection, requests.get());
+        assertEquals(1, metrics.getRejected().getCount());
+        assertEquals(1, metrics.getLatency().getCount());
+    }
+    
+    @Test
+    public void testAttemptTimeoutsAreCounted() {
+        RetryTimeoutProperties retry = properties.getListEffectiveAuthorizationsRetry();
+        retry.setRetries(1);
+        retry.setAdaptiveTimeoutEnabled(true);
+        retry.setMinTimeout(200L);
+        recordLatency(10);
+        handler.set(exchange -> {
+            sleep(2000);
+            respond(exchange, 200, null);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        long start = System.currentTimeMillis();
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        // each attempt timed out after the adaptive timeout rather than the configured 10s
+        assertTrue(System.currentTimeMillis() - start < 2000L);
+        
+        FederatedEndpointMetrics metrics = remoteStateRegistry.getRemoteState(properties).getEndpointMetrics(ENDPOINT);
+        assertEquals(2, metrics.getTimeouts().getCount());
+        assertEquals(1, metrics.getRetries().getCount());
+        assertEquals(1, metrics.getRetriesExhausted().getCount());
+        assertEquals(1, metrics.getLatency().getCount());
+    }
+    
+    @Test
+    public void testAttemptTimeoutRisesWhenRemoteSlowsDown() throws Exception {
+        RetryTimeoutProperties retry = properties.getListEffectiveAuthorizationsRetry();
+        retry.setAdaptiveTimeoutEnabled(true);
+        retry.setMinTimeout(100L);
+        // the remote service used to answer in 10ms, so the first attempt times out after the minimum of 100ms
+        recordLatency(10);
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        handler.set(exchange -> {
+            sleep(150);
+            respond(exchange, 200, body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        // the timed out attempt was recorded at 100ms, so the retry was allowed three times that
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        
+        FederatedRemoteState remoteState = remoteStateRegistry.getRemoteState(properties);
+        assertEquals(1, remoteState.getEndpointMetrics(ENDPOINT).getTimeouts().getCount());
+        assertTrue(remoteState.getAttemptTimeoutMillis(ENDPOINT, retry) >= 300L);
+    }
+    
+    @Test
+    public void testRetriesAreLimitedByRetryBudget() {
+        properties.getListEffectiveAuthorizationsRetry().setRetryBudgetRatio(0.0);
+        properties.getListEffectiveAuthorizationsRetry().setRetryBudgetMaxBalance(1);
+        handler.set(exchange -> respond(exchange, 500, null));
+        FederatedAuthorizationService service = createService();
+        
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        
+        FederatedRemoteState remoteState = remoteStateRegistry.getRemoteState(properties);
+        FederatedEndpointMetrics metrics = remoteState.getEndpointMetrics(ENDPOINT);
+        // the budget only held a single retry
+        assertEquals(2, requests.get());
+        assertEquals(1, metrics.getRetries().getCount());
+        assertEquals(0, metrics.getRetriesExhausted().getCount());
+        assertEquals(0.0, remoteState.getRetryBudget(ENDPOINT, properties.getListEffectiveAuthorizationsRetry()).getBalance());
+    }
+    
+    @Test
+    public void testHedgedRequestWinsAndSlowRequestIsCancelled() throws Exception {
+        enableHedging();
+        CountDownLatch releaseSlowRequest = new CountDownLatch(1);
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A", "B"));
+        handler.set(exchange -> {
+            if (requests.get() == 1) {
+                try {
+                    releaseSlowRequest.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 200, body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        try {
+            long start = System.nanoTime();
+            AuthorizationsListBase<?> authorizations = service.listEffectiveAuthorizations(user, false);
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+            assertEquals(new TreeSet<>(Arrays.asList("A", "B")), new TreeSet<>(authorizations.getAllAuths()));
+            assertEquals(2, requests.get());
+            assertEquals(1, cancelledRequests.get());
+        } finally {
+            releaseSlowRequest.countDown();
+        }
+    }
+    
+    @Test
+    public void testHedgeIsNotSentWithoutBudget() throws Exception {
+        enableHedging();
+        properties.getListEffectiveAuthorizationsRetry().setHedgeBudgetRatio(0.0);
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        handler.set(exchange -> {
+            sleep(300);
+            respond(exchange, 200, body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        // the budget starts out holding a single hedge
+        service.listEffectiveAuthorizations(user, false);
+        assertEquals(2, requests.get());
+        assertEquals(1, cancelledRequests.get());
+        
+        service.listEffectiveAuthorizations(user, false);
+        assertEquals(3, requests.get());
+        assertEquals(1, cancelledRequests.get());
+    }
+    
+    @Test
+    public void testHedgeIsNotSentAfterFirstAttemptFails() {
+        enableHedging();
+        properties.getListEffectiveAuthorizationsRetry().setRetries(0);
+        properties.getListEffectiveAuthorizationsRetry().setHedgeMinDelay(2000L);
+        handler.set(exchange -> respond(exchange, 500, null));
+        FederatedAuthorizationService service = createService();
+        
+        long start = System.currentTimeMillis();
+        assertThrows(AuthorizationException.class, () -> service.listEffectiveAuthorizations(user, false));
+        assertTrue(System.currentTimeMillis() - start < 2000L);
+        // wait until after the hedge would have been sent
+        sleep(Math.max(0L, start + 2500L - System.currentTimeMillis()));
+        assertEquals(1, requests.get());
+    }
+    
+    @Test
+    public void testStreamingDecodeOfChunkedResponse() throws Exception {
+        properties.setStreamingDecode(true);
+        List<String> auths = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            auths.add("AUTH" + i);
+        }
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations(auths.toArray(new String[0])));
+        handler.set(exchange -> {
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            // a length of zero sends the body in chunks
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int offset = 0; offset < body.length; offset += 512) {
+                    out.write(body, offset, Math.min(512, body.length - offset));
+                    out.flush();
+                }
+            }
+            exchange.close();
+        });
+        FederatedAuthorizationService service = createService();
+        
+        AuthorizationsListBase<?> authorizations = service.listEffectiveAuthorizations(user, false);
+        assertEquals(new TreeSet<>(auths), new TreeSet<>(authorizations.getAllAuths()));
+    }
+    
+    @Test
+    public void testStreamingDecodeOfErrorResponse() {
+        properties.setStreamingDecode(true);
+        handler.set(exchange -> respond(exchange, 404, null));
+        FederatedAuthorizationService service = createService();
+        
+        assertThrows(WebClientResponseException.NotFound.class, () -> service.listEffectiveAuthorizations(user, false));
+    }
+    
+    @Test
+    public void testBatchRequest() throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(Arrays.asList(createAuthorizations("A"), createAuthorizations("B")));
+        handler.set(exchange -> respond(exchange, isBatchRequest(exchange) ? 200 : 500, isBatchRequest(exchange) ? body : null));
+        FederatedAuthorizationService service = createService();
+        
+        Map<DatawaveUserDetails,AuthorizationsListBase> authorizations = service.listEffectiveAuthorizations(Arrays.asList(user, otherUser), false);
+        assertEquals(Collections.singleton("A"), authorizations.get(user).getAllAuths());
+        assertEquals(Collections.singleton("B"), authorizations.get(otherUser).getAllAuths());
+        assertEquals(1, requests.get());
+    }
+    
+    @Test
+    public void testJwtFilterIsRemoved() throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        handler.set(exchange -> respond(exchange, 200, body));
+        // a filter for every host, as if the Spring-provided builder had been customized to send JWTs
+        JWTExchangeFilterFunction jwtFilter = spy(new JWTExchangeFilterFunction(mock(JWTTokenHandler.class), null, -1));
+        FederatedAuthorizationService service = createService(WebClient.builder().filter(jwtFilter));
+        
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        verifyNoInteractions(jwtFilter);
+    }
+    
+    @Test
+    public void testProtostuffResponseIsDecoded() throws Exception {
+        properties.setPreferProtostuff(true);
+        DefaultAuthorizationsList expected = createAuthorizations("A", "B");
+        byte[] body = ProtostuffIOUtil.toByteArray(expected, expected.cachedSchema(), LinkedBuffer.allocate());
+        List<String> acceptHeaders = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            acceptHeaders.add(exchange.getRequestHeaders().getFirst(HttpHeaders.ACCEPT));
+            respond(exchange, 200, body, ProtostuffHttpMessageConverter.PROTOSTUFF_VALUE);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        assertEquals(new TreeSet<>(Arrays.asList("A", "B")), new TreeSet<>(service.listEffectiveAuthorizations(user, false).getAllAuths()));
+        assertEquals(Collections.singletonList("application/x-protostuff, application/json;q=0.9"), acceptHeaders);
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testJsonResponseIsDecoded(boolean preferProtostuff) throws Exception {
+        properties.setPreferProtostuff(preferProtostuff);
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        List<String> acceptHeaders = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            acceptHeaders.add(exchange.getRequestHeaders().getFirst(HttpHeaders.ACCEPT));
+            // a remote service that can't produce protostuff falls back to JSON
+            respond(exchange, 200, body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        String expectedAccept = preferProtostuff ? "application/x-protostuff, application/json;q=0.9" : "application/json";
+        assertEquals(Collections.singletonList(expectedAccept), acceptHeaders);
+    }
+    
+    @Test
+    public void testNotModifiedResponseReturnsKeptBody() throws Exception {
+        properties.getConditionalRequests().setEnabled(true);
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        List<String> conditions = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            conditions.add(String.valueOf(ifNoneMatch));
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"v1\"");
+            respond(exchange, "\"v1\"".equals(ifNoneMatch) ? 304 : 200, "\"v1\"".equals(ifNoneMatch) ? null : body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        
+        assertEquals(Arrays.asList("null", "\"v1\""), conditions);
+        assertEquals(1, remoteStateRegistry.getRemoteState(properties).getEndpointMetrics(ENDPOINT).getNotModified().getCount());
+    }
+    
+    @Test
+    public void testLastModifiedIsSentWithoutETag() throws Exception {
+        properties.getConditionalRequests().setEnabled(true);
+        String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        List<String> conditions = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_MODIFIED_SINCE);
+            conditions.add(String.valueOf(ifModifiedSince));
+            exchange.getResponseHeaders().set(HttpHeaders.LAST_MODIFIED, lastModified);
+            respond(exchange, lastModified.equals(ifModifiedSince) ? 304 : 200, lastModified.equals(ifModifiedSince) ? null : body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        service.listEffectiveAuthorizations(user, false);
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        
+        assertEquals(Arrays.asList("null", lastModified), conditions);
+    }
+    
+    @Test
+    public void testChangedResponseReplacesKeptResponse() throws Exception {
+        properties.getConditionalRequests().setEnabled(true);
+        byte[] firstBody = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        byte[] changedBody = objectMapper.writeValueAsBytes(createAuthorizations("B"));
+        List<String> conditions = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            conditions.add(String.valueOf(ifNoneMatch));
+            // the first response is version 1, and the remote's authorizations then change to version 2
+            String eTag = (requests.get() == 1) ? "\"v1\"" : "\"v2\"";
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, eTag);
+            respond(exchange, eTag.equals(ifNoneMatch) ? 304 : 200, eTag.equals(ifNoneMatch) ? null : (requests.get() == 1 ? firstBody : changedBody));
+        });
+        FederatedAuthorizationService service = createService();
+        
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        assertEquals(Collections.singleton("B"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        assertEquals(Collections.singleton("B"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        
+        assertEquals(Arrays.asList("null", "\"v1\"", "\"v2\""), conditions);
+        assertEquals(1, remoteStateRegistry.getRemoteState(properties).getEndpointMetrics(ENDPOINT).getNotModified().getCount());
+    }
+    
+    @Test
+    public void testRevalidationRestartsRetention() throws Exception {
+        properties.getConditionalRequests().setEnabled(true);
+        properties.getConditionalRequests().setRetention(1000L);
+        byte[] body = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        List<String> conditions = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            conditions.add(String.valueOf(ifNoneMatch));
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"v1\"");
+            respond(exchange, "\"v1\"".equals(ifNoneMatch) ? 304 : 200, "\"v1\"".equals(ifNoneMatch) ? null : body);
+        });
+        FederatedAuthorizationService service = createService();
+        
+        service.listEffectiveAuthorizations(user, false);
+        sleep(700);
+        service.listEffectiveAuthorizations(user, false);
+        // more than the retention after the response was received, but not after it was revalidated
+        sleep(700);
+        assertEquals(Collections.singleton("A"), service.listEffectiveAuthorizations(user, false).getAllAuths());
+        
+        assertEquals(Arrays.asList("null", "\"v1\"", "\"v1\""), conditions);
+    }
+    
+    @ParameterizedTest
+    @ValueSource(ints = {404, 405})
+    public void testBatchFallsBackToSingleRequests(int batchStatus) throws Exception {
+        byte[] userBody = objectMapper.writeValueAsBytes(createAuthorizations("A"));
+        byte[] otherUserBody = objectMapper.writeValueAsBytes(createAuthorizations("B"));
+        List<String> batchRequests = Collections.synchronizedList(new ArrayList<>());
+        handler.set(exchange -> {
+            if (isBatchRequest(exchange)) {
+                batchRequests.add(exchange.getRequestURI().getPath());
+                respond(exchange, batchStatus, null);
+            } else {
+                String entities = exchange.getRequestHeaders().getFirst(ProxiedEntityX509Filter.ENTITIES_HEADER);
+                respond(exchange, 200, entities.contains("cn=other") ? otherUserBody : userBody);
+            }
+        });
+        FederatedAuthorizationService service = createService();
+        
+        Map<DatawaveUserDetails,AuthorizationsListBase> authorizations = service.listEffectiveAuthorizations(Arrays.asList(user, otherUser), false);
+        assertEquals(Collections.singleton("A"), authorizations.get(user).getAllAuths());
+        assertEquals(Collections.singleton("B"), authorizations.get(otherUser).getAllAuths());
+        assertEquals(1, batchRequests.size());
+        assertEquals(3, requests.get());
+        assertFalse(remoteStateRegistry.getRemoteState(properties).isBatchSupported());
+        
+        // the batch endpoint isn't tried again until it is reprobed
+        service.listEffectiveAuthorizations(Arrays.asList(user, otherUser), false);
+        assertEquals(1, batchRequests.size());
+        assertEquals(5, requests.get());
+    }
+    
+    private void enableHedging() {
+        RetryTimeoutProperties retry = properties.getListEffectiveAuthorizationsRetry();
+        retry.setHedgeEnabled(true);
+        retry.setHedgeMinDelay(100L);
+        // the hedge delay is only known once enough calls have been observed
+        recordLatency(10);
+    }
+    
+    private void recordLatency(long millis) {
+        LatencyTracker latencyTracker = remoteStateRegistry.getRemoteState(properties).getLatencyTracker(ENDPOINT);
+        for (int i = 0; i < 20; i++) {
+            latencyTracker.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+    
+    private FederatedAuthorizationService createService() {
+        return createService(WebClient.builder());
+    }
+    
+    private FederatedAuthorizationService createService(WebClient.Builder webClientBuilder) {
+        webClientBuilder.filter((request, next) -> next.exchange(request).doOnCancel(cancelledRequests::incrementAndGet));
+        return new FederatedAuthorizationService(properties, webClientBuilder, new AuthorizationsListSupplier(), remoteStateRegistry,
+                        new ConcurrentMapCacheManager(), null);
+    }
+    
+    private static DefaultAuthorizationsList createAuthorizations(String... auths) {
+        DefaultAuthorizationsList authorizations = new DefaultAuthorizationsList();
+        authorizations.setUserAuths("cn=user", "cn=issuer", Arrays.asList(auths));
+        return authorizations;
+    }
+    
+    private static boolean isBatchRequest(HttpExchange exchange) {
+        return exchange.getRequestURI().getPath().endsWith("/batch");
+    }
+    
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        respond(exchange, status, body, "application/json");
+    }
+    
+    private static void respond(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException {
+        // connections aren't reused, so that a request never races the server closing an idle connection
+        exchange.getResponseHeaders().set("Connection", "close");
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package datawave.microservice.authorization.federation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import reactor.netty.resources.ConnectionPoolMetrics;
+
+public class FederatedConnectionPoolRegistryTest {
+    private static final String PREFIX = FederatedConnectionPoolRegistry.METRIC_PREFIX + ".remote:8443.";
+    
+    private MetricRegistry metricRegistry;
+    private FederatedConnectionPoolRegistry.DropwizardMeterRegistrar registrar;
+    
+    @BeforeEach
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        registrar = new FederatedConnectionPoolRegistry(null, false, metricRegistry, null).new DropwizardMeterRegistrar();
+    }
+    
+    @Test
+    public void testMetricsPerRemoteAddress() {
+        InetSocketAddress first = InetSocketAddress.createUnresolved("10.0.0.1", 8443);
+        InetSocketAddress second = InetSocketAddress.createUnresolved("10.0.0.2", 8443);
+        registrar.registerMetrics("remote:8443", "1", first, createMetrics(3));
+        registrar.registerMetrics("remote:8443", "2", second, createMetrics(5));
+        
+        // each address keeps its own gauges
+        assertEquals(3, metricRegistry.getGauges().get(PREFIX + "10.0.0.1:8443.acquired").getValue());
+        assertEquals(5, metricRegistry.getGauges().get(PREFIX + "10.0.0.2:8443.acquired").getValue());
+        
+        registrar.deRegisterMetrics("remote:8443", "1", first);
+        assertTrue(metricRegistry.getGauges().keySet().stream().noneMatch(name -> name.startsWith(PREFIX + "10.0.0.1:8443.")));
+        assertEquals(6, metricRegistry.getGauges().keySet().stream().filter(name -> name.startsWith(PREFIX + "10.0.0.2:8443.")).count());
+    }
+    
+    @Test
+    public void testReregisteringReplacesMetrics() {
+        InetSocketAddress address = InetSocketAddress.createUnresolved("10.0.0.1", 8443);
+        registrar.registerMetrics("remote:8443", "1", address, createMetrics(3));
+        registrar.registerMetrics("remote:8443", "2", address, createMetrics(4));
+        
+        assertEquals(4, metricRegistry.getGauges().get(PREFIX + "10.0.0.1:8443.acquired").getValue());
+    }
+    
+    private static ConnectionPoolMetrics createMetrics(int acquired) {
+        ConnectionPoolMetrics metrics = mock(ConnectionPoolMetrics.class);
+        when(metrics.acquiredSize()).thenReturn(acquired);
+        return metrics;
+    }
+}
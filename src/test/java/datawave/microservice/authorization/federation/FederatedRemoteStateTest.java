@@ -0,0 +1,62 @@
+package datawave.microservice.authorization.federation;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import datawave.microservice.authorization.federation.config.FederatedAuthorizationServiceProperties;
+
+public class FederatedRemoteStateTest {
+    private final AtomicLong now = new AtomicLong(1000L);
+    private MetricRegistry metricRegistry;
+    private FederatedRemoteState remoteState;
+    
+    @BeforeEach
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        FederatedAuthorizationServiceProperties properties = new FederatedAuthorizationServiceProperties();
+        properties.setFederatedAuthorizationUri("https://authorization:8443/authorization/v2/");
+        remoteState = new FederatedRemoteState(properties, metricRegistry, now::get);
+    }
+    
+    @Test
+    public void testEndpointMetricsAreNamedByRemoteAndEndpoint() {
+        FederatedEndpointMetrics metrics = remoteState.getEndpointMetrics("listEffectiveAuthorizations");
+        assertSame(metrics, remoteState.getEndpointMetrics("listEffectiveAuthorizations"));
+        
+        String prefix = "federatedAuthorization.remote.authorization:8443/authorization/v2.listEffectiveAuthorizations.";
+        assertSame(metrics.getLatency(), metricRegistry.getTimers().get(prefix + "latency"));
+        assertSame(metrics.getRetries(), metricRegistry.getCounters().get(prefix + "retries"));
+        assertSame(metrics.getRetriesExhausted(), metricRegistry.getCounters().get(prefix + "retriesExhausted"));
+        assertSame(metrics.getTimeouts(), metricRegistry.getCounters().get(prefix + "timeouts"));
+        assertSame(metrics.getClientErrors(), metricRegistry.getCounters().get(prefix + "clientErrors"));
+        assertSame(metrics.getServerErrors(), metricRegistry.getCounters().get(prefix + "serverErrors"));
+        assertSame(metrics.getRequestErrors(), metricRegistry.getCounters().get(prefix + "requestErrors"));
+        assertSame(metrics.getRejected(), metricRegistry.getCounters().get(prefix + "rejected"));
+        
+        assertNotSame(metrics, remoteState.getEndpointMetrics("flushCachedCredentials"));
+    }
+    
+    @Test
+    public void testBatchIsReprobedAfterBeingUnsupported() {
+        assertTrue(remoteState.isBatchSupported());
+        
+        remoteState.setBatchUnsupported();
+        assertFalse(remoteState.isBatchSupported());
+        
+        now.addAndGet(TimeUnit.MINUTES.toMillis(10) - 1);
+        assertFalse(remoteState.isBatchSupported());
+        
+        now.incrementAndGet();
+        assertTrue(remoteState.isBatchSupported());
+    }
+}
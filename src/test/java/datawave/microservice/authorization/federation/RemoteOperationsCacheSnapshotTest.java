@@ -0,0 +1,177 @@
+package datawave.microservice.authorization.federation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import datawave.microservice.authorization.federation.config.PersistentCacheProperties;
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.user.AuthorizationsListBase;
+import datawave.user.DefaultAuthorizationsList;
+
+public class RemoteOperationsCacheSnapshotTest {
+    private static final List<Class<?>> CACHED_TYPES = Arrays.asList(DatawaveUserDetails.class, DefaultAuthorizationsList.class);
+    
+    @TempDir
+    Path tempDir;
+    
+    private PersistentCacheProperties properties;
+    private DatawaveUserDetails user1;
+    private DatawaveUserDetails user2;
+    
+    @BeforeEach
+    public void setup() {
+        properties = new PersistentCacheProperties();
+        properties.setFile(tempDir.resolve("snapshot.bin").toString());
+        user1 = createUser("cn=user1");
+        user2 = createUser("cn=user2");
+    }
+    
+    @Test
+    public void testSaveAndLoad() {
+        CaffeineCacheManager cacheManager = createCacheManager();
+        cacheManager.getCache("listEffectiveAuthorizations").put(Collections.singletonList(user1), createAuthorizations("cn=user1", "A", "B"));
+        cacheManager.getCache("listEffectiveAuthorizations").put(Collections.singletonList(user2), createAuthorizations("cn=user2", "C"));
+        cacheManager.getCache("getRemoteUser").put(Collections.singletonList(user1), user1);
+        createSnapshot(cacheManager).save();
+        
+        CaffeineCacheManager restartedCacheManager = createCacheManager();
+        // entries cached before the snapshot is loaded are not replaced
+        restartedCacheManager.getCache("listEffectiveAuthorizations").put(Collections.singletonList(user2), createAuthorizations("cn=user2", "D"));
+        createSnapshot(restartedCacheManager).load();
+        
+        Cache authorizations = restartedCacheManager.getCache("listEffectiveAuthorizations");
+        AuthorizationsListBase<?> user1Authorizations = authorizations.get(Collections.singletonList(user1), AuthorizationsListBase.class);
+        assertEquals("cn=user1", user1Authorizations.getUserDn());
+        assertEquals(Arrays.asList("A", "B"), Arrays.asList(user1Authorizations.getAllAuths().stream().sorted().toArray()));
+        assertEquals(Collections.singleton("D"), authorizations.get(Collections.singletonList(user2), AuthorizationsListBase.class).getAllAuths());
+        assertEquals(user1, restartedCacheManager.getCache("getRemoteUser").get(Collections.singletonList(user1), DatawaveUserDetails.class));
+        assertNull(restartedCacheManager.getCache("getRemoteUser").get(Collections.singletonList(user2)));
+        
+        // restored entries only live for the remainder of their original lifetime
+        OptionalLong remaining = ((CaffeineCache) authorizations).getNativeCache().policy().expireVariably().orElseThrow(IllegalStateException::new)
+                        .getExpiresAfter(Collections.singletonList(user1), TimeUnit.MILLISECONDS);
+        assertTrue(remaining.isPresent() && remaining.getAsLong() <= TimeUnit.MINUTES.toMillis(5));
+    }
+    
+    @Test
+    public void testLoadMissingSnapshot() {
+        properties.setFile(tempDir.resolve("missing.bin").toString());
+        
+        CaffeineCacheManager cacheManager = createCacheManager();
+        createSnapshot(cacheManager).load();
+        
+        assertNull(cacheManager.getCache("listEffectiveAuthorizations").get(Collections.singletonList(user1)));
+    }
+    
+    @Test
+    public void testFileIsRequired() {
+        properties.setFile(null);
+        assertThrows(IllegalStateException.class, () -> createSnapshot(createCacheManager()));
+    }
+    
+    @Test
+    public void testSnapshotIsOnlyAccessibleToOwner() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Path file = tempDir.resolve("snapshots").resolve("snapshot.bin");
+        properties.setFile(file.toString());
+        
+        CaffeineCacheManager cacheManager = createCacheManager();
+        cacheManager.getCache("getRemoteUser").put(Collections.singletonList(user1), user1);
+        createSnapshot(cacheManager).save();
+        
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.getParent())));
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+    }
+    
+    @Test
+    public void testSnapshotAccessibleToOthersIsNotLoaded() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        CaffeineCacheManager cacheManager = createCacheManager();
+        cacheManager.getCache("getRemoteUser").put(Collections.singletonList(user1), user1);
+        createSnapshot(cacheManager).save();
+        Files.setPosixFilePermissions(tempDir.resolve("snapshot.bin"), PosixFilePermissions.fromString("rw-r--r--"));
+        
+        CaffeineCacheManager restartedCacheManager = createCacheManager();
+        createSnapshot(restartedCacheManager).load();
+        
+        assertNull(restartedCacheManager.getCache("getRemoteUser").get(Collections.singletonList(user1)));
+    }
+    
+    @Test
+    public void testOnlyAllowedTypesAreSavedAndLoaded() {
+        CaffeineCacheManager cacheManager = createCacheManager();
+        cacheManager.getCache("getRemoteUser").put(Collections.singletonList(user1), user1);
+        cacheManager.getCache("getRemoteUser").put(Collections.singletonList("user2"), "value");
+        cacheManager.getCache("listEffectiveAuthorizations").put(Collections.singletonList(user1), createAuthorizations("cn=user1", "A"));
+        // only allow the authorizations to be loaded, as if the snapshot had been written by something else
+        new RemoteOperationsCacheSnapshot(cacheManager, properties, new ObjectMapper(),
+                        Arrays.asList(DatawaveUserDetails.class, DefaultAuthorizationsList.class, String.class)).save();
+        
+        CaffeineCacheManager restartedCacheManager = createCacheManager();
+        new RemoteOperationsCacheSnapshot(restartedCacheManager, properties, new ObjectMapper(), Collections.singletonList(DefaultAuthorizationsList.class))
+                        .load();
+        
+        assertNull(restartedCacheManager.getCache("getRemoteUser").get(Collections.singletonList(user1)));
+        assertNull(restartedCacheManager.getCache("getRemoteUser").get(Collections.singletonList("user2")));
+        // the key is a user, which isn't allowed either
+        assertNull(restartedCacheManager.getCache("listEffectiveAuthorizations").get(Collections.singletonList(user1)));
+        
+        // types that aren't allowed are never written
+        CaffeineCacheManager otherCacheManager = createCacheManager();
+        createSnapshot(cacheManager).save();
+        new RemoteOperationsCacheSnapshot(otherCacheManager, properties, new ObjectMapper(),
+                        Arrays.asList(DatawaveUserDetails.class, DefaultAuthorizationsList.class, String.class)).load();
+        assertEquals(user1, otherCacheManager.getCache("getRemoteUser").get(Collections.singletonList(user1), DatawaveUserDetails.class));
+        assertNull(otherCacheManager.getCache("getRemoteUser").get(Collections.singletonList("user2")));
+    }
+    
+    private RemoteOperationsCacheSnapshot createSnapshot(CaffeineCacheManager cacheManager) {
+        return new RemoteOperationsCacheSnapshot(cacheManager, properties, new ObjectMapper(), CACHED_TYPES);
+    }
+    
+    private static DatawaveUserDetails createUser(String subjectDn) {
+        SubjectIssuerDNPair dn = SubjectIssuerDNPair.of(subjectDn, "cn=issuer");
+        DatawaveUser user = new DatawaveUser(dn, UserType.USER, Arrays.asList("A", "B", "C"), Collections.singleton("AuthorizedUser"), null,
+                        System.currentTimeMillis());
+        return new DatawaveUserDetails(Collections.singletonList(user), user.getCreationTime());
+    }
+    
+    private static DefaultAuthorizationsList createAuthorizations(String subjectDn, String... auths) {
+        DefaultAuthorizationsList authorizations = new DefaultAuthorizationsList();
+        authorizations.setUserAuths(subjectDn, "cn=issuer", Arrays.asList(auths));
+        return authorizations;
+    }
+    
+    private static CaffeineCacheManager createCacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(Collections.emptyList());
+        cacheManager.registerCustomCache("getRemoteUser", RemoteOperationsCacheSnapshot.newCache(1000, TimeUnit.MINUTES.toMillis(5)));
+        cacheManager.registerCustomCache("listEffectiveAuthorizations", RemoteOperationsCacheSnapshot.newCache(1000, TimeUnit.MINUTES.toMillis(5)));
+        return cacheManager;
+    }
+}
@@ -0,0 +1,45 @@
+package datawave.microservice.authorization.federation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class RetryBudgetTest {
+    
+    @Test
+    public void testStartsWithMaxBalance() {
+        RetryBudget retryBudget = new RetryBudget(0.5, 2);
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+        assertEquals(0.0, retryBudget.getBalance());
+    }
+    
+    @Test
+    public void testDepositsAccumulateToWholeRetries() {
+        RetryBudget retryBudget = new RetryBudget(0.25, 1);
+        assertTrue(retryBudget.tryWithdraw());
+        
+        for (int i = 0; i < 3; i++) {
+            retryBudget.deposit();
+            assertFalse(retryBudget.tryWithdraw());
+        }
+        retryBudget.deposit();
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+    
+    @Test
+    public void testBalanceIsCapped() {
+        RetryBudget retryBudget = new RetryBudget(1.0, 2);
+        for (int i = 0; i < 10; i++) {
+            retryBudget.deposit();
+        }
+        assertEquals(2.0, retryBudget.getBalance());
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+}
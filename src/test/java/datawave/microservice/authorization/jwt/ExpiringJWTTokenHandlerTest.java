@@ -0,0 +1,98 @@
+package datawave.microservice.authorization.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class ExpiringJWTTokenHandlerTest {
+    private static SelfSignedCertificate certificate;
+    private static SelfSignedCertificate otherCertificate;
+    
+    private ObjectMapper objectMapper;
+    private ExpiringJWTTokenHandler tokenHandler;
+    private DatawaveUser user;
+    
+    @BeforeAll
+    public static void createCertificates() throws Exception {
+        certificate = new SelfSignedCertificate("localhost");
+        otherCertificate = new SelfSignedCertificate("localhost");
+    }
+    
+    @AfterAll
+    public static void deleteCertificates() {
+        certificate.delete();
+        otherCertificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() {
+        objectMapper = new ObjectMapper().registerModule(new GuavaModule());
+        tokenHandler = new ExpiringJWTTokenHandler(certificate.cert(), certificate.key(), 1, TimeUnit.DAYS, objectMapper);
+        user = new DatawaveUser(SubjectIssuerDNPair.of("cn=user", "cn=issuer"), UserType.USER, null, null, null, System.currentTimeMillis());
+    }
+    
+    @Test
+    public void testParseGivesUsersAndExpiration() {
+        // the exp claim only has a precision of seconds
+        long expirationTime = TimeUnit.SECONDS.toMillis(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600);
+        String token = createToken(certificate.key(), expirationTime);
+        
+        ExpiringJWTTokenHandler.ParsedToken parsed = tokenHandler.parseToken(token);
+        assertEquals(Collections.singletonList(user), parsed.getUsers());
+        assertEquals(expirationTime, parsed.getExpirationTime());
+        assertEquals(parsed.getUsers(), tokenHandler.createUsersFromToken(token));
+    }
+    
+    @Test
+    public void testExpiredTokenIsRejected() {
+        String token = createToken(certificate.key(), System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+        assertThrows(ExpiredJwtException.class, () -> tokenHandler.parseToken(token));
+    }
+    
+    @Test
+    public void testTokenSignedByOtherKeyIsRejected() {
+        String token = createToken(otherCertificate.key(), System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        assertThrows(SignatureException.class, () -> tokenHandler.parseToken(token));
+    }
+    
+    @Test
+    public void testTokenWithoutUsersIsRejected() {
+        String token = Jwts.builder().setSubject("cn=user").signWith(SignatureAlgorithm.RS512, certificate.key()).compact();
+        assertThrows(IllegalArgumentException.class, () -> tokenHandler.parseToken(token));
+    }
+    
+    private String createToken(Key signingKey, long expirationTime) {
+        List<?> principals = Collections.singletonList(objectMapper.convertValue(user, Map.class));
+        // @formatter:off
+        return Jwts.builder()
+                .setSubject(user.getName())
+                .setExpiration(new Date(expirationTime))
+                .claim("principals", principals)
+                .signWith(SignatureAlgorithm.RS512, signingKey)
+                .compact();
+        // @formatter:on
+    }
+}
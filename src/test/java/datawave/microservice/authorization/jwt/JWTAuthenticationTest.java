@@ -0,0 +1,75 @@
+package datawave.microservice.authorization.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Lists;
+
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+
+public class JWTAuthenticationTest {
+    private static final long MIN_REMAINING = TimeUnit.SECONDS.toMillis(60);
+    
+    private DatawaveUser user;
+    private DatawaveUser server;
+    private DatawaveUser otherServer;
+    
+    @BeforeEach
+    public void setup() {
+        long now = System.currentTimeMillis();
+        user = new DatawaveUser(SubjectIssuerDNPair.of("cn=user", "cn=issuer"), UserType.USER, null, null, null, now);
+        server = new DatawaveUser(SubjectIssuerDNPair.of("cn=server", "cn=issuer"), UserType.SERVER, null, null, null, now);
+        otherServer = new DatawaveUser(SubjectIssuerDNPair.of("cn=otherserver", "cn=issuer"), UserType.SERVER, null, null, null, now);
+    }
+    
+    @Test
+    public void testForwardableForSameChain() {
+        JWTAuthentication authentication = authentication(details(user, server), TimeUnit.MINUTES.toMillis(5));
+        assertTrue(authentication.isForwardableFor(details(user, server), MIN_REMAINING));
+    }
+    
+    @Test
+    public void testNotForwardableForDifferentChain() {
+        JWTAuthentication authentication = authentication(details(user, server), TimeUnit.MINUTES.toMillis(5));
+        
+        // same end user, but reached through another proxy
+        assertFalse(authentication.isForwardableFor(details(user, otherServer), MIN_REMAINING));
+        // the user without the proxy
+        assertFalse(authentication.isForwardableFor(details(user), MIN_REMAINING));
+        // an additional proxy
+        assertFalse(authentication.isForwardableFor(details(user, server, otherServer), MIN_REMAINING));
+    }
+    
+    @Test
+    public void testNotForwardableWithinExpiryMargin() {
+        DatawaveUserDetails details = details(user, server);
+        
+        assertTrue(authentication(details, MIN_REMAINING + TimeUnit.SECONDS.toMillis(5)).isForwardableFor(details, MIN_REMAINING));
+        assertFalse(authentication(details, MIN_REMAINING - TimeUnit.SECONDS.toMillis(5)).isForwardableFor(details, MIN_REMAINING));
+        assertFalse(authentication(details, -TimeUnit.SECONDS.toMillis(5)).isForwardableFor(details, MIN_REMAINING));
+    }
+    
+    @Test
+    public void testNotForwardableWithoutTokenOrExpiration() {
+        DatawaveUserDetails details = details(user, server);
+        
+        assertFalse(new JWTAuthentication(details).isForwardableFor(details, MIN_REMAINING));
+        assertFalse(new JWTAuthentication(details, "token", 0L).isForwardableFor(details, MIN_REMAINING));
+    }
+    
+    private static DatawaveUserDetails details(DatawaveUser... users) {
+        return new DatawaveUserDetails(Lists.newArrayList(users), 0L);
+    }
+    
+    private static JWTAuthentication authentication(DatawaveUserDetails details, long remainingMillis) {
+        return new JWTAuthentication(details, "token", System.currentTimeMillis() + remainingMillis);
+    }
+}
@@ -0,0 +1,159 @@
+package datawave.microservice.authorization.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.JWTTokenHandler;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import reactor.core.publisher.Mono;
+
+public class JWTExchangeFilterFunctionTest {
+    private JWTExchangeFilterFunction filter;
+    private AtomicReference<ClientRequest> sent;
+    private ExchangeFunction exchange;
+    private DatawaveUserDetails attributeUser;
+    private DatawaveUserDetails contextUser;
+    private DatawaveUserDetails reactiveUser;
+    private DatawaveUserDetails threadUser;
+    
+    @BeforeEach
+    public void setup() {
+        JWTTokenHandler tokenHandler = mock(JWTTokenHandler.class);
+        when(tokenHandler.createTokenFromUsers(anyString(), any())).thenAnswer(invocation -> "token-for-" + invocation.getArgument(0));
+        filter = new JWTExchangeFilterFunction(tokenHandler, null, TimeUnit.SECONDS.toMillis(60), Collections.singletonList("Authorization"));
+        
+        sent = new AtomicReference<>();
+        exchange = request -> {
+            sent.set(request);
+            return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        };
+        attributeUser = user("cn=attribute");
+        contextUser = user("cn=context");
+        reactiveUser = user("cn=reactive");
+        threadUser = user("cn=thread");
+    }
+    
+    @AfterEach
+    public void teardown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    public void testAttributeUserComesFirst() {
+        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(threadUser));
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://authorization/user"))
+                        .attributes(JWTExchangeFilterFunction.user(attributeUser)).build();
+        
+        // @formatter:off
+        filter.filter(request, exchange)
+                .contextWrite(JWTExchangeFilterFunction.withUser(contextUser))
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JWTAuthentication(reactiveUser)))
+                .block();
+        // @formatter:on
+        assertEquals("Bearer token-for-" + attributeUser.getUsername(), getAuthorization());
+    }
+    
+    @Test
+    public void testReactorContextUserComesSecond() {
+        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(threadUser));
+        
+        // @formatter:off
+        filter.filter(request("https://authorization/user"), exchange)
+                .contextWrite(JWTExchangeFilterFunction.withUser(contextUser))
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JWTAuthentication(reactiveUser)))
+                .block();
+        // @formatter:on
+        assertEquals("Bearer token-for-" + contextUser.getUsername(), getAuthorization());
+    }
+    
+    @Test
+    public void testReactiveSecurityContextUserComesThird() {
+        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(threadUser));
+        
+        // @formatter:off
+        filter.filter(request("https://authorization/user"), exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JWTAuthentication(reactiveUser)))
+                .block();
+        // @formatter:on
+        assertEquals("Bearer token-for-" + reactiveUser.getUsername(), getAuthorization());
+    }
+    
+    @Test
+    public void testThreadSecurityContextUserComesLast() {
+        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(threadUser));
+        
+        filter.filter(request("https://authorization/user"), exchange).block();
+        assertEquals("Bearer token-for-" + threadUser.getUsername(), getAuthorization());
+    }
+    
+    @Test
+    public void testRequestWithoutUserIsUnchanged() {
+        filter.filter(request("https://authorization/user"), exchange).block();
+        assertNull(getAuthorization());
+    }
+    
+    @Test
+    public void testOtherHostIsUnchanged() {
+        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(threadUser));
+        
+        filter.filter(request("https://remote.example.com/authorization/user"), exchange).block();
+        assertNull(getAuthorization());
+    }
+    
+    @Test
+    public void testExistingAuthorizationIsKept() {
+        SecurityContextHolder.getContext().setAuthentication(new JWTAuthentication(threadUser));
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://authorization/user"))
+                        .header(HttpHeaders.AUTHORIZATION, "Basic abc").build();
+        
+        filter.filter(request, exchange).block();
+        assertEquals("Basic abc", getAuthorization());
+    }
+    
+    @Test
+    public void testCurrentTokenIsForwardedForSameUser() {
+        Authentication authentication = new JWTAuthentication(threadUser, "inbound-token", System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        
+        filter.filter(request("https://authorization/user"), exchange).block();
+        assertEquals("Bearer inbound-token", getAuthorization());
+    }
+    
+    private String getAuthorization() {
+        return sent.get().headers().getFirst(HttpHeaders.AUTHORIZATION);
+    }
+    
+    private static ClientRequest request(String uri) {
+        return ClientRequest.create(HttpMethod.GET, URI.create(uri)).build();
+    }
+    
+    private static DatawaveUserDetails user(String subjectDn) {
+        DatawaveUser user = new DatawaveUser(SubjectIssuerDNPair.of(subjectDn, "cn=issuer"), UserType.USER, null, null, null, System.currentTimeMillis());
+        return new DatawaveUserDetails(Collections.singletonList(user));
+    }
+}
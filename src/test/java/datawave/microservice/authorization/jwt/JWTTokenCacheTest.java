@@ -0,0 +1,134 @@
+package datawave.microservice.authorization.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.JWTTokenHandler;
+import datawave.security.authorization.SubjectIssuerDNPair;
+
+public class JWTTokenCacheTest {
+    private static final long TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final long SAFETY_MARGIN = TimeUnit.MINUTES.toMillis(1);
+    private static final long REFRESH_AHEAD = TimeUnit.MINUTES.toMillis(2);
+    
+    private JWTTokenHandler tokenHandler;
+    private AtomicInteger tokenCount;
+    private AtomicLong now;
+    private Queue<Runnable> backgroundTasks;
+    private MetricRegistry metricRegistry;
+    private DatawaveUserDetails user;
+    
+    @BeforeEach
+    public void setup() {
+        tokenCount = new AtomicInteger();
+        tokenHandler = mock(JWTTokenHandler.class);
+        when(tokenHandler.createTokenFromUsers(anyString(), any())).thenAnswer(invocation -> "token-" + tokenCount.incrementAndGet());
+        now = new AtomicLong();
+        backgroundTasks = new ArrayDeque<>();
+        metricRegistry = new MetricRegistry();
+        DatawaveUser datawaveUser = new DatawaveUser(SubjectIssuerDNPair.of("cn=user", "cn=issuer"), UserType.USER, null, null, null, 0L);
+        user = new DatawaveUserDetails(Collections.singletonList(datawaveUser), 0L);
+    }
+    
+    @Test
+    public void testTokenIsCached() {
+        JWTTokenCache cache = createCache(0L);
+        
+        assertEquals("token-1", cache.getToken(user));
+        assertEquals("token-1", cache.getToken(user));
+        assertEquals("token-1", cache.getCachedToken(user));
+        assertEquals(1, getMeter("created").getCount());
+        assertEquals(3, getMeter("requests").getCount());
+    }
+    
+    @Test
+    public void testTokenIsNotHandedOutWithinSafetyMargin() {
+        JWTTokenCache cache = createCache(0L);
+        cache.getToken(user);
+        
+        now.set(TTL - SAFETY_MARGIN - 1);
+        assertEquals("token-1", cache.getToken(user));
+        
+        // the token still has the safety margin left, but that's too little to hand it out
+        now.set(TTL - SAFETY_MARGIN);
+        assertNull(cache.getCachedToken(user));
+        assertEquals("token-2", cache.getToken(user));
+    }
+    
+    @Test
+    public void testTokenIsRefreshedAhead() {
+        JWTTokenCache cache = createCache(REFRESH_AHEAD);
+        cache.getToken(user);
+        
+        now.set(TTL - SAFETY_MARGIN - REFRESH_AHEAD);
+        assertEquals("token-1", cache.getToken(user));
+        assertEquals(1, tokenCount.get());
+        
+        // the caller that triggers the refresh gets the current token without waiting, and the replacement is handed out from then on
+        now.set(TTL - SAFETY_MARGIN - REFRESH_AHEAD + 1);
+        assertEquals("token-1", cache.getToken(user));
+        assertEquals(1, tokenCount.get());
+        runBackgroundTasks();
+        assertEquals("token-2", cache.getCachedToken(user));
+        
+        // the replacement's lifetime starts when it was created
+        now.set(TTL - SAFETY_MARGIN + 1);
+        assertEquals("token-2", cache.getToken(user));
+        assertEquals(2, tokenCount.get());
+    }
+    
+    @Test
+    public void testCachingIsDisabledWhenSafetyMarginCoversLifetime() {
+        JWTTokenCache cache = new JWTTokenCache(tokenHandler, 10, TTL, TTL, 0L, metricRegistry, () -> TimeUnit.MILLISECONDS.toNanos(now.get()),
+                        backgroundTasks::add);
+        
+        assertEquals("token-1", cache.getToken(user));
+        assertNull(cache.getCachedToken(user));
+        assertEquals("token-2", cache.getToken(user));
+    }
+    
+    @Test
+    public void testInvalidateAllDiscardsTokens() {
+        JWTTokenCache cache = createCache(0L);
+        cache.getToken(user);
+        
+        cache.invalidateAll();
+        assertEquals("token-2", cache.getToken(user));
+    }
+    
+    private JWTTokenCache createCache(long refreshAheadMillis) {
+        return new JWTTokenCache(tokenHandler, 10, TTL, SAFETY_MARGIN, refreshAheadMillis, metricRegistry,
+                        () -> TimeUnit.MILLISECONDS.toNanos(now.get()), backgroundTasks::add);
+    }
+    
+    private void runBackgroundTasks() {
+        Runnable task;
+        while ((task = backgroundTasks.poll()) != null) {
+            task.run();
+        }
+    }
+    
+    private Meter getMeter(String name) {
+        return metricRegistry.getMeters().get(MetricRegistry.name(JWTTokenCache.METRIC_PREFIX, name));
+    }
+}
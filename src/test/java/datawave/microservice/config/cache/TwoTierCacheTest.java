@@ -0,0 +1,181 @@
+package datawave.microservice.config.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.cloud.bus.event.CacheInvalidationEvent;
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+public class TwoTierCacheTest {
+    private static final long LOCAL_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+    private ConcurrentMapCacheManager sharedCacheManager;
+    private List<CacheInvalidationEvent> events;
+    
+    @BeforeEach
+    public void setup() {
+        sharedCacheManager = new ConcurrentMapCacheManager();
+        events = new ArrayList<>();
+    }
+    
+    @Test
+    public void testSharedEntriesExpireWithLocalLifetime() {
+        Cache first = createCache("first");
+        Cache second = createCache("second");
+        Cache third = createCache("third");
+        List<String> key = Collections.singletonList("user");
+        
+        first.put(key, "value");
+        now.addAndGet(LOCAL_TTL_MILLIS / 2);
+        assertEquals("value", second.get(key, String.class));
+        
+        // the shared cache still holds the entry, but it is older than the local cache would keep it
+        now.addAndGet(LOCAL_TTL_MILLIS / 2);
+        assertNotNull(sharedCacheManager.getCache("users").get(key));
+        assertNull(third.get(key));
+        assertNull(third.putIfAbsent(key, "newer"));
+        
+        // the expired entry was replaced
+        assertEquals("newer", createCache("fourth").get(key, String.class));
+    }
+    
+    @Test
+    public void testSharedEntryAgeIsLimitedByConfiguredMaximum() {
+        TwoTierCacheManager cacheManager = createCacheManager("first", TimeUnit.SECONDS.toMillis(10));
+        TwoTierCache cache = (TwoTierCache) cacheManager.getCache("users");
+        assertEquals(TimeUnit.SECONDS.toMillis(10), cache.getMaxAgeMillis());
+        
+        cache.put("key", "value");
+        now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        assertNull(createCacheManager("second", TimeUnit.SECONDS.toMillis(10)).getCache("users").get("key"));
+    }
+    
+    @Test
+    public void testUnknownSharedValuesAreIgnored() {
+        sharedCacheManager.getCache("users").put("key", "value");
+        assertNull(createCache("first").get("key"));
+    }
+    
+    @Test
+    public void testFillsDoNotPublishInvalidations() {
+        Cache cache = createCache("first");
+        cache.put("key", "value");
+        cache.putIfAbsent("other", "value");
+        assertEquals("loaded", cache.get("loaded", () -> "loaded"));
+        assertTrue(events.isEmpty());
+        
+        assertTrue(cache.evictIfPresent("key"));
+        cache.evictIfPresent("missing");
+        assertEquals(1, events.size());
+        assertEquals(Collections.singletonList("\"key\""), events.get(0).getKeyValues());
+    }
+    
+    @Test
+    public void testEvictionsAreAppliedByOtherServices() {
+        Cache first = createCache("first");
+        TwoTierCacheManager secondCacheManager = createCacheManager("second", TimeUnit.MINUTES.toMillis(5));
+        Cache second = secondCacheManager.getCache("users");
+        List<String> key = Arrays.asList("user", "issuer");
+        List<String> otherKey = Arrays.asList("other", "issuer");
+        first.put(key, "value");
+        first.put(otherKey, "value");
+        second.get(key);
+        second.get(otherKey);
+        
+        first.evict(key);
+        assertEquals(1, events.size());
+        events.forEach(secondCacheManager::evictLocal);
+        
+        Cache secondLocal = ((TwoTierCache) second).getLocalCache();
+        assertNull(secondLocal.get(key));
+        assertEquals("value", secondLocal.get(otherKey).get());
+    }
+    
+    @Test
+    public void testInvalidationKeysAreNotDecoded() {
+        TwoTierCacheManager cacheManager = createCacheManager("first", TimeUnit.MINUTES.toMillis(5));
+        Cache local = ((TwoTierCache) cacheManager.getCache("users")).getLocalCache();
+        local.put("key", "value");
+        
+        // a class that would fail to load, or be dangerous to build, is only compared as a string
+        cacheManager.evictLocal(new CacheInvalidationEvent(this, "other", "first", "users", false, Collections.singletonList("com.example.Missing"),
+                        Collections.singletonList("\"key\"")));
+        assertEquals("value", local.get("key").get());
+        
+        cacheManager.evictLocal(new CacheInvalidationEvent(this, "other", "first", "users", false, Collections.singletonList(String.class.getName()),
+                        Collections.singletonList("\"key\"")));
+        assertNull(local.get("key"));
+    }
+    
+    @Test
+    public void testSharedCacheIsUsedOnlyWhenAvailable() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.refresh();
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager("first", createLocalCacheManager(), "cacheManager", context, LOCAL_TTL_MILLIS);
+        assertInstanceOf(org.springframework.cache.caffeine.CaffeineCache.class, cacheManager.getCache("users"));
+    }
+    
+    private Cache createCache(String busId) {
+        return createCacheManager(busId, TimeUnit.MINUTES.toMillis(5)).getCache("users");
+    }
+    
+    private TwoTierCacheManager createCacheManager(String busId, long maxSharedEntryAgeMillis) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean("cacheManager", ConcurrentMapCacheManager.class, () -> sharedCacheManager);
+        context.registerBean(ServiceMatcher.class, () -> new TestServiceMatcher(busId));
+        context.addApplicationListener((ApplicationListener<CacheInvalidationEvent>) events::add);
+        context.refresh();
+        return new TwoTierCacheManager(busId, createLocalCacheManager(), "cacheManager", context, maxSharedEntryAgeMillis, now::get);
+    }
+    
+    private static CaffeineCacheManager createLocalCacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(Collections.emptyList());
+        cacheManager.registerCustomCache("users", Caffeine.newBuilder().expireAfterWrite(LOCAL_TTL_MILLIS, TimeUnit.MILLISECONDS).build());
+        return cacheManager;
+    }
+    
+    private static class TestServiceMatcher implements ServiceMatcher {
+        private final String busId;
+        
+        TestServiceMatcher(String busId) {
+            this.busId = busId;
+        }
+        
+        @Override
+        public boolean isFromSelf(RemoteApplicationEvent event) {
+            return busId.equals(event.getOriginService());
+        }
+        
+        @Override
+        public boolean isForSelf(RemoteApplicationEvent event) {
+            return true;
+        }
+        
+        @Override
+        public String getBusId() {
+            return busId;
+        }
+    }
+}
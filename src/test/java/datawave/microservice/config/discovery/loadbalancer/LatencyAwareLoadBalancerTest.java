@@ -0,0 +1,243 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+public class LatencyAwareLoadBalancerTest {
+    private static final String SERVICE_ID = "authorization";
+    
+    private final ServiceInstance fast = new DefaultServiceInstance("fast", SERVICE_ID, "fast.example.com", 8443, true);
+    private final ServiceInstance slow = new DefaultServiceInstance("slow", SERVICE_ID, "slow.example.com", 8443, true);
+    
+    private AtomicLong now;
+    private DiscoveryClient discoveryClient;
+    private LoadBalancerProperties properties;
+    
+    @BeforeEach
+    public void setup() {
+        now = new AtomicLong();
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Arrays.asList(fast, slow));
+        properties = new LoadBalancerProperties();
+        properties.setServiceIds(Collections.singletonList(SERVICE_ID));
+    }
+    
+    @Test
+    public void testOnlyConfiguredServicesAreBalanced() {
+        LatencyAwareLoadBalancer loadBalancer = new LatencyAwareLoadBalancer(discoveryClient, new LoadBalancerProperties());
+        assertFalse(loadBalancer.isCandidate(SERVICE_ID));
+        verifyNoInteractions(discoveryClient);
+        
+        loadBalancer = createLoadBalancer();
+        assertTrue(loadBalancer.isCandidate(SERVICE_ID));
+        assertFalse(loadBalancer.isCandidate("www.example.com"));
+    }
+    
+    @Test
+    public void testFasterInstanceIsChosen() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        sampleBoth(loadBalancer, 10, true, 100, true);
+        
+        for (int i = 0; i < 20; i++) {
+            assertEquals(fast, choose(loadBalancer));
+        }
+    }
+    
+    @Test
+    public void testCallsInFlightAreSpread() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        sampleBoth(loadBalancer, 10, true, 95, true);
+        
+        // the fast instance's score is multiplied by its calls in flight plus one, so the slow one is chosen once the fast one has nine calls in flight
+        List<LatencyAwareLoadBalancer.Call> calls = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            calls.add(start(loadBalancer));
+            assertEquals(fast, calls.get(i).getInstance());
+        }
+        assertEquals(slow, choose(loadBalancer));
+        
+        calls.forEach(LatencyAwareLoadBalancer.Call::cancel);
+        assertEquals(fast, choose(loadBalancer));
+    }
+    
+    @Test
+    public void testHungInstanceIsAvoided() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        sampleBoth(loadBalancer, 10, true, 100, true);
+        
+        // the fast instance stops answering, so the call sent to it never completes
+        LatencyAwareLoadBalancer.Call hung = start(loadBalancer);
+        assertEquals(fast, hung.getInstance());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(slow, choose(loadBalancer));
+        }
+        
+        // once the call is given up on, only the completed calls count again
+        hung.cancel();
+        assertEquals(fast, choose(loadBalancer));
+    }
+    
+    @Test
+    public void testHungInstanceIsAvoidedBeforeItAnswers() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        LatencyAwareLoadBalancer.Call hung = start(loadBalancer);
+        ServiceInstance other = hung.getInstance().equals(fast) ? slow : fast;
+        
+        // neither instance has answered a call, but the one with a call in flight for a second is avoided
+        for (int i = 0; i < 20; i++) {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            LatencyAwareLoadBalancer.Call call = start(loadBalancer);
+            assertEquals(other, call.getInstance());
+            complete(call, 10, true);
+        }
+    }
+    
+    @Test
+    public void testNewInstanceStartsWithServiceAverage() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        complete(loadBalancer.start(SERVICE_ID, Collections.singletonList(fast)), 10, true);
+        
+        // the slow instance hasn't answered yet, so it is treated as being as fast as the fast one rather than receiving every call until it answers
+        List<LatencyAwareLoadBalancer.Call> calls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            calls.add(start(loadBalancer));
+        }
+        assertEquals(5, calls.stream().filter(call -> call.getInstance().equals(slow)).count());
+    }
+    
+    @Test
+    public void testFastFailuresArePenalized() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        // the failing instance answers far sooner than the slow one, but is recorded as taking the failure penalty
+        sampleBoth(loadBalancer, 1, false, 1000, true);
+        
+        for (int i = 0; i < 20; i++) {
+            assertEquals(slow, choose(loadBalancer));
+        }
+    }
+    
+    @Test
+    public void testSlowInstanceIsRetriedAfterDecay() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        sampleBoth(loadBalancer, 10, true, 1000, true);
+        
+        // the fast instance keeps answering in 10ms while the slow instance's one second average decays, with a decay time of 10s, to below 10ms after 46s
+        long startNanos = now.get();
+        LatencyAwareLoadBalancer.Call call = start(loadBalancer);
+        while (call.getInstance().equals(fast)) {
+            complete(call, 10, true);
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            call = start(loadBalancer);
+        }
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(now.get() - startNanos);
+        assertTrue(elapsedSeconds >= 45 && elapsedSeconds <= 48, "the slow instance was retried after " + elapsedSeconds + "s");
+    }
+    
+    @Test
+    public void testSlowerCallRaisesAverageImmediately() {
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        sampleBoth(loadBalancer, 10, true, 100, true);
+        
+        complete(start(loadBalancer), 1000, true);
+        assertEquals(slow, choose(loadBalancer));
+    }
+    
+    @Test
+    public void testFailingInstanceIsEjected() {
+        properties.setFailureThreshold(2);
+        properties.setFailurePenalty(0);
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        // without a penalty, the failing instance keeps the lower score, so only its ejection keeps calls away from it
+        sampleBoth(loadBalancer, 1, false, 100, true);
+        
+        LatencyAwareLoadBalancer.Call call = start(loadBalancer);
+        assertEquals(fast, call.getInstance());
+        complete(call, 1, false);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(slow, choose(loadBalancer));
+        }
+        
+        // once the ejection ends the instance is tried again, and a single failure ejects it again
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getEjectionTimeMillis()));
+        call = start(loadBalancer);
+        assertEquals(fast, call.getInstance());
+        complete(call, 1, false);
+        assertEquals(slow, choose(loadBalancer));
+        
+        // a successful call ends the failure streak
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(properties.getEjectionTimeMillis()));
+        complete(start(loadBalancer), 1, true);
+        complete(start(loadBalancer), 1, false);
+        assertEquals(fast, choose(loadBalancer));
+    }
+    
+    @Test
+    public void testEveryInstanceEjected() {
+        properties.setFailureThreshold(1);
+        LatencyAwareLoadBalancer loadBalancer = createLoadBalancer();
+        sampleBoth(loadBalancer, 1, false, 1, false);
+        
+        assertNotNull(start(loadBalancer));
+    }
+    
+    private LatencyAwareLoadBalancer createLoadBalancer() {
+        return new LatencyAwareLoadBalancer(discoveryClient, properties, now::get);
+    }
+    
+    private LatencyAwareLoadBalancer.Call start(LatencyAwareLoadBalancer loadBalancer) {
+        return loadBalancer.start(SERVICE_ID, loadBalancer.getInstances(SERVICE_ID));
+    }
+    
+    /**
+     * Gets the instance that a call would be sent to, without leaving the call in flight.
+     */
+    private ServiceInstance choose(LatencyAwareLoadBalancer loadBalancer) {
+        LatencyAwareLoadBalancer.Call call = start(loadBalancer);
+        call.cancel();
+        return call.getInstance();
+    }
+    
+    private void complete(LatencyAwareLoadBalancer.Call call, long millis, boolean success) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        call.complete(success);
+    }
+    
+    /**
+     * Completes one call to each instance. An instance that hasn't been called yet is treated as having the average latency of the others, so calls that go
+     * to an instance that has already been called are cancelled.
+     */
+    private void sampleBoth(LatencyAwareLoadBalancer loadBalancer, long fastMillis, boolean fastSuccess, long slowMillis, boolean slowSuccess) {
+        Set<ServiceInstance> sampled = new HashSet<>();
+        while (sampled.size() < 2) {
+            LatencyAwareLoadBalancer.Call call = start(loadBalancer);
+            if (!sampled.add(call.getInstance())) {
+                call.cancel();
+            } else if (call.getInstance().equals(fast)) {
+                complete(call, fastMillis, fastSuccess);
+            } else {
+                complete(call, slowMillis, slowSuccess);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package datawave.microservice.config.discovery.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import datawave.microservice.authorization.config.DatawaveSecurityProperties;
+import datawave.microservice.authorization.jwt.JWTExchangeFilterFunction;
+import datawave.microservice.authorization.jwt.JWTWebClientCustomizer;
+import datawave.microservice.authorization.user.DatawaveUserDetails;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.JWTTokenHandler;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import reactor.core.publisher.Mono;
+
+public class LoadBalancerConfigurationTest {
+    private static final String SERVICE_ID = "authorization";
+    
+    @Test
+    public void testLoadBalancedCallGetsToken() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(SERVICE_ID))
+                        .thenReturn(Collections.singletonList(new DefaultServiceInstance("one", SERVICE_ID, "one.example.com", 8443, true)));
+        JWTTokenHandler tokenHandler = mock(JWTTokenHandler.class);
+        when(tokenHandler.createTokenFromUsers(anyString(), any())).thenAnswer(invocation -> "token-for-" + invocation.getArgument(0));
+        DatawaveSecurityProperties securityProperties = new DatawaveSecurityProperties();
+        securityProperties.getJwt().setWebClientPropagationHosts(Collections.singletonList(SERVICE_ID));
+        
+        // @formatter:off
+        new ReactiveWebApplicationContextRunner()
+                // the load balancer's customizer is registered first, so only its order makes it run last
+                .withUserConfiguration(LoadBalancerConfiguration.class, JWTConfiguration.class)
+                .withBean(DiscoveryClient.class, () -> discoveryClient)
+                .withBean(JWTTokenHandler.class, () -> tokenHandler)
+                .withBean(DatawaveSecurityProperties.class, () -> securityProperties)
+                .withPropertyValues("datawave.load-balancer.enabled=true", "datawave.load-balancer.service-ids=" + SERVICE_ID)
+                .run(context -> {
+                    AtomicReference<ClientRequest> sent = new AtomicReference<>();
+                    WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+                        sent.set(request);
+                        return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                    });
+                    context.getBeanProvider(WebClientCustomizer.class).orderedStream().forEach(customizer -> customizer.customize(builder));
+                    
+                    DatawaveUserDetails user = user("cn=user");
+                    builder.build().get().uri("https://" + SERVICE_ID + "/authorization/v1/whoami").attributes(JWTExchangeFilterFunction.user(user))
+                            .retrieve().toBodilessEntity().block();
+                    
+                    assertEquals("one.example.com", sent.get().url().getHost());
+                    assertEquals("Bearer token-for-" + user.getUsername(), sent.get().headers().getFirst(HttpHeaders.AUTHORIZATION));
+                });
+        // @formatter:on
+    }
+    
+    @Test
+    public void testInvalidPropertiesAreRejected() {
+        ApplicationContextRunner runner = new ApplicationContextRunner().withUserConfiguration(PropertiesConfiguration.class);
+        runner.withPropertyValues("datawave.load-balancer.failure-penalty=0").run(context -> assertNull(context.getStartupFailure()));
+        // a decay time of zero would make every score NaN
+        runner.withPropertyValues("datawave.load-balancer.decay-time=0").run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("datawave.load-balancer.failure-threshold=0").run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("datawave.load-balancer.ejection-time=-1").run(context -> assertNotNull(context.getStartupFailure()));
+    }
+    
+    @EnableConfigurationProperties(LoadBalancerProperties.class)
+    public static class PropertiesConfiguration {}
+    
+    @Configuration
+    @Import(JWTWebClientCustomizer.class)
+    public static class JWTConfiguration {}
+    
+    private static DatawaveUserDetails user(String subjectDn) {
+        DatawaveUser user = new DatawaveUser(SubjectIssuerDNPair.of(subjectDn, "cn=issuer"), UserType.USER, null, null, null, System.currentTimeMillis());
+        return new DatawaveUserDetails(Collections.singletonList(user));
+    }
+}
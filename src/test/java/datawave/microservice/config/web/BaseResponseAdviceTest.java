@@ -0,0 +1,70 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import datawave.webservice.result.BaseResponse;
+import datawave.webservice.result.VoidResponse;
+
+public class BaseResponseAdviceTest {
+    private BaseResponseAdvice advice;
+    
+    @BeforeEach
+    public void setup() {
+        advice = new BaseResponseAdvice(true, new StaticListableBeanFactory().getBeanProvider(ObjectMapper.class));
+    }
+    
+    @Test
+    public void testNotModified() {
+        VoidResponse response = new VoidResponse();
+        response.addMessage("unchanged");
+        response.setOperationTimeMS(10L);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        assertSame(response, beforeBodyWrite(response, new MockHttpServletRequest("GET", "/test"), servletResponse));
+        String eTag = servletResponse.getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        
+        // the operation time is not part of the ETag
+        response.setOperationTimeMS(20L);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/test");
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        servletResponse = new MockHttpServletResponse();
+        assertNull(beforeBodyWrite(response, servletRequest, servletResponse));
+        assertEquals(304, servletResponse.getStatus());
+    }
+    
+    @Test
+    public void testModified() {
+        VoidResponse response = new VoidResponse();
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        beforeBodyWrite(response, new MockHttpServletRequest("GET", "/test"), servletResponse);
+        String eTag = servletResponse.getHeader(HttpHeaders.ETAG);
+        
+        response.addMessage("changed");
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/test");
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        servletResponse = new MockHttpServletResponse();
+        assertSame(response, beforeBodyWrite(response, servletRequest, servletResponse));
+        assertEquals(200, servletResponse.getStatus());
+    }
+    
+    private BaseResponse beforeBodyWrite(BaseResponse response, MockHttpServletRequest servletRequest, MockHttpServletResponse servletResponse) {
+        return advice.beforeBodyWrite(response, null, MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                        new ServletServerHttpRequest(servletRequest), new ServletServerHttpResponse(servletResponse));
+    }
+}
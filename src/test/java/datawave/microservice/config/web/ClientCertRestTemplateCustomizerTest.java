@@ -0,0 +1,195 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.web.client.RootUriTemplateHandler;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ClientCertRestTemplateCustomizerTest {
+    private HttpServer server;
+    private String baseUri;
+    private List<Integer> clientPorts;
+    private MetricRegistry metricRegistry;
+    private RestClientProperties properties;
+    private ClientCertRestTemplateCustomizer customizer;
+    
+    @BeforeEach
+    public void setup() throws IOException {
+        clientPorts = new CopyOnWriteArrayList<>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/hello", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, "hello");
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "slow");
+        });
+        server.start();
+        baseUri = "http://localhost:" + server.getAddress().getPort();
+        
+        metricRegistry = new MetricRegistry();
+        properties = new RestClientProperties();
+    }
+    
+    @AfterEach
+    public void teardown() {
+        if (customizer != null) {
+            customizer.destroy();
+        }
+        server.stop(0);
+    }
+    
+    @Test
+    public void testTemplatesShareConnectionPool() throws Exception {
+        customizer = createCustomizer();
+        RestTemplate first = createRestTemplate();
+        RestTemplate second = createRestTemplate();
+        
+        assertEquals("hello", first.getForObject(baseUri + "/hello", String.class));
+        assertEquals("hello", second.getForObject(baseUri + "/hello", String.class));
+        
+        // the second template reused the connection that the first one returned to the shared pool
+        assertEquals(2, clientPorts.size());
+        assertEquals(clientPorts.get(0), clientPorts.get(1));
+        assertSame(customizer.getConnectionManager(SSLContext.getDefault()), customizer.getConnectionManager(SSLContext.getDefault()));
+    }
+    
+    @Test
+    public void testPoolMetrics() {
+        customizer = createCustomizer();
+        createRestTemplate().getForObject(baseUri + "/hello", String.class);
+        
+        String prefix = ClientCertRestTemplateCustomizer.METRIC_PREFIX + ".default.";
+        assertEquals(0, metricRegistry.getGauges().get(prefix + "leased").getValue());
+        assertEquals(0, metricRegistry.getGauges().get(prefix + "pending").getValue());
+        assertEquals(1, metricRegistry.getGauges().get(prefix + "available").getValue());
+        assertEquals(properties.getMaxConnectionsTotal(), metricRegistry.getGauges().get(prefix + "max").getValue());
+        
+        customizer.destroy();
+        customizer = null;
+        assertTrue(metricRegistry.getGauges().keySet().stream().noneMatch(name -> name.startsWith(ClientCertRestTemplateCustomizer.METRIC_PREFIX)));
+    }
+    
+    @Test
+    public void testNoMetricsWhenDisabled() {
+        properties.setMetricsEnabled(false);
+        customizer = createCustomizer();
+        createRestTemplate().getForObject(baseUri + "/hello", String.class);
+        
+        assertTrue(metricRegistry.getMetrics().isEmpty());
+    }
+    
+    @Test
+    public void testUriTemplateIsRecorded() {
+        customizer = createCustomizer();
+        RestTemplate restTemplate = createRestTemplate();
+        restTemplate.getForObject(baseUri + "/hello/{name}", String.class, "world");
+        
+        String host = "localhost:" + server.getAddress().getPort();
+        String prefix = ClientCertRestTemplateCustomizer.REQUEST_METRIC_PREFIX + ".requests." + host + ".GET.";
+        assertEquals(1, metricRegistry.getTimers().get(prefix + "/hello/{name}").getCount());
+    }
+    
+    @Test
+    public void testUriTemplateIsNotReusedByLaterCalls() {
+        customizer = createCustomizer();
+        RestTemplate restTemplate = createRestTemplate();
+        // the template is expanded, but the call fails before it is sent
+        assertThrows(RestClientException.class, () -> restTemplate.postForObject(baseUri + "/hello/{name}", new Object(), String.class, "world"));
+        // a call with the same path made from a URI, and then one made from a template, must each be recorded under their own endpoint
+        restTemplate.getForObject(URI.create(baseUri + "/hello/world"), String.class);
+        restTemplate.getForObject(baseUri + "/hello?name={name}", String.class, "world");
+        
+        String host = "localhost:" + server.getAddress().getPort();
+        String prefix = ClientCertRestTemplateCustomizer.REQUEST_METRIC_PREFIX + ".requests." + host + ".GET.";
+        assertEquals(1, metricRegistry.getTimers().get(prefix + "/hello/world").getCount());
+        assertEquals(1, metricRegistry.getTimers().get(prefix + "/hello").getCount());
+        assertNull(metricRegistry.getTimers().get(prefix + "/hello/{name}"));
+    }
+    
+    @Test
+    public void testRootUriTemplateHandlerIsKept() {
+        customizer = createCustomizer();
+        RestTemplate restTemplate = new RestTemplate();
+        RootUriTemplateHandler.addTo(restTemplate, baseUri);
+        customizer.customize(restTemplate);
+        
+        RootUriTemplateHandler handler = assertInstanceOf(RootUriTemplateHandler.class, restTemplate.getUriTemplateHandler());
+        assertEquals(baseUri, handler.getRootUri());
+        assertEquals("hello", restTemplate.getForObject("/hello", String.class));
+        
+        String prefix = ClientCertRestTemplateCustomizer.REQUEST_METRIC_PREFIX + ".requests.localhost:" + server.getAddress().getPort() + ".GET.";
+        assertEquals(1, metricRegistry.getTimers().get(prefix + "/hello").getCount());
+    }
+    
+    @Test
+    public void testSocketTimeout() {
+        properties.setSocketTimeout(200);
+        customizer = createCustomizer();
+        
+        ResourceAccessException e = assertThrows(ResourceAccessException.class, () -> createRestTemplate().getForObject(baseUri + "/slow", String.class));
+        assertInstanceOf(SocketTimeoutException.class, e.getCause());
+    }
+    
+    private ClientCertRestTemplateCustomizer createCustomizer() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("metricRegistry", metricRegistry);
+        try {
+            return new ClientCertRestTemplateCustomizer(SSLContext.getDefault(), properties, beanFactory.getBeanProvider(MetricRegistry.class));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private RestTemplate createRestTemplate() {
+        RestTemplate restTemplate = new RestTemplate();
+        customizer.customize(restTemplate);
+        return restTemplate;
+    }
+    
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
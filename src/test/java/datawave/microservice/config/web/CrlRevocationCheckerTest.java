@@ -0,0 +1,202 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateRevokedException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class CrlRevocationCheckerTest {
+    private static final String PASSWORD = "secret";
+    private static final BigInteger REVOKED = BigInteger.valueOf(1001);
+    private static final BigInteger GOOD = BigInteger.valueOf(1002);
+    
+    private static SelfSignedCertificate ca;
+    private static SelfSignedCertificate otherCa;
+    
+    @TempDir
+    Path tempDir;
+    
+    private CrlRevocationChecker checker;
+    
+    @BeforeAll
+    public static void createCertificates() throws Exception {
+        // both have the same subject, so a CRL signed by one claims to be from the other
+        ca = new SelfSignedCertificate("ca.example.com");
+        otherCa = new SelfSignedCertificate("ca.example.com");
+    }
+    
+    @AfterAll
+    public static void deleteCertificates() {
+        ca.delete();
+        otherCa.delete();
+    }
+    
+    @AfterEach
+    public void teardown() {
+        if (checker != null) {
+            checker.shutdown();
+        }
+    }
+    
+    @Test
+    public void testRevokedCertificateIsRejected() throws Exception {
+        Path crl = writeCrl("ca.crl", ca, 30, REVOKED);
+        checker = createChecker(crl, false, System::currentTimeMillis);
+        
+        assertEquals(1, checker.getRevokedCount());
+        CertificateException e = assertThrows(CertificateException.class, () -> checker.check(chain(ca.cert().getSubjectX500Principal(), REVOKED)));
+        assertInstanceOf(CertificateRevokedException.class, e);
+        assertDoesNotThrow(() -> checker.check(chain(ca.cert().getSubjectX500Principal(), GOOD)));
+    }
+    
+    @Test
+    public void testUnknownIssuerPasses() throws Exception {
+        Path crl = writeCrl("ca.crl", ca, 30, REVOKED);
+        checker = createChecker(crl, true, System::currentTimeMillis);
+        
+        assertDoesNotThrow(() -> checker.check(chain(new X500Principal("CN=Unknown CA"), REVOKED)));
+        assertDoesNotThrow(() -> checker.check(null));
+    }
+    
+    @Test
+    public void testReloadPicksUpChanges() throws Exception {
+        Path crl = writeCrl("ca.crl", ca, 30, REVOKED);
+        checker = createChecker(crl, false, System::currentTimeMillis);
+        AtomicInteger reloads = new AtomicInteger();
+        checker.addReloadListener(reloads::incrementAndGet);
+        X500Principal issuer = ca.cert().getSubjectX500Principal();
+        
+        assertFalse(checker.refresh());
+        assertDoesNotThrow(() -> checker.check(chain(issuer, GOOD)));
+        
+        writeCrl("ca.crl", ca, 30, REVOKED, GOOD);
+        assertTrue(checker.refresh());
+        assertThrows(CertificateRevokedException.class, () -> checker.check(chain(issuer, GOOD)));
+        
+        // a forced reload notifies the listeners even when nothing changed
+        checker.reload();
+        assertEquals(1, reloads.get());
+        assertEquals(2, checker.getRevokedCount());
+    }
+    
+    @Test
+    public void testCrlFromUntrustedIssuerIsNotLoaded() throws Exception {
+        // signed by a key that isn't in the truststore, although the issuer's name is
+        Path crl = writeCrl("ca.crl", otherCa, 30, REVOKED);
+        assertThrows(IllegalStateException.class, () -> createChecker(crl, false, System::currentTimeMillis));
+    }
+    
+    @Test
+    public void testUntrustedCrlKeepsPreviousRevocations() throws Exception {
+        Path crl = writeCrl("ca.crl", ca, 30, REVOKED);
+        checker = createChecker(crl, false, System::currentTimeMillis);
+        
+        writeCrl("ca.crl", otherCa, 30, GOOD);
+        checker.reload();
+        
+        assertThrows(CertificateRevokedException.class, () -> checker.check(chain(ca.cert().getSubjectX500Principal(), REVOKED)));
+        assertDoesNotThrow(() -> checker.check(chain(ca.cert().getSubjectX500Principal(), GOOD)));
+    }
+    
+    @Test
+    public void testStaleCrl() throws Exception {
+        Path crl = writeCrl("ca.crl", ca, 1, REVOKED);
+        long afterNextUpdate = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(2);
+        X509Certificate[] chain = chain(ca.cert().getSubjectX500Principal(), GOOD);
+        
+        checker = createChecker(crl, false, () -> afterNextUpdate);
+        assertDoesNotThrow(() -> checker.check(chain));
+        
+        checker = createChecker(crl, true, () -> afterNextUpdate);
+        CertificateException e = assertThrows(CertificateException.class, () -> checker.check(chain));
+        assertFalse(e instanceof CertificateRevokedException);
+        
+        // the CRL is current until its next update
+        checker = createChecker(crl, true, System::currentTimeMillis);
+        assertDoesNotThrow(() -> checker.check(chain));
+    }
+    
+    private CrlRevocationChecker createChecker(Path crl, boolean failIfStale, LongSupplier clock) {
+        Collection<X509Certificate> trustedIssuers = Collections.singletonList(ca.cert());
+        return new CrlRevocationChecker(Collections.singletonList(crl.toString()), null, 0, failIfStale, () -> trustedIssuers, clock);
+    }
+    
+    private static X509Certificate[] chain(X500Principal issuer, BigInteger serial) {
+        X509Certificate cert = mock(X509Certificate.class);
+        when(cert.getIssuerX500Principal()).thenReturn(issuer);
+        when(cert.getSerialNumber()).thenReturn(serial);
+        return new X509Certificate[] {cert};
+    }
+    
+    private Path writeCrl(String name, SelfSignedCertificate signer, int validityDays, BigInteger... revoked) throws Exception {
+        return writeCrl(tempDir.resolve(name), signer, validityDays, revoked);
+    }
+    
+    /**
+     * Writes a CRL signed by a certificate's key. The JDK has no API for creating CRLs, so they are generated with keytool.
+     */
+    static Path writeCrl(Path crl, SelfSignedCertificate signer, int validityDays, BigInteger... revoked) throws Exception {
+        Path keyStoreFile = Files.createTempFile("crl-signer", ".p12");
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("ca", signer.key(), PASSWORD.toCharArray(), new Certificate[] {signer.cert()});
+            try (OutputStream out = Files.newOutputStream(keyStoreFile)) {
+                keyStore.store(out, PASSWORD.toCharArray());
+            }
+            long previousModified = Files.exists(crl) ? crl.toFile().lastModified() : 0;
+            Files.deleteIfExists(crl);
+            
+            List<String> command = new ArrayList<>(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(), "-gencrl", "-alias",
+                            "ca", "-keystore", keyStoreFile.toString(), "-storetype", "PKCS12", "-storepass", PASSWORD, "-validity",
+                            Integer.toString(validityDays), "-file", crl.toString()));
+            for (BigInteger serial : revoked) {
+                command.add("-id");
+                command.add(serial.toString());
+            }
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(0, process.waitFor(), output);
+            
+            // the modification time may only be recorded to the second, so make sure each write is seen as a change
+            assertTrue(crl.toFile().setLastModified(Math.max(crl.toFile().lastModified(), previousModified + TimeUnit.SECONDS.toMillis(2))));
+            return crl;
+        } finally {
+            Files.delete(keyStoreFile);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class HttpClientMetricsTest {
+    private MetricRegistry metricRegistry;
+    private HttpClientMetrics metrics;
+    
+    @BeforeEach
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        metrics = new HttpClientMetrics(metricRegistry, "test", 3, 2);
+    }
+    
+    @Test
+    public void testTemplateIsUsedForEndpoint() {
+        metrics.recordRequest(URI.create("http://a:8443/query/v1/1234/next"), "GET", "http://a:8443/query/v1/{id}/next", 200, 1000);
+        metrics.recordRequest(URI.create("http://a:8443/query/v1/5678/next"), "GET", "http://a:8443/query/v1/{id}/next", 503, 1000);
+        
+        assertEquals(2, metricRegistry.getTimers().get("test.requests.a:8443.GET./query/v1/{id}/next").getCount());
+        assertEquals(1, metricRegistry.getMeters().get("test.responses.a:8443.2xx").getCount());
+        assertEquals(1, metricRegistry.getMeters().get("test.responses.a:8443.5xx").getCount());
+    }
+    
+    @Test
+    public void testEndpointsAreCapped() {
+        for (int i = 0; i < 5; i++) {
+            metrics.recordRequest(URI.create("http://a/items/" + i), "GET", null, 200, 1000);
+        }
+        
+        assertEquals(1, metricRegistry.getTimers().get("test.requests.a.GET./items/0").getCount());
+        assertEquals(1, metricRegistry.getTimers().get("test.requests.a.GET./items/2").getCount());
+        assertEquals(2, metricRegistry.getTimers().get("test.requests.a.GET." + HttpClientMetrics.OTHER_ENDPOINT).getCount());
+        assertEquals(4, metricRegistry.getTimers().size());
+    }
+    
+    @Test
+    public void testHostsAreCapped() {
+        for (String host : new String[] {"a", "b", "c", "d"}) {
+            metrics.recordRequest(URI.create("http://" + host + "/hello"), "GET", null, 200, 1000);
+            metrics.recordConnectionAcquire(host, 1000);
+        }
+        metrics.recordRequest(URI.create("http://a/hello"), "GET", null, 200, 1000);
+        
+        assertEquals(2, metricRegistry.getMeters().get("test.responses.a.2xx").getCount());
+        assertEquals(1, metricRegistry.getMeters().get("test.responses.b.2xx").getCount());
+        assertEquals(2, metricRegistry.getMeters().get("test.responses." + HttpClientMetrics.OTHER_HOST + ".2xx").getCount());
+        assertEquals(3, metricRegistry.getMeters().size());
+        assertEquals(2, metricRegistry.getTimers().get("test.connectionAcquire." + HttpClientMetrics.OTHER_HOST).getCount());
+        assertEquals(2, metricRegistry.getTimers().get("test.requests." + HttpClientMetrics.OTHER_HOST + ".GET./hello").getCount());
+        assertTrue(metricRegistry.getNames().stream().noneMatch(name -> name.contains(".c.") || name.contains(".d.") || name.endsWith(".d")));
+    }
+    
+    @Test
+    public void testRemoveMetricsResetsCaps() {
+        metrics.recordRequest(URI.create("http://a/hello"), "GET", null, 200, 1000);
+        metrics.recordRequest(URI.create("http://b/hello"), "GET", null, 200, 1000);
+        metrics.removeMetrics();
+        assertTrue(metricRegistry.getMetrics().isEmpty());
+        
+        metrics.recordRequest(URI.create("http://c/hello"), "GET", null, 200, 1000);
+        assertEquals(1, metricRegistry.getMeters().get("test.responses.c.2xx").getCount());
+    }
+}
@@ -0,0 +1,160 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class KeyStoreCacheTest {
+    private static final String PASSWORD = "secret";
+    
+    private static SelfSignedCertificate certificate;
+    
+    @TempDir
+    Path tempDir;
+    
+    private Path file;
+    private String location;
+    private KeyStoreCache keyStoreCache;
+    private List<String> reloaded;
+    private long lastModified = TimeUnit.HOURS.toMillis(TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis()));
+    
+    @BeforeAll
+    public static void createCertificate() throws Exception {
+        certificate = new SelfSignedCertificate("localhost");
+    }
+    
+    @AfterAll
+    public static void deleteCertificate() {
+        certificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() throws Exception {
+        file = tempDir.resolve("truststore.p12");
+        location = file.toUri().toString();
+        writeKeyStore("first");
+        reloaded = new CopyOnWriteArrayList<>();
+    }
+    
+    @AfterEach
+    public void teardown() {
+        if (keyStoreCache != null) {
+            keyStoreCache.destroy();
+        }
+    }
+    
+    @Test
+    public void testStoreIsShared() throws Exception {
+        keyStoreCache = new KeyStoreCache(0);
+        KeyStore keyStore = keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD);
+        
+        assertSame(keyStore, keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD));
+        assertEquals(Collections.singletonList("first"), Collections.list(keyStore.aliases()));
+    }
+    
+    @Test
+    public void testChangedStoreIsReloaded() throws Exception {
+        keyStoreCache = new KeyStoreCache(0);
+        keyStoreCache.addReloadListener(reloaded::add);
+        KeyStore keyStore = keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD);
+        
+        // nothing changed
+        keyStoreCache.reloadChanged();
+        assertTrue(reloaded.isEmpty());
+        assertSame(keyStore, keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD));
+        
+        writeKeyStore("second");
+        keyStoreCache.reloadChanged();
+        
+        assertEquals(Collections.singletonList(location), reloaded);
+        KeyStore reloadedKeyStore = keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD);
+        assertNotSame(keyStore, reloadedKeyStore);
+        assertEquals(Collections.singletonList("second"), Collections.list(reloadedKeyStore.aliases()));
+    }
+    
+    @Test
+    public void testUnreadableStoreKeepsPreviousStore() throws Exception {
+        keyStoreCache = new KeyStoreCache(0);
+        keyStoreCache.addReloadListener(reloaded::add);
+        KeyStore keyStore = keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD);
+        
+        // e.g. a file that is only partially written
+        Files.write(file, new byte[] {1, 2, 3});
+        touch();
+        keyStoreCache.reloadChanged();
+        assertTrue(reloaded.isEmpty());
+        assertSame(keyStore, keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD));
+        
+        // the file isn't retried until it changes again
+        keyStoreCache.reloadChanged();
+        assertTrue(reloaded.isEmpty());
+        
+        writeKeyStore("second");
+        keyStoreCache.reloadChanged();
+        assertEquals(Collections.singletonList(location), reloaded);
+    }
+    
+    @Test
+    public void testFailingListenerDoesNotStopOthers() throws Exception {
+        keyStoreCache = new KeyStoreCache(0);
+        keyStoreCache.addReloadListener(location -> {
+            throw new IllegalStateException("listener failed");
+        });
+        keyStoreCache.addReloadListener(reloaded::add);
+        keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD);
+        
+        writeKeyStore("second");
+        keyStoreCache.reloadChanged();
+        
+        assertEquals(Collections.singletonList(location), reloaded);
+    }
+    
+    @Test
+    public void testStoresAreReloadedInBackground() throws Exception {
+        keyStoreCache = new KeyStoreCache(50);
+        CountDownLatch latch = new CountDownLatch(1);
+        keyStoreCache.addReloadListener(location -> latch.countDown());
+        keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD);
+        
+        writeKeyStore("second");
+        
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("second"), Collections.list(keyStoreCache.getKeyStore(location, "PKCS12", PASSWORD).aliases()));
+    }
+    
+    private void writeKeyStore(String alias) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry(alias, certificate.cert());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            keyStore.store(out, PASSWORD.toCharArray());
+        }
+        touch();
+    }
+    
+    private void touch() {
+        // the modification time may only be recorded to the second, so make sure each write is seen as a change
+        lastModified += TimeUnit.SECONDS.toMillis(2);
+        assertTrue(file.toFile().setLastModified(lastModified));
+    }
+}
@@ -0,0 +1,67 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyManagementException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import io.netty.handler.ssl.OpenSslEngine;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class OpenSslEngineProviderTest {
+    private static SelfSignedCertificate certificate;
+    private static KeyManagerFactory keyManagerFactory;
+    
+    @BeforeAll
+    public static void setup() throws Exception {
+        assertTrue(OpenSslEngineProvider.install());
+        certificate = new SelfSignedCertificate("localhost");
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", certificate.key(), "secret".toCharArray(), new Certificate[] {certificate.cert()});
+        keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, "secret".toCharArray());
+    }
+    
+    @AfterAll
+    public static void deleteCertificate() {
+        certificate.delete();
+    }
+    
+    @Test
+    public void testCreatesOpenSslServerEngines() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance(OpenSslEngineProvider.PROTOCOL);
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        
+        SSLEngine engine = sslContext.createSSLEngine();
+        assertInstanceOf(OpenSslEngine.class, engine);
+        assertFalse(engine.getUseClientMode());
+    }
+    
+    @Test
+    public void testKeyManagerIsRequired() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance(OpenSslEngineProvider.PROTOCOL);
+        assertThrows(KeyManagementException.class, () -> sslContext.init(null, null, null));
+    }
+    
+    @Test
+    public void testOnlyServerEnginesAreProvided() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance(OpenSslEngineProvider.PROTOCOL);
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        
+        assertThrows(UnsupportedOperationException.class, sslContext::getSocketFactory);
+        assertThrows(UnsupportedOperationException.class, sslContext::getClientSessionContext);
+    }
+}
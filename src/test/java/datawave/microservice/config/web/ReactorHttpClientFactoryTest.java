@@ -0,0 +1,141 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.net.ssl.SSLException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+public class ReactorHttpClientFactoryTest {
+    private static SelfSignedCertificate certificate;
+    
+    // the global event loops are shared with other tests, so these tests use their own
+    private LoopResources loops;
+    private DisposableServer server;
+    private ReactorHttpClientFactory factory;
+    
+    @BeforeAll
+    public static void createCertificate() throws Exception {
+        certificate = new SelfSignedCertificate("localhost");
+    }
+    
+    @AfterAll
+    public static void deleteCertificate() {
+        certificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() {
+        loops = LoopResources.create("reactor-http-client-factory-test", 1, true);
+    }
+    
+    @AfterEach
+    public void teardown() {
+        if (factory != null) {
+            factory.destroy();
+        }
+        if (server != null) {
+            server.disposeNow();
+        }
+        loops.dispose();
+    }
+    
+    @Test
+    public void testHttp2IsNegotiated() throws Exception {
+        startServer(true);
+        factory = createFactory(true);
+        
+        assertEquals(ApplicationProtocolNames.HTTP_2, getProtocol());
+    }
+    
+    @Test
+    public void testHttp2Disabled() throws Exception {
+        startServer(true);
+        factory = createFactory(false);
+        
+        assertEquals(ApplicationProtocolNames.HTTP_1_1, getProtocol());
+    }
+    
+    @Test
+    public void testFallbackToHttp11() throws Exception {
+        startServer(false);
+        factory = createFactory(true);
+        
+        assertEquals(ApplicationProtocolNames.HTTP_1_1, getProtocol());
+    }
+    
+    private void startServer(boolean http2) {
+        // @formatter:off
+        HttpServer httpServer = HttpServer.create()
+                .runOn(loops)
+                .host("localhost")
+                .port(0)
+                .handle((request, response) -> {
+                    // requests received over HTTP/2 are converted to HTTP/1.1 requests, so the protocol is told by the channel they arrive on
+                    StringBuilder protocol = new StringBuilder();
+                    request.withConnection(connection -> protocol.append(
+                            (connection.channel() instanceof Http2StreamChannel) ? ApplicationProtocolNames.HTTP_2 : ApplicationProtocolNames.HTTP_1_1));
+                    return response.sendString(Mono.just(protocol.toString()));
+                });
+        if (http2) {
+            httpServer = httpServer
+                    .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure(spec -> spec.sslContext(Http2SslContextSpec.forServer(certificate.certificate(), certificate.privateKey())));
+        } else {
+            httpServer = httpServer
+                    .secure(spec -> spec.sslContext(Http11SslContextSpec.forServer(certificate.certificate(), certificate.privateKey())));
+        }
+        // @formatter:on
+        server = httpServer.bindNow();
+    }
+    
+    private static ReactorHttpClientFactory createFactory(boolean http2Enabled) throws SSLException {
+        WebClientProperties properties = new WebClientProperties();
+        properties.setHttp2Enabled(http2Enabled);
+        SslContext sslContext = SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+        // @formatter:off
+        SslContext http2SslContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .applicationProtocolConfig(new ApplicationProtocolConfig(
+                        ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                        ApplicationProtocolNames.HTTP_2,
+                        ApplicationProtocolNames.HTTP_1_1))
+                .build();
+        // @formatter:on
+        return new ReactorHttpClientFactory(properties, sslContext, http2SslContext, false);
+    }
+    
+    private String getProtocol() {
+        // @formatter:off
+        return factory.createHttpClient(null)
+                .runOn(loops)
+                .get()
+                .uri("https://localhost:" + server.port() + "/protocol")
+                .responseContent()
+                .aggregate()
+                .asString()
+                .block();
+        // @formatter:on
+    }
+}
@@ -0,0 +1,163 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateRevokedException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class SslContextConfigTest {
+    private static final String PASSWORD = "secret";
+    private static final String AUTH_TYPE = "ECDHE_RSA";
+    
+    private static SelfSignedCertificate certificate;
+    private static SelfSignedCertificate otherCertificate;
+    
+    @TempDir
+    Path tempDir;
+    
+    private Path trustStoreFile;
+    private KeyStoreCache keyStoreCache;
+    private DatawaveServerProperties serverProperties;
+    private long lastModified = TimeUnit.HOURS.toMillis(TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis()));
+    
+    @BeforeAll
+    public static void createCertificates() throws Exception {
+        // both certificates have the same subject and issuer, so either one looks like the service's own certificate
+        certificate = new SelfSignedCertificate("localhost");
+        otherCertificate = new SelfSignedCertificate("localhost");
+    }
+    
+    @AfterAll
+    public static void deleteCertificates() {
+        certificate.delete();
+        otherCertificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() throws Exception {
+        Path keyStoreFile = tempDir.resolve("keystore.p12");
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("service", certificate.key(), PASSWORD.toCharArray(), new Certificate[] {certificate.cert()});
+        try (OutputStream out = Files.newOutputStream(keyStoreFile)) {
+            keyStore.store(out, PASSWORD.toCharArray());
+        }
+        trustStoreFile = tempDir.resolve("truststore.p12");
+        writeTrustStore(certificate.cert());
+        
+        serverProperties = new DatawaveServerProperties();
+        DatawaveServerProperties.OutboundSsl ssl = serverProperties.getOutboundSsl();
+        ssl.setKeyStore(keyStoreFile.toUri().toString());
+        ssl.setKeyStoreType("PKCS12");
+        ssl.setKeyStorePassword(PASSWORD);
+        ssl.setTrustStore(trustStoreFile.toUri().toString());
+        ssl.setTrustStoreType("PKCS12");
+        ssl.setTrustStorePassword(PASSWORD);
+        ssl.setVerifiedChainCacheSize(10);
+        keyStoreCache = new KeyStoreCache(0);
+    }
+    
+    @AfterEach
+    public void teardown() {
+        keyStoreCache.destroy();
+    }
+    
+    @Test
+    public void testVerifiedChainIsCached() throws Exception {
+        X509ExtendedTrustManager trustManager = new SslContextConfig(serverProperties, keyStoreCache).getTrustManager();
+        X509Certificate[] chain = {certificate.cert()};
+        trustManager.checkServerTrusted(chain, AUTH_TYPE, (Socket) null);
+        
+        // the cached chain doesn't look at the socket at all
+        SSLSocket socket = mock(SSLSocket.class);
+        trustManager.checkServerTrusted(chain, AUTH_TYPE, socket);
+        verifyNoInteractions(socket);
+    }
+    
+    @Test
+    public void testChangedChainMissesCache() throws Exception {
+        X509ExtendedTrustManager trustManager = new SslContextConfig(serverProperties, keyStoreCache).getTrustManager();
+        trustManager.checkServerTrusted(new X509Certificate[] {certificate.cert()}, AUTH_TYPE, (Socket) null);
+        
+        // same subject and issuer, but not the certificate that was verified
+        assertThrows(CertificateException.class,
+                        () -> trustManager.checkServerTrusted(new X509Certificate[] {otherCertificate.cert()}, AUTH_TYPE, (Socket) null));
+    }
+    
+    @Test
+    public void testReloadedTrustStoreMissesCache() throws Exception {
+        X509ExtendedTrustManager trustManager = new SslContextConfig(serverProperties, keyStoreCache).getTrustManager();
+        X509Certificate[] chain = {certificate.cert()};
+        trustManager.checkServerTrusted(chain, AUTH_TYPE, (Socket) null);
+        
+        writeTrustStore(otherCertificate.cert());
+        keyStoreCache.reloadChanged();
+        
+        assertThrows(CertificateException.class, () -> trustManager.checkServerTrusted(chain, AUTH_TYPE, (Socket) null));
+    }
+    
+    @Test
+    public void testCachingIsOffByDefault() throws Exception {
+        serverProperties.getOutboundSsl().setVerifiedChainCacheSize(new DatawaveServerProperties().getOutboundSsl().getVerifiedChainCacheSize());
+        X509ExtendedTrustManager trustManager = new SslContextConfig(serverProperties, keyStoreCache).getTrustManager();
+        X509Certificate[] chain = {certificate.cert()};
+        trustManager.checkServerTrusted(chain, AUTH_TYPE, (Socket) null);
+        
+        // the chain is validated again, which consults the socket
+        Socket socket = mock(Socket.class);
+        trustManager.checkServerTrusted(chain, AUTH_TYPE, socket);
+        verify(socket, atLeastOnce()).isConnected();
+    }
+    
+    @Test
+    public void testRevokedServerCertificateIsRejected() throws Exception {
+        // the certificate is self-signed, so it also signs the CRL that revokes it
+        Path crl = CrlRevocationCheckerTest.writeCrl(tempDir.resolve("server.crl"), certificate, 30, certificate.cert().getSerialNumber());
+        serverProperties.getOutboundSsl().setCrlFiles(Collections.singletonList(crl.toString()));
+        SslContextConfig config = new SslContextConfig(serverProperties, keyStoreCache);
+        try {
+            X509ExtendedTrustManager trustManager = config.getTrustManager();
+            assertThrows(CertificateRevokedException.class,
+                            () -> trustManager.checkServerTrusted(new X509Certificate[] {certificate.cert()}, AUTH_TYPE, (Socket) null));
+        } finally {
+            config.destroy();
+        }
+    }
+    
+    private void writeTrustStore(X509Certificate trusted) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("trusted", trusted);
+        try (OutputStream out = Files.newOutputStream(trustStoreFile)) {
+            trustStore.store(out, PASSWORD.toCharArray());
+        }
+        // the modification time may only be recorded to the second, so make sure each write is seen as a change
+        lastModified += TimeUnit.SECONDS.toMillis(2);
+        trustStoreFile.toFile().setLastModified(lastModified);
+    }
+}
@@ -0,0 +1,135 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class TlsSessionMetricsTest {
+    private static SelfSignedCertificate certificate;
+    private static SSLServerSocket serverSocket;
+    
+    private MetricRegistry metricRegistry;
+    private TlsSessionMetrics metrics;
+    
+    @BeforeAll
+    public static void startServer() throws Exception {
+        certificate = new SelfSignedCertificate("localhost");
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", certificate.key(), "secret".toCharArray(), new Certificate[] {certificate.cert()});
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, "secret".toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        
+        serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+                    // exchanging a byte lets a TLS 1.3 client receive the session ticket that it resumes with
+                    socket.getInputStream().read();
+                    socket.getOutputStream().write(1);
+                    socket.getOutputStream().flush();
+                } catch (IOException e) {
+                    // the client went away, or the server was closed
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    @AfterAll
+    public static void stopServer() throws IOException {
+        serverSocket.close();
+        certificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        metrics = new TlsSessionMetrics(metricRegistry, "jdk");
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"TLSv1.2", "TLSv1.3"})
+    public void testResumedSessionsAreCounted(String protocol) throws Exception {
+        SSLContext clientContext = createClientContext();
+        
+        // connections made in quick succession resume the session of the first one
+        for (int i = 0; i < 3; i++) {
+            metrics.recordHandshake(connect(clientContext, protocol));
+        }
+        assertEquals(3, metricRegistry.meter("tls.client.jdk.handshakes").getCount());
+        assertEquals(2, metricRegistry.meter("tls.client.jdk.resumedHandshakes").getCount());
+        
+        // a client with its own session cache can't resume
+        metrics.recordHandshake(connect(createClientContext(), protocol));
+        assertEquals(4, metricRegistry.meter("tls.client.jdk.handshakes").getCount());
+        assertEquals(2, metricRegistry.meter("tls.client.jdk.resumedHandshakes").getCount());
+    }
+    
+    @ParameterizedTest
+    @ValueSource(longs = {1_700_000_000_000L, 1_700_000_000_123L})
+    public void testSessionsWithoutIdsAreNotMatchedAcrossPeers(long creationTime) {
+        assertFalse(metrics.isResumed(mockSession(new byte[0], creationTime, "first")));
+        assertFalse(metrics.isResumed(mockSession(new byte[0], creationTime, "second")));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testCreationTimeToTheSecondIsNotTrusted(boolean millisecondPrecision) {
+        // e.g. two full TLS 1.3 handshakes with OpenSSL in the same second
+        long creationTime = millisecondPrecision ? 1_700_000_000_123L : 1_700_000_000_000L;
+        assertFalse(metrics.isResumed(mockSession(new byte[] {1}, creationTime, "peer")));
+        assertEquals(millisecondPrecision, metrics.isResumed(mockSession(new byte[] {2}, creationTime, "peer")));
+    }
+    
+    private static SSLSession connect(SSLContext clientContext, String protocol) throws IOException {
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", serverSocket.getLocalPort())) {
+            socket.setEnabledProtocols(new String[] {protocol});
+            socket.startHandshake();
+            socket.getOutputStream().write(1);
+            socket.getOutputStream().flush();
+            socket.getInputStream().read();
+            return socket.getSession();
+        }
+    }
+    
+    private static SSLContext createClientContext() throws Exception {
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, InsecureTrustManagerFactory.INSTANCE.getTrustManagers(), null);
+        return clientContext;
+    }
+    
+    private static SSLSession mockSession(byte[] id, long creationTime, String peerHost) {
+        SSLSession session = mock(SSLSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getCreationTime()).thenReturn(creationTime);
+        when(session.getPeerHost()).thenReturn(peerHost);
+        when(session.getPeerPort()).thenReturn(443);
+        return session;
+    }
+}
@@ -0,0 +1,258 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.Ssl;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class UndertowCustomizerTest {
+    private static final String PASSWORD = "secret";
+    
+    private static SelfSignedCertificate serverCertificate;
+    private static SelfSignedCertificate clientCertificate;
+    
+    @TempDir
+    Path tempDir;
+    
+    private AnnotationConfigApplicationContext context;
+    private ServerProperties serverProperties;
+    private DatawaveServerProperties datawaveServerProperties;
+    private WebServer webServer;
+    
+    @BeforeAll
+    public static void createCertificates() throws Exception {
+        serverCertificate = new SelfSignedCertificate("localhost");
+        clientCertificate = new SelfSignedCertificate("client");
+    }
+    
+    @AfterAll
+    public static void deleteCertificates() {
+        serverCertificate.delete();
+        clientCertificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() throws Exception {
+        Ssl ssl = new Ssl();
+        ssl.setKeyStore(writeKeyStore("keystore.p12", serverCertificate));
+        ssl.setKeyStoreType("PKCS12");
+        ssl.setKeyStorePassword(PASSWORD);
+        ssl.setTrustStore(writeTrustStore("truststore.p12", clientCertificate.cert()));
+        ssl.setTrustStoreType("PKCS12");
+        ssl.setTrustStorePassword(PASSWORD);
+        serverProperties = new ServerProperties();
+        serverProperties.setSsl(ssl);
+        
+        datawaveServerProperties = new DatawaveServerProperties();
+        datawaveServerProperties.setNonSecurePort(-1);
+        datawaveServerProperties.setInboundVerifiedChainCacheSize(0);
+        
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(ServerProperties.class, () -> serverProperties);
+        context.registerBean(DatawaveServerProperties.class, () -> datawaveServerProperties);
+        context.register(UndertowCustomizer.class);
+    }
+    
+    @AfterEach
+    public void teardown() {
+        if (webServer != null) {
+            webServer.stop();
+        }
+        context.close();
+    }
+    
+    @Test
+    public void testOpenSslWithHttp2() throws Exception {
+        UndertowServletWebServerFactory factory = startServer("undertow.ssl.openssl=true", "undertow.enable.http2=true");
+        
+        assertEquals(OpenSslEngineProvider.HTTP2_PROTOCOL, factory.getSsl().getProtocol());
+        assertEquals("HTTP/2.0 no client certificate", get(createClient(HttpClient.Version.HTTP_2, false)));
+        // the shared server properties are left alone
+        assertEquals("TLS", serverProperties.getSsl().getProtocol());
+    }
+    
+    @Test
+    public void testOpenSslWithHttp11() throws Exception {
+        UndertowServletWebServerFactory factory = startServer("undertow.ssl.openssl=true", "undertow.enable.http2=false");
+        
+        assertEquals(OpenSslEngineProvider.PROTOCOL, factory.getSsl().getProtocol());
+        assertEquals("HTTP/1.1 no client certificate", get(createClient(HttpClient.Version.HTTP_2, false)));
+    }
+    
+    @Test
+    public void testOpenSslRequiresClientCertificate() throws Exception {
+        serverProperties.getSsl().setClientAuth(Ssl.ClientAuth.NEED);
+        startServer("undertow.ssl.openssl=true");
+        
+        assertEquals("HTTP/2.0 CN=client", get(createClient(HttpClient.Version.HTTP_2, true)));
+        assertThrows(IOException.class, () -> get(createClient(HttpClient.Version.HTTP_2, false)));
+    }
+    
+    @Test
+    public void testOpenSslKeepsVersionedProtocol() throws Exception {
+        serverProperties.getSsl().setProtocol("TLSv1.2");
+        UndertowServletWebServerFactory factory = startServer("undertow.ssl.openssl=true");
+        
+        assertArrayEquals(new String[] {"TLSv1.2"}, factory.getSsl().getEnabledProtocols());
+        assertEquals("HTTP/2.0 no client certificate", get(createClient(HttpClient.Version.HTTP_2, false)));
+    }
+    
+    @Test
+    public void testJdkByDefault() throws Exception {
+        UndertowServletWebServerFactory factory = startServer();
+        
+        assertEquals("TLS", factory.getSsl().getProtocol());
+        assertEquals("HTTP/2.0 no client certificate", get(createClient(HttpClient.Version.HTTP_2, false)));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testRevokedClientCertificateIsRejected(boolean openSsl) throws Exception {
+        serverProperties.getSsl().setClientAuth(Ssl.ClientAuth.NEED);
+        // the client certificate is self-signed, so it also signs the CRL that revokes it
+        Path crl = CrlRevocationCheckerTest.writeCrl(tempDir.resolve("client.crl"), clientCertificate, 30, clientCertificate.cert().getSerialNumber());
+        datawaveServerProperties.setInboundCrlFiles(Collections.singletonList(crl.toString()));
+        UndertowServletWebServerFactory factory = startServer("undertow.ssl.openssl=" + openSsl);
+        
+        assertTrue(factory.getSsl().getProtocol().startsWith(VerifiedChainCachingProvider.PROTOCOL_PREFIX));
+        assertThrows(IOException.class, () -> get(createClient(HttpClient.Version.HTTP_2, true)));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testUnrevokedClientCertificateIsAccepted(boolean openSsl) throws Exception {
+        serverProperties.getSsl().setClientAuth(Ssl.ClientAuth.NEED);
+        Path crl = CrlRevocationCheckerTest.writeCrl(tempDir.resolve("client.crl"), clientCertificate, 30, BigInteger.ONE);
+        datawaveServerProperties.setInboundCrlFiles(Collections.singletonList(crl.toString()));
+        startServer("undertow.ssl.openssl=" + openSsl);
+        
+        assertEquals("HTTP/2.0 CN=client", get(createClient(HttpClient.Version.HTTP_2, true)));
+    }
+    
+    @Test
+    public void testCachedClientIsRejectedAfterTrustStoreReload() throws Exception {
+        KeyStoreCache keyStoreCache = new KeyStoreCache(0);
+        context.registerBean(KeyStoreCache.class, () -> keyStoreCache);
+        serverProperties.getSsl().setClientAuth(Ssl.ClientAuth.NEED);
+        datawaveServerProperties.setInboundVerifiedChainCacheSize(10);
+        startServer();
+        assertEquals("HTTP/2.0 CN=client", get(createClient(HttpClient.Version.HTTP_2, true)));
+        
+        // the client's certificate is no longer trusted
+        File trustStore = tempDir.resolve("truststore.p12").toFile();
+        long lastModified = trustStore.lastModified();
+        writeTrustStore("truststore.p12", serverCertificate.cert());
+        assertTrue(trustStore.setLastModified(lastModified + TimeUnit.SECONDS.toMillis(2)));
+        keyStoreCache.reloadChanged();
+        
+        assertThrows(IOException.class, () -> get(createClient(HttpClient.Version.HTTP_2, true)));
+    }
+    
+    private UndertowServletWebServerFactory startServer(String... properties) {
+        TestPropertyValues.of(properties).applyTo(context);
+        context.refresh();
+        
+        UndertowServletWebServerFactory factory = new UndertowServletWebServerFactory(0);
+        factory.setSsl(serverProperties.getSsl());
+        context.getBean(UndertowCustomizer.class).customize(factory);
+        webServer = factory.getWebServer(servletContext -> servletContext.addServlet("info", new InfoServlet()).addMapping("/*"));
+        webServer.start();
+        return factory;
+    }
+    
+    private String get(HttpClient client) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("https://localhost:" + webServer.getPort() + "/info")).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+    
+    private static HttpClient createClient(HttpClient.Version version, boolean withCertificate) throws Exception {
+        KeyManagerFactory keyManagerFactory = null;
+        if (withCertificate) {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("client", clientCertificate.key(), PASSWORD.toCharArray(), new Certificate[] {clientCertificate.cert()});
+            keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, PASSWORD.toCharArray());
+        }
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory != null ? keyManagerFactory.getKeyManagers() : null, InsecureTrustManagerFactory.INSTANCE.getTrustManagers(), null);
+        return HttpClient.newBuilder().version(version).sslContext(sslContext).build();
+    }
+    
+    private String writeKeyStore(String name, SelfSignedCertificate certificate) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", certificate.key(), PASSWORD.toCharArray(), new Certificate[] {certificate.cert()});
+        return store(name, keyStore);
+    }
+    
+    private String writeTrustStore(String name, X509Certificate trusted) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("trusted", trusted);
+        return store(name, trustStore);
+    }
+    
+    private String store(String name, KeyStore keyStore) throws Exception {
+        Path file = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            keyStore.store(out, PASSWORD.toCharArray());
+        }
+        return file.toUri().toString();
+    }
+    
+    /**
+     * Responds with the request's protocol and the subject of the client's certificate.
+     */
+    private static class InfoServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            X509Certificate[] certificates = (X509Certificate[]) request.getAttribute("javax.servlet.request.X509Certificate");
+            String client = (certificates != null) ? certificates[0].getSubjectX500Principal().getName() : "no client certificate";
+            response.setContentType("text/plain");
+            response.getWriter().print(request.getProtocol() + " " + client);
+        }
+    }
+}
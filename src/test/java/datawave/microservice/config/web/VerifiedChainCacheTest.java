@@ -0,0 +1,69 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class VerifiedChainCacheTest {
+    private static final long START = 1_700_000_000_000L;
+    
+    private AtomicLong now;
+    private VerifiedChainCache cache;
+    
+    @BeforeEach
+    public void setup() {
+        now = new AtomicLong(START);
+        cache = new VerifiedChainCache(10, TimeUnit.HOURS.toMillis(1), now::get);
+    }
+    
+    @Test
+    public void testChainExpiresWithEarliestCertificate() throws Exception {
+        X509Certificate[] chain = {certificate(new byte[] {1}, START + 1000), certificate(new byte[] {2}, START + 500),
+                        certificate(new byte[] {3}, START + 2000)};
+        String key = cache.getKey(chain, "RSA");
+        cache.verified(key, chain);
+        
+        now.set(START + 499);
+        assertTrue(cache.isVerified(key));
+        now.set(START + 500);
+        assertFalse(cache.isVerified(key));
+    }
+    
+    @Test
+    public void testChainExpiresAfterTimeToLive() throws Exception {
+        X509Certificate[] chain = {certificate(new byte[] {1}, START + TimeUnit.DAYS.toMillis(1))};
+        String key = cache.getKey(chain, "RSA");
+        cache.verified(key, chain);
+        
+        now.set(START + TimeUnit.HOURS.toMillis(1) - 1);
+        assertTrue(cache.isVerified(key));
+        now.set(START + TimeUnit.HOURS.toMillis(1));
+        assertFalse(cache.isVerified(key));
+    }
+    
+    @Test
+    public void testKeyIdentifiesEveryCertificate() throws Exception {
+        X509Certificate leaf = certificate(new byte[] {1}, START + 1000);
+        String key = cache.getKey(new X509Certificate[] {leaf, certificate(new byte[] {2}, START + 1000)}, "RSA");
+        
+        assertNotEquals(key, cache.getKey(new X509Certificate[] {leaf, certificate(new byte[] {3}, START + 1000)}, "RSA"));
+        assertNotEquals(key, cache.getKey(new X509Certificate[] {leaf, certificate(new byte[] {2}, START + 1000)}, "EC"));
+    }
+    
+    private static X509Certificate certificate(byte[] encoded, long notAfter) throws Exception {
+        X509Certificate cert = mock(X509Certificate.class);
+        when(cert.getEncoded()).thenReturn(encoded);
+        when(cert.getNotAfter()).thenReturn(new Date(notAfter));
+        return cert;
+    }
+}
@@ -0,0 +1,218 @@
+package datawave.microservice.config.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class VerifiedChainCachingProviderTest {
+    private static final String PROTOCOL = VerifiedChainCachingProvider.PROTOCOL_PREFIX + "TLS";
+    
+    private static SelfSignedCertificate serverCertificate;
+    private static SelfSignedCertificate clientCertificate;
+    
+    private AtomicLong now;
+    private VerifiedChainCachingProvider provider;
+    
+    @BeforeAll
+    public static void createCertificates() throws Exception {
+        Date notBefore = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        Date notAfter = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+        serverCertificate = new SelfSignedCertificate("localhost", notBefore, notAfter);
+        clientCertificate = new SelfSignedCertificate("client", notBefore, notAfter);
+    }
+    
+    @AfterAll
+    public static void deleteCertificates() {
+        serverCertificate.delete();
+        clientCertificate.delete();
+    }
+    
+    @BeforeEach
+    public void setup() {
+        now = new AtomicLong(System.currentTimeMillis());
+        // a time to live longer than the certificates' lifetime, so the certificates' expiration decides how long validations are remembered
+        provider = VerifiedChainCachingProvider.install(new VerifiedChainCache(10, TimeUnit.DAYS.toMillis(7), now::get), null);
+    }
+    
+    @Test
+    public void testClientValidationIsCached() throws Exception {
+        CountingTrustManager serverTrust = new CountingTrustManager(clientCertificate);
+        SSLContext serverContext = createContext(PROTOCOL, serverCertificate, serverTrust);
+        SSLContext clientContext = createContext("TLS", clientCertificate, new CountingTrustManager(serverCertificate));
+        
+        handshake(serverContext, clientContext);
+        handshake(serverContext, clientContext);
+        
+        assertEquals(1, serverTrust.clientChecks.get());
+    }
+    
+    @Test
+    public void testValidationExpiresWithCertificate() throws Exception {
+        CountingTrustManager serverTrust = new CountingTrustManager(clientCertificate);
+        SSLContext serverContext = createContext(PROTOCOL, serverCertificate, serverTrust);
+        SSLContext clientContext = createContext("TLS", clientCertificate, new CountingTrustManager(serverCertificate));
+        handshake(serverContext, clientContext);
+        
+        now.set(clientCertificate.cert().getNotAfter().getTime() - 1);
+        handshake(serverContext, clientContext);
+        assertEquals(1, serverTrust.clientChecks.get());
+        
+        // a validation isn't remembered once any certificate in the chain has expired, so the delegate is asked again
+        now.set(clientCertificate.cert().getNotAfter().getTime());
+        handshake(serverContext, clientContext);
+        assertEquals(2, serverTrust.clientChecks.get());
+    }
+    
+    @Test
+    public void testServerChecksBypassCache() throws Exception {
+        SSLContext serverContext = createContext("TLS", serverCertificate, new CountingTrustManager(clientCertificate));
+        CountingTrustManager clientTrust = new CountingTrustManager(serverCertificate);
+        SSLContext clientContext = createContext(PROTOCOL, clientCertificate, clientTrust);
+        
+        handshake(serverContext, clientContext);
+        handshake(serverContext, clientContext);
+        
+        assertEquals(2, clientTrust.serverChecks.get());
+    }
+    
+    @Test
+    public void testReplacedTrustManagerRejectsCachedClient() throws Exception {
+        SSLContext serverContext = createContext(PROTOCOL, serverCertificate, new CountingTrustManager(clientCertificate));
+        SSLContext clientContext = createContext("TLS", clientCertificate, new CountingTrustManager(serverCertificate));
+        handshake(serverContext, clientContext);
+        
+        // e.g., the client's certificate was removed from the reloaded truststore
+        provider.setTrustManager(new CountingTrustManager(serverCertificate));
+        
+        ExecutionException e = assertThrows(ExecutionException.class, () -> handshake(serverContext, clientContext));
+        assertInstanceOf(SSLHandshakeException.class, e.getCause().getCause());
+    }
+    
+    private static SSLContext createContext(String protocol, SelfSignedCertificate certificate, X509ExtendedTrustManager trustManager) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("key", certificate.key(), "secret".toCharArray(), new Certificate[] {certificate.cert()});
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, "secret".toCharArray());
+        
+        SSLContext sslContext = SSLContext.getInstance(protocol);
+        sslContext.init(keyManagerFactory.getKeyManagers(), new TrustManager[] {trustManager}, null);
+        return sslContext;
+    }
+    
+    /**
+     * Completes a handshake that requires a client certificate, throwing an {@link ExecutionException} if the server fails it. Each handshake uses a new server
+     * port, so the client can't resume an earlier session.
+     */
+    private static void handshake(SSLContext serverContext, SSLContext clientContext) throws Exception {
+        try (SSLServerSocket serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0)) {
+            serverSocket.setNeedClientAuth(true);
+            CompletableFuture<Integer> server = CompletableFuture.supplyAsync(() -> {
+                try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+                    socket.startHandshake();
+                    return socket.getInputStream().read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", serverSocket.getLocalPort())) {
+                socket.startHandshake();
+                socket.getOutputStream().write(1);
+                socket.getOutputStream().flush();
+            } catch (IOException e) {
+                // the client may only see a rejected certificate as a broken connection, so the server's outcome is checked below
+            }
+            server.get(10, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Validates certificates against a single trusted certificate, counting the validations.
+     */
+    private static class CountingTrustManager extends X509ExtendedTrustManager {
+        private final X509ExtendedTrustManager delegate;
+        private final AtomicInteger clientChecks = new AtomicInteger();
+        private final AtomicInteger serverChecks = new AtomicInteger();
+        
+        CountingTrustManager(SelfSignedCertificate trusted) throws Exception {
+            KeyStore trustStore = KeyStore.getInstance("PKCS12");
+            trustStore.load(null, null);
+            trustStore.setCertificateEntry("trusted", trusted.cert());
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(trustStore);
+            delegate = (X509ExtendedTrustManager) trustManagerFactory.getTrustManagers()[0];
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+            clientChecks.incrementAndGet();
+            delegate.checkClientTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+            serverChecks.incrementAndGet();
+            delegate.checkServerTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+            clientChecks.incrementAndGet();
+            delegate.checkClientTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+            serverChecks.incrementAndGet();
+            delegate.checkServerTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            clientChecks.incrementAndGet();
+            delegate.checkClientTrusted(chain, authType);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            serverChecks.incrementAndGet();
+            delegate.checkServerTrusted(chain, authType);
+        }
+        
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+    }
+}
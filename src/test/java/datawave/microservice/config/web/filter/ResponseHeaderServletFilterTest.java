@@ -0,0 +1,177 @@
+package datawave.microservice.config.web.filter;
+
+import static datawave.microservice.config.web.Constants.OPERATION_TIME_MS_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_NS_ATTRIBUTE;
+import static datawave.microservice.config.web.Constants.RESPONSE_ORIGIN_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import datawave.microservice.config.web.DatawaveServerProperties;
+import datawave.microservice.config.web.RequestDeadlines;
+
+public class ResponseHeaderServletFilterTest {
+    private ResponseHeaderServletFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    
+    @BeforeEach
+    public void setup() {
+        filter = new ResponseHeaderServletFilter("test");
+        filter.setCancelExpiredRequests(true);
+        request = new MockHttpServletRequest("GET", "/test");
+        response = new MockHttpServletResponse();
+    }
+    
+    @AfterEach
+    public void teardown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+    
+    @Test
+    public void testHeadersAreWritten() throws Exception {
+        filter.doFilter(request, response, new MockFilterChain());
+        
+        assertTrue(response.getHeader(RESPONSE_ORIGIN_HEADER).startsWith("test / "));
+        assertNotNull(response.getHeader(OPERATION_TIME_MS_HEADER));
+    }
+    
+    @Test
+    public void testPassedDeadlineIsRejected() throws Exception {
+        request.addHeader(REQUEST_DEADLINE_HEADER, "0");
+        AtomicBoolean handled = new AtomicBoolean();
+        
+        filter.doFilter(request, response, new MockFilterChain(new TestServlet(() -> handled.set(true))));
+        
+        assertEquals(HttpServletResponse.SC_GATEWAY_TIMEOUT, response.getStatus());
+        assertFalse(handled.get());
+    }
+    
+    @Test
+    public void testPassedDeadlineIsHandledByDefault() throws Exception {
+        assertFalse(new DatawaveServerProperties().isCancelExpiredRequests());
+        filter = new ResponseHeaderServletFilter("test");
+        request.addHeader(REQUEST_DEADLINE_HEADER, "0");
+        AtomicBoolean handled = new AtomicBoolean();
+        
+        filter.doFilter(request, response, new MockFilterChain(new TestServlet(() -> handled.set(true))));
+        
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertTrue(handled.get());
+        // the deadline is still recorded, so that outbound calls can forward it
+        assertNotNull(request.getAttribute(REQUEST_DEADLINE_NS_ATTRIBUTE));
+    }
+    
+    @Test
+    public void testHandlerThatChecksPassedDeadlineGets504() throws Exception {
+        request.addHeader(REQUEST_DEADLINE_HEADER, "50");
+        AtomicBoolean interrupted = new AtomicBoolean();
+        
+        filter.doFilter(request, response, new MockFilterChain(new TestServlet(() -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            assertFalse(RequestDeadlines.isCurrentDeadlinePassed());
+            sleep(100);
+            interrupted.set(Thread.currentThread().isInterrupted());
+            RequestDeadlines.checkDeadline();
+        })));
+        
+        assertEquals(HttpServletResponse.SC_GATEWAY_TIMEOUT, response.getStatus());
+        // the deadline is only checked, never enforced by interrupting the handler
+        assertFalse(interrupted.get());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+    
+    @Test
+    public void testHandlerThatChecksPassedDeadlineIsHandledByDefault() throws Exception {
+        filter = new ResponseHeaderServletFilter("test");
+        request.addHeader(REQUEST_DEADLINE_HEADER, "0");
+        AtomicBoolean handled = new AtomicBoolean();
+        
+        filter.doFilter(request, response, new MockFilterChain(new TestServlet(() -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            assertFalse(RequestDeadlines.isCurrentDeadlinePassed());
+            RequestDeadlines.checkDeadline();
+            handled.set(true);
+        })));
+        
+        // the deadline is only forwarded when expired requests aren't cancelled, so checking it doesn't stop the handler
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertTrue(handled.get());
+    }
+    
+    @Test
+    public void testOtherFailuresArePropagated() {
+        request.addHeader(REQUEST_DEADLINE_HEADER, "60000");
+        MockFilterChain chain = new MockFilterChain(new TestServlet(() -> {
+            throw new IllegalStateException("failed");
+        }));
+        
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request, response, chain));
+    }
+    
+    @Test
+    public void testAsyncTimeoutEndsAtDeadline() throws Exception {
+        request.setAsyncSupported(true);
+        request.addHeader(REQUEST_DEADLINE_HEADER, "60000");
+        
+        filter.doFilter(request, response, new MockFilterChain(new TestServlet(() -> request.startAsync())));
+        
+        long timeout = request.getAsyncContext().getTimeout();
+        assertTrue(timeout > TimeUnit.SECONDS.toMillis(50) && timeout <= TimeUnit.SECONDS.toMillis(60), Long.toString(timeout));
+    }
+    
+    @Test
+    public void testAsyncTimeoutIsKeptWithoutDeadline() throws Exception {
+        request.setAsyncSupported(true);
+        
+        filter.doFilter(request, response, new MockFilterChain(new TestServlet(() -> request.startAsync().setTimeout(1234L))));
+        
+        assertEquals(1234L, request.getAsyncContext().getTimeout());
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * A servlet that runs an action for every request.
+     */
+    private static class TestServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+        
+        private final transient Runnable action;
+        
+        private TestServlet(Runnable action) {
+            this.action = action;
+        }
+        
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException {
+            action.run();
+        }
+    }
+}
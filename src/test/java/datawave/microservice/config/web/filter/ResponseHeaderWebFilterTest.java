@@ -0,0 +1,84 @@
+package datawave.microservice.config.web.filter;
+
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_HEADER;
+import static datawave.microservice.config.web.Constants.REQUEST_DEADLINE_NS_ATTRIBUTE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+public class ResponseHeaderWebFilterTest {
+    private ResponseHeaderWebFilter filter;
+    
+    @BeforeEach
+    public void setup() {
+        filter = new ResponseHeaderWebFilter("test");
+        filter.setCancelExpiredRequests(true);
+    }
+    
+    @Test
+    public void testPassedDeadlineIsRejected() {
+        MockServerWebExchange exchange = exchange("0");
+        AtomicBoolean handled = new AtomicBoolean();
+        
+        filter.filter(exchange, e -> Mono.fromRunnable(() -> handled.set(true))).block(Duration.ofSeconds(10));
+        
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+        assertFalse(handled.get());
+    }
+    
+    @Test
+    public void testHandlingIsCancelledAtDeadline() {
+        MockServerWebExchange exchange = exchange("50");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        
+        filter.filter(exchange, e -> Mono.<Void> never().doOnCancel(() -> cancelled.set(true))).block(Duration.ofSeconds(10));
+        
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+        assertTrue(cancelled.get());
+    }
+    
+    @Test
+    public void testDeadlineIsInContext() {
+        MockServerWebExchange exchange = exchange("60000");
+        AtomicReference<Long> deadline = new AtomicReference<>();
+        
+        // @formatter:off
+        filter.filter(exchange, e -> Mono.deferContextual(context -> {
+                    deadline.set(context.get(REQUEST_DEADLINE_NS_ATTRIBUTE));
+                    return Mono.<Void> empty();
+                }))
+                .block(Duration.ofSeconds(10));
+        // @formatter:on
+        assertEquals(exchange.getAttribute(REQUEST_DEADLINE_NS_ATTRIBUTE), deadline.get());
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+    
+    @Test
+    public void testPassedDeadlineIsHandledByDefault() {
+        filter = new ResponseHeaderWebFilter("test");
+        MockServerWebExchange exchange = exchange("0");
+        AtomicBoolean handled = new AtomicBoolean();
+        
+        filter.filter(exchange, e -> Mono.fromRunnable(() -> handled.set(true))).block(Duration.ofSeconds(10));
+        
+        assertTrue(handled.get());
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+    
+    private static MockServerWebExchange exchange(String deadlineMillis) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/test").header(REQUEST_DEADLINE_HEADER, deadlineMillis));
+    }
+}
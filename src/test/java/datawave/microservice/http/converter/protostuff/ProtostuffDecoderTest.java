@@ -0,0 +1,55 @@
+package datawave.microservice.http.converter.protostuff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+import datawave.webservice.result.VoidResponse;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.Message;
+import io.protostuff.ProtostuffIOUtil;
+import reactor.core.publisher.Flux;
+
+public class ProtostuffDecoderTest {
+    
+    private final ProtostuffDecoder decoder = new ProtostuffDecoder();
+    
+    @Test
+    public void testCanDecode() {
+        assertTrue(decoder.canDecode(ResolvableType.forClass(VoidResponse.class), ProtostuffHttpMessageConverter.PROTOSTUFF));
+        assertFalse(decoder.canDecode(ResolvableType.forClass(VoidResponse.class), MediaType.APPLICATION_JSON));
+        assertFalse(decoder.canDecode(ResolvableType.forClass(String.class), ProtostuffHttpMessageConverter.PROTOSTUFF));
+    }
+    
+    @Test
+    public void testDecodeChunkedBody() {
+        VoidResponse expected = new VoidResponse();
+        expected.setHasResults(true);
+        expected.setOperationTimeMS(42L);
+        expected.addMessage("This is a test message");
+        byte[] bytes = ProtostuffIOUtil.toByteArray(expected, expected.cachedSchema(), LinkedBuffer.allocate());
+        
+        // split the body so the decoder has to join the buffers before reading the message
+        int mid = bytes.length / 2;
+        DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+        Flux<DataBuffer> body = Flux.just(bufferFactory.wrap(Arrays.copyOfRange(bytes, 0, mid)),
+                        bufferFactory.wrap(Arrays.copyOfRange(bytes, mid, bytes.length)));
+        
+        Message<?> actual = decoder.decode(body, ResolvableType.forClass(VoidResponse.class), ProtostuffHttpMessageConverter.PROTOSTUFF, Collections.emptyMap())
+                        .single().block();
+        
+        assertTrue(actual instanceof VoidResponse);
+        assertTrue(((VoidResponse) actual).getHasResults());
+        assertEquals(42L, ((VoidResponse) actual).getOperationTimeMS());
+        assertEquals(expected.getMessages(), ((VoidResponse) actual).getMessages());
+    }
+}